@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mbrlabs.mundus.commons.g3d;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelData;
+import com.badlogic.gdx.utils.UBJsonReader;
+import com.mbrlabs.mundus.commons.test.GridModels;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the MG3dModelLoader (JsonValue tree) with the
+ * StreamingG3dModelLoader on a generated g3db grid mesh (see GridModels in
+ * the test sources).
+ *
+ * Run with: gradlew commons:jmh
+ *
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ModelLoaderBenchmark {
+
+    /** Vertices per side of the grid. */
+    @Param({ "64", "256" })
+    public int gridSize;
+
+    private File tempFile;
+    private FileHandle file;
+
+    private MG3dModelLoader domLoader;
+    private StreamingG3dModelLoader streamingLoader;
+
+    @Setup
+    public void setup() throws IOException {
+        tempFile = File.createTempFile("mundus-benchmark", ".g3db");
+        GridModels.writeG3db(tempFile, gridSize, true);
+        file = new FileHandle(tempFile);
+
+        domLoader = new MG3dModelLoader(new UBJsonReader());
+        streamingLoader = new StreamingG3dModelLoader();
+    }
+
+    @TearDown
+    public void tearDown() {
+        tempFile.delete();
+    }
+
+    @Benchmark
+    public ModelData jsonValueLoader() {
+        return domLoader.loadModelData(file, null);
+    }
+
+    @Benchmark
+    public ModelData streamingLoader() {
+        return streamingLoader.loadModelData(file, null);
+    }
+
+}
@@ -52,7 +52,12 @@ public class Scene implements Disposable {
         currentSelection = null;
         terrains = new Array<TerrainAsset>();
 
-        cam = new PerspectiveCamera(67, Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+        // no graphics in headless mode, the viewport is updated once a renderer is attached
+        if (Gdx.graphics != null) {
+            cam = new PerspectiveCamera(67, Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+        } else {
+            cam = new PerspectiveCamera(67, 1, 1);
+        }
         cam.position.set(0, 1, -3);
         cam.lookAt(0, 1, -1);
         cam.near = 0.2f;
@@ -90,5 +95,15 @@ public class Scene implements Disposable {
         if (skybox != null) {
             skybox.dispose();
         }
+        sceneGraph.setParallelUpdate(false);
+        sceneGraph.getStaticBatcher().dispose();
+        sceneGraph.setInstancing(false);
+        sceneGraph.setShadows(false);
+        environment.dispose();
+
+        // release the assets of all components, so unused ones can be evicted
+        for (GameObject root : sceneGraph.getGameObjects()) {
+            root.releaseAssets();
+        }
     }
 }
@@ -17,7 +17,13 @@
 package com.mbrlabs.mundus.commons.assets;
 
 import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g3d.Model;
+import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.mbrlabs.mundus.commons.assets.meta.Meta;
 
 import java.util.Map;
@@ -29,6 +35,10 @@ import java.util.Map;
  * which contains meta information about the asset. Assets can have dependencies
  * to other assets by specifying the asset id in the meta file or in the asset
  * file.
+ *
+ * Users of an asset (components, other assets) retain() it while they use it
+ * and release() it afterwards. Loaded assets without references can be
+ * evicted by the asset manager, if its memory budget is exceeded.
  * 
  * @author Marcus Brummer
  * @version 01-10-2016
@@ -38,6 +48,11 @@ public abstract class Asset implements Disposable {
     protected FileHandle file;
     protected Meta meta;
 
+    private int refCount = 0;
+    // set by the asset manager, that loaded this asset
+    AssetManager manager;
+    long accountedBytes = 0;
+
     /**
      *
      * @param meta
@@ -69,12 +84,166 @@ public abstract class Asset implements Disposable {
         return "[" + getMeta().getType().toString() + "] " + file.name();
     }
 
+    /**
+     * Adds a reference to this asset.
+     */
+    public void retain() {
+        refCount++;
+        if (refCount == 1 && manager != null) {
+            manager.onReferenced(this);
+        }
+    }
+
+    /**
+     * Removes a reference from this asset. Unreferenced assets may be
+     * evicted and are reloaded on the next AssetManager.acquire().
+     */
+    public void release() {
+        if (refCount == 0) {
+            throw new GdxRuntimeException("Asset released more often than retained: " + this);
+        }
+        refCount--;
+        if (refCount == 0 && manager != null) {
+            manager.onUnreferenced(this);
+        }
+    }
+
+    public int getRefCount() {
+        return refCount;
+    }
+
+    /**
+     * @return approximate number of bytes in main memory used by the loaded
+     *         asset
+     */
+    public long getCpuBytes() {
+        return 0;
+    }
+
+    /**
+     * @return approximate number of bytes in video memory used by the loaded
+     *         asset
+     */
+    public long getGpuBytes() {
+        return 0;
+    }
+
+    /**
+     * Moves a reference from one asset to another.
+     *
+     * @param oldAsset
+     *            currently referenced asset, released. May be null
+     * @param newAsset
+     *            new asset, retained. May be null
+     * @return newAsset
+     */
+    protected static <T extends Asset> T relink(T oldAsset, T newAsset) {
+        if (oldAsset == newAsset) return newAsset;
+        if (newAsset != null) newAsset.retain();
+        if (oldAsset != null) oldAsset.release();
+        return newAsset;
+    }
+
+    /**
+     * @return approximate size of a texture in video memory
+     */
+    protected static long textureBytes(Texture texture) {
+        if (texture == null) return 0;
+        long bytes = (long) texture.getWidth() * texture.getHeight()
+                * bytesPerPixel(texture.getTextureData().getFormat());
+        if (texture.getMinFilter().isMipMap()) {
+            bytes = bytes * 4 / 3;
+        }
+        return bytes;
+    }
+
+    /**
+     * @return size of the vertex & index buffers of all meshes of a model
+     */
+    protected static long modelBytes(Model model) {
+        if (model == null) return 0;
+        long bytes = 0;
+        for (Mesh mesh : model.meshes) {
+            bytes += (long) mesh.getNumVertices() * mesh.getVertexSize() + mesh.getNumIndices() * 2;
+        }
+        return bytes;
+    }
+
+    protected static int bytesPerPixel(Pixmap.Format format) {
+        if (format == null) return 4;
+        switch (format) {
+        case Alpha:
+        case Intensity:
+            return 1;
+        case LuminanceAlpha:
+        case RGB565:
+        case RGBA4444:
+            return 2;
+        case RGB888:
+            return 3;
+        default:
+            return 4;
+        }
+    }
+
     /**
      * Loads the asset.
      *
-     * Loads the asset from disk and creates it.
+     * Loads the asset from disk and creates it. Same as calling loadData()
+     * and upload() on the GL thread.
+     */
+    public void load() {
+        loadData();
+        upload();
+    }
+
+    /**
+     * CPU part of load().
+     *
+     * Reads, decodes & parses the asset file. Must not touch GL state, so it
+     * can be called on any thread.
+     */
+    public abstract void loadData();
+
+    /**
+     * GL part of load().
+     *
+     * Creates GL resources (textures, meshes) from the data read by
+     * loadData(). Must be called on the GL thread, after loadData().
+     */
+    public abstract void upload();
+
+    /**
+     * Data only variant of loadData(), used by asset managers in headless
+     * mode.
+     *
+     * Loads what is needed without a renderer (e.g. heights, bounds) and
+     * skips data, that would only be used to create GL resources. Must not
+     * touch GL state. Defaults to loadData().
+     */
+    public void loadHeadless() {
+        loadData();
+    }
+
+    /**
+     * Loads the data skipped by loadHeadless(), so the asset can be uploaded
+     * once a renderer is attached. Must not touch GL state. Does nothing by
+     * default.
+     */
+    public void loadGraphicsData() {
+        // loadHeadless() loaded everything
+    }
+
+    /**
+     * Adds the ids of all assets, this asset depends on.
+     *
+     * Works before the asset is loaded, so the ids are read from the meta
+     * file (or a cheap read of the asset file).
+     *
+     * @param out
+     *            receives the asset ids
      */
-    public abstract void load();
+    public abstract void getDependencyIDs(Array<String> out);
 
     /**
      * Resolves all dependencies of this asset.
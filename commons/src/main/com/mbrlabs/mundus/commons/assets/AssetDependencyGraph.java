@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mbrlabs.mundus.commons.assets;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.ObjectSet;
+
+import java.util.Map;
+
+/**
+ * Dependency graph of assets.
+ *
+ * The edges are read lazily from the assets (see
+ * Asset.getDependencyIDs()), so assets don't need to be loaded to build the
+ * graph. E.g. terrain -> splat textures, model -> materials & levels of
+ * detail, material -> textures.
+ *
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+public class AssetDependencyGraph {
+
+    private final Map<String, Asset> assets;
+    private final ObjectMap<String, Array<String>> edges = new ObjectMap<String, Array<String>>();
+
+    // temporary DFS state
+    private final ObjectSet<String> visiting = new ObjectSet<String>();
+    private final ObjectSet<String> visited = new ObjectSet<String>();
+
+    /**
+     * @param assets
+     *            all known assets with asset id as key. Not copied, assets
+     *            added later are part of the graph as well
+     */
+    public AssetDependencyGraph(Map<String, Asset> assets) {
+        this.assets = assets;
+    }
+
+    /**
+     * @param id
+     *            asset id
+     * @return asset or null, if it is not part of the graph
+     */
+    public Asset getAsset(String id) {
+        return assets.get(id);
+    }
+
+    /**
+     * Returns the direct dependencies of an asset. Ids of unknown assets are
+     * left out.
+     *
+     * @param id
+     *            asset id
+     * @return ids of the direct dependencies
+     */
+    public Array<String> getDependencies(String id) {
+        Array<String> dependencies = edges.get(id);
+        if (dependencies == null) {
+            dependencies = new Array<String>();
+            final Asset asset = assets.get(id);
+            if (asset != null) {
+                asset.getDependencyIDs(dependencies);
+                for (int i = dependencies.size - 1; i >= 0; i--) {
+                    if (dependencies.get(i) == null || !assets.containsKey(dependencies.get(i))) {
+                        dependencies.removeIndex(i);
+                    }
+                }
+            }
+            edges.put(id, dependencies);
+        }
+        return dependencies;
+    }
+
+    /**
+     * Forgets the cached dependencies of an asset, e.g. after a material got
+     * a new texture.
+     *
+     * @param id
+     *            asset id
+     */
+    public void invalidate(String id) {
+        edges.remove(id);
+    }
+
+    /**
+     * Sorts an asset and all its transitive dependencies topologically.
+     *
+     * @param id
+     *            asset id
+     * @param out
+     *            receives the ids, every asset after its dependencies
+     * @return out
+     */
+    public Array<String> sort(String id, Array<String> out) {
+        visited.clear();
+        visit(id, out);
+        return out;
+    }
+
+    /**
+     * Sorts assets and all their transitive dependencies topologically.
+     *
+     * @param ids
+     *            asset ids
+     * @param out
+     *            receives the ids, every asset after its dependencies
+     * @return out
+     */
+    public Array<String> sort(Iterable<String> ids, Array<String> out) {
+        visited.clear();
+        for (String id : ids) {
+            visit(id, out);
+        }
+        return out;
+    }
+
+    private void visit(String id, Array<String> out) {
+        if (visited.contains(id)) return;
+        // cycles are broken at the asset, that closes them
+        if (!visiting.add(id)) return;
+
+        for (String dependency : getDependencies(id)) {
+            visit(dependency, out);
+        }
+
+        visiting.remove(id);
+        visited.add(id);
+        out.add(id);
+    }
+
+}
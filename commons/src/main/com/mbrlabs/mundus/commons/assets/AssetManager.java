@@ -19,18 +19,45 @@ import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.mbrlabs.mundus.commons.assets.meta.Meta;
 import com.mbrlabs.mundus.commons.assets.meta.MetaFileParseException;
+import com.mbrlabs.mundus.commons.assets.meta.MetaIndex;
 import com.mbrlabs.mundus.commons.assets.meta.MetaLoader;
 
-import java.io.File;
-import java.io.FileFilter;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Read-only asset manager.
  *
+ * Assets are loaded in two phases: the CPU part (reading, decoding, parsing)
+ * runs on a thread pool, the GL part (uploading) on the GL thread. Use
+ * loadAssets() to load all assets blocking, or loadAssetsAsync() and call
+ * update() every frame to spread the uploads over several frames.
+ *
+ * Alternatively assets can be loaded on demand: indexAssets() creates all
+ * assets without loading them and acquire() loads an asset together with its
+ * dependencies.
+ *
+ * Assets are reference counted. Assets, that are not referenced any more, are
+ * kept in a least recently used list and evicted as soon as the loaded bytes
+ * exceed the memory budget (unlimited by default). Evicted assets are loaded
+ * again by the next acquire().
+ *
+ * In headless mode assets are loaded as pure data without a GL context, e.g.
+ * on a server: textures are skipped, terrains only load their heights and
+ * models their bounds. Nothing is uploaded. attachGraphics() completes &
+ * uploads the loaded assets, once a renderer is present.
+ *
  * @author Marcus Brummer
  * @version 06-10-2016
  */
@@ -43,6 +70,36 @@ public class AssetManager implements Disposable {
     protected Array<Asset> assets;
     protected Map<String, Asset> assetIndex;
 
+    // all assets in the asset folder, loaded or not. Only used for on demand loading
+    protected Map<String, Asset> knownAssets;
+    private AssetDependencyGraph knownAssetGraph;
+    // true if the whole asset folder has been scanned
+    private boolean indexed = false;
+    // assets returned by collectUnloaded(), that are not uploaded yet. Overlapping loads get the same
+    // asset instances and share their data
+    private final Map<Asset, PendingLoad> pendingLoads = new ConcurrentHashMap<Asset, PendingLoad>();
+
+    // memory accounting. unreferenced assets in least recently released order
+    private long memoryBudget = Long.MAX_VALUE;
+    private long loadedBytes = 0;
+    private final LinkedHashSet<Asset> unreferenced = new LinkedHashSet<Asset>();
+    private boolean trimming = false;
+
+    // loads data only, no GL resources
+    private boolean headless = false;
+
+    // cache of all parsed meta files
+    private MetaIndex metaIndex;
+    private FileHandle metaIndexFile;
+    private boolean metaIndexFileSet = false;
+
+    // state of the current async loading process
+    private ExecutorService loadingPool;
+    private LoadTask[] loadingTasks;
+    private LinkedBlockingQueue<LoadTask> uploadQueue;
+    private AssetLoadingListener loadingListener;
+    private int uploadedTasks;
+
     /**
      * Asset manager constructor.
      *
@@ -76,6 +133,496 @@ public class AssetManager implements Disposable {
         if (assetIndex.get(asset.getID()) == null) {
             assets.add(asset);
             assetIndex.put(asset.getID(), asset);
+
+            asset.manager = this;
+            asset.accountedBytes = asset.getCpuBytes() + asset.getGpuBytes();
+            loadedBytes += asset.accountedBytes;
+            if (asset.getRefCount() == 0) {
+                unreferenced.add(asset);
+            }
+
+            if (knownAssets != null) {
+                knownAssets.put(asset.getID(), asset);
+                knownAssetGraph.invalidate(asset.getID());
+            }
+        }
+    }
+
+    /**
+     * Enables or disables headless mode. Must be set before assets are
+     * loaded. Use attachGraphics() to leave headless mode after assets have
+     * been loaded.
+     *
+     * @param headless
+     *            true to load assets without GL resources
+     */
+    public void setHeadless(boolean headless) {
+        this.headless = headless;
+    }
+
+    public boolean isHeadless() {
+        return headless;
+    }
+
+    /**
+     * Sets the file, in which the parsed meta files are cached between runs
+     * (see {@link MetaIndex}). Must be set before assets are loaded. Defaults
+     * to MetaIndex.defaultIndexFile().
+     *
+     * @param metaIndexFile
+     *            index file outside of the asset folder, or null to not cache
+     *            the meta files
+     */
+    public void setMetaIndexFile(FileHandle metaIndexFile) {
+        this.metaIndexFile = metaIndexFile;
+        this.metaIndexFileSet = true;
+    }
+
+    /**
+     * Leaves headless mode: loads the data skipped by headless loading for
+     * all loaded assets, uploads them and applies their dependencies. Does
+     * nothing, if not in headless mode. Must be called on the GL thread.
+     *
+     * @throws IllegalStateException
+     *             if assets are loading asynchronously
+     */
+    public void attachGraphics() {
+        if (!headless) return;
+        if (isLoading()) {
+            throw new IllegalStateException("Can't attach graphics while assets are loading");
+        }
+        headless = false;
+
+        // topological order, e.g. textures before materials before models
+        final Array<String> ids = new Array<String>(assets.size);
+        for (Asset asset : assets) {
+            ids.add(asset.getID());
+        }
+        final Array<String> order = new AssetDependencyGraph(assetIndex).sort(ids, new Array<String>(assets.size));
+        for (String id : order) {
+            final Asset asset = assetIndex.get(id);
+            asset.loadGraphicsData();
+            asset.upload();
+            loadedBytes -= asset.accountedBytes;
+            asset.accountedBytes = asset.getCpuBytes() + asset.getGpuBytes();
+            loadedBytes += asset.accountedBytes;
+        }
+        for (String id : order) {
+            assetIndex.get(id).applyDependencies();
+        }
+        if (Gdx.app != null) {
+            Gdx.app.log(TAG, "Attached graphics to " + order.size + " assets");
+        }
+        trim();
+    }
+
+    /**
+     * CPU part of loading an asset: calls loadData() or, in headless mode,
+     * loadHeadless(). Can be called on any thread.
+     *
+     * The data of an asset, that overlapping loads collected, is only loaded
+     * once. If another thread is loading it at the moment, this call waits
+     * for it. If loading fails, the partly loaded data is disposed.
+     *
+     * @param asset
+     *            asset returned by collectUnloaded()
+     */
+    public void loadAssetData(Asset asset) {
+        final PendingLoad pending = pendingLoads.get(asset);
+        if (pending == null) {
+            loadAssetDataNow(asset);
+            return;
+        }
+
+        synchronized (pending) {
+            if (pending.dataLoaded) return;
+            try {
+                loadAssetDataNow(asset);
+            } catch (RuntimeException e) {
+                asset.dispose();
+                throw e;
+            }
+            pending.dataLoaded = true;
+        }
+    }
+
+    private void loadAssetDataNow(Asset asset) {
+        if (headless) {
+            asset.loadHeadless();
+        } else {
+            asset.loadData();
+        }
+    }
+
+    /**
+     * Sets the maximum number of bytes (CPU + GPU), loaded assets should use.
+     * Unreferenced assets are evicted, least recently released first, until
+     * the loaded bytes are within the budget. Referenced assets are never
+     * evicted, so the budget can still be exceeded.
+     *
+     * @param bytes
+     *            memory budget in bytes. Long.MAX_VALUE disables eviction
+     */
+    public void setMemoryBudget(long bytes) {
+        this.memoryBudget = bytes;
+        trim();
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * @return estimated CPU + GPU bytes of all loaded assets
+     */
+    public long getLoadedBytes() {
+        return loadedBytes;
+    }
+
+    /**
+     * Evicts unreferenced assets until the loaded bytes are within the memory
+     * budget.
+     */
+    public void trim() {
+        if (trimming) return;
+        trimming = true;
+        try {
+            while (loadedBytes > memoryBudget && !unreferenced.isEmpty()) {
+                final Iterator<Asset> it = unreferenced.iterator();
+                final Asset eldest = it.next();
+                it.remove();
+                evict(eldest);
+            }
+        } finally {
+            trimming = false;
+        }
+    }
+
+    /**
+     * Evicts all loaded assets, that are not referenced, regardless of the
+     * memory budget. E.g. after a scene has been unloaded. Assets, that
+     * become unreferenced because an evicted asset released them, are
+     * evicted as well.
+     *
+     * @return number of evicted assets
+     */
+    public int evictUnreferenced() {
+        int evicted = 0;
+        final boolean wasTrimming = trimming;
+        trimming = true;
+        try {
+            while (!unreferenced.isEmpty()) {
+                final Iterator<Asset> it = unreferenced.iterator();
+                final Asset eldest = it.next();
+                it.remove();
+                evict(eldest);
+                evicted++;
+            }
+        } finally {
+            trimming = wasTrimming;
+        }
+        return evicted;
+    }
+
+    /**
+     * Disposes a loaded asset and removes it from the loaded assets. It stays
+     * known, so acquire() can load it again.
+     */
+    private void evict(Asset asset) {
+        assets.removeValue(asset, true);
+        assetIndex.remove(asset.getID());
+        loadedBytes -= asset.accountedBytes;
+        if (Gdx.app != null) {
+            Gdx.app.log(TAG, "Evicting asset: " + asset.toString() + " (" + asset.accountedBytes + " bytes)");
+        }
+        asset.accountedBytes = 0;
+        // releases dependencies, which may become unreferenced as well
+        asset.dispose();
+    }
+
+    /** Called by the asset, if its reference count changes from 0 to 1. */
+    void onReferenced(Asset asset) {
+        unreferenced.remove(asset);
+    }
+
+    /** Called by the asset, if its reference count drops to 0. */
+    void onUnreferenced(Asset asset) {
+        if (!assetIndex.containsKey(asset.getID())) return;
+        unreferenced.remove(asset);
+        unreferenced.add(asset);
+        trim();
+    }
+
+    /**
+     * @param id
+     *            asset id
+     * @return true if the asset is loaded
+     */
+    public boolean isLoaded(String id) {
+        return assetIndex.containsKey(id);
+    }
+
+    /**
+     * Creates all assets in the asset folder without loading them, so they
+     * can be loaded on demand with acquire().
+     *
+     * @throws AssetNotFoundException
+     *             if a meta file points to a non existing asset
+     * @throws MetaFileParseException
+     *             if a meta file can't be parsed
+     */
+    public void indexAssets() throws AssetNotFoundException, MetaFileParseException {
+        initKnownAssets();
+
+        final ExecutorService pool = newLoadingPool();
+        final Array<Meta> metas;
+        try {
+            metas = scanMetas(pool);
+        } finally {
+            pool.shutdown();
+        }
+
+        for (Meta meta : metas) {
+            if (knownAssets.containsKey(meta.getUuid())) continue;
+            final Asset asset = createAsset(meta);
+            if (asset != null) {
+                knownAssets.put(asset.getID(), asset);
+            }
+        }
+        indexed = true;
+        // cached edges may miss dependencies, that were unknown until now
+        knownAssetGraph = new AssetDependencyGraph(knownAssets);
+    }
+
+    /**
+     * Creates the given assets without loading them and without scanning the
+     * asset folder, so they can be loaded on demand with acquire(). Used with
+     * the asset manifests of exported scenes. Meta files of assets, that are
+     * already known, are not parsed again.
+     *
+     * @param ids
+     *            asset ids
+     * @param metaPaths
+     *            paths of the meta files relative to the asset folder, same
+     *            order as ids
+     * @throws AssetNotFoundException
+     *             if a meta file points to a non existing asset
+     * @throws MetaFileParseException
+     *             if a meta file can't be parsed
+     */
+    public void indexAssets(Array<String> ids, Array<String> metaPaths)
+            throws AssetNotFoundException, MetaFileParseException {
+        initKnownAssets();
+
+        final MetaLoader metaLoader = new MetaLoader();
+        boolean added = false;
+        for (int i = 0; i < ids.size; i++) {
+            if (knownAssets.containsKey(ids.get(i))) continue;
+            final Asset asset = createAsset(metaLoader.load(rootFolder.child(metaPaths.get(i))));
+            if (asset != null) {
+                knownAssets.put(asset.getID(), asset);
+                added = true;
+            }
+        }
+        if (added) {
+            knownAssetGraph = new AssetDependencyGraph(knownAssets);
+        }
+    }
+
+    private void initKnownAssets() {
+        if (knownAssets == null) {
+            knownAssets = new HashMap<String, Asset>(assetIndex);
+            knownAssetGraph = new AssetDependencyGraph(knownAssets);
+        }
+    }
+
+    /**
+     * Returns a loaded asset. If it is not loaded yet, the asset and all its
+     * transitive dependencies are loaded in topological order (dependencies
+     * first) and their dependencies are resolved. Assets, that are not
+     * referenced stay unloaded.
+     *
+     * Must be called on the GL thread. Calls indexAssets(), if the asset is
+     * not known yet.
+     * Evicted assets are loaded again. The returned asset is not retained.
+     *
+     * @param id
+     *            asset id
+     * @return loaded asset
+     * @throws AssetNotFoundException
+     *             if there is no asset with that id
+     * @throws MetaFileParseException
+     *             if a meta file can't be parsed
+     */
+    public Asset acquire(String id) throws AssetNotFoundException, MetaFileParseException {
+        Asset asset = assetIndex.get(id);
+        if (asset != null) {
+            // mark as recently used
+            if (unreferenced.remove(asset)) unreferenced.add(asset);
+            return asset;
+        }
+
+        // assets, that an async scene load is reading at the moment, are waited for and not read again
+        final Array<Asset> loaded = collectUnloaded(Array.with(id), new Array<Asset>());
+        final Array<Asset> added = new Array<Asset>(loaded.size);
+        int next = 0;
+        try {
+            for (; next < loaded.size; next++) {
+                final Asset dependencyAsset = loaded.get(next);
+                final boolean wasLoaded = assetIndex.containsKey(dependencyAsset.getID());
+                loadAssetData(dependencyAsset);
+                uploadLoaded(dependencyAsset);
+                if (!wasLoaded) added.add(dependencyAsset);
+            }
+
+            // same order, so dependencies are complete before they are applied
+            resolveLoaded(loaded);
+        } catch (RuntimeException e) {
+            for (int i = next; i < loaded.size; i++) {
+                discardLoaded(loaded.get(i));
+            }
+            rollback(added);
+            throw e;
+        }
+
+        return assetIndex.get(id);
+    }
+
+    /**
+     * Unloads the assets, that a failed acquire() loaded, so no unreferenced,
+     * half resolved assets stay in the index.
+     *
+     * @param added
+     *            assets added to the index, dependencies first
+     */
+    private void rollback(Array<Asset> added) {
+        // dependents first, they release their dependencies
+        for (int i = added.size - 1; i >= 0; i--) {
+            final Asset asset = added.get(i);
+            if (assetIndex.get(asset.getID()) != asset) continue;
+            unreferenced.remove(asset);
+            evict(asset);
+        }
+    }
+
+    /**
+     * Collects all assets, that must be loaded before the given assets can be
+     * used: the assets and their transitive dependencies, that are not loaded
+     * yet.
+     *
+     * Must be called on the GL thread. Loading can then be split up like
+     * acquire() does it: call loadAssetData() for the collected assets on any
+     * thread, then uploadLoaded() for each of them and finally
+     * resolveLoaded() on the GL thread. Assets, that won't be uploaded (e.g.
+     * because loading was canceled), must be passed to discardLoaded().
+     *
+     * Assets, that another load collected and did not upload yet, are
+     * collected again. Both loads get the same instance, its data is loaded
+     * only once and the first uploadLoaded() call uploads it.
+     *
+     * @param ids
+     *            asset ids
+     * @param out
+     *            receives the unloaded assets, every asset after its
+     *            dependencies
+     * @return out
+     * @throws AssetNotFoundException
+     *             if there is no asset with one of the ids
+     * @throws MetaFileParseException
+     *             if a meta file can't be parsed
+     */
+    public Array<Asset> collectUnloaded(Array<String> ids, Array<Asset> out)
+            throws AssetNotFoundException, MetaFileParseException {
+        initKnownAssets();
+        // scan the asset folder, if an asset is unknown and the folder hasn't been scanned yet
+        for (String id : ids) {
+            if (!indexed && !knownAssets.containsKey(id)) {
+                indexAssets();
+                break;
+            }
+        }
+        for (String id : ids) {
+            if (!knownAssets.containsKey(id)) {
+                throw new AssetNotFoundException("No asset with id " + id + " in " + rootFolder.path());
+            }
+        }
+
+        for (String id : knownAssetGraph.sort(ids, new Array<String>())) {
+            if (assetIndex.containsKey(id)) continue;
+            final Asset asset = knownAssets.get(id);
+            PendingLoad pending = pendingLoads.get(asset);
+            if (pending == null) {
+                pending = new PendingLoad();
+                pendingLoads.put(asset, pending);
+            }
+            pending.loads++;
+            out.add(asset);
+        }
+        return out;
+    }
+
+    /**
+     * Uploads an asset, whose data has been loaded with loadAssetData(), and
+     * adds it to the loaded assets. Nothing is uploaded in headless mode.
+     * Must be called on the GL thread.
+     *
+     * @param asset
+     *            asset returned by collectUnloaded()
+     */
+    public void uploadLoaded(Asset asset) {
+        // loaded by someone else in the meantime
+        if (!assetIndex.containsKey(asset.getID())) {
+            if (!headless) {
+                // data may have been loaded headless, if graphics were attached in the meantime
+                asset.loadGraphicsData();
+                asset.upload();
+            }
+            addAsset(asset);
+        }
+        endLoad(asset);
+    }
+
+    /**
+     * Gives up an asset returned by collectUnloaded(), that won't be
+     * uploaded. Its data is disposed, unless another load still needs it or
+     * it has been uploaded already. Must be called on the GL thread, after
+     * loadAssetData() returned for the asset.
+     *
+     * @param asset
+     *            asset returned by collectUnloaded()
+     */
+    public void discardLoaded(Asset asset) {
+        final PendingLoad pending = endLoad(asset);
+        if (pending == null) return;
+        synchronized (pending) {
+            if (pending.dataLoaded && !assetIndex.containsKey(asset.getID())) {
+                asset.dispose();
+            }
+        }
+    }
+
+    /**
+     * @return the pending load of the asset, if this was the last load
+     *         waiting for it, otherwise null
+     */
+    private PendingLoad endLoad(Asset asset) {
+        final PendingLoad pending = pendingLoads.get(asset);
+        if (pending == null || --pending.loads > 0) return null;
+        pendingLoads.remove(asset);
+        return pending;
+    }
+
+    /**
+     * Resolves & applies the dependencies of uploaded assets. Dependencies
+     * are only resolved in headless mode. Must be called on the GL thread.
+     *
+     * @param loaded
+     *            assets returned by collectUnloaded(), in the same order
+     */
+    public void resolveLoaded(Array<Asset> loaded) {
+        for (Asset asset : loaded) {
+            asset.resolveDependencies(assetIndex);
+            if (!headless) asset.applyDependencies();
         }
     }
 
@@ -139,6 +686,8 @@ public class AssetManager implements Disposable {
     /**
      * Loads all assets in the project's asset folder.
      *
+     * Blocks until all assets are loaded. Must be called on the GL thread.
+     *
      * @param listener
      *            informs about current loading progress
      * @throws AssetNotFoundException
@@ -147,45 +696,189 @@ public class AssetManager implements Disposable {
      *             if a meta file can't be parsed
      */
     public void loadAssets(AssetLoadingListener listener) throws AssetNotFoundException, MetaFileParseException {
-        // create meta file filter
-        FileFilter metaFileFilter = new FileFilter() {
-            @Override
-            public boolean accept(File file) {
-                return file.getName().endsWith(Meta.META_EXTENSION);
+        loadAssetsAsync(listener);
+        while (!update(Integer.MAX_VALUE)) {
+            // nothing to upload right now, wait for the workers
+            try {
+                uploadTask(uploadQueue.take());
+            } catch (InterruptedException e) {
+                cancelLoading();
+                Thread.currentThread().interrupt();
+                throw new GdxRuntimeException("Interrupted while loading assets", e);
             }
-        };
+        }
+    }
 
-        final MetaLoader metaLoader = new MetaLoader();
+    /**
+     * Starts loading all assets in the project's asset folder.
+     *
+     * The asset folder and its sub folders are scanned for meta files before
+     * this method returns. Only meta files, that changed since the last scan,
+     * are parsed (see {@link MetaIndex}). Asset files are read & decoded on a
+     * thread pool. The GL uploads happen in update(), which must be called on
+     * the GL thread until it returns true. Dependencies are resolved after
+     * all assets are uploaded, materials first.
+     *
+     * @param listener
+     *            informs about current loading progress. Called on the GL
+     *            thread
+     * @throws MetaFileParseException
+     *             if a meta file can't be parsed
+     */
+    public void loadAssetsAsync(AssetLoadingListener listener) throws MetaFileParseException {
+        if (isLoading()) {
+            throw new IllegalStateException("Assets are already loading");
+        }
 
-        // load assets
-        FileHandle[] metaFiles = rootFolder.list(metaFileFilter);
-        for (FileHandle meta : metaFiles) {
-            Asset asset = loadAsset(metaLoader.load(meta));
-            if(listener != null) {
-                listener.onLoad(asset, assets.size, metaFiles.length);
-            }
+        final ExecutorService pool = newLoadingPool();
+        final Array<Meta> metas;
+        boolean scanned = false;
+        try {
+            metas = scanMetas(pool);
+            scanned = true;
+        } finally {
+            if (!scanned) pool.shutdownNow();
         }
 
-        // resolve material assets
-        for (Asset asset : assets) {
-            if (asset instanceof MaterialAsset) {
-                asset.resolveDependencies(assetIndex);
-                asset.applyDependencies();
-            }
+        loadingPool = pool;
+        loadingListener = listener;
+        loadingTasks = new LoadTask[metas.size];
+        uploadedTasks = 0;
+        // new queue per loading process, workers of a canceled one may still add to the old one
+        uploadQueue = new LinkedBlockingQueue<LoadTask>();
+
+        for (int i = 0; i < metas.size; i++) {
+            loadingTasks[i] = new LoadTask(metas.get(i), uploadQueue);
+            loadingPool.execute(loadingTasks[i]);
         }
+    }
 
-        // resolve other assets
-        for (Asset asset : assets) {
-            if (asset instanceof MaterialAsset) continue;
-            asset.resolveDependencies(assetIndex);
-            asset.applyDependencies();
+    /**
+     * Uploads assets, that finished loading on the thread pool. Must be
+     * called on the GL thread.
+     *
+     * @param millis
+     *            time budget for uploads. At least one asset is uploaded per
+     *            call, if one is ready
+     * @return true if all assets are loaded and their dependencies resolved
+     * @throws AssetNotFoundException
+     *             if a meta file points to a non existing asset
+     * @throws MetaFileParseException
+     *             if a meta file can't be parsed
+     */
+    public boolean update(int millis) throws AssetNotFoundException, MetaFileParseException {
+        if (loadingTasks == null) return true;
+
+        final long end = System.nanoTime() + millis * 1000000L;
+        while (uploadedTasks < loadingTasks.length) {
+            final LoadTask task = uploadQueue.poll();
+            if (task == null) break;
+            uploadTask(task);
+            if (System.nanoTime() >= end) break;
+        }
+
+        if (uploadedTasks < loadingTasks.length) return false;
+        finishLoading();
+        return true;
+    }
+
+    /**
+     * @return true if an async loading process is running
+     */
+    public boolean isLoading() {
+        return loadingTasks != null;
+    }
+
+    private void uploadTask(LoadTask task) throws AssetNotFoundException, MetaFileParseException {
+        if (task.error != null) {
+            cancelLoading();
+            if (task.error instanceof AssetNotFoundException) throw (AssetNotFoundException) task.error;
+            if (task.error instanceof MetaFileParseException) throw (MetaFileParseException) task.error;
+            if (task.error instanceof RuntimeException) throw (RuntimeException) task.error;
+            throw new RuntimeException(task.error);
         }
 
+        if (task.asset != null && !headless) {
+            task.asset.upload();
+        }
+        uploadedTasks++;
+        if (loadingListener != null && task.asset != null) {
+            loadingListener.onLoad(task.asset, uploadedTasks, loadingTasks.length);
+        }
+    }
+
+    private void finishLoading() {
+        final AssetLoadingListener listener = loadingListener;
+
+        // keep the order of the meta files
+        for (LoadTask task : loadingTasks) {
+            addAsset(task.asset);
+        }
+        stopLoading();
+
+        resolveDependencies();
+
         if(listener != null) {
             listener.onFinish(assets.size);
         }
     }
 
+    private void cancelLoading() {
+        // uploaded & decoded assets are disposed now, the ones still loading by their worker
+        for (LoadTask task : loadingTasks) {
+            task.cancel();
+        }
+        stopLoading();
+    }
+
+    private void stopLoading() {
+        loadingPool.shutdownNow();
+        loadingPool = null;
+        loadingTasks = null;
+        loadingListener = null;
+        uploadQueue = null;
+    }
+
+    private void resolveDependencies() {
+        // topological order, e.g. textures before materials before models
+        final Array<String> ids = new Array<String>(assets.size);
+        for (Asset asset : assets) {
+            ids.add(asset.getID());
+        }
+        final Array<String> order = new AssetDependencyGraph(assetIndex).sort(ids, new Array<String>(assets.size));
+        for (String id : order) {
+            final Asset asset = assetIndex.get(id);
+            asset.resolveDependencies(assetIndex);
+            if (!headless) asset.applyDependencies();
+        }
+    }
+
+    /**
+     * Finds the meta files in the asset folder and all sub folders. Unchanged
+     * meta files are taken from the meta index, the others are parsed.
+     */
+    private Array<Meta> scanMetas(ExecutorService pool) throws MetaFileParseException {
+        if (metaIndex == null) {
+            metaIndex = new MetaIndex(rootFolder,
+                    metaIndexFileSet ? metaIndexFile : MetaIndex.defaultIndexFile(rootFolder));
+        }
+
+        final Array<Meta> metas = metaIndex.scan(pool);
+        if (Gdx.app != null) {
+            Gdx.app.log(TAG, "Meta files: " + metaIndex.getCachedCount() + " cached, "
+                    + metaIndex.getParsedCount() + " parsed");
+        }
+        if (metaIndex.isDirty() && !metaIndex.save() && Gdx.app != null) {
+            Gdx.app.debug(TAG, "Can't write meta index, meta files are parsed again next time");
+        }
+        return metas;
+    }
+
+    private ExecutorService newLoadingPool() {
+        return Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors()),
+                new LoaderThreadFactory());
+    }
+
     /**
      * Loads an asset, given it's meta file.
      *
@@ -198,6 +891,25 @@ public class AssetManager implements Disposable {
      *             if a meta file can't be parsed
      */
     public Asset loadAsset(Meta meta) throws MetaFileParseException, AssetNotFoundException {
+        Asset asset = createAsset(meta);
+        if (asset == null) return null;
+
+        loadAssetData(asset);
+        if (!headless) asset.upload();
+        addAsset(asset);
+        return asset;
+    }
+
+    /**
+     * Creates an asset, given it's meta file, without loading it.
+     *
+     * @param meta
+     *            meta file of asset
+     * @return asset or null, if the asset type is not supported
+     * @throws AssetNotFoundException
+     *             if a meta file points to a non existing asset
+     */
+    protected Asset createAsset(Meta meta) throws AssetNotFoundException {
         // get handle to asset
      //   String assetPath = meta.getFile().pathWithoutExtension();
         FileHandle assetFile = meta.getFile().sibling(meta.getFile().nameWithoutExtension());
@@ -207,73 +919,124 @@ public class AssetManager implements Disposable {
             throw new AssetNotFoundException("Meta file found, but asset does not exist: " + meta.getFile().path());
         }
 
-        // load actual asset
-        Asset asset = null;
         switch (meta.getType()) {
         case TEXTURE:
-            asset = loadTextureAsset(meta, assetFile);
-            break;
+            TextureAsset texture = new TextureAsset(meta, assetFile);
+            // TODO parse special texture instead of always setting them
+            texture.setTileable(true);
+            texture.generateMipmaps(true);
+            return texture;
         case PIXMAP_TEXTURE:
-            asset = loadPixmapTextureAsset(meta, assetFile);
-            break;
+            return new PixmapTextureAsset(meta, assetFile);
         case TERRAIN:
-            asset = loadTerrainAsset(meta, assetFile);
-            break;
+            return new TerrainAsset(meta, assetFile);
         case MODEL:
-            asset = loadModelAsset(meta, assetFile);
-            break;
+            return new ModelAsset(meta, assetFile);
         case MATERIAL:
-            asset = loadMaterialAsset(meta, assetFile);
-            break;
+            return new MaterialAsset(meta, assetFile);
         default:
             return null;
         }
-
-        addAsset(asset);
-        return asset;
     }
 
-    private MaterialAsset loadMaterialAsset(Meta meta, FileHandle assetFile) {
-        MaterialAsset asset = new MaterialAsset(meta, assetFile);
-        asset.load();
-        return asset;
+    @Override
+    public void dispose() {
+        if (isLoading()) cancelLoading();
+        for (Asset asset : assets) {
+            asset.manager = null;
+        }
+        for (Asset asset : assets) {
+            asset.dispose();
+            if (Gdx.app != null) Gdx.app.log(TAG, "Disposing asset: " + asset.toString());
+        }
+        assets.clear();
+        assetIndex.clear();
+        pendingLoads.clear();
+        unreferenced.clear();
+        loadedBytes = 0;
+        knownAssets = null;
+        indexed = false;
+        knownAssetGraph = null;
     }
 
-    private TextureAsset loadTextureAsset(Meta meta, FileHandle assetFile) {
-        TextureAsset asset = new TextureAsset(meta, assetFile);
-        // TODO parse special texture instead of always setting them
-        asset.setTileable(true);
-        asset.generateMipmaps(true);
-        asset.load();
-        return asset;
+    /**
+     * An asset returned by collectUnloaded(), that is not uploaded yet.
+     */
+    private static class PendingLoad {
+        // number of loads, that collected the asset. Only accessed on the GL thread
+        int loads = 0;
+        // guarded by this
+        boolean dataLoaded = false;
     }
 
-    private TerrainAsset loadTerrainAsset(Meta meta, FileHandle assetFile) {
-        TerrainAsset asset = new TerrainAsset(meta, assetFile);
-        asset.load();
-        return asset;
-    }
+    /**
+     * Loads one asset on the thread pool and queues it for uploading.
+     */
+    private class LoadTask implements Runnable {
 
-    private PixmapTextureAsset loadPixmapTextureAsset(Meta meta, FileHandle assetFile) {
-        PixmapTextureAsset asset = new PixmapTextureAsset(meta, assetFile);
-        asset.load();
-        return asset;
-    }
+        final Meta meta;
+        final LinkedBlockingQueue<LoadTask> queue;
+        Asset asset;
+        Exception error;
 
-    private ModelAsset loadModelAsset(Meta meta, FileHandle assetFile) {
-        ModelAsset asset = new ModelAsset(meta, assetFile);
-        asset.load();
-        return asset;
+        // guarded by this
+        private boolean done = false;
+        private boolean canceled = false;
+
+        LoadTask(Meta meta, LinkedBlockingQueue<LoadTask> queue) {
+            this.meta = meta;
+            this.queue = queue;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (canceled) return;
+            }
+
+            Asset loaded = null;
+            Exception loadError = null;
+            try {
+                loaded = createAsset(meta);
+                if (loaded != null) loadAssetData(loaded);
+            } catch (Exception e) {
+                loadError = e;
+            }
+
+            synchronized (this) {
+                asset = loaded;
+                error = loadError;
+                done = true;
+                if (canceled) {
+                    // canceled while decoding, nobody will upload it
+                    if (asset != null) asset.dispose();
+                    return;
+                }
+            }
+            queue.add(this);
+        }
+
+        /**
+         * Disposes the asset, whether it is uploaded or only decoded. If the
+         * worker is still decoding it, the worker disposes it when done.
+         */
+        synchronized void cancel() {
+            if (canceled) return;
+            canceled = true;
+            if (done && asset != null) asset.dispose();
+        }
     }
 
-    @Override
-    public void dispose() {
-        for (Asset asset : assets) {
-            asset.dispose();
-            Gdx.app.log(TAG, "Disposing asset: " + asset.toString());
+    private static class LoaderThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            final Thread thread = new Thread(runnable, "AssetLoader-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
         }
-        assets.clear();
-        assetIndex.clear();
     }
 
     /**
@@ -22,6 +22,7 @@ import com.badlogic.gdx.graphics.g3d.Material;
 import com.badlogic.gdx.graphics.g3d.attributes.ColorAttribute;
 import com.badlogic.gdx.graphics.g3d.attributes.FloatAttribute;
 import com.badlogic.gdx.graphics.g3d.attributes.TextureAttribute;
+import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.ObjectMap;
 import com.badlogic.gdx.utils.PropertiesUtils;
 import com.mbrlabs.mundus.commons.assets.meta.Meta;
@@ -35,8 +36,6 @@ import java.util.Map;
  */
 public class MaterialAsset extends Asset {
 
-    private static final ObjectMap<String, String> MAP = new ObjectMap<String, String>();
-
     public static final String EXTENSION = ".mat";
 
     // property keys
@@ -56,22 +55,24 @@ public class MaterialAsset extends Asset {
     private float shininess = 0f;
     private float opacity = 0f;
 
+    private boolean parsed = false;
+
     public MaterialAsset(Meta meta, FileHandle assetFile) {
         super(meta, assetFile);
     }
 
     @Override
-    public void load() {
-        MAP.clear();
+    public void loadData() {
+        final ObjectMap<String, String> props = new ObjectMap<String, String>();
         try {
-            PropertiesUtils.load(MAP, file.reader());
+            PropertiesUtils.load(props, file.reader());
             // shininess & opacity
             try {
-                String value = MAP.get(PROP_SHININESS, null);
+                String value = props.get(PROP_SHININESS, null);
                 if (value != null) {
                     shininess = Float.valueOf(value);
                 }
-                value = MAP.get(PROP_OPACITY, null);
+                value = props.get(PROP_OPACITY, null);
                 if (value != null) {
                     opacity = Float.valueOf(value);
                 }
@@ -80,19 +81,25 @@ public class MaterialAsset extends Asset {
             }
 
             // diffuse color
-            String diffuseHex = MAP.get(PROP_DIFFUSE_COLOR);
+            String diffuseHex = props.get(PROP_DIFFUSE_COLOR);
             if (diffuseHex != null) {
                 diffuseColor = Color.valueOf(diffuseHex);
             }
 
             // asset dependencies
-            diffuseTextureID = MAP.get(PROP_DIFFUSE_TEXTURE, null);
-            normalMapID = MAP.get(PROP_MAP_NORMAL, null);
+            diffuseTextureID = props.get(PROP_DIFFUSE_TEXTURE, null);
+            normalMapID = props.get(PROP_MAP_NORMAL, null);
+            parsed = true;
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    @Override
+    public void upload() {
+        // no GL resources
+    }
+
     /**
      * Applies this material asset to the libGDX material.
      *
@@ -134,7 +141,7 @@ public class MaterialAsset extends Asset {
     }
 
     public void setNormalMap(TextureAsset normalMap) {
-        this.normalMap = normalMap;
+        this.normalMap = relink(this.normalMap, normalMap);
         normalMapID = normalMap.getID();
     }
 
@@ -143,7 +150,7 @@ public class MaterialAsset extends Asset {
     }
 
     public void setDiffuseTexture(TextureAsset diffuseTexture) {
-        this.diffuseTexture = diffuseTexture;
+        this.diffuseTexture = relink(this.diffuseTexture, diffuseTexture);
         if (diffuseTexture != null) {
             this.diffuseTextureID = diffuseTexture.getID();
         } else {
@@ -155,13 +162,21 @@ public class MaterialAsset extends Asset {
         return diffuseColor;
     }
 
+    @Override
+    public void getDependencyIDs(Array<String> out) {
+        // texture ids are only stored in the material file, which is tiny
+        if (!parsed) loadData();
+        if (diffuseTextureID != null) out.add(diffuseTextureID);
+        if (normalMapID != null) out.add(normalMapID);
+    }
+
     @Override
     public void resolveDependencies(Map<String, Asset> assets) {
         if (diffuseTextureID != null && assets.containsKey(diffuseTextureID)) {
-            diffuseTexture = (TextureAsset) assets.get(diffuseTextureID);
+            diffuseTexture = relink(diffuseTexture, (TextureAsset) assets.get(diffuseTextureID));
         }
         if (normalMapID != null && assets.containsKey(normalMapID)) {
-            normalMap = (TextureAsset) assets.get(normalMapID);
+            normalMap = relink(normalMap, (TextureAsset) assets.get(normalMapID));
         }
     }
 
@@ -172,7 +187,9 @@ public class MaterialAsset extends Asset {
 
     @Override
     public void dispose() {
-        // nothing to dispose
+        // release the textures, ids are kept for reloading
+        diffuseTexture = relink(diffuseTexture, null);
+        normalMap = relink(normalMap, null);
     }
 
 }
@@ -15,14 +15,24 @@
  */
 package com.mbrlabs.mundus.commons.assets;
 
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.g3d.Material;
 import com.badlogic.gdx.graphics.g3d.Model;
-import com.badlogic.gdx.utils.UBJsonReader;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelData;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelMesh;
+import com.badlogic.gdx.graphics.g3d.utils.TextureProvider;
+import com.badlogic.gdx.math.collision.BoundingBox;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
 import com.mbrlabs.mundus.commons.assets.meta.Meta;
+import com.mbrlabs.mundus.commons.assets.meta.MetaFileParseException;
 import com.mbrlabs.mundus.commons.assets.meta.MetaModel;
+import com.mbrlabs.mundus.commons.g3d.BinaryModelLoader;
 import com.mbrlabs.mundus.commons.g3d.MG3dModelLoader;
+import com.mbrlabs.mundus.commons.g3d.StreamingG3dModelLoader;
 
+import java.nio.FloatBuffer;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -32,38 +42,207 @@ import java.util.Map;
  */
 public class ModelAsset extends Asset {
 
+    private static final String TAG = ModelAsset.class.getSimpleName();
+
+    // loaders are not thread safe, so there is one per loading thread
+    private static final ThreadLocal<MG3dModelLoader> G3DB_LOADER = new ThreadLocal<MG3dModelLoader>() {
+        @Override
+        protected MG3dModelLoader initialValue() {
+            return new StreamingG3dModelLoader();
+        }
+    };
+    private static final ThreadLocal<BinaryModelLoader> BINARY_LOADER = new ThreadLocal<BinaryModelLoader>() {
+        @Override
+        protected BinaryModelLoader initialValue() {
+            return new BinaryModelLoader();
+        }
+    };
+
     private Model model;
 
+    // loaded, but not yet uploaded model
+    private ModelData modelData;
+    private BinaryModelLoader.BinaryModelData binaryModelData;
+
+    // vertex positions of all meshes in model space. Known without uploading the model
+    private final BoundingBox bounds = new BoundingBox();
+
     private Map<String, MaterialAsset> defaultMaterials;
 
+    // default levels of detail, ordered by descending screen size. Loaded on first use
+    private Array<ModelAsset> defaultLods;
+    private FloatArray defaultLodScreenSizes;
+    private boolean defaultLodsResolved = false;
+
+    // default materials & lods resolved from the meta file, retained by this asset
+    private final Array<Asset> retainedDependencies = new Array<Asset>();
+
     public ModelAsset(Meta meta, FileHandle assetFile) {
         super(meta, assetFile);
         defaultMaterials = new HashMap<String, MaterialAsset>();
+        defaultLods = new Array<ModelAsset>();
+        defaultLodScreenSizes = new FloatArray();
     }
 
     public Model getModel() {
         return model;
     }
 
+    /**
+     * Bounds of the vertex positions of all meshes in model space. Node
+     * transforms are not applied, so this can be larger or smaller than the
+     * bounds of a model instance. Unlike getModel() it is available in
+     * headless mode.
+     *
+     * @return bounds, empty if the model has not been loaded yet
+     */
+    public BoundingBox getBounds() {
+        return bounds;
+    }
+
     public Map<String, MaterialAsset> getDefaultMaterials() {
         return defaultMaterials;
     }
 
+    /**
+     * Levels of detail, that are added to new model components of this model.
+     * They are not dependencies of the model, so they are only loaded, when
+     * this is called the first time. Must be called on the GL thread.
+     *
+     * @return levels of detail
+     */
+    public Array<ModelAsset> getDefaultLods() {
+        resolveDefaultLods();
+        return defaultLods;
+    }
+
+    public FloatArray getDefaultLodScreenSizes() {
+        resolveDefaultLods();
+        return defaultLodScreenSizes;
+    }
+
+    private void resolveDefaultLods() {
+        if (defaultLodsResolved) return;
+        defaultLodsResolved = true;
+
+        final MetaModel metaModel = meta.getModel();
+        if (metaModel == null || manager == null) return;
+        for (int i = 0; i < metaModel.getLods().size; i++) {
+            final String id = metaModel.getLods().get(i);
+            Asset lod = null;
+            try {
+                lod = manager.acquire(id);
+            } catch (AssetNotFoundException e) {
+                if (Gdx.app != null) Gdx.app.error(TAG, "Level of detail not found: " + id, e);
+            } catch (MetaFileParseException e) {
+                if (Gdx.app != null) Gdx.app.error(TAG, "Can't parse meta file of level of detail " + id, e);
+            }
+            if (lod instanceof ModelAsset) {
+                defaultLods.add((ModelAsset) lod);
+                defaultLodScreenSizes.add(metaModel.getLodScreenSizes().get(i));
+                retainDependency(lod);
+            }
+        }
+    }
+
+    @Override
+    public void loadData() {
+        // prefer the optimized binary model written on import & export, unless the g3db changed since
+        final FileHandle binaryFile = BinaryModelLoader.binaryFile(file);
+        if (isBinaryUpToDate(binaryFile)) {
+            binaryModelData = BINARY_LOADER.get().loadData(binaryFile);
+            binaryModelData.getBounds(bounds);
+            return;
+        }
+
+        // meshes are optimized once, when the binary model is written
+        modelData = G3DB_LOADER.get().loadModelData(file, null);
+        bounds.inf();
+        for (ModelMesh mesh : modelData.meshes) {
+            BinaryModelLoader.extendBounds(mesh.attributes, FloatBuffer.wrap(mesh.vertices), bounds);
+        }
+    }
+
+    @Override
+    public void loadHeadless() {
+        // the bounds are stored in the header of the binary model
+        final FileHandle binaryFile = BinaryModelLoader.binaryFile(file);
+        if (isBinaryUpToDate(binaryFile) && BINARY_LOADER.get().loadBounds(binaryFile, bounds)) {
+            return;
+        }
+
+        // older or outdated binary models & plain g3db files: compute the bounds from the mesh data
+        loadData();
+        modelData = null;
+        binaryModelData = null;
+    }
+
+    private boolean isBinaryUpToDate(FileHandle binaryFile) {
+        if (!binaryFile.exists()) return false;
+        // only the length is compared, the checksum would read the whole g3db file
+        if (BINARY_LOADER.get().isUpToDate(binaryFile, file, false)) return true;
+        if (Gdx.app != null) Gdx.app.log(TAG, "Binary model is outdated, loading " + file.path());
+        return false;
+    }
+
     @Override
-    public void load() {
-        // TODO don't create a new loader each time
-        MG3dModelLoader loader = new MG3dModelLoader(new UBJsonReader());
-        model = loader.loadModel(file);
+    public void loadGraphicsData() {
+        if (model == null && modelData == null && binaryModelData == null) {
+            loadData();
+        }
+    }
+
+    @Override
+    public void upload() {
+        if (binaryModelData != null) {
+            model = BINARY_LOADER.get().createModel(binaryModelData);
+        } else if (modelData != null) {
+            model = new Model(modelData, new TextureProvider.FileTextureProvider());
+        }
+        modelData = null;
+        binaryModelData = null;
+    }
+
+    @Override
+    public void getDependencyIDs(Array<String> out) {
+        final MetaModel metaModel = meta.getModel();
+        if (metaModel == null) return;
+        for (String id : metaModel.getDefaultMaterials().values()) {
+            out.add(id);
+        }
+        // default levels of detail are loaded on demand, see getDefaultLods()
     }
 
     @Override
     public void resolveDependencies(Map<String, Asset> assets) {
+        releaseDependencies();
+
         // materials
         MetaModel metaModel = meta.getModel();
         for (String g3dbMatID : metaModel.getDefaultMaterials().keys()) {
             String uuid = metaModel.getDefaultMaterials().get(g3dbMatID);
-            defaultMaterials.put(g3dbMatID, (MaterialAsset) assets.get(uuid));
+            MaterialAsset materialAsset = (MaterialAsset) assets.get(uuid);
+            defaultMaterials.put(g3dbMatID, materialAsset);
+            retainDependency(materialAsset);
+        }
+
+        // levels of detail, resolved again on demand
+        defaultLods.clear();
+        defaultLodScreenSizes.clear();
+        defaultLodsResolved = false;
+    }
+
+    private void retainDependency(Asset asset) {
+        if (asset == null) return;
+        asset.retain();
+        retainedDependencies.add(asset);
+    }
+
+    private void releaseDependencies() {
+        for (Asset asset : retainedDependencies) {
+            asset.release();
         }
+        retainedDependencies.clear();
     }
 
     @Override
@@ -78,11 +257,23 @@ public class ModelAsset extends Asset {
         }
     }
 
+    @Override
+    public long getGpuBytes() {
+        return modelBytes(model);
+    }
+
     @Override
     public void dispose() {
         if (model != null) {
             model.dispose();
+            model = null;
         }
+        modelData = null;
+        binaryModelData = null;
+        releaseDependencies();
+        defaultLods.clear();
+        defaultLodScreenSizes.clear();
+        defaultLodsResolved = false;
     }
 
 }
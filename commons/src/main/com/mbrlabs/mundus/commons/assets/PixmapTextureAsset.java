@@ -19,6 +19,7 @@ package com.mbrlabs.mundus.commons.assets;
 import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.utils.Array;
 import com.mbrlabs.mundus.commons.assets.meta.Meta;
 
 import java.util.Map;
@@ -45,11 +46,30 @@ public class PixmapTextureAsset extends Asset {
     }
 
     @Override
-    public void load() {
+    public void loadData() {
         pixmap = new Pixmap(file);
+    }
+
+    @Override
+    public void loadHeadless() {
+        // only used for rendering
+    }
+
+    @Override
+    public void loadGraphicsData() {
+        if (pixmap == null) loadData();
+    }
+
+    @Override
+    public void upload() {
         texture = new Texture(pixmap);
     }
 
+    @Override
+    public void getDependencyIDs(Array<String> out) {
+        // no dependencies here
+    }
+
     @Override
     public void resolveDependencies(Map<String, Asset> assets) {
         // no dependencies here
@@ -60,10 +80,27 @@ public class PixmapTextureAsset extends Asset {
         // no dependencies here
     }
 
+    @Override
+    public long getCpuBytes() {
+        if (pixmap == null) return 0;
+        return (long) pixmap.getWidth() * pixmap.getHeight() * bytesPerPixel(pixmap.getFormat());
+    }
+
+    @Override
+    public long getGpuBytes() {
+        return textureBytes(texture);
+    }
+
     @Override
     public void dispose() {
-        pixmap.dispose();
-        texture.dispose();
+        if (pixmap != null) {
+            pixmap.dispose();
+            pixmap = null;
+        }
+        if (texture != null) {
+            texture.dispose();
+            texture = null;
+        }
     }
 
 }
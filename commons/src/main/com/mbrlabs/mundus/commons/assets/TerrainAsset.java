@@ -16,13 +16,16 @@
 package com.mbrlabs.mundus.commons.assets;
 
 import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.FloatArray;
 import com.mbrlabs.mundus.commons.assets.meta.Meta;
+import com.mbrlabs.mundus.commons.assets.meta.MetaTerrain;
 import com.mbrlabs.mundus.commons.terrain.SplatMap;
 import com.mbrlabs.mundus.commons.terrain.SplatTexture;
 import com.mbrlabs.mundus.commons.terrain.Terrain;
 import com.mbrlabs.mundus.commons.terrain.TerrainTexture;
 
+import java.io.BufferedInputStream;
 import java.io.DataInputStream;
 import java.io.EOFException;
 import java.io.IOException;
@@ -59,7 +62,7 @@ public class TerrainAsset extends Asset {
     }
 
     public void setSplatmap(PixmapTextureAsset splatmap) {
-        this.splatmap = splatmap;
+        this.splatmap = relink(this.splatmap, splatmap);
         if (splatmap == null) {
             meta.getTerrain().setSplatmap(null);
         } else {
@@ -72,7 +75,7 @@ public class TerrainAsset extends Asset {
     }
 
     public void setSplatBase(TextureAsset splatBase) {
-        this.splatBase = splatBase;
+        this.splatBase = relink(this.splatBase, splatBase);
         if (splatBase == null) {
             meta.getTerrain().setSplatBase(null);
         } else {
@@ -86,7 +89,7 @@ public class TerrainAsset extends Asset {
     }
 
     public void setSplatR(TextureAsset splatR) {
-        this.splatR = splatR;
+        this.splatR = relink(this.splatR, splatR);
         if (splatR == null) {
             getMeta().getTerrain().setSplatR(null);
         } else {
@@ -100,7 +103,7 @@ public class TerrainAsset extends Asset {
     }
 
     public void setSplatG(TextureAsset splatG) {
-        this.splatG = splatG;
+        this.splatG = relink(this.splatG, splatG);
         if (splatG == null) {
             meta.getTerrain().setSplatG(null);
         } else {
@@ -113,7 +116,7 @@ public class TerrainAsset extends Asset {
     }
 
     public void setSplatB(TextureAsset splatB) {
-        this.splatB = splatB;
+        this.splatB = relink(this.splatB, splatB);
         if (splatB == null) {
             meta.getTerrain().setSplatB(null);
         } else {
@@ -126,7 +129,7 @@ public class TerrainAsset extends Asset {
     }
 
     public void setSplatA(TextureAsset splatA) {
-        this.splatA = splatA;
+        this.splatA = relink(this.splatA, splatA);
         if (splatA == null) {
             meta.getTerrain().setSplatA(null);
         } else {
@@ -139,13 +142,13 @@ public class TerrainAsset extends Asset {
     }
 
     @Override
-    public void load() {
+    public void loadData() {
         // load height data from terra file
         final FloatArray floatArray = new FloatArray();
 
         DataInputStream is;
         try {
-            is = new DataInputStream(file.read());
+            is = new DataInputStream(new BufferedInputStream(file.read()));
             while (is.available() > 0) {
                 floatArray.add(is.readFloat());
             }
@@ -159,10 +162,27 @@ public class TerrainAsset extends Asset {
         data = floatArray.toArray();
 
         terrain = new Terrain(meta.getTerrain().getSize(), data);
+    }
+
+    @Override
+    public void upload() {
+        if (terrain == null) return;
         terrain.init();
         terrain.update();
     }
 
+    @Override
+    public void getDependencyIDs(Array<String> out) {
+        final MetaTerrain terrain = meta.getTerrain();
+        if (terrain == null) return;
+        if (terrain.getSplatmap() != null) out.add(terrain.getSplatmap());
+        if (terrain.getSplatBase() != null) out.add(terrain.getSplatBase());
+        if (terrain.getSplatR() != null) out.add(terrain.getSplatR());
+        if (terrain.getSplatG() != null) out.add(terrain.getSplatG());
+        if (terrain.getSplatB() != null) out.add(terrain.getSplatB());
+        if (terrain.getSplatA() != null) out.add(terrain.getSplatA());
+    }
+
     @Override
     public void resolveDependencies(Map<String, Asset> assets) {
         // splatmap
@@ -241,7 +261,30 @@ public class TerrainAsset extends Asset {
     }
 
     @Override
-    public void dispose() {
+    public long getCpuBytes() {
+        // height data + vertices kept by the terrain
+        long bytes = data != null ? data.length * 4L : 0;
+        if (terrain != null) bytes += getGpuBytes();
+        return bytes;
+    }
+
+    @Override
+    public long getGpuBytes() {
+        return terrain != null && terrain.modelInstance != null ? modelBytes(terrain.modelInstance.model) : 0;
+    }
 
+    @Override
+    public void dispose() {
+        // release the splat textures without touching the meta file, so they are resolved again on reload
+        splatmap = relink(splatmap, null);
+        splatBase = relink(splatBase, null);
+        splatR = relink(splatR, null);
+        splatG = relink(splatG, null);
+        splatB = relink(splatB, null);
+        splatA = relink(splatA, null);
+        if (terrain != null) {
+            terrain.dispose();
+            terrain = null;
+        }
     }
 }
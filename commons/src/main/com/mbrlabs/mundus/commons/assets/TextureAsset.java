@@ -18,6 +18,8 @@ package com.mbrlabs.mundus.commons.assets;
 
 import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.TextureData;
+import com.badlogic.gdx.utils.Array;
 import com.mbrlabs.mundus.commons.assets.meta.Meta;
 import com.mbrlabs.mundus.commons.utils.TextureProvider;
 import com.mbrlabs.mundus.commons.utils.TextureUtils;
@@ -31,6 +33,7 @@ import java.util.Map;
 public class TextureAsset extends Asset implements TextureProvider {
 
     private Texture texture;
+    private TextureData textureData;
     private boolean generateMipMaps;
     private boolean tileable;
 
@@ -54,18 +57,41 @@ public class TextureAsset extends Asset implements TextureProvider {
     }
 
     @Override
-    public void load() {
+    public void loadData() {
+        // decodes the image
+        textureData = TextureData.Factory.loadFromFile(file, generateMipMaps);
+        if (!textureData.isPrepared()) textureData.prepare();
+    }
+
+    @Override
+    public void loadHeadless() {
+        // only used for rendering
+    }
+
+    @Override
+    public void loadGraphicsData() {
+        if (texture == null && textureData == null) loadData();
+    }
+
+    @Override
+    public void upload() {
         if (generateMipMaps) {
-            texture = TextureUtils.loadMipmapTexture(file, false);
+            texture = TextureUtils.loadMipmapTexture(textureData, false);
         } else {
-            texture = new Texture(file);
+            texture = new Texture(textureData);
         }
+        textureData = null;
 
         if (tileable) {
             texture.setWrap(Texture.TextureWrap.Repeat, Texture.TextureWrap.Repeat);
         }
     }
 
+    @Override
+    public void getDependencyIDs(Array<String> out) {
+        // no dependencies here
+    }
+
     @Override
     public void resolveDependencies(Map<String, Asset> assets) {
         // no dependencies here
@@ -76,10 +102,23 @@ public class TextureAsset extends Asset implements TextureProvider {
         // no dependencies here
     }
 
+    @Override
+    public long getGpuBytes() {
+        return textureBytes(texture);
+    }
+
     @Override
     public void dispose() {
         if (texture != null) {
             texture.dispose();
+            texture = null;
+        }
+        // decoded, but never uploaded
+        if (textureData != null) {
+            if (textureData.getType() == TextureData.TextureDataType.Pixmap && textureData.disposePixmap()) {
+                textureData.consumePixmap().dispose();
+            }
+            textureData = null;
         }
     }
 }
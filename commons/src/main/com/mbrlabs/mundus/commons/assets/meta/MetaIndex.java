@@ -0,0 +1,494 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mbrlabs.mundus.commons.assets.meta;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.StreamUtils;
+import com.mbrlabs.mundus.commons.assets.AssetType;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Binary cache of all meta files in an asset folder and its sub folders.
+ *
+ * Parsing every meta file as JSON dominates the startup time of large
+ * projects. The index stores the parsed metas together with the size and
+ * modification time of their files and the modification time of every
+ * folder. On the next scan folders, that were not modified, are not listed
+ * again and meta files, whose size and modification time did not change,
+ * are not parsed again. Folders are scanned in parallel, one task per folder.
+ *
+ * The index is stored outside of the asset folder, which may be read only
+ * (e.g. on mobile) or under version control. By default it is a local file
+ * (see defaultIndexFile()). If it can't be written, the next scan parses all
+ * meta files again. If the asset folder is not a folder in the file system
+ * (e.g. internal files on Android), all meta files of the asset folder are
+ * parsed and nothing is cached.
+ *
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+public class MetaIndex {
+
+    // local folder of the index files, one per asset folder
+    private static final String INDEX_FOLDER = ".mundus/metaindex/";
+
+    private static final int MAGIC = 0x4D4D4958;
+    private static final int VERSION = 1;
+
+    // JsonReader of the meta loader is not thread safe
+    private static final ThreadLocal<MetaLoader> META_LOADER = new ThreadLocal<MetaLoader>() {
+        @Override
+        protected MetaLoader initialValue() {
+            return new MetaLoader();
+        }
+    };
+
+    private final FileHandle rootFolder;
+    private final FileHandle indexFile;
+
+    // relative folder path to folder. "" is the root folder
+    private Map<String, Folder> folders = new HashMap<String, Folder>();
+    private boolean loaded = false;
+
+    private int parsedCount;
+    private int cachedCount;
+
+    /**
+     * @param rootFolder
+     *            asset folder
+     * @param indexFile
+     *            file the index is stored in, or null to not store it
+     */
+    public MetaIndex(FileHandle rootFolder, FileHandle indexFile) {
+        this.rootFolder = rootFolder;
+        this.indexFile = indexFile;
+    }
+
+    /**
+     * @param rootFolder
+     *            asset folder
+     * @return local file for the index of the asset folder, or null if
+     *         there is no local storage
+     */
+    public static FileHandle defaultIndexFile(FileHandle rootFolder) {
+        if (Gdx.files == null || !Gdx.files.isLocalStorageAvailable()) return null;
+        return indexFile(Gdx.files.local(INDEX_FOLDER), rootFolder);
+    }
+
+    /**
+     * @param cacheFolder
+     *            folder, in which the indices of several asset folders can
+     *            be stored
+     * @param rootFolder
+     *            asset folder
+     * @return file for the index of the asset folder in the cache folder
+     */
+    public static FileHandle indexFile(FileHandle cacheFolder, FileHandle rootFolder) {
+        final String path = rootFolder.file().getAbsolutePath();
+        return cacheFolder.child(Integer.toHexString(path.hashCode()) + "_" + rootFolder.name());
+    }
+
+    /**
+     * Scans the asset folder and all sub folders for meta files. Parses only
+     * new and modified meta files.
+     *
+     * @param pool
+     *            executor, on which the folders are scanned
+     * @return metas of all meta files. Root folder first, then breadth first
+     * @throws MetaFileParseException
+     *             if a meta file can't be parsed
+     */
+    public Array<Meta> scan(ExecutorService pool) throws MetaFileParseException {
+        parsedCount = 0;
+        cachedCount = 0;
+
+        final Array<Meta> metas = new Array<Meta>();
+        if (!rootFolder.file().isDirectory()) {
+            scanFlat(metas);
+            return metas;
+        }
+        if (!loaded) {
+            read();
+            loaded = true;
+        }
+
+        final Map<String, Folder> scanned = new HashMap<String, Folder>();
+        List<ScanTask> level = new ArrayList<ScanTask>();
+        level.add(new ScanTask(""));
+        while (!level.isEmpty()) {
+            final List<ScanTask> next = new ArrayList<ScanTask>();
+            for (Folder folder : invokeAll(pool, level)) {
+                scanned.put(folder.path, folder);
+                for (Entry entry : folder.entries.values()) {
+                    metas.add(entry.meta);
+                    if (entry.parsed) {
+                        parsedCount++;
+                    } else {
+                        cachedCount++;
+                    }
+                }
+                for (String name : folder.subFolders) {
+                    next.add(new ScanTask(folder.path.length() == 0 ? name : folder.path + "/" + name));
+                }
+            }
+            level = next;
+        }
+
+        folders = scanned;
+        return metas;
+    }
+
+    /**
+     * @return true if the last scan found new, modified or removed meta files
+     */
+    public boolean isDirty() {
+        if (parsedCount > 0) return true;
+        for (Folder folder : folders.values()) {
+            if (folder.listed) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return number of meta files parsed by the last scan
+     */
+    public int getParsedCount() {
+        return parsedCount;
+    }
+
+    /**
+     * @return number of meta files taken from the index by the last scan
+     */
+    public int getCachedCount() {
+        return cachedCount;
+    }
+
+    /**
+     * Writes the index file. Failures are ignored, the next scan parses the
+     * meta files again then.
+     *
+     * @return true if the index has been written
+     */
+    public boolean save() {
+        if (indexFile == null || !rootFolder.file().isDirectory()) return false;
+
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(indexFile.write(false), 32768));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(folders.size());
+            for (Folder folder : folders.values()) {
+                out.writeUTF(folder.path);
+                out.writeLong(folder.lastModified);
+                out.writeInt(folder.subFolders.size);
+                for (String name : folder.subFolders) {
+                    out.writeUTF(name);
+                }
+                out.writeInt(folder.entries.size());
+                for (Entry entry : folder.entries.values()) {
+                    out.writeUTF(entry.name);
+                    out.writeLong(entry.length);
+                    out.writeLong(entry.lastModified);
+                    writeMeta(out, entry.meta);
+                }
+            }
+        } catch (IOException e) {
+            return false;
+        } catch (GdxRuntimeException e) {
+            // e.g. read only file system
+            return false;
+        } finally {
+            StreamUtils.closeQuietly(out);
+        }
+
+        for (Folder folder : folders.values()) {
+            folder.listed = false;
+        }
+        parsedCount = 0;
+        return true;
+    }
+
+    private Folder scanFolder(String path) throws MetaFileParseException {
+        final File file = path.length() == 0 ? rootFolder.file() : new File(rootFolder.file(), path);
+        final Folder cached = folders.get(path);
+        final Folder folder = new Folder(path, file.lastModified());
+
+        if (cached != null && cached.lastModified == folder.lastModified) {
+            // no files added, removed or renamed
+            folder.subFolders.addAll(cached.subFolders);
+            for (Entry entry : cached.entries.values()) {
+                folder.entries.put(entry.name, validate(path, new File(file, entry.name), entry));
+            }
+            return folder;
+        }
+
+        folder.listed = true;
+        final String[] names = file.list();
+        if (names == null) return folder;
+        Arrays.sort(names);
+        for (String name : names) {
+            final File child = new File(file, name);
+            if (name.endsWith("." + Meta.META_EXTENSION)) {
+                final Entry entry = cached != null ? cached.entries.get(name) : null;
+                folder.entries.put(name, validate(path, child, entry));
+            } else if (!name.startsWith(".") && child.isDirectory()) {
+                folder.subFolders.add(name);
+            }
+        }
+
+        return folder;
+    }
+
+    /**
+     * Returns the cached entry, if the meta file did not change. Otherwise
+     * the meta file is parsed.
+     */
+    private Entry validate(String folderPath, File file, Entry cached) throws MetaFileParseException {
+        final long length = file.length();
+        final long lastModified = file.lastModified();
+        if (cached != null && cached.length == length && cached.lastModified == lastModified) {
+            cached.parsed = false;
+            return cached;
+        }
+
+        final Entry entry = new Entry(file.getName(), length, lastModified);
+        entry.meta = META_LOADER.get().load(metaFile(folderPath, entry.name));
+        entry.parsed = true;
+        return entry;
+    }
+
+    private void scanFlat(Array<Meta> metas) throws MetaFileParseException {
+        final FileHandle[] metaFiles = rootFolder.list(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.getName().endsWith("." + Meta.META_EXTENSION);
+            }
+        });
+        for (FileHandle metaFile : metaFiles) {
+            metas.add(META_LOADER.get().load(metaFile));
+            parsedCount++;
+        }
+    }
+
+    private FileHandle metaFile(String folderPath, String name) {
+        return folderPath.length() == 0 ? rootFolder.child(name) : rootFolder.child(folderPath + "/" + name);
+    }
+
+    private List<Folder> invokeAll(ExecutorService pool, List<ScanTask> tasks) throws MetaFileParseException {
+        final List<Folder> result = new ArrayList<Folder>(tasks.size());
+        try {
+            for (Future<Folder> future : pool.invokeAll(tasks)) {
+                result.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GdxRuntimeException("Interrupted while scanning " + rootFolder.path(), e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof MetaFileParseException) throw (MetaFileParseException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new GdxRuntimeException(cause);
+        }
+        return result;
+    }
+
+    /**
+     * Reads the index file. Starts with an empty index, if there is none or
+     * it can't be read.
+     */
+    private void read() {
+        folders = new HashMap<String, Folder>();
+        if (indexFile == null || !indexFile.exists()) return;
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(indexFile.read(), 32768));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return;
+
+            final int folderCount = in.readInt();
+            for (int i = 0; i < folderCount; i++) {
+                final Folder folder = new Folder(in.readUTF(), in.readLong());
+                final int subFolderCount = in.readInt();
+                for (int j = 0; j < subFolderCount; j++) {
+                    folder.subFolders.add(in.readUTF());
+                }
+                final int entryCount = in.readInt();
+                for (int j = 0; j < entryCount; j++) {
+                    final Entry entry = new Entry(in.readUTF(), in.readLong(), in.readLong());
+                    entry.meta = readMeta(in, metaFile(folder.path, entry.name));
+                    folder.entries.put(entry.name, entry);
+                }
+                folders.put(folder.path, folder);
+            }
+        } catch (Exception e) {
+            // corrupt (e.g. partially written) or outdated index, rebuilt by the next scan
+            folders = new HashMap<String, Folder>();
+        } finally {
+            StreamUtils.closeQuietly(in);
+        }
+    }
+
+    private static void writeMeta(DataOutputStream out, Meta meta) throws IOException {
+        out.writeInt(meta.getVersion());
+        out.writeLong(meta.getLastModified());
+        out.writeUTF(meta.getUuid());
+        out.writeUTF(meta.getType().name());
+
+        final MetaTerrain terrain = meta.getTerrain();
+        out.writeBoolean(terrain != null);
+        if (terrain != null) {
+            out.writeInt(terrain.getSize());
+            writeString(out, terrain.getSplatmap());
+            writeString(out, terrain.getSplatBase());
+            writeString(out, terrain.getSplatR());
+            writeString(out, terrain.getSplatG());
+            writeString(out, terrain.getSplatB());
+            writeString(out, terrain.getSplatA());
+        }
+
+        final MetaModel model = meta.getModel();
+        out.writeBoolean(model != null);
+        if (model != null) {
+            out.writeInt(model.getDefaultMaterials().size);
+            for (ObjectMap.Entry<String, String> mat : model.getDefaultMaterials()) {
+                out.writeUTF(mat.key);
+                out.writeUTF(mat.value);
+            }
+            out.writeInt(model.getLods().size);
+            for (int i = 0; i < model.getLods().size; i++) {
+                out.writeUTF(model.getLods().get(i));
+                out.writeFloat(model.getLodScreenSizes().get(i));
+            }
+        }
+    }
+
+    private static Meta readMeta(DataInputStream in, FileHandle file) throws IOException {
+        final Meta meta = new Meta(file);
+        meta.setVersion(in.readInt());
+        meta.setLastModified(in.readLong());
+        meta.setUuid(in.readUTF());
+        meta.setType(AssetType.valueOf(in.readUTF()));
+
+        if (in.readBoolean()) {
+            final MetaTerrain terrain = new MetaTerrain();
+            terrain.setSize(in.readInt());
+            terrain.setSplatmap(readString(in));
+            terrain.setSplatBase(readString(in));
+            terrain.setSplatR(readString(in));
+            terrain.setSplatG(readString(in));
+            terrain.setSplatB(readString(in));
+            terrain.setSplatA(readString(in));
+            meta.setTerrain(terrain);
+        }
+
+        if (in.readBoolean()) {
+            final MetaModel model = new MetaModel();
+            final int materialCount = in.readInt();
+            for (int i = 0; i < materialCount; i++) {
+                model.getDefaultMaterials().put(in.readUTF(), in.readUTF());
+            }
+            final int lodCount = in.readInt();
+            for (int i = 0; i < lodCount; i++) {
+                model.getLods().add(in.readUTF());
+                model.getLodScreenSizes().add(in.readFloat());
+            }
+            meta.setModel(model);
+        }
+
+        return meta;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * Scans one folder.
+     */
+    private class ScanTask implements Callable<Folder> {
+
+        final String path;
+
+        ScanTask(String path) {
+            this.path = path;
+        }
+
+        @Override
+        public Folder call() throws Exception {
+            return scanFolder(path);
+        }
+    }
+
+    private static class Folder {
+        final String path;
+        long lastModified;
+        final Array<String> subFolders = new Array<String>();
+        // meta file name to entry, sorted by name
+        final Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+        // listed by the last scan, because it is new or was modified
+        boolean listed = false;
+
+        Folder(String path, long lastModified) {
+            this.path = path;
+            this.lastModified = lastModified;
+        }
+    }
+
+    private static class Entry {
+        final String name;
+        final long length;
+        final long lastModified;
+        Meta meta;
+        // parsed by the last scan
+        boolean parsed = false;
+
+        Entry(String name, long length, long lastModified) {
+            this.name = name;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+    }
+
+}
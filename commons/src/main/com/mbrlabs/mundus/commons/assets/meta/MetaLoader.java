@@ -74,12 +74,19 @@ public class MetaLoader {
         final JsonValue materials = jsonModel.get(MetaModel.JSON_DEFAULT_MATERIALS);
 
         for(final JsonValue mat : materials) {
-            System.out.println(mat.name);
             final String g3dbID = mat.name;
             final String assetUUID = materials.getString(g3dbID);
             model.getDefaultMaterials().put(g3dbID, assetUUID);
         }
 
+        final JsonValue lods = jsonModel.get(MetaModel.JSON_LODS);
+        if(lods != null) {
+            for(final JsonValue lod : lods) {
+                model.getLods().add(lod.getString(MetaModel.JSON_LOD_MODEL));
+                model.getLodScreenSizes().add(lod.getFloat(MetaModel.JSON_LOD_SCREEN_SIZE));
+            }
+        }
+
         meta.setModel(model);
     }
 
@@ -16,6 +16,8 @@
 
 package com.mbrlabs.mundus.commons.assets.meta;
 
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
 import com.badlogic.gdx.utils.ObjectMap;
 
 /**
@@ -26,18 +28,34 @@ import com.badlogic.gdx.utils.ObjectMap;
 public class MetaModel {
 
     public static final String JSON_DEFAULT_MATERIALS = "mats";
+    public static final String JSON_LODS = "lods";
+    public static final String JSON_LOD_MODEL = "id";
+    public static final String JSON_LOD_SCREEN_SIZE = "size";
 
     // g3db material id -> material asset uuid
     private ObjectMap<String, String> defaultMaterials = new ObjectMap<String, String>();
 
+    // default levels of detail: model asset uuids & screen sizes
+    private Array<String> lods = new Array<String>();
+    private FloatArray lodScreenSizes = new FloatArray();
+
     public ObjectMap<String, String> getDefaultMaterials() {
         return defaultMaterials;
     }
 
+    public Array<String> getLods() {
+        return lods;
+    }
+
+    public FloatArray getLodScreenSizes() {
+        return lodScreenSizes;
+    }
+
     @Override
     public String toString() {
         return "MetaModel{" +
                 "defaultMaterials=" + defaultMaterials +
+                ", lods=" + lods +
                 '}';
     }
 }
@@ -16,21 +16,45 @@
 
 package com.mbrlabs.mundus.commons.env;
 
+import com.badlogic.gdx.graphics.Camera;
 import com.badlogic.gdx.graphics.g3d.Environment;
+import com.badlogic.gdx.utils.Disposable;
 import com.mbrlabs.mundus.commons.env.lights.BaseLight;
 import com.mbrlabs.mundus.commons.env.lights.DirectionalLight;
 import com.mbrlabs.mundus.commons.env.lights.DirectionalLightsAttribute;
+import com.mbrlabs.mundus.commons.env.lights.LightClusters;
+import com.mbrlabs.mundus.commons.env.lights.PointLight;
+import com.mbrlabs.mundus.commons.env.lights.PointLightsAttribute;
+import com.mbrlabs.mundus.commons.env.lights.SpotLight;
+import com.mbrlabs.mundus.commons.env.lights.SpotLightsAttribute;
 import com.mbrlabs.mundus.commons.env.lights.SunLight;
 import com.mbrlabs.mundus.commons.env.lights.SunLightsAttribute;
+import com.mbrlabs.mundus.commons.g3d.CascadedShadowMap;
+import com.mbrlabs.mundus.commons.g3d.RenderStats;
 
 /**
+ * The environment of a scene (lights & fog).
+ *
+ * Shaders cache the uniforms of the environment and upload them again only if
+ * the environment or its version changed. The version increases with every
+ * change made through this class. If lights or fog are modified directly (e.g.
+ * fog.density = 0.1f), call markDirty() afterwards.
+ *
+ * Point and spot lights are binned into {@link LightClusters} by
+ * updateLightClusters() once per frame. Their properties can be changed
+ * directly, they are read again with every update.
+ *
  * @author Marcus Brummer
  * @version 04-01-2016
  */
-public class MundusEnvironment extends Environment {
+public class MundusEnvironment extends Environment implements Disposable {
 
     private Fog fog;
     private BaseLight ambientLight;
+    private int version = 0;
+    private LightClusters lightClusters;
+    private CascadedShadowMap shadowMap;
+    private RenderStats renderStats;
 
     public MundusEnvironment() {
         super();
@@ -42,6 +66,7 @@ public class MundusEnvironment extends Environment {
         SunLightsAttribute sunLights = ((SunLightsAttribute) get(SunLightsAttribute.Type));
         if (sunLights == null) set(sunLights = new SunLightsAttribute());
         sunLights.lights.add(light);
+        markDirty();
 
         return this;
     }
@@ -50,16 +75,110 @@ public class MundusEnvironment extends Environment {
         DirectionalLightsAttribute dirLights = ((DirectionalLightsAttribute) get(DirectionalLightsAttribute.Type));
         if (dirLights == null) set(dirLights = new DirectionalLightsAttribute());
         dirLights.lights.add(light);
+        markDirty();
+
+        return this;
+    }
+
+    public MundusEnvironment add(PointLight light) {
+        PointLightsAttribute pointLights = ((PointLightsAttribute) get(PointLightsAttribute.Type));
+        if (pointLights == null) set(pointLights = new PointLightsAttribute());
+        pointLights.lights.add(light);
+        markDirty();
+
+        return this;
+    }
+
+    public MundusEnvironment add(SpotLight light) {
+        SpotLightsAttribute spotLights = ((SpotLightsAttribute) get(SpotLightsAttribute.Type));
+        if (spotLights == null) set(spotLights = new SpotLightsAttribute());
+        spotLights.lights.add(light);
+        markDirty();
 
         return this;
     }
 
+    /**
+     * Bins all point and spot lights into the clusters of the camera frustum.
+     * Call once per frame before rendering.
+     *
+     * Does nothing if clustered lighting is not supported (no GL30).
+     *
+     * @param cam
+     *            camera, that renders the scene
+     */
+    public void updateLightClusters(Camera cam) {
+        final PointLightsAttribute pointLights = get(PointLightsAttribute.class, PointLightsAttribute.Type);
+        final SpotLightsAttribute spotLights = get(SpotLightsAttribute.class, SpotLightsAttribute.Type);
+        final boolean hasLights = (pointLights != null && pointLights.lights.size > 0)
+                || (spotLights != null && spotLights.lights.size > 0);
+
+        if (!hasLights) {
+            if (lightClusters != null && lightClusters.getLightCount() > 0) lightClusters.clear();
+            return;
+        }
+
+        if (lightClusters == null) {
+            if (!LightClusters.isSupported()) return;
+            lightClusters = new LightClusters();
+        }
+        lightClusters.update(cam, pointLights == null ? null : pointLights.lights,
+                spotLights == null ? null : spotLights.lights);
+    }
+
+    /**
+     * @return light clusters or null if no point or spot lights were added
+     *         yet or clustered lighting is not supported
+     */
+    public LightClusters getLightClusters() {
+        return lightClusters;
+    }
+
+    /**
+     * @return shadow map of the main directional light or null if shadows are
+     *         disabled
+     */
+    public CascadedShadowMap getShadowMap() {
+        return shadowMap;
+    }
+
+    /**
+     * Sets the shadow map, shaders should sample. The shadow map is not owned
+     * by the environment.
+     *
+     * @param shadowMap
+     *            shadow map or null
+     */
+    public void setShadowMap(CascadedShadowMap shadowMap) {
+        this.shadowMap = shadowMap;
+    }
+
+    /**
+     * @return statistics of the render pass, that currently renders with
+     *         this environment, or null
+     */
+    public RenderStats getRenderStats() {
+        return renderStats;
+    }
+
+    /**
+     * Sets the statistics, shaders should count their binds in. Not owned by
+     * the environment.
+     *
+     * @param renderStats
+     *            statistics of the current render pass or null
+     */
+    public void setRenderStats(RenderStats renderStats) {
+        this.renderStats = renderStats;
+    }
+
     public BaseLight getAmbientLight() {
         return ambientLight;
     }
 
     public void setAmbientLight(BaseLight ambientLight) {
         this.ambientLight = ambientLight;
+        markDirty();
     }
 
     public Fog getFog() {
@@ -68,6 +187,29 @@ public class MundusEnvironment extends Environment {
 
     public void setFog(Fog fog) {
         this.fog = fog;
+        markDirty();
+    }
+
+    /**
+     * Increases the version. Call after lights or fog were modified directly.
+     */
+    public void markDirty() {
+        version++;
+    }
+
+    /**
+     * @return version of the environment. Changes with every modification.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    @Override
+    public void dispose() {
+        if (lightClusters != null) {
+            lightClusters.dispose();
+            lightClusters = null;
+        }
     }
 
 }
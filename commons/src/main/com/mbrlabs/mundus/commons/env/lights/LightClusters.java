@@ -0,0 +1,482 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.commons.env.lights;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Camera;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.GL30;
+import com.badlogic.gdx.graphics.GLTexture;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.BufferUtils;
+import com.badlogic.gdx.utils.Disposable;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * Bins point and spot lights into clusters of the view frustum (froxels).
+ *
+ * The frustum is divided into sizeX * sizeY tiles in screen space and sizeZ
+ * exponential depth slices. Every frame update() computes the clusters each
+ * light overlaps and writes three float textures, that are read by the
+ * shaders:
+ *
+ * <ul>
+ * <li>cluster texture (sizeX * sizeY, sizeZ): offset & number of lights of
+ * every cluster in the light index texture</li>
+ * <li>light index texture (1024, n): indices into the light data texture</li>
+ * <li>light data texture (maxLights, 3): position & range, color * intensity &
+ * cos(inner angle), direction & cos(outer angle)</li>
+ * </ul>
+ *
+ * A fragment only loops over the lights of its own cluster. Needs GL30 for
+ * float textures and texelFetch.
+ *
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+public class LightClusters implements Disposable {
+
+    public static final int DEFAULT_SIZE_X = 16;
+    public static final int DEFAULT_SIZE_Y = 9;
+    public static final int DEFAULT_SIZE_Z = 24;
+    public static final int DEFAULT_MAX_LIGHTS = 1024;
+
+    private static final int INDEX_TEXTURE_WIDTH = 1024;
+    // cos of the outer angle for point lights. tells the shader, that there is no cone
+    private static final float NO_CONE = -2f;
+
+    private final int sizeX;
+    private final int sizeY;
+    private final int sizeZ;
+    private final int maxLights;
+
+    private final int[] clusterCounts;
+    private final int[] clusterOffsets;
+    private int[] lightIndices;
+    // cluster range of every visible light: minX, maxX, minY, maxY, minZ, maxZ
+    private int[] lightRanges;
+
+    private final FloatBuffer clusterData;
+    private final FloatBuffer lightData;
+    private FloatBuffer indexData;
+
+    private final FloatTexture clusterTexture;
+    private final FloatTexture indexTexture;
+    private final FloatTexture lightTexture;
+
+    private int lightCount;
+    private int updateCount;
+    private float depthScale;
+    private float depthBias;
+
+    private final Vector3 tmpCenter = new Vector3();
+    private final Vector3 tmpCorner = new Vector3();
+
+    /**
+     * @return true if the current GL context supports clustered lighting
+     */
+    public static boolean isSupported() {
+        return Gdx.gl30 != null;
+    }
+
+    public LightClusters() {
+        this(DEFAULT_SIZE_X, DEFAULT_SIZE_Y, DEFAULT_SIZE_Z, DEFAULT_MAX_LIGHTS);
+    }
+
+    /**
+     * @param sizeX
+     *            number of clusters along the screen x axis
+     * @param sizeY
+     *            number of clusters along the screen y axis
+     * @param sizeZ
+     *            number of depth slices
+     * @param maxLights
+     *            max number of visible lights per frame. Additional lights
+     *            are ignored
+     */
+    public LightClusters(int sizeX, int sizeY, int sizeZ, int maxLights) {
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+        this.maxLights = maxLights;
+
+        final int clusters = sizeX * sizeY * sizeZ;
+        clusterCounts = new int[clusters];
+        clusterOffsets = new int[clusters];
+        lightIndices = new int[INDEX_TEXTURE_WIDTH];
+        lightRanges = new int[6 * 64];
+
+        clusterData = BufferUtils.newFloatBuffer(clusters * 2);
+        lightData = BufferUtils.newFloatBuffer(maxLights * 3 * 4);
+        indexData = BufferUtils.newFloatBuffer(INDEX_TEXTURE_WIDTH);
+
+        clusterTexture = new FloatTexture(GL30.GL_RG32F, GL30.GL_RG);
+        indexTexture = new FloatTexture(GL30.GL_R32F, GL30.GL_RED);
+        lightTexture = new FloatTexture(GL30.GL_RGBA32F, GL20.GL_RGBA);
+    }
+
+    /**
+     * Bins the lights into the clusters of the camera frustum and uploads the
+     * result.
+     *
+     * @param cam
+     *            camera
+     * @param pointLights
+     *            point lights, may be null
+     * @param spotLights
+     *            spot lights, may be null
+     */
+    public void update(Camera cam, Array<PointLight> pointLights, Array<SpotLight> spotLights) {
+        final float logNear = (float) Math.log(cam.near);
+        depthScale = sizeZ / ((float) Math.log(cam.far) - logNear);
+        depthBias = logNear * depthScale;
+
+        lightCount = 0;
+        lightData.clear();
+        if (pointLights != null) {
+            for (PointLight light : pointLights) {
+                if (lightCount == maxLights) break;
+                if (light instanceof SpotLight) {
+                    addSpotLight(cam, (SpotLight) light);
+                } else {
+                    addLight(cam, light, light.position, light.range);
+                }
+            }
+        }
+        if (spotLights != null) {
+            for (SpotLight light : spotLights) {
+                if (lightCount == maxLights) break;
+                addSpotLight(cam, light);
+            }
+        }
+
+        binLights();
+        upload();
+        updateCount++;
+    }
+
+    /**
+     * Removes all lights from the clusters.
+     */
+    public void clear() {
+        lightCount = 0;
+        updateCount++;
+    }
+
+    private void addSpotLight(Camera cam, SpotLight light) {
+        // bounding sphere of the cone
+        final float angle = light.outerAngle * MathUtils.degreesToRadians;
+        final float cos = MathUtils.cos(angle);
+        float radius;
+        float distance;
+        if (angle > MathUtils.PI / 4f) {
+            distance = cos * light.range;
+            radius = MathUtils.sin(angle) * light.range;
+        } else {
+            distance = light.range / (2f * cos);
+            radius = distance;
+        }
+        tmpCenter.set(light.direction).nor().scl(distance).add(light.position);
+
+        addLight(cam, light, tmpCenter, radius);
+    }
+
+    /**
+     * Computes the clusters, the bounding sphere of the light overlaps and
+     * writes the light data of visible lights.
+     */
+    private void addLight(Camera cam, PointLight light, Vector3 center, float radius) {
+        tmpCenter.set(center).mul(cam.view);
+
+        // depth range. view space looks down -z
+        final float depth = -tmpCenter.z;
+        final float minDepth = Math.max(depth - radius, cam.near);
+        final float maxDepth = Math.min(depth + radius, cam.far);
+        if (minDepth > maxDepth) return;
+
+        // screen space range: project the corners of the view space box around the sphere
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+        for (int i = 0; i < 8; i++) {
+            tmpCorner.x = tmpCenter.x + ((i & 1) == 0 ? -radius : radius);
+            tmpCorner.y = tmpCenter.y + ((i & 2) == 0 ? -radius : radius);
+            tmpCorner.z = (i & 4) == 0 ? -minDepth : -maxDepth;
+            tmpCorner.prj(cam.projection);
+            minX = Math.min(minX, tmpCorner.x);
+            maxX = Math.max(maxX, tmpCorner.x);
+            minY = Math.min(minY, tmpCorner.y);
+            maxY = Math.max(maxY, tmpCorner.y);
+        }
+        if (maxX < -1f || minX > 1f || maxY < -1f || minY > 1f) return;
+
+        final int index = lightCount++;
+        if (lightRanges.length < lightCount * 6) {
+            final int[] ranges = new int[lightRanges.length * 2];
+            System.arraycopy(lightRanges, 0, ranges, 0, lightRanges.length);
+            lightRanges = ranges;
+        }
+        final int r = index * 6;
+        lightRanges[r] = tile(minX, sizeX);
+        lightRanges[r + 1] = tile(maxX, sizeX);
+        lightRanges[r + 2] = tile(minY, sizeY);
+        lightRanges[r + 3] = tile(maxY, sizeY);
+        lightRanges[r + 4] = slice(minDepth);
+        lightRanges[r + 5] = slice(maxDepth);
+
+        writeLightData(index, light);
+    }
+
+    private int tile(float ndc, int size) {
+        return MathUtils.clamp((int) ((ndc * 0.5f + 0.5f) * size), 0, size - 1);
+    }
+
+    private int slice(float depth) {
+        return MathUtils.clamp((int) ((float) Math.log(depth) * depthScale - depthBias), 0, sizeZ - 1);
+    }
+
+    private void writeLightData(int index, PointLight light) {
+        final float intensity = light.intensity;
+
+        // row 0: position & range
+        int pos = index * 4;
+        lightData.put(pos, light.position.x);
+        lightData.put(pos + 1, light.position.y);
+        lightData.put(pos + 2, light.position.z);
+        lightData.put(pos + 3, light.range);
+
+        // row 1: color & cos of inner angle
+        pos += maxLights * 4;
+        lightData.put(pos, light.color.r * intensity);
+        lightData.put(pos + 1, light.color.g * intensity);
+        lightData.put(pos + 2, light.color.b * intensity);
+
+        // row 2: direction & cos of outer angle
+        final int pos2 = pos + maxLights * 4;
+        if (light instanceof SpotLight) {
+            final SpotLight spot = (SpotLight) light;
+            tmpCorner.set(spot.direction).nor();
+            lightData.put(pos + 3, MathUtils.cosDeg(spot.innerAngle));
+            lightData.put(pos2, tmpCorner.x);
+            lightData.put(pos2 + 1, tmpCorner.y);
+            lightData.put(pos2 + 2, tmpCorner.z);
+            lightData.put(pos2 + 3, MathUtils.cosDeg(spot.outerAngle));
+        } else {
+            lightData.put(pos + 3, 1f);
+            lightData.put(pos2, 0f);
+            lightData.put(pos2 + 1, 0f);
+            lightData.put(pos2 + 2, 0f);
+            lightData.put(pos2 + 3, NO_CONE);
+        }
+    }
+
+    /**
+     * Counts the lights per cluster, computes the offsets and fills the light
+     * index list.
+     */
+    private void binLights() {
+        final int sliceSize = sizeX * sizeY;
+        Arrays.fill(clusterCounts, 0);
+
+        for (int i = 0; i < lightCount; i++) {
+            final int r = i * 6;
+            for (int z = lightRanges[r + 4]; z <= lightRanges[r + 5]; z++) {
+                for (int y = lightRanges[r + 2]; y <= lightRanges[r + 3]; y++) {
+                    for (int x = lightRanges[r]; x <= lightRanges[r + 1]; x++) {
+                        clusterCounts[x + y * sizeX + z * sliceSize]++;
+                    }
+                }
+            }
+        }
+
+        int total = 0;
+        for (int c = 0; c < clusterCounts.length; c++) {
+            clusterOffsets[c] = total;
+            total += clusterCounts[c];
+        }
+        if (lightIndices.length < total) {
+            lightIndices = new int[MathUtils.nextPowerOfTwo(total)];
+        }
+
+        // fill indices. clusterOffsets is used as cursor & restored afterwards
+        for (int i = 0; i < lightCount; i++) {
+            final int r = i * 6;
+            for (int z = lightRanges[r + 4]; z <= lightRanges[r + 5]; z++) {
+                for (int y = lightRanges[r + 2]; y <= lightRanges[r + 3]; y++) {
+                    for (int x = lightRanges[r]; x <= lightRanges[r + 1]; x++) {
+                        lightIndices[clusterOffsets[x + y * sizeX + z * sliceSize]++] = i;
+                    }
+                }
+            }
+        }
+        for (int c = 0; c < clusterCounts.length; c++) {
+            clusterOffsets[c] -= clusterCounts[c];
+        }
+
+        // cluster data: offset, count
+        clusterData.clear();
+        for (int c = 0; c < clusterCounts.length; c++) {
+            clusterData.put(clusterOffsets[c]);
+            clusterData.put(clusterCounts[c]);
+        }
+        clusterData.flip();
+
+        // index data
+        final int rows = Math.max(1, (total + INDEX_TEXTURE_WIDTH - 1) / INDEX_TEXTURE_WIDTH);
+        if (indexData.capacity() < rows * INDEX_TEXTURE_WIDTH) {
+            indexData = BufferUtils.newFloatBuffer(rows * INDEX_TEXTURE_WIDTH);
+        }
+        indexData.clear();
+        for (int i = 0; i < total; i++) {
+            indexData.put(lightIndices[i]);
+        }
+        indexData.position(0);
+        indexData.limit(rows * INDEX_TEXTURE_WIDTH);
+    }
+
+    private void upload() {
+        // unit 0 is not used by the model batch's texture binder
+        Gdx.gl.glActiveTexture(GL20.GL_TEXTURE0);
+        clusterTexture.upload(sizeX * sizeY, sizeZ, clusterData);
+        indexTexture.upload(INDEX_TEXTURE_WIDTH, indexData.limit() / INDEX_TEXTURE_WIDTH, indexData);
+        lightData.position(0);
+        lightData.limit(lightData.capacity());
+        lightTexture.upload(maxLights, 3, lightData);
+    }
+
+    /**
+     * @return number of visible lights of the last update
+     */
+    public int getLightCount() {
+        return lightCount;
+    }
+
+    /**
+     * @return number of update() & clear() calls. Can be used by shaders to
+     *         detect changes
+     */
+    public int getUpdateCount() {
+        return updateCount;
+    }
+
+    public int getSizeX() {
+        return sizeX;
+    }
+
+    public int getSizeY() {
+        return sizeY;
+    }
+
+    public int getSizeZ() {
+        return sizeZ;
+    }
+
+    /**
+     * @return scale to compute the depth slice: slice = log(depth) * scale - bias
+     */
+    public float getDepthScale() {
+        return depthScale;
+    }
+
+    /**
+     * @return bias to compute the depth slice: slice = log(depth) * scale - bias
+     */
+    public float getDepthBias() {
+        return depthBias;
+    }
+
+    public GLTexture getClusterTexture() {
+        return clusterTexture;
+    }
+
+    public GLTexture getLightIndexTexture() {
+        return indexTexture;
+    }
+
+    public GLTexture getLightDataTexture() {
+        return lightTexture;
+    }
+
+    @Override
+    public void dispose() {
+        clusterTexture.dispose();
+        indexTexture.dispose();
+        lightTexture.dispose();
+    }
+
+    /**
+     * Unfiltered float texture, that is updated every frame.
+     */
+    private static class FloatTexture extends GLTexture {
+
+        private final int internalFormat;
+        private final int format;
+        private int width;
+        private int height;
+
+        FloatTexture(int internalFormat, int format) {
+            super(GL20.GL_TEXTURE_2D);
+            this.internalFormat = internalFormat;
+            this.format = format;
+
+            bind();
+            unsafeSetFilter(Texture.TextureFilter.Nearest, Texture.TextureFilter.Nearest, true);
+            unsafeSetWrap(Texture.TextureWrap.ClampToEdge, Texture.TextureWrap.ClampToEdge, true);
+        }
+
+        void upload(int width, int height, FloatBuffer data) {
+            bind();
+            if (width != this.width || height != this.height) {
+                this.width = width;
+                this.height = height;
+                Gdx.gl.glTexImage2D(glTarget, 0, internalFormat, width, height, 0, format, GL20.GL_FLOAT, data);
+            } else {
+                Gdx.gl.glTexSubImage2D(glTarget, 0, 0, 0, width, height, format, GL20.GL_FLOAT, data);
+            }
+        }
+
+        @Override
+        public int getWidth() {
+            return width;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public int getDepth() {
+            return 0;
+        }
+
+        @Override
+        public boolean isManaged() {
+            return false;
+        }
+
+        @Override
+        protected void reload() {
+            // not managed, rebuilt by the next update()
+        }
+    }
+
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.commons.env.lights;
+
+import com.badlogic.gdx.math.Vector3;
+
+/**
+ * Light, that shines in all directions from a position.
+ *
+ * The intensity falls off smoothly and reaches zero at the range of the
+ * light.
+ *
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+public class PointLight extends BaseLight {
+
+    public final Vector3 position = new Vector3();
+    public float range = 10f;
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.commons.env.lights;
+
+import com.badlogic.gdx.graphics.g3d.Attribute;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+public class PointLightsAttribute extends Attribute {
+
+    public final static String Alias = "pointLights";
+    public final Array<PointLight> lights;
+
+    public final static long Type = register(Alias);
+
+    public final static boolean is(final long mask) {
+        return (mask & Type) == mask;
+    }
+
+    public PointLightsAttribute() {
+        super(Type);
+        lights = new Array<PointLight>(1);
+    }
+
+    public PointLightsAttribute(final PointLightsAttribute copyFrom) {
+        this();
+        lights.addAll(copyFrom.lights);
+    }
+
+    @Override
+    public PointLightsAttribute copy() {
+        return new PointLightsAttribute(this);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = super.hashCode();
+        for (PointLight light : lights)
+            result = 1237 * result + (light == null ? 0 : light.hashCode());
+        return result;
+    }
+
+    @Override
+    public int compareTo(Attribute o) {
+        if (type != o.type) return type < o.type ? -1 : 1;
+        final PointLightsAttribute other = (PointLightsAttribute) o;
+        if (lights.size != other.lights.size) return lights.size < other.lights.size ? -1 : 1;
+        // same lights in the same order, consistent with hashCode()
+        for (int i = 0; i < lights.size; i++) {
+            final PointLight a = lights.get(i);
+            final PointLight b = other.lights.get(i);
+            final int ha = a == null ? 0 : a.hashCode();
+            final int hb = b == null ? 0 : b.hashCode();
+            if (ha != hb) return ha < hb ? -1 : 1;
+        }
+        return 0;
+    }
+
+}
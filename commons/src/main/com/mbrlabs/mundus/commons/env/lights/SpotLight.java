@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.commons.env.lights;
+
+import com.badlogic.gdx.math.Vector3;
+
+/**
+ * Point light, that only shines into a cone.
+ *
+ * Inside the inner angle the light has full intensity, between inner and outer
+ * angle it fades out. Angles are half angles of the cone in degrees.
+ *
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+public class SpotLight extends PointLight {
+
+    public final Vector3 direction = new Vector3(0, -1, 0);
+    public float innerAngle = 20f;
+    public float outerAngle = 30f;
+
+}
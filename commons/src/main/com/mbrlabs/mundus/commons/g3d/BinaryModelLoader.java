@@ -0,0 +1,671 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mbrlabs.mundus.commons.g3d;
+
+import com.badlogic.gdx.Files;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes;
+import com.badlogic.gdx.graphics.g3d.Model;
+import com.badlogic.gdx.graphics.g3d.model.MeshPart;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelAnimation;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelData;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelMaterial;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelMesh;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelMeshPart;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelNode;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelNodeAnimation;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelNodeKeyframe;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelNodePart;
+import com.badlogic.gdx.graphics.g3d.utils.TextureProvider;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.Quaternion;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.math.collision.BoundingBox;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ArrayMap;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.StreamUtils;
+import com.mbrlabs.mundus.commons.utils.MappedFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * Loads models in the binary model format written by the
+ * {@link BinaryModelWriter}.
+ *
+ * The file is mapped with FileChannel.map() and the vertex & index blobs are
+ * copied straight from the mapping into the buffers of the meshes. Unlike the
+ * MG3dModelLoader, no JsonValue tree and no intermediate heap arrays are
+ * created. Files, that can't be mapped (e.g. internal files inside an apk),
+ * are read into a byte buffer instead.
+ *
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+public class BinaryModelLoader {
+
+    public static final String EXTENSION = "mbm";
+
+    static final int MAGIC = 0x4D424D31; // MBM1
+    static final int VERSION = 3;
+    // version 2 files don't know the g3db file they were written from
+    static final int VERSION_WITHOUT_SOURCE = 2;
+    // version 1 files have no bounds in the header, they are computed from the vertices
+    static final int VERSION_WITHOUT_BOUNDS = 1;
+    static final int HEADER_SIZE = 48;
+    static final int ALIGNMENT = 16;
+
+    /**
+     * @param g3dbFile
+     *            g3db model file
+     * @return binary file next to the g3db file (same name, mbm extension)
+     */
+    public static FileHandle binaryFile(FileHandle g3dbFile) {
+        return g3dbFile.sibling(g3dbFile.nameWithoutExtension() + "." + EXTENSION);
+    }
+
+    /**
+     * Loads a binary model. Must be called on the GL thread.
+     *
+     * @param file
+     *            binary model file
+     * @return model
+     */
+    public Model loadModel(FileHandle file) {
+        return createModel(loadData(file));
+    }
+
+    /**
+     * Maps the file and reads the model structure. Doesn't need GL, so it can
+     * be called on any thread.
+     *
+     * @param file
+     *            binary model file
+     * @return data to create the model from with createModel()
+     */
+    public BinaryModelData loadData(FileHandle file) {
+        final ByteBuffer data;
+        try {
+            data = map(file);
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Can't read binary model " + file.path(), e);
+        }
+
+        data.order(ByteOrder.BIG_ENDIAN);
+        if (data.getInt(0) != MAGIC) {
+            throw new GdxRuntimeException("Not a binary model: " + file.path());
+        }
+        final int version = data.getInt(4);
+        if (version < VERSION_WITHOUT_BOUNDS || version > VERSION) {
+            throw new GdxRuntimeException("Binary model version not supported: " + version);
+        }
+        final int tableOffset = data.getInt(8);
+        final int tableLength = data.getInt(12);
+
+        final byte[] table = new byte[tableLength];
+        final ByteBuffer tableView = data.duplicate();
+        tableView.position(tableOffset);
+        tableView.get(table);
+
+        final Array<MeshBlob> blobs = new Array<MeshBlob>();
+        final ModelData modelData;
+        try {
+            modelData = readTable(new DataInputStream(new ByteArrayInputStream(table)), blobs);
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Corrupt binary model " + file.path(), e);
+        }
+
+        final BoundingBox bounds = new BoundingBox();
+        if (version != VERSION_WITHOUT_BOUNDS) {
+            setBounds(bounds, data.getFloat(16), data.getFloat(20), data.getFloat(24), data.getFloat(28),
+                    data.getFloat(32), data.getFloat(36));
+        }
+
+        data.order(ByteOrder.LITTLE_ENDIAN);
+        final BinaryModelData binaryModelData = new BinaryModelData(modelData, data, blobs, bounds);
+        if (version == VERSION_WITHOUT_BOUNDS) {
+            bounds.inf();
+            for (int i = 0; i < modelData.meshes.size; i++) {
+                extendBounds(modelData.meshes.get(i).attributes, binaryModelData.getVertices(i), bounds);
+            }
+        }
+        return binaryModelData;
+    }
+
+    /**
+     * Reads only the bounds from the header of a binary model, without
+     * mapping the file or reading the model structure.
+     *
+     * @param file
+     *            binary model file
+     * @param out
+     *            receives the bounds of the vertex positions of all meshes
+     * @return false, if the file was written by an older version without
+     *         bounds. out is not modified then
+     */
+    public boolean loadBounds(FileHandle file, BoundingBox out) {
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(file.read(HEADER_SIZE));
+            if (in.readInt() != MAGIC) {
+                throw new GdxRuntimeException("Not a binary model: " + file.path());
+            }
+            if (in.readInt() == VERSION_WITHOUT_BOUNDS) return false;
+            in.readInt(); // table offset
+            in.readInt(); // table length
+            setBounds(out, in.readFloat(), in.readFloat(), in.readFloat(), in.readFloat(), in.readFloat(),
+                    in.readFloat());
+            return true;
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Can't read binary model " + file.path(), e);
+        } finally {
+            StreamUtils.closeQuietly(in);
+        }
+    }
+
+    /**
+     * Checks, if a binary model was written from the current version of its
+     * g3db file. The header stores the length and the CRC32 of the g3db
+     * file. Binary models of older versions don't, they are compared by
+     * modification time instead.
+     *
+     * @param file
+     *            binary model file
+     * @param source
+     *            g3db file of the model
+     * @param verifyChecksum
+     *            true to compare the checksum as well. This reads the whole
+     *            g3db file, without only the length is compared. Older
+     *            binary models are never up to date then
+     * @return false, if the binary model has to be written again
+     */
+    public boolean isUpToDate(FileHandle file, FileHandle source, boolean verifyChecksum) {
+        // e.g. exported without the g3db file
+        if (!source.exists()) return true;
+
+        final int version;
+        final int sourceLength;
+        final int sourceChecksum;
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(file.read(HEADER_SIZE));
+            if (in.readInt() != MAGIC) {
+                throw new GdxRuntimeException("Not a binary model: " + file.path());
+            }
+            version = in.readInt();
+            // table offset & length, bounds
+            in.skipBytes(8 * 4);
+            sourceLength = in.readInt();
+            sourceChecksum = in.readInt();
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Can't read binary model " + file.path(), e);
+        } finally {
+            StreamUtils.closeQuietly(in);
+        }
+
+        if (version != VERSION) {
+            return !verifyChecksum && source.lastModified() <= file.lastModified();
+        }
+        // 0 if unknown, e.g. for compressed files in an apk
+        final long length = source.length();
+        if (length != 0 && length != (sourceLength & 0xFFFFFFFFL)) return false;
+        return !verifyChecksum || checksum(source) == sourceChecksum;
+    }
+
+    /**
+     * @param file
+     *            file to read
+     * @return CRC32 of the file content
+     */
+    static int checksum(FileHandle file) {
+        final CRC32 crc = new CRC32();
+        final byte[] buffer = new byte[64 * 1024];
+        InputStream in = null;
+        try {
+            in = file.read();
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Can't read " + file.path(), e);
+        } finally {
+            StreamUtils.closeQuietly(in);
+        }
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Extends a bounding box by the vertex positions of a mesh.
+     *
+     * @param attributes
+     *            vertex attributes of the mesh
+     * @param vertices
+     *            interleaved vertices of the mesh
+     * @param out
+     *            bounds to extend
+     * @return out
+     */
+    public static BoundingBox extendBounds(VertexAttribute[] attributes, FloatBuffer vertices, BoundingBox out) {
+        final VertexAttributes vertexAttributes = new VertexAttributes(attributes);
+        final VertexAttribute position = vertexAttributes.findByUsage(VertexAttributes.Usage.Position);
+        if (position == null) return out;
+
+        final int stride = vertexAttributes.vertexSize / 4;
+        final int offset = position.offset / 4;
+        final int limit = vertices.limit();
+        for (int i = offset; i + position.numComponents <= limit; i += stride) {
+            out.ext(vertices.get(i), position.numComponents > 1 ? vertices.get(i + 1) : 0,
+                    position.numComponents > 2 ? vertices.get(i + 2) : 0);
+        }
+        return out;
+    }
+
+    private static void setBounds(BoundingBox out, float minX, float minY, float minZ, float maxX, float maxY,
+            float maxZ) {
+        // models without vertices are written with the infinite bounds of BoundingBox.inf()
+        out.inf();
+        if (minX <= maxX) {
+            out.ext(minX, minY, minZ);
+            out.ext(maxX, maxY, maxZ);
+        }
+    }
+
+    /**
+     * Creates the model and uploads the mesh data. Must be called on the GL
+     * thread.
+     *
+     * @param data
+     *            data returned by loadData()
+     * @return model
+     */
+    public Model createModel(BinaryModelData data) {
+        if (data.data == null) {
+            throw new GdxRuntimeException("Binary model data has already been uploaded");
+        }
+        final Model model = new MappedModel(data.modelData, data.data, data.blobs);
+        // the meshes have their own copy now. Don't keep the file mapped (and locked on windows)
+        data.release();
+        return model;
+    }
+
+    private ByteBuffer map(FileHandle file) throws IOException {
+        if (file instanceof MappedFile) {
+            return ((MappedFile) file).map();
+        }
+
+        final File f = file.type() == Files.FileType.Classpath ? null : file.file();
+        if (f == null || !f.exists()) {
+            return ByteBuffer.wrap(file.readBytes());
+        }
+
+        final RandomAccessFile raf = new RandomAccessFile(f, "r");
+        try {
+            final FileChannel channel = raf.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            // the mapping stays valid after closing the channel
+            raf.close();
+        }
+    }
+
+    private ModelData readTable(DataInputStream in, Array<MeshBlob> blobs) throws IOException {
+        final ModelData model = new ModelData();
+        model.version[0] = MG3dModelLoader.VERSION_HI;
+        model.version[1] = MG3dModelLoader.VERSION_LO;
+        model.id = readString(in);
+
+        // meshes
+        final int meshCount = in.readInt();
+        model.meshes.ensureCapacity(meshCount);
+        for (int m = 0; m < meshCount; m++) {
+            final ModelMesh mesh = new ModelMesh();
+            mesh.id = readString(in);
+            mesh.attributes = new VertexAttribute[in.readInt()];
+            for (int i = 0; i < mesh.attributes.length; i++) {
+                final int usage = in.readInt();
+                final int numComponents = in.readInt();
+                final int type = in.readInt();
+                final boolean normalized = in.readBoolean();
+                final String alias = readString(in);
+                final int unit = in.readInt();
+                mesh.attributes[i] = new VertexAttribute(usage, numComponents, type, normalized, alias, unit);
+            }
+
+            final MeshBlob blob = new MeshBlob();
+            blob.vertexOffset = in.readInt();
+            blob.vertexFloats = in.readInt();
+
+            mesh.parts = new ModelMeshPart[in.readInt()];
+            blob.indexOffsets = new int[mesh.parts.length];
+            blob.indexCounts = new int[mesh.parts.length];
+            for (int i = 0; i < mesh.parts.length; i++) {
+                final ModelMeshPart part = new ModelMeshPart();
+                part.id = readString(in);
+                part.primitiveType = in.readInt();
+                blob.indexOffsets[i] = in.readInt();
+                blob.indexCounts[i] = in.readInt();
+                blob.indexCount += blob.indexCounts[i];
+                mesh.parts[i] = part;
+            }
+
+            model.meshes.add(mesh);
+            blobs.add(blob);
+        }
+
+        // materials
+        final int materialCount = in.readInt();
+        model.materials.ensureCapacity(materialCount);
+        for (int i = 0; i < materialCount; i++) {
+            final ModelMaterial material = new ModelMaterial();
+            material.id = readString(in);
+            material.ambient = readColor(in);
+            material.diffuse = readColor(in);
+            material.specular = readColor(in);
+            material.emissive = readColor(in);
+            material.reflection = readColor(in);
+            material.shininess = in.readFloat();
+            material.opacity = in.readFloat();
+            model.materials.add(material);
+        }
+
+        // nodes
+        final int nodeCount = in.readInt();
+        model.nodes.ensureCapacity(nodeCount);
+        for (int i = 0; i < nodeCount; i++) {
+            model.nodes.add(readNode(in));
+        }
+
+        // animations
+        final int animationCount = in.readInt();
+        model.animations.ensureCapacity(animationCount);
+        for (int i = 0; i < animationCount; i++) {
+            final ModelAnimation animation = new ModelAnimation();
+            animation.id = readString(in);
+            final int nodeAnimCount = in.readInt();
+            animation.nodeAnimations.ensureCapacity(nodeAnimCount);
+            for (int n = 0; n < nodeAnimCount; n++) {
+                final ModelNodeAnimation nodeAnim = new ModelNodeAnimation();
+                nodeAnim.nodeId = readString(in);
+                nodeAnim.translation = readVectorKeyframes(in);
+                nodeAnim.rotation = readQuaternionKeyframes(in);
+                nodeAnim.scaling = readVectorKeyframes(in);
+                animation.nodeAnimations.add(nodeAnim);
+            }
+            model.animations.add(animation);
+        }
+
+        return model;
+    }
+
+    private ModelNode readNode(DataInputStream in) throws IOException {
+        final ModelNode node = new ModelNode();
+        node.id = readString(in);
+        node.translation = readVector(in);
+        node.rotation = readQuaternion(in);
+        node.scale = readVector(in);
+        node.meshId = readString(in);
+
+        final int partCount = in.readInt();
+        if (partCount > 0) {
+            node.parts = new ModelNodePart[partCount];
+            for (int i = 0; i < partCount; i++) {
+                final ModelNodePart part = new ModelNodePart();
+                part.materialId = readString(in);
+                part.meshPartId = readString(in);
+                final int boneCount = in.readInt();
+                if (boneCount >= 0) {
+                    part.bones = new ArrayMap<String, Matrix4>(true, boneCount, String.class, Matrix4.class);
+                    for (int b = 0; b < boneCount; b++) {
+                        final String nodeId = readString(in);
+                        final Matrix4 transform = new Matrix4();
+                        for (int v = 0; v < 16; v++) {
+                            transform.val[v] = in.readFloat();
+                        }
+                        part.bones.put(nodeId, transform);
+                    }
+                }
+                node.parts[i] = part;
+            }
+        }
+
+        final int childCount = in.readInt();
+        if (childCount > 0) {
+            node.children = new ModelNode[childCount];
+            for (int i = 0; i < childCount; i++) {
+                node.children[i] = readNode(in);
+            }
+        }
+
+        return node;
+    }
+
+    private Array<ModelNodeKeyframe<Vector3>> readVectorKeyframes(DataInputStream in) throws IOException {
+        final int count = in.readInt();
+        if (count < 0) return null;
+        final Array<ModelNodeKeyframe<Vector3>> keyframes = new Array<ModelNodeKeyframe<Vector3>>(count);
+        for (int i = 0; i < count; i++) {
+            final ModelNodeKeyframe<Vector3> kf = new ModelNodeKeyframe<Vector3>();
+            kf.keytime = in.readFloat();
+            kf.value = readVector(in);
+            keyframes.add(kf);
+        }
+        return keyframes;
+    }
+
+    private Array<ModelNodeKeyframe<Quaternion>> readQuaternionKeyframes(DataInputStream in) throws IOException {
+        final int count = in.readInt();
+        if (count < 0) return null;
+        final Array<ModelNodeKeyframe<Quaternion>> keyframes = new Array<ModelNodeKeyframe<Quaternion>>(count);
+        for (int i = 0; i < count; i++) {
+            final ModelNodeKeyframe<Quaternion> kf = new ModelNodeKeyframe<Quaternion>();
+            kf.keytime = in.readFloat();
+            kf.value = readQuaternion(in);
+            keyframes.add(kf);
+        }
+        return keyframes;
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static Color readColor(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) return null;
+        return new Color(in.readFloat(), in.readFloat(), in.readFloat(), in.readFloat());
+    }
+
+    private static Vector3 readVector(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) return null;
+        return new Vector3(in.readFloat(), in.readFloat(), in.readFloat());
+    }
+
+    private static Quaternion readQuaternion(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) return null;
+        return new Quaternion(in.readFloat(), in.readFloat(), in.readFloat(), in.readFloat());
+    }
+
+    private static ByteBuffer view(ByteBuffer data, int offset, int length) {
+        final ByteBuffer view = data.duplicate();
+        view.limit(offset + length);
+        view.position(offset);
+        return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Mapped file & model structure of a binary model, that is not uploaded
+     * yet.
+     */
+    public static class BinaryModelData {
+        private final ModelData modelData;
+        private final BoundingBox bounds;
+        private ByteBuffer data;
+        private Array<MeshBlob> blobs;
+
+        BinaryModelData(ModelData modelData, ByteBuffer data, Array<MeshBlob> blobs, BoundingBox bounds) {
+            this.modelData = modelData;
+            this.data = data;
+            this.blobs = blobs;
+            this.bounds = bounds;
+        }
+
+        /**
+         * @param out
+         *            receives the bounds of the vertex positions of all
+         *            meshes
+         * @return out
+         */
+        public BoundingBox getBounds(BoundingBox out) {
+            setBounds(out, bounds.min.x, bounds.min.y, bounds.min.z, bounds.max.x, bounds.max.y, bounds.max.z);
+            return out;
+        }
+
+        /**
+         * @return model structure. The vertex & index arrays of the meshes
+         *         are not set, they stay in the file
+         */
+        public ModelData getModelData() {
+            return modelData;
+        }
+
+        /**
+         * @param meshIndex
+         *            index of the mesh in getModelData().meshes
+         * @return read only view of the vertices of the mesh in the file
+         */
+        public FloatBuffer getVertices(int meshIndex) {
+            final MeshBlob blob = blob(meshIndex);
+            return view(data, blob.vertexOffset, blob.vertexFloats * 4).asFloatBuffer();
+        }
+
+        /**
+         * @param meshIndex
+         *            index of the mesh in getModelData().meshes
+         * @param partIndex
+         *            index of the part in the parts of the mesh
+         * @return read only view of the indices of the mesh part in the file
+         */
+        public ShortBuffer getIndices(int meshIndex, int partIndex) {
+            final MeshBlob blob = blob(meshIndex);
+            return view(data, blob.indexOffsets[partIndex], blob.indexCounts[partIndex] * 2).asShortBuffer();
+        }
+
+        private MeshBlob blob(int meshIndex) {
+            if (data == null) {
+                throw new GdxRuntimeException("Binary model data has already been uploaded");
+            }
+            return blobs.get(meshIndex);
+        }
+
+        /**
+         * Drops the references to the mapped file, so the mapping can be
+         * released.
+         */
+        private void release() {
+            data = null;
+            blobs = null;
+        }
+    }
+
+    /**
+     * Location of the vertex & index data of one mesh inside the file.
+     */
+    private static class MeshBlob {
+        int vertexOffset;
+        int vertexFloats;
+        int[] indexOffsets;
+        int[] indexCounts;
+        int indexCount;
+    }
+
+    /**
+     * Model, that fills its meshes from the mapped file instead of the vertex
+     * & index arrays of the model data.
+     */
+    private static class MappedModel extends Model {
+
+        private ByteBuffer data;
+        private Array<MeshBlob> blobs;
+        private int meshIndex = 0;
+
+        MappedModel(ModelData modelData, ByteBuffer data, Array<MeshBlob> blobs) {
+            this.data = data;
+            this.blobs = blobs;
+            load(modelData, new TextureProvider.FileTextureProvider());
+            // release the mapping, BinaryModelData drops its reference as well
+            this.data = null;
+            this.blobs = null;
+        }
+
+        @Override
+        protected void convertMesh(ModelMesh modelMesh) {
+            final MeshBlob blob = blobs.get(meshIndex++);
+            final VertexAttributes attributes = new VertexAttributes(modelMesh.attributes);
+            final int numVertices = blob.vertexFloats / (attributes.vertexSize / 4);
+
+            final Mesh mesh = new Mesh(true, numVertices, blob.indexCount, attributes);
+            meshes.add(mesh);
+            disposables.add(mesh);
+
+            // vertices
+            final FloatBuffer vertices = mesh.getVerticesBuffer();
+            vertices.clear();
+            vertices.put(view(data, blob.vertexOffset, blob.vertexFloats * 4).asFloatBuffer());
+            vertices.flip();
+
+            // indices
+            final ShortBuffer indices = mesh.getIndicesBuffer();
+            indices.clear();
+            final int firstPart = meshParts.size;
+            int offset = 0;
+            for (int i = 0; i < modelMesh.parts.length; i++) {
+                final ModelMeshPart part = modelMesh.parts[i];
+                final MeshPart meshPart = new MeshPart();
+                meshPart.id = part.id;
+                meshPart.primitiveType = part.primitiveType;
+                meshPart.offset = offset;
+                meshPart.size = blob.indexCounts[i];
+                meshPart.mesh = mesh;
+                indices.put(view(data, blob.indexOffsets[i], blob.indexCounts[i] * 2).asShortBuffer());
+                offset += meshPart.size;
+                meshParts.add(meshPart);
+            }
+            indices.flip();
+
+            for (int i = firstPart; i < meshParts.size; i++) {
+                meshParts.get(i).update();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,333 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mbrlabs.mundus.commons.g3d;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelAnimation;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelData;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelMaterial;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelMesh;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelMeshPart;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelNode;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelNodeAnimation;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelNodeKeyframe;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelNodePart;
+import com.badlogic.gdx.math.Quaternion;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.math.collision.BoundingBox;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.StreamUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * Writes model data in the binary model format, that is loaded by the
+ * {@link BinaryModelLoader}.
+ *
+ * Layout:
+ * <ul>
+ * <li>header (48 bytes, big endian): magic, version, table offset, table
+ * length, min & max of the vertex positions of all meshes, length & CRC32
+ * of the source g3db file</li>
+ * <li>vertex and index blobs (little endian), each aligned to 16 bytes</li>
+ * <li>table (big endian): meshes with attributes and blob offsets,
+ * materials, nodes and animations</li>
+ * </ul>
+ *
+ * Textures are not written, because the MG3dModelLoader ignores them as
+ * well.
+ *
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+public class BinaryModelWriter {
+
+    /**
+     * Writes the model.
+     *
+     * @param model
+     *            model data with vertices & indices, e.g. from
+     *            MG3dModelLoader.loadModelData()
+     * @param file
+     *            output file
+     * @throws IOException
+     *             if the file can't be written
+     */
+    public void write(ModelData model, FileHandle file) throws IOException {
+        write(model, file, null);
+    }
+
+    /**
+     * Writes the model and stores length & checksum of the g3db file in the
+     * header, so BinaryModelLoader.isUpToDate() detects changes of the g3db
+     * file.
+     *
+     * @param model
+     *            model data with vertices & indices
+     * @param file
+     *            output file
+     * @param source
+     *            g3db file, the model data was loaded from. May be null
+     * @throws IOException
+     *             if the file can't be written
+     */
+    public void write(ModelData model, FileHandle file, FileHandle source) throws IOException {
+        final int sourceLength = source == null ? 0 : (int) source.length();
+        final int sourceChecksum = source == null ? 0 : BinaryModelLoader.checksum(source);
+        OutputStream out = null;
+        try {
+            out = file.write(false, 64 * 1024);
+            write(model, out, sourceLength, sourceChecksum);
+        } finally {
+            StreamUtils.closeQuietly(out);
+        }
+    }
+
+    public void write(ModelData model, OutputStream output) throws IOException {
+        write(model, output, 0, 0);
+    }
+
+    private void write(ModelData model, OutputStream output, int sourceLength, int sourceChecksum)
+            throws IOException {
+        // layout of the blobs
+        final ObjectMap<Object, Integer> offsets = new ObjectMap<Object, Integer>();
+        int offset = BinaryModelLoader.HEADER_SIZE;
+        for (ModelMesh mesh : model.meshes) {
+            offsets.put(mesh, offset);
+            offset = align(offset + mesh.vertices.length * 4);
+            for (ModelMeshPart part : mesh.parts) {
+                offsets.put(part, offset);
+                offset = align(offset + part.indices.length * 2);
+            }
+        }
+
+        final byte[] table = writeTable(model, offsets);
+
+        // bounds in the header, so they can be read without loading the model
+        final BoundingBox bounds = new BoundingBox().inf();
+        for (ModelMesh mesh : model.meshes) {
+            BinaryModelLoader.extendBounds(mesh.attributes, FloatBuffer.wrap(mesh.vertices), bounds);
+        }
+
+        final DataOutputStream out = new DataOutputStream(output);
+        out.writeInt(BinaryModelLoader.MAGIC);
+        out.writeInt(BinaryModelLoader.VERSION);
+        out.writeInt(offset);
+        out.writeInt(table.length);
+        out.writeFloat(bounds.min.x);
+        out.writeFloat(bounds.min.y);
+        out.writeFloat(bounds.min.z);
+        out.writeFloat(bounds.max.x);
+        out.writeFloat(bounds.max.y);
+        out.writeFloat(bounds.max.z);
+        out.writeInt(sourceLength);
+        out.writeInt(sourceChecksum);
+        for (int i = out.size(); i < BinaryModelLoader.HEADER_SIZE; i++) {
+            out.writeByte(0);
+        }
+
+        int written = BinaryModelLoader.HEADER_SIZE;
+        for (ModelMesh mesh : model.meshes) {
+            final ByteBuffer vertices = ByteBuffer.allocate(mesh.vertices.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+            vertices.asFloatBuffer().put(mesh.vertices);
+            out.write(vertices.array());
+            written = pad(out, written + vertices.capacity());
+
+            for (ModelMeshPart part : mesh.parts) {
+                final ByteBuffer indices = ByteBuffer.allocate(part.indices.length * 2)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                indices.asShortBuffer().put(part.indices);
+                out.write(indices.array());
+                written = pad(out, written + indices.capacity());
+            }
+        }
+
+        out.write(table);
+        out.flush();
+    }
+
+    private static int align(int offset) {
+        return (offset + BinaryModelLoader.ALIGNMENT - 1) & ~(BinaryModelLoader.ALIGNMENT - 1);
+    }
+
+    private static int pad(DataOutputStream out, int written) throws IOException {
+        final int aligned = align(written);
+        for (int i = written; i < aligned; i++) {
+            out.writeByte(0);
+        }
+        return aligned;
+    }
+
+    private byte[] writeTable(ModelData model, ObjectMap<Object, Integer> offsets) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+
+        writeString(out, model.id);
+
+        // meshes
+        out.writeInt(model.meshes.size);
+        for (ModelMesh mesh : model.meshes) {
+            writeString(out, mesh.id);
+            out.writeInt(mesh.attributes.length);
+            for (VertexAttribute attr : mesh.attributes) {
+                out.writeInt(attr.usage);
+                out.writeInt(attr.numComponents);
+                out.writeInt(attr.type);
+                out.writeBoolean(attr.normalized);
+                writeString(out, attr.alias);
+                out.writeInt(attr.unit);
+            }
+            out.writeInt(offsets.get(mesh));
+            out.writeInt(mesh.vertices.length);
+
+            out.writeInt(mesh.parts.length);
+            for (ModelMeshPart part : mesh.parts) {
+                writeString(out, part.id);
+                out.writeInt(part.primitiveType);
+                out.writeInt(offsets.get(part));
+                out.writeInt(part.indices.length);
+            }
+        }
+
+        // materials
+        out.writeInt(model.materials.size);
+        for (ModelMaterial material : model.materials) {
+            writeString(out, material.id);
+            writeColor(out, material.ambient);
+            writeColor(out, material.diffuse);
+            writeColor(out, material.specular);
+            writeColor(out, material.emissive);
+            writeColor(out, material.reflection);
+            out.writeFloat(material.shininess);
+            out.writeFloat(material.opacity);
+        }
+
+        // nodes
+        out.writeInt(model.nodes.size);
+        for (ModelNode node : model.nodes) {
+            writeNode(out, node);
+        }
+
+        // animations
+        out.writeInt(model.animations.size);
+        for (ModelAnimation animation : model.animations) {
+            writeString(out, animation.id);
+            out.writeInt(animation.nodeAnimations.size);
+            for (ModelNodeAnimation nodeAnim : animation.nodeAnimations) {
+                writeString(out, nodeAnim.nodeId);
+                writeVectorKeyframes(out, nodeAnim.translation);
+                writeQuaternionKeyframes(out, nodeAnim.rotation);
+                writeVectorKeyframes(out, nodeAnim.scaling);
+            }
+        }
+
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private void writeNode(DataOutputStream out, ModelNode node) throws IOException {
+        writeString(out, node.id);
+        writeVector(out, node.translation);
+        writeQuaternion(out, node.rotation);
+        writeVector(out, node.scale);
+        writeString(out, node.meshId);
+
+        final int partCount = node.parts == null ? 0 : node.parts.length;
+        out.writeInt(partCount);
+        for (int i = 0; i < partCount; i++) {
+            final ModelNodePart part = node.parts[i];
+            writeString(out, part.materialId);
+            writeString(out, part.meshPartId);
+            final int boneCount = part.bones == null ? -1 : part.bones.size;
+            out.writeInt(boneCount);
+            for (int b = 0; b < boneCount; b++) {
+                writeString(out, part.bones.keys[b]);
+                for (float v : part.bones.values[b].val) {
+                    out.writeFloat(v);
+                }
+            }
+        }
+
+        final int childCount = node.children == null ? 0 : node.children.length;
+        out.writeInt(childCount);
+        for (int i = 0; i < childCount; i++) {
+            writeNode(out, node.children[i]);
+        }
+    }
+
+    private void writeVectorKeyframes(DataOutputStream out, Array<ModelNodeKeyframe<Vector3>> keyframes)
+            throws IOException {
+        out.writeInt(keyframes == null ? -1 : keyframes.size);
+        if (keyframes == null) return;
+        for (ModelNodeKeyframe<Vector3> kf : keyframes) {
+            out.writeFloat(kf.keytime);
+            writeVector(out, kf.value);
+        }
+    }
+
+    private void writeQuaternionKeyframes(DataOutputStream out, Array<ModelNodeKeyframe<Quaternion>> keyframes)
+            throws IOException {
+        out.writeInt(keyframes == null ? -1 : keyframes.size);
+        if (keyframes == null) return;
+        for (ModelNodeKeyframe<Quaternion> kf : keyframes) {
+            out.writeFloat(kf.keytime);
+            writeQuaternion(out, kf.value);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+
+    private static void writeColor(DataOutputStream out, Color color) throws IOException {
+        out.writeBoolean(color != null);
+        if (color == null) return;
+        out.writeFloat(color.r);
+        out.writeFloat(color.g);
+        out.writeFloat(color.b);
+        out.writeFloat(color.a);
+    }
+
+    private static void writeVector(DataOutputStream out, Vector3 v) throws IOException {
+        out.writeBoolean(v != null);
+        if (v == null) return;
+        out.writeFloat(v.x);
+        out.writeFloat(v.y);
+        out.writeFloat(v.z);
+    }
+
+    private static void writeQuaternion(DataOutputStream out, Quaternion q) throws IOException {
+        out.writeBoolean(q != null);
+        if (q == null) return;
+        out.writeFloat(q.x);
+        out.writeFloat(q.y);
+        out.writeFloat(q.z);
+        out.writeFloat(q.w);
+    }
+
+}
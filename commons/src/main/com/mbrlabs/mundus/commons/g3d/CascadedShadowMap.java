@@ -0,0 +1,462 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.commons.g3d;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.PerspectiveCamera;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g3d.Renderable;
+import com.badlogic.gdx.graphics.g3d.utils.RenderContext;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.BufferUtils;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+import com.mbrlabs.mundus.commons.shaders.ShadowDepthShader;
+
+import java.nio.IntBuffer;
+
+/**
+ * Cascaded shadow maps for a directional light.
+ *
+ * The view frustum of the camera is split into up to 4 cascades
+ * (practical split scheme: mix of logarithmic & uniform splits). Each cascade
+ * is fitted on the CPU:
+ *
+ * <ul>
+ * <li>xy: bounding sphere of the cascade's frustum slice. The size does not
+ * change when the camera rotates & the center is snapped to shadow map texels,
+ * so shadow edges don't shimmer while the camera moves.</li>
+ * <li>z: fitted tightly to the bounding spheres of the casters, that overlap
+ * the cascade. Casters outside the view frustum are still included, if they
+ * are between the light and the cascade.</li>
+ * </ul>
+ *
+ * Each cascade only renders the casters inside its bounds. All cascades are
+ * rendered into one RGBA8888 atlas (2x2 tiles at most) with packed depth, so
+ * it works on GLES2.
+ *
+ * Receiving shaders transform the world position with getLightView() and use
+ * getCascadeTransforms() & getCascadeDepths() to find the cascade & the atlas
+ * coordinates.
+ *
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+public class CascadedShadowMap implements Disposable {
+
+    public static final int MAX_CASCADES = 4;
+    public static final int DEFAULT_CASCADES = 3;
+    public static final int DEFAULT_RESOLUTION = 1024;
+
+    private int cascadeCount;
+    private int resolution;
+    private float shadowDistance = 200f;
+    private float splitLambda = 0.75f;
+    private float bias = 0.002f;
+
+    private FrameBuffer frameBuffer;
+    private ShadowDepthShader depthShader;
+
+    // rotation from world space into light space. same for all cascades
+    private final Matrix4 lightView = new Matrix4();
+    private final Matrix4[] cascadeProjView = new Matrix4[MAX_CASCADES];
+    private final IntArray[] cascadeCasters = new IntArray[MAX_CASCADES];
+    private final float[] splits = new float[MAX_CASCADES + 1];
+
+    // per cascade: (scale, offset x, offset y, 0) & (depth scale, depth bias, tile x, tile y)
+    private final float[] cascadeTransforms = new float[MAX_CASCADES * 4];
+    private final float[] cascadeDepths = new float[MAX_CASCADES * 4];
+
+    // light space bounding spheres of the casters: x, y, depth, radius
+    private final FloatArray casterBounds = new FloatArray();
+    private final Array<Renderable> casters = new Array<Renderable>();
+
+    private boolean active = false;
+    private int updateCount = 0;
+
+    private final Matrix4 tmpProj = new Matrix4();
+    private final Vector3 tmpV = new Vector3();
+    private final Vector3 tmpScale = new Vector3();
+    private final Vector3 right = new Vector3();
+    private final Vector3 up = new Vector3();
+    private final Vector3 center = new Vector3();
+    private final Vector3[] corners = new Vector3[8];
+    private final IntBuffer viewport = BufferUtils.newIntBuffer(16);
+
+    public CascadedShadowMap() {
+        this(DEFAULT_CASCADES, DEFAULT_RESOLUTION);
+    }
+
+    /**
+     * @param cascadeCount
+     *            number of cascades (1 - 4)
+     * @param resolution
+     *            width & height of the shadow map of one cascade
+     */
+    public CascadedShadowMap(int cascadeCount, int resolution) {
+        setCascadeCount(cascadeCount);
+        setResolution(resolution);
+        for (int i = 0; i < MAX_CASCADES; i++) {
+            cascadeProjView[i] = new Matrix4();
+            cascadeCasters[i] = new IntArray();
+        }
+        for (int i = 0; i < corners.length; i++) {
+            corners[i] = new Vector3();
+        }
+    }
+
+    /**
+     * Fits the cascades to the camera & the casters.
+     *
+     * @param cam
+     *            camera, that renders the scene
+     * @param lightDirection
+     *            direction of the directional light
+     * @param shadowCasters
+     *            renderables, that cast shadows. Must stay valid until
+     *            render() is called
+     */
+    public void update(PerspectiveCamera cam, Vector3 lightDirection, Array<Renderable> shadowCasters) {
+        updateCount++;
+        active = false;
+        if (lightDirection.isZero()) return;
+
+        // light space rotation. looks along the light direction
+        tmpV.set(lightDirection).nor();
+        up.set(Math.abs(tmpV.y) > 0.99f ? Vector3.X : Vector3.Y);
+        lightView.setToLookAt(tmpV, up);
+
+        computeSplits(cam);
+        computeCasterBounds(shadowCasters);
+
+        for (int i = 0; i < cascadeCount; i++) {
+            fitCascade(cam, i);
+        }
+        active = true;
+    }
+
+    /**
+     * Practical split scheme: blend between logarithmic & uniform splits.
+     */
+    private void computeSplits(PerspectiveCamera cam) {
+        final float near = cam.near;
+        final float far = Math.min(cam.far, shadowDistance);
+        splits[0] = near;
+        for (int i = 1; i <= cascadeCount; i++) {
+            final float f = (float) i / cascadeCount;
+            final float log = near * (float) Math.pow(far / near, f);
+            final float uniform = near + (far - near) * f;
+            splits[i] = splitLambda * log + (1f - splitLambda) * uniform;
+        }
+    }
+
+    private void computeCasterBounds(Array<Renderable> shadowCasters) {
+        casters.clear();
+        casters.addAll(shadowCasters);
+        casterBounds.clear();
+        casterBounds.ensureCapacity(casters.size * 4);
+
+        for (Renderable renderable : casters) {
+            if (renderable.meshPart.radius <= 0) renderable.meshPart.update();
+
+            renderable.worldTransform.getScale(tmpScale);
+            final float scale = Math.max(Math.abs(tmpScale.x), Math.max(Math.abs(tmpScale.y), Math.abs(tmpScale.z)));
+
+            tmpV.set(renderable.meshPart.center).mul(renderable.worldTransform).mul(lightView);
+            casterBounds.add(tmpV.x);
+            casterBounds.add(tmpV.y);
+            // light looks down -z
+            casterBounds.add(-tmpV.z);
+            casterBounds.add(renderable.meshPart.radius * scale);
+        }
+    }
+
+    private void fitCascade(PerspectiveCamera cam, int cascade) {
+        // bounding sphere of the frustum slice
+        computeCorners(cam, splits[cascade], splits[cascade + 1]);
+        center.setZero();
+        for (Vector3 corner : corners) {
+            center.add(corner);
+        }
+        center.scl(1f / corners.length);
+        float radius = 0;
+        for (Vector3 corner : corners) {
+            radius = Math.max(radius, corner.dst(center));
+        }
+        // quantize, so float errors don't change the size from frame to frame
+        radius = (float) Math.ceil(radius * 16f) / 16f;
+
+        // snap the center to shadow map texels
+        center.mul(lightView);
+        final float texelSize = 2f * radius / resolution;
+        center.x = (float) Math.floor(center.x / texelSize) * texelSize;
+        center.y = (float) Math.floor(center.y / texelSize) * texelSize;
+        final float depth = -center.z;
+
+        // depth range: receivers in the sphere plus all casters in front of them
+        float near = depth - radius;
+        final float far = depth + radius;
+        final IntArray cascadeCasterList = cascadeCasters[cascade];
+        cascadeCasterList.clear();
+        final float[] bounds = casterBounds.items;
+        for (int i = 0; i < casters.size; i++) {
+            final int b = i * 4;
+            final float r = bounds[b + 3];
+            if (Math.abs(bounds[b] - center.x) > radius + r) continue;
+            if (Math.abs(bounds[b + 1] - center.y) > radius + r) continue;
+            if (bounds[b + 2] - r > far) continue;
+
+            cascadeCasterList.add(i);
+            near = Math.min(near, bounds[b + 2] - r);
+        }
+
+        tmpProj.setToOrtho(center.x - radius, center.x + radius, center.y - radius, center.y + radius, near, far);
+        cascadeProjView[cascade].set(tmpProj).mul(lightView);
+
+        // uniforms of the receiving shaders: local uv = xy * scale + offset, depth = z * depthScale + depthBias
+        final float scale = 1f / (2f * radius);
+        final int t = cascade * 4;
+        cascadeTransforms[t] = scale;
+        cascadeTransforms[t + 1] = 0.5f - center.x * scale;
+        cascadeTransforms[t + 2] = 0.5f - center.y * scale;
+        cascadeTransforms[t + 3] = 0;
+
+        // light space z is negative depth
+        cascadeDepths[t] = -1f / (far - near);
+        cascadeDepths[t + 1] = -near / (far - near);
+        cascadeDepths[t + 2] = cascade % 2;
+        cascadeDepths[t + 3] = cascade / 2;
+    }
+
+    /**
+     * Computes the world space corners of the camera frustum between two
+     * distances.
+     */
+    private void computeCorners(PerspectiveCamera cam, float near, float far) {
+        right.set(cam.direction).crs(cam.up).nor();
+        up.set(right).crs(cam.direction).nor();
+
+        final float tan = (float) Math.tan(cam.fieldOfView * 0.5f * MathUtils.degreesToRadians);
+        final float aspect = cam.viewportWidth / cam.viewportHeight;
+
+        int i = 0;
+        for (int d = 0; d < 2; d++) {
+            final float dist = d == 0 ? near : far;
+            final float halfHeight = dist * tan;
+            final float halfWidth = halfHeight * aspect;
+            for (int y = -1; y <= 1; y += 2) {
+                for (int x = -1; x <= 1; x += 2) {
+                    corners[i++].set(cam.position).mulAdd(cam.direction, dist).mulAdd(right, x * halfWidth)
+                            .mulAdd(up, y * halfHeight);
+                }
+            }
+        }
+    }
+
+    /**
+     * Renders the casters of every cascade into the shadow map atlas.
+     *
+     * @param context
+     *            render context
+     */
+    public void render(RenderContext context) {
+        if (!active) return;
+
+        if (frameBuffer == null) {
+            frameBuffer = new FrameBuffer(Pixmap.Format.RGBA8888, resolution * getAtlasColumns(),
+                    resolution * getAtlasRows(), true);
+            frameBuffer.getColorBufferTexture().setFilter(Texture.TextureFilter.Nearest,
+                    Texture.TextureFilter.Nearest);
+        }
+        if (depthShader == null) {
+            depthShader = new ShadowDepthShader();
+            depthShader.init();
+        }
+
+        // restore the viewport of the caller afterwards (e.g. a viewport widget in the editor)
+        viewport.clear();
+        Gdx.gl.glGetIntegerv(GL20.GL_VIEWPORT, viewport);
+
+        frameBuffer.begin();
+        Gdx.gl.glClearColor(1, 1, 1, 1);
+        Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT | GL20.GL_DEPTH_BUFFER_BIT);
+
+        for (int i = 0; i < cascadeCount; i++) {
+            final IntArray cascadeCasterList = cascadeCasters[i];
+            if (cascadeCasterList.size == 0) continue;
+
+            Gdx.gl.glViewport((i % 2) * resolution, (i / 2) * resolution, resolution, resolution);
+            depthShader.begin(cascadeProjView[i], context);
+            for (int c = 0; c < cascadeCasterList.size; c++) {
+                depthShader.render(casters.get(cascadeCasterList.get(c)));
+            }
+            depthShader.end();
+        }
+
+        frameBuffer.end(viewport.get(0), viewport.get(1), viewport.get(2), viewport.get(3));
+        casters.clear();
+    }
+
+    /**
+     * @return true if the shadow map was rendered in the current frame
+     */
+    public boolean isActive() {
+        return active && frameBuffer != null;
+    }
+
+    /**
+     * @return number of update() calls. Can be used by shaders to detect
+     *         changes
+     */
+    public int getUpdateCount() {
+        return updateCount;
+    }
+
+    /**
+     * @return shadow map atlas with packed depth
+     */
+    public Texture getTexture() {
+        return frameBuffer == null ? null : frameBuffer.getColorBufferTexture();
+    }
+
+    public Matrix4 getLightView() {
+        return lightView;
+    }
+
+    /**
+     * @return per cascade (scale, offset x, offset y, 0). Maps light space xy
+     *         to uv coordinates inside the cascade's tile
+     */
+    public float[] getCascadeTransforms() {
+        return cascadeTransforms;
+    }
+
+    /**
+     * @return per cascade (depth scale, depth bias, tile x, tile y). Maps light
+     *         space z to the depth in the shadow map
+     */
+    public float[] getCascadeDepths() {
+        return cascadeDepths;
+    }
+
+    /**
+     * @param cascade
+     *            cascade index
+     * @return number of casters rendered into the cascade
+     */
+    public int getCasterCount(int cascade) {
+        return cascadeCasters[cascade].size;
+    }
+
+    public int getAtlasColumns() {
+        return cascadeCount > 1 ? 2 : 1;
+    }
+
+    public int getAtlasRows() {
+        return cascadeCount > 2 ? 2 : 1;
+    }
+
+    public int getCascadeCount() {
+        return cascadeCount;
+    }
+
+    /**
+     * Sets the number of cascades. More cascades give sharper shadows near the
+     * camera, but every cascade renders it's casters again.
+     *
+     * @param cascadeCount
+     *            number of cascades (1 - 4)
+     */
+    public void setCascadeCount(int cascadeCount) {
+        this.cascadeCount = MathUtils.clamp(cascadeCount, 1, MAX_CASCADES);
+        disposeFrameBuffer();
+    }
+
+    public int getResolution() {
+        return resolution;
+    }
+
+    /**
+     * @param resolution
+     *            width & height of the shadow map of one cascade
+     */
+    public void setResolution(int resolution) {
+        this.resolution = Math.max(16, resolution);
+        disposeFrameBuffer();
+    }
+
+    public float getShadowDistance() {
+        return shadowDistance;
+    }
+
+    /**
+     * @param shadowDistance
+     *            max distance from the camera, up to which shadows are
+     *            rendered
+     */
+    public void setShadowDistance(float shadowDistance) {
+        this.shadowDistance = shadowDistance;
+    }
+
+    public float getSplitLambda() {
+        return splitLambda;
+    }
+
+    /**
+     * @param splitLambda
+     *            0 for uniform splits, 1 for logarithmic splits
+     */
+    public void setSplitLambda(float splitLambda) {
+        this.splitLambda = MathUtils.clamp(splitLambda, 0f, 1f);
+    }
+
+    public float getBias() {
+        return bias;
+    }
+
+    /**
+     * @param bias
+     *            depth bias against shadow acne
+     */
+    public void setBias(float bias) {
+        this.bias = bias;
+    }
+
+    private void disposeFrameBuffer() {
+        if (frameBuffer != null) {
+            frameBuffer.dispose();
+            frameBuffer = null;
+        }
+    }
+
+    @Override
+    public void dispose() {
+        disposeFrameBuffer();
+        if (depthShader != null) {
+            depthShader.dispose();
+            depthShader = null;
+        }
+    }
+
+}
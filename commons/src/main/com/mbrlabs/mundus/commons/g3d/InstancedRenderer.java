@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.commons.g3d;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Camera;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.g3d.Environment;
+import com.badlogic.gdx.graphics.g3d.Material;
+import com.badlogic.gdx.graphics.g3d.Renderable;
+import com.badlogic.gdx.graphics.g3d.utils.RenderContext;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.BufferUtils;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.Pool;
+import com.mbrlabs.mundus.commons.assets.MaterialAsset;
+import com.mbrlabs.mundus.commons.scene3d.components.ModelComponent;
+import com.mbrlabs.mundus.commons.shaders.ModelShader;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Renders model components, that share mesh parts and materials, with
+ * hardware instancing.
+ *
+ * Every frame, model components are added with add(). Their mesh parts are
+ * grouped by (mesh part, material). render() writes the world matrices of all
+ * instances into one instance buffer and issues one instanced draw call per
+ * group using an instanced {@link ModelShader}.
+ *
+ * Needs GL30. Use isSupported() and fall back to the normal per object path
+ * on GLES2.
+ *
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+public class InstancedRenderer implements Disposable {
+
+    private static final int FLOATS_PER_INSTANCE = 16;
+
+    private final ModelShader shader;
+
+    private final ObjectMap<GroupKey, Group> groups;
+    private final Array<Group> activeGroups;
+    private final Pool<Group> groupPool;
+    private final GroupKey lookupKey = new GroupKey();
+
+    private final Array<Renderable> tempRenderables = new Array<Renderable>();
+    private final Pool<Renderable> renderablePool = new Pool<Renderable>() {
+        @Override
+        protected Renderable newObject() {
+            return new Renderable();
+        }
+    };
+
+    private int instanceBuffer;
+    private FloatBuffer instanceData;
+    private int instanceCount;
+
+    private int drawCalls;
+
+    /**
+     * @return true if the current GL context supports instancing
+     */
+    public static boolean isSupported() {
+        return Gdx.gl30 != null;
+    }
+
+    public InstancedRenderer() {
+        shader = new ModelShader(true);
+        shader.init();
+
+        groups = new ObjectMap<GroupKey, Group>();
+        activeGroups = new Array<Group>();
+        groupPool = new Pool<Group>() {
+            @Override
+            protected Group newObject() {
+                return new Group();
+            }
+        };
+
+        instanceBuffer = Gdx.gl.glGenBuffer();
+        instanceData = BufferUtils.newFloatBuffer(FLOATS_PER_INSTANCE * 256);
+    }
+
+    /**
+     * Tests if a model component can be rendered instanced.
+     *
+     * Only components using a model shader and models without animations
+     * (skinning) are supported.
+     *
+     * @param component
+     *            model component
+     * @return true if the component can be added
+     */
+    public static boolean canRender(ModelComponent component) {
+        return component.getShader() instanceof ModelShader && component.getModelInstance() != null
+                && component.getModelInstance().animations.size == 0;
+    }
+
+    /**
+     * Adds a model component to the current frame.
+     *
+     * @param component
+     *            model component to render
+     */
+    public void add(ModelComponent component) {
+        component.getModelInstance().transform.set(component.getGameObject().getTransform());
+
+        tempRenderables.clear();
+        component.getModelInstance().getRenderables(tempRenderables, renderablePool);
+        for (Renderable renderable : tempRenderables) {
+            final Object material = materialKey(component, renderable.material);
+            lookupKey.set(renderable, material);
+
+            Group group = groups.get(lookupKey);
+            if (group == null) {
+                group = groupPool.obtain();
+                group.key.set(renderable, material);
+                group.renderable.meshPart.set(renderable.meshPart);
+                group.renderable.material = renderable.material;
+                groups.put(group.key, group);
+                activeGroups.add(group);
+            }
+
+            group.transforms.addAll(renderable.worldTransform.val);
+            instanceCount++;
+        }
+        renderablePool.freeAll(tempRenderables);
+    }
+
+    /**
+     * Renders all added model components and resets the renderer for the
+     * next frame.
+     *
+     * @param camera
+     *            camera
+     * @param environment
+     *            environment of the scene
+     * @param context
+     *            render context, e.g. of the model batch
+     */
+    public void render(Camera camera, Environment environment, RenderContext context) {
+        drawCalls = 0;
+        if (activeGroups.size == 0) return;
+
+        uploadInstanceData();
+
+        shader.begin(camera, context);
+        int offset = 0;
+        for (Group group : activeGroups) {
+            final int count = group.transforms.size / FLOATS_PER_INSTANCE;
+            group.renderable.environment = environment;
+            shader.renderInstanced(group.renderable, instanceBuffer, offset * FLOATS_PER_INSTANCE * 4, count);
+            offset += count;
+            drawCalls++;
+        }
+        shader.end();
+
+        // reset for next frame
+        for (Group group : activeGroups) {
+            group.reset();
+            groupPool.free(group);
+        }
+        activeGroups.clear();
+        groups.clear();
+        instanceCount = 0;
+    }
+
+    /**
+     * @return number of instanced draw calls of the last render() call
+     */
+    public int getDrawCalls() {
+        return drawCalls;
+    }
+
+    private void uploadInstanceData() {
+        final int floats = instanceCount * FLOATS_PER_INSTANCE;
+        if (instanceData.capacity() < floats) {
+            instanceData = BufferUtils.newFloatBuffer(Math.max(floats, instanceData.capacity() * 2));
+        }
+
+        instanceData.clear();
+        for (Group group : activeGroups) {
+            instanceData.put(group.transforms.items, 0, group.transforms.size);
+        }
+        instanceData.flip();
+
+        Gdx.gl.glBindBuffer(GL20.GL_ARRAY_BUFFER, instanceBuffer);
+        Gdx.gl.glBufferData(GL20.GL_ARRAY_BUFFER, floats * 4, instanceData, GL20.GL_STREAM_DRAW);
+        Gdx.gl.glBindBuffer(GL20.GL_ARRAY_BUFFER, 0);
+    }
+
+    private Object materialKey(ModelComponent mc, Material material) {
+        final MaterialAsset asset = mc.getMaterials().get(material.id);
+        return asset != null ? asset : material;
+    }
+
+    @Override
+    public void dispose() {
+        Gdx.gl.glDeleteBuffer(instanceBuffer);
+        shader.dispose();
+    }
+
+    /**
+     * All instances of one (mesh part, material) pair.
+     */
+    private static class Group {
+        final GroupKey key = new GroupKey();
+        final Renderable renderable = new Renderable();
+        // column major world transforms, 16 floats per instance
+        final FloatArray transforms = new FloatArray();
+
+        void reset() {
+            transforms.clear();
+            renderable.material = null;
+            renderable.environment = null;
+            key.material = null;
+            key.mesh = null;
+        }
+    }
+
+    private static class GroupKey {
+        Mesh mesh;
+        int offset;
+        int size;
+        int primitiveType;
+        Object material;
+
+        void set(Renderable renderable, Object material) {
+            this.mesh = renderable.meshPart.mesh;
+            this.offset = renderable.meshPart.offset;
+            this.size = renderable.meshPart.size;
+            this.primitiveType = renderable.meshPart.primitiveType;
+            this.material = material;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            GroupKey that = (GroupKey) o;
+            return mesh == that.mesh && offset == that.offset && size == that.size
+                    && primitiveType == that.primitiveType && material.equals(that.material);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(mesh);
+            result = 31 * result + offset;
+            result = 31 * result + size;
+            result = 31 * result + primitiveType;
+            result = 31 * result + material.hashCode();
+            return result;
+        }
+    }
+
+}
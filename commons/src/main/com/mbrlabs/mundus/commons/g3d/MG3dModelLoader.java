@@ -48,6 +48,9 @@ import com.badlogic.gdx.utils.JsonValue;
  * It ignores all textures, set in the model. This is because, one should be
  * able to assign materials (textures, colors) from the editor.
  *
+ * Meshes with more vertices than 16 bit indices can address are split, see
+ * {@link MeshSplitter}.
+ *
  * @author Marcus Brummer
  * @version 04-10-2016
  */
@@ -56,6 +59,12 @@ public class MG3dModelLoader extends ModelLoader<ModelLoader.ModelParameters> {
     public static final short VERSION_LO = 1;
     protected final BaseJsonReader reader;
 
+    /** Splits meshes with more vertices than 16 bit indices can address. */
+    protected final MeshSplitter splitter = new MeshSplitter();
+
+    private MeshOptimizer optimizer;
+    private MeshOptimizer.Report lastReport;
+
     public MG3dModelLoader(final BaseJsonReader reader) {
         this(reader, null);
     }
@@ -65,6 +74,28 @@ public class MG3dModelLoader extends ModelLoader<ModelLoader.ModelParameters> {
         this.reader = reader;
     }
 
+    /**
+     * Sets an optimizer, that is run on the meshes of every loaded model.
+     *
+     * @param optimizer
+     *            mesh optimizer or null to upload meshes as they are stored
+     */
+    public void setOptimizer(MeshOptimizer optimizer) {
+        this.optimizer = optimizer;
+    }
+
+    public MeshOptimizer getOptimizer() {
+        return optimizer;
+    }
+
+    /**
+     * @return optimization statistics of the last loaded model or null, if no
+     *         optimizer is set
+     */
+    public MeshOptimizer.Report getLastReport() {
+        return lastReport;
+    }
+
     @Override
     public ModelData loadModelData(FileHandle fileHandle, ModelLoader.ModelParameters parameters) {
         return parseModel(fileHandle);
@@ -80,13 +111,23 @@ public class MG3dModelLoader extends ModelLoader<ModelLoader.ModelParameters> {
             throw new GdxRuntimeException("Model version not supported");
 
         model.id = json.getString("id", "");
+        splitter.reset();
         parseMeshes(model, json);
+        optimize(model);
         parseMaterials(model, json, handle.parent().path());
         parseNodes(model, json);
+        splitter.updateNodes(model);
         parseAnimations(model, json);
         return model;
     }
 
+    /**
+     * Runs the optimizer (if set) on the parsed meshes.
+     */
+    protected void optimize(ModelData model) {
+        lastReport = optimizer != null ? optimizer.optimize(model) : null;
+    }
+
     private void parseMeshes(ModelData model, JsonValue json) {
         JsonValue meshes = json.get("meshes");
         if (meshes != null) {
@@ -104,6 +145,7 @@ public class MG3dModelLoader extends ModelLoader<ModelLoader.ModelParameters> {
 
                 JsonValue meshParts = mesh.require("parts");
                 Array<ModelMeshPart> parts = new Array<ModelMeshPart>();
+                Array<int[]> indices = new Array<int[]>();
                 for (JsonValue meshPart = meshParts.child; meshPart != null; meshPart = meshPart.next) {
                     ModelMeshPart jsonPart = new ModelMeshPart();
                     String partId = meshPart.getString("id", null);
@@ -123,16 +165,17 @@ public class MG3dModelLoader extends ModelLoader<ModelLoader.ModelParameters> {
                     }
                     jsonPart.primitiveType = parseType(type);
 
-                    jsonPart.indices = meshPart.require("indices").asShortArray();
+                    // read as int, indices of big meshes don't fit in a short
+                    indices.add(meshPart.require("indices").asIntArray());
                     parts.add(jsonPart);
                 }
                 jsonMesh.parts = parts.toArray(ModelMeshPart.class);
-                model.meshes.add(jsonMesh);
+                splitter.addMesh(model, jsonMesh, indices.toArray(int[].class));
             }
         }
     }
 
-    private int parseType(String type) {
+    protected int parseType(String type) {
         if (type.equals("TRIANGLES")) {
             return GL20.GL_TRIANGLES;
         } else if (type.equals("LINES")) {
@@ -149,7 +192,7 @@ public class MG3dModelLoader extends ModelLoader<ModelLoader.ModelParameters> {
         }
     }
 
-    private VertexAttribute[] parseAttributes(JsonValue attributes) {
+    protected VertexAttribute[] parseAttributes(JsonValue attributes) {
         Array<VertexAttribute> vertexAttributes = new Array<VertexAttribute>();
         int unit = 0;
         int blendWeightCount = 0;
@@ -180,7 +223,7 @@ public class MG3dModelLoader extends ModelLoader<ModelLoader.ModelParameters> {
         return vertexAttributes.toArray(VertexAttribute.class);
     }
 
-    private void parseMaterials(ModelData model, JsonValue json, String materialDir) {
+    protected void parseMaterials(ModelData model, JsonValue json, String materialDir) {
         JsonValue materials = json.get("materials");
         if (materials == null) {
             // we should probably create some default material in this case
@@ -290,7 +333,7 @@ public class MG3dModelLoader extends ModelLoader<ModelLoader.ModelParameters> {
             throw new GdxRuntimeException("Expected Vector2 values <> than two.");
     }
 
-    private Array<ModelNode> parseNodes(ModelData model, JsonValue json) {
+    protected Array<ModelNode> parseNodes(ModelData model, JsonValue json) {
         JsonValue nodes = json.get("nodes");
         if (nodes != null) {
             model.nodes.ensureCapacity(nodes.size);
@@ -387,7 +430,7 @@ public class MG3dModelLoader extends ModelLoader<ModelLoader.ModelParameters> {
         return jsonNode;
     }
 
-    private void parseAnimations(ModelData model, JsonValue json) {
+    protected void parseAnimations(ModelData model, JsonValue json) {
         JsonValue animations = json.get("animations");
         if (animations == null) return;
 
@@ -0,0 +1,485 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mbrlabs.mundus.commons.g3d;
+
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelData;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelMesh;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelMeshPart;
+import com.badlogic.gdx.math.Vector3;
+
+import java.util.Arrays;
+
+/**
+ * Optimizes the meshes of a model for rendering.
+ *
+ * The stages are, in this order:
+ * <ol>
+ * <li>weld: merges bitwise identical vertices</li>
+ * <li>reorder triangles: reorders the triangles of each part for the post
+ * transform vertex cache (Tipsify, Sander et al. 2007)</li>
+ * <li>reorder vertices: renumbers vertices in the order of first use for
+ * vertex fetch locality and removes unused vertices</li>
+ * <li>quantize normals (optional): stores normals, tangents and binormals as
+ * 4 normalized bytes instead of 3 floats</li>
+ * </ol>
+ *
+ * Quantized vectors are packed into the float vertex array of the model data
+ * (w byte = 0, so the bit pattern is never a NaN) and are decoded by the GPU.
+ * Code, that reads vertex data on the CPU, has to check the type of the
+ * attribute and use unpackNormal().
+ *
+ * optimize() returns a report containing the average cache miss ratio (ACMR,
+ * transformed vertices per triangle) before and after.
+ *
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+public class MeshOptimizer {
+
+    public static final int DEFAULT_CACHE_SIZE = 16;
+
+    private boolean weld = true;
+    private boolean reorderTriangles = true;
+    private boolean reorderVertices = true;
+    private boolean quantizeNormals = false;
+    private int cacheSize = DEFAULT_CACHE_SIZE;
+
+    public void setWeld(boolean weld) {
+        this.weld = weld;
+    }
+
+    public void setReorderTriangles(boolean reorderTriangles) {
+        this.reorderTriangles = reorderTriangles;
+    }
+
+    public void setReorderVertices(boolean reorderVertices) {
+        this.reorderVertices = reorderVertices;
+    }
+
+    public void setQuantizeNormals(boolean quantizeNormals) {
+        this.quantizeNormals = quantizeNormals;
+    }
+
+    /**
+     * @param cacheSize
+     *            size of the simulated post transform cache (FIFO). 16 to 32
+     *            is realistic for most GPUs
+     */
+    public void setCacheSize(int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * Optimizes all meshes of the model in place.
+     *
+     * @param model
+     *            model data
+     * @return statistics
+     */
+    public Report optimize(ModelData model) {
+        final Report report = new Report();
+        for (ModelMesh mesh : model.meshes) {
+            optimize(mesh, report);
+        }
+        return report;
+    }
+
+    /**
+     * Optimizes one mesh in place.
+     *
+     * @param mesh
+     *            mesh
+     * @param report
+     *            statistics are added to this report
+     */
+    public void optimize(ModelMesh mesh, Report report) {
+        final int stride = new VertexAttributes(mesh.attributes).vertexSize / 4;
+        int vertexCount = mesh.vertices.length / stride;
+
+        report.meshes++;
+        report.verticesBefore += vertexCount;
+        final int triangles = triangleCount(mesh);
+        report.triangles += triangles;
+        report.missesBefore += cacheMisses(mesh, vertexCount);
+
+        if (weld) {
+            vertexCount = weld(mesh, stride, vertexCount);
+        }
+        if (reorderTriangles) {
+            for (ModelMeshPart part : mesh.parts) {
+                if (part.primitiveType == GL20.GL_TRIANGLES && part.indices.length > 0) {
+                    part.indices = tipsify(part.indices, vertexCount, cacheSize);
+                }
+            }
+        }
+        if (reorderVertices) {
+            vertexCount = reorderVertices(mesh, stride, vertexCount);
+        }
+        if (quantizeNormals) {
+            quantizeNormals(mesh);
+        }
+
+        report.verticesAfter += vertexCount;
+        report.missesAfter += cacheMisses(mesh, vertexCount);
+    }
+
+    private int triangleCount(ModelMesh mesh) {
+        int count = 0;
+        for (ModelMeshPart part : mesh.parts) {
+            if (part.primitiveType == GL20.GL_TRIANGLES) count += part.indices.length / 3;
+        }
+        return count;
+    }
+
+    private int cacheMisses(ModelMesh mesh, int vertexCount) {
+        final int[] stamps = new int[vertexCount];
+        int misses = 0;
+        for (ModelMeshPart part : mesh.parts) {
+            if (part.primitiveType != GL20.GL_TRIANGLES) continue;
+            misses += cacheMisses(part.indices, stamps, misses, cacheSize);
+        }
+        return misses;
+    }
+
+    /**
+     * Computes the average cache miss ratio of a triangle list with a FIFO
+     * cache.
+     *
+     * @param indices
+     *            triangle indices
+     * @param vertexCount
+     *            number of vertices
+     * @param cacheSize
+     *            size of the cache
+     * @return transformed vertices per triangle. 3 is the worst case, ~0.5 the
+     *         best case for regular grids
+     */
+    public static float acmr(short[] indices, int vertexCount, int cacheSize) {
+        if (indices.length < 3) return 0;
+        final int misses = cacheMisses(indices, new int[vertexCount], 0, cacheSize);
+        return misses / (float) (indices.length / 3);
+    }
+
+    private static int cacheMisses(short[] indices, int[] stamps, int time, int cacheSize) {
+        // stamps hold (time of insertion + 1), 0 = never cached
+        int misses = 0;
+        for (short i : indices) {
+            final int v = i & 0xFFFF;
+            if (stamps[v] == 0 || time - (stamps[v] - 1) >= cacheSize) {
+                stamps[v] = time + 1;
+                time++;
+                misses++;
+            }
+        }
+        return misses;
+    }
+
+    /**
+     * Merges bitwise identical vertices.
+     *
+     * @return new number of vertices
+     */
+    private int weld(ModelMesh mesh, int stride, int vertexCount) {
+        final float[] vertices = mesh.vertices;
+        final int size = Integer.highestOneBit(Math.max(vertexCount, 1) * 2 - 1) << 1;
+        final int mask = size - 1;
+        final int[] table = new int[size];
+        Arrays.fill(table, -1);
+
+        final int[] remap = new int[vertexCount];
+        int unique = 0;
+        for (int v = 0; v < vertexCount; v++) {
+            int hash = 0;
+            for (int i = 0; i < stride; i++) {
+                hash = hash * 31 + Float.floatToRawIntBits(vertices[v * stride + i]);
+            }
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (true) {
+                final int other = table[slot];
+                if (other == -1) {
+                    // move into the compacted range
+                    if (unique != v) System.arraycopy(vertices, v * stride, vertices, unique * stride, stride);
+                    table[slot] = unique;
+                    remap[v] = unique++;
+                    break;
+                }
+                if (equalVertices(vertices, v * stride, other * stride, stride)) {
+                    remap[v] = other;
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        if (unique == vertexCount) return vertexCount;
+
+        mesh.vertices = Arrays.copyOf(vertices, unique * stride);
+        for (ModelMeshPart part : mesh.parts) {
+            for (int i = 0; i < part.indices.length; i++) {
+                part.indices[i] = (short) remap[part.indices[i] & 0xFFFF];
+            }
+        }
+        return unique;
+    }
+
+    private static boolean equalVertices(float[] vertices, int a, int b, int stride) {
+        for (int i = 0; i < stride; i++) {
+            if (Float.floatToRawIntBits(vertices[a + i]) != Float.floatToRawIntBits(vertices[b + i])) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reorders triangles for the post transform vertex cache with the Tipsify
+     * algorithm.
+     *
+     * @param indices
+     *            triangle list
+     * @param vertexCount
+     *            number of vertices
+     * @param cacheSize
+     *            size of the cache
+     * @return reordered triangle list
+     */
+    public static short[] tipsify(short[] indices, int vertexCount, int cacheSize) {
+        final int triangleCount = indices.length / 3;
+
+        // vertex -> triangle adjacency
+        final int[] live = new int[vertexCount];
+        for (int i = 0; i < triangleCount * 3; i++) {
+            live[indices[i] & 0xFFFF]++;
+        }
+        final int[] offsets = new int[vertexCount + 1];
+        for (int v = 0; v < vertexCount; v++) {
+            offsets[v + 1] = offsets[v] + live[v];
+        }
+        final int[] adjacency = new int[triangleCount * 3];
+        final int[] fill = Arrays.copyOf(offsets, vertexCount);
+        for (int t = 0; t < triangleCount; t++) {
+            for (int k = 0; k < 3; k++) {
+                final int v = indices[t * 3 + k] & 0xFFFF;
+                adjacency[fill[v]++] = t;
+            }
+        }
+
+        final int[] cacheTime = new int[vertexCount];
+        final boolean[] emitted = new boolean[triangleCount];
+        final int[] deadEnd = new int[triangleCount * 3];
+        int deadEndSize = 0;
+        final int[] candidates = new int[triangleCount * 3];
+
+        final short[] out = new short[triangleCount * 3];
+        int outSize = 0;
+
+        int timestamp = cacheSize + 1;
+        int cursor = 0;
+        int fanning = triangleCount > 0 ? indices[0] & 0xFFFF : -1;
+
+        while (fanning >= 0) {
+            int candidateCount = 0;
+
+            // emit all remaining triangles around the fanning vertex
+            for (int i = offsets[fanning]; i < offsets[fanning + 1]; i++) {
+                final int t = adjacency[i];
+                if (emitted[t]) continue;
+                emitted[t] = true;
+                for (int k = 0; k < 3; k++) {
+                    final int v = indices[t * 3 + k] & 0xFFFF;
+                    out[outSize++] = (short) v;
+                    deadEnd[deadEndSize++] = v;
+                    candidates[candidateCount++] = v;
+                    live[v]--;
+                    if (timestamp - cacheTime[v] > cacheSize) {
+                        cacheTime[v] = timestamp++;
+                    }
+                }
+            }
+
+            // next fanning vertex: the one that will still be in the cache, with the fewest live triangles
+            int best = -1;
+            int bestPriority = -1;
+            for (int i = 0; i < candidateCount; i++) {
+                final int v = candidates[i];
+                if (live[v] <= 0) continue;
+                int priority = 0;
+                if (timestamp - cacheTime[v] + 2 * live[v] <= cacheSize) {
+                    priority = timestamp - cacheTime[v];
+                }
+                if (priority > bestPriority) {
+                    bestPriority = priority;
+                    best = v;
+                }
+            }
+
+            // dead end: use a recently emitted vertex or the next vertex in input order
+            if (best == -1) {
+                while (deadEndSize > 0) {
+                    final int v = deadEnd[--deadEndSize];
+                    if (live[v] > 0) {
+                        best = v;
+                        break;
+                    }
+                }
+            }
+            if (best == -1) {
+                while (cursor < vertexCount) {
+                    if (live[cursor] > 0) {
+                        best = cursor;
+                        break;
+                    }
+                    cursor++;
+                }
+            }
+            fanning = best;
+        }
+
+        return out;
+    }
+
+    /**
+     * Renumbers vertices in the order of first use and drops unused ones.
+     *
+     * @return new number of vertices
+     */
+    private int reorderVertices(ModelMesh mesh, int stride, int vertexCount) {
+        final int[] remap = new int[vertexCount];
+        Arrays.fill(remap, -1);
+        int next = 0;
+        for (ModelMeshPart part : mesh.parts) {
+            for (int i = 0; i < part.indices.length; i++) {
+                final int v = part.indices[i] & 0xFFFF;
+                if (remap[v] == -1) remap[v] = next++;
+                part.indices[i] = (short) remap[v];
+            }
+        }
+
+        final float[] vertices = new float[next * stride];
+        for (int v = 0; v < vertexCount; v++) {
+            if (remap[v] >= 0) {
+                System.arraycopy(mesh.vertices, v * stride, vertices, remap[v] * stride, stride);
+            }
+        }
+        mesh.vertices = vertices;
+        return next;
+    }
+
+    /**
+     * Replaces float normals, tangents and binormals with 4 normalized bytes.
+     */
+    private void quantizeNormals(ModelMesh mesh) {
+        final VertexAttributes oldAttributes = new VertexAttributes(mesh.attributes);
+        final int oldStride = oldAttributes.vertexSize / 4;
+
+        final VertexAttribute[] attributes = new VertexAttribute[mesh.attributes.length];
+        boolean changed = false;
+        for (int i = 0; i < attributes.length; i++) {
+            final VertexAttribute attr = mesh.attributes[i];
+            if (isQuantizable(attr)) {
+                attributes[i] = new VertexAttribute(attr.usage, 4, GL20.GL_BYTE, true, attr.alias, attr.unit);
+                changed = true;
+            } else {
+                attributes[i] = attr;
+            }
+        }
+        if (!changed) return;
+
+        final VertexAttributes newAttributes = new VertexAttributes(attributes);
+        final int newStride = newAttributes.vertexSize / 4;
+        final int vertexCount = mesh.vertices.length / oldStride;
+        final float[] vertices = new float[vertexCount * newStride];
+
+        for (int v = 0; v < vertexCount; v++) {
+            for (int a = 0; a < attributes.length; a++) {
+                final VertexAttribute oldAttr = oldAttributes.get(a);
+                final VertexAttribute newAttr = newAttributes.get(a);
+                final int src = v * oldStride + oldAttr.offset / 4;
+                final int dst = v * newStride + newAttr.offset / 4;
+                if (oldAttr.type == GL20.GL_FLOAT && newAttr.type == GL20.GL_BYTE) {
+                    vertices[dst] = packNormal(mesh.vertices[src], mesh.vertices[src + 1], mesh.vertices[src + 2]);
+                } else {
+                    System.arraycopy(mesh.vertices, src, vertices, dst, oldAttr.getSizeInBytes() / 4);
+                }
+            }
+        }
+
+        mesh.attributes = attributes;
+        mesh.vertices = vertices;
+    }
+
+    private static boolean isQuantizable(VertexAttribute attr) {
+        return attr.type == GL20.GL_FLOAT && attr.numComponents == 3
+                && (attr.usage == VertexAttributes.Usage.Normal || attr.usage == VertexAttributes.Usage.Tangent
+                        || attr.usage == VertexAttributes.Usage.BiNormal);
+    }
+
+    /**
+     * Packs a unit vector into 4 signed normalized bytes (x, y, z, 0), stored
+     * in the bits of a float. Assumes little endian vertex buffers.
+     */
+    public static float packNormal(float x, float y, float z) {
+        final int bx = Math.round(Math.max(-1f, Math.min(1f, x)) * 127f) & 0xFF;
+        final int by = Math.round(Math.max(-1f, Math.min(1f, y)) * 127f) & 0xFF;
+        final int bz = Math.round(Math.max(-1f, Math.min(1f, z)) * 127f) & 0xFF;
+        // highest byte is 0, so the exponent is never all ones (no NaN)
+        return Float.intBitsToFloat(bx | (by << 8) | (bz << 16));
+    }
+
+    /**
+     * Unpacks a vector packed with packNormal().
+     */
+    public static Vector3 unpackNormal(float packed, Vector3 out) {
+        final int bits = Float.floatToRawIntBits(packed);
+        return out.set((byte) bits / 127f, (byte) (bits >> 8) / 127f, (byte) (bits >> 16) / 127f);
+    }
+
+    /**
+     * Optimization statistics.
+     */
+    public static class Report {
+        public int meshes;
+        public int triangles;
+        public int verticesBefore;
+        public int verticesAfter;
+        public int missesBefore;
+        public int missesAfter;
+
+        /**
+         * @return average cache miss ratio before the optimization
+         */
+        public float getAcmrBefore() {
+            return triangles == 0 ? 0 : missesBefore / (float) triangles;
+        }
+
+        /**
+         * @return average cache miss ratio after the optimization
+         */
+        public float getAcmrAfter() {
+            return triangles == 0 ? 0 : missesAfter / (float) triangles;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("meshes: %d, triangles: %d, vertices: %d -> %d, ACMR: %.3f -> %.3f", meshes,
+                    triangles, verticesBefore, verticesAfter, getAcmrBefore(), getAcmrAfter());
+        }
+    }
+
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mbrlabs.mundus.commons.g3d;
+
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.VertexAttributes;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelData;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelMesh;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelMeshPart;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelNode;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelNodePart;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ArrayMap;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.ShortArray;
+
+import java.util.Arrays;
+
+/**
+ * Splits meshes, that have too many vertices for 16 bit indices.
+ *
+ * libGDX meshes only support unsigned short indices. Meshes with more
+ * vertices are split into several meshes with at most maxVertices vertices
+ * each. Primitives are kept in order and never cut apart. Strips are
+ * converted to lists while splitting.
+ *
+ * The first piece of a split mesh part keeps the id of the part, the other
+ * pieces get the id "partId_n". updateNodes() adds node parts for these
+ * pieces to every node, that references the original part, with the same
+ * material and bones.
+ *
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+public class MeshSplitter {
+
+    /**
+     * Max vertices per mesh. Index 0xFFFF is not used, because it is the
+     * primitive restart index on some platforms.
+     */
+    public static final int MAX_VERTICES = 0xFFFF;
+
+    private final int maxVertices;
+
+    // original part id -> ids of the additional pieces
+    private final ObjectMap<String, Array<String>> splitParts = new ObjectMap<String, Array<String>>();
+
+    public MeshSplitter() {
+        this(MAX_VERTICES);
+    }
+
+    /**
+     * @param maxVertices
+     *            max number of vertices per mesh. Between 3 and MAX_VERTICES
+     */
+    public MeshSplitter(int maxVertices) {
+        if (maxVertices < 3 || maxVertices > MAX_VERTICES) {
+            throw new IllegalArgumentException("maxVertices must be between 3 and " + MAX_VERTICES);
+        }
+        this.maxVertices = maxVertices;
+    }
+
+    /**
+     * Forgets the split parts of the last model.
+     */
+    public void reset() {
+        splitParts.clear();
+    }
+
+    /**
+     * @return true if a mesh part was split since the last reset()
+     */
+    public boolean hasSplitParts() {
+        return splitParts.size > 0;
+    }
+
+    /**
+     * Adds a mesh to the model and splits it, if it has too many vertices.
+     *
+     * @param model
+     *            model
+     * @param mesh
+     *            mesh with vertices, attributes & parts, but without part
+     *            indices
+     * @param indices
+     *            indices of the mesh parts, in the same order as mesh.parts
+     */
+    public void addMesh(ModelData model, ModelMesh mesh, int[][] indices) {
+        final int stride = new VertexAttributes(mesh.attributes).vertexSize / 4;
+        final int vertexCount = mesh.vertices.length / stride;
+
+        if (vertexCount <= maxVertices) {
+            for (int i = 0; i < mesh.parts.length; i++) {
+                mesh.parts[i].indices = toShorts(indices[i], vertexCount, mesh.parts[i].id);
+            }
+            model.meshes.add(mesh);
+            return;
+        }
+
+        final int[] chunkOf = new int[vertexCount];
+        final int[] remap = new int[vertexCount];
+        Arrays.fill(chunkOf, -1);
+
+        final FloatArray vertices = new FloatArray(Math.min(vertexCount, maxVertices) * stride);
+        final Array<ModelMeshPart> parts = new Array<ModelMeshPart>();
+        int chunk = 0;
+        int chunkVertices = 0;
+
+        for (int p = 0; p < mesh.parts.length; p++) {
+            final ModelMeshPart part = mesh.parts[p];
+            final int primitiveType = listType(part.primitiveType);
+            final int primitiveSize = primitiveSize(primitiveType);
+            final int[] list = toList(indices[p], part.primitiveType);
+
+            ShortArray out = list.length == 0 ? new ShortArray() : null;
+            int pieces = 0;
+            for (int i = 0; i + primitiveSize <= list.length; i += primitiveSize) {
+                // count vertices, that are not in the current chunk yet
+                int needed = 0;
+                for (int k = 0; k < primitiveSize; k++) {
+                    final int v = list[i + k];
+                    if (v < 0 || v >= vertexCount) {
+                        throw new GdxRuntimeException("Index " + v + " out of range in mesh part '" + part.id + "'");
+                    }
+                    if (chunkOf[v] != chunk && !contains(list, i, k, v)) needed++;
+                }
+
+                if (chunkVertices + needed > maxVertices) {
+                    if (out != null) addPart(parts, part, primitiveType, out, pieces++);
+                    addChunk(model, mesh, chunk, vertices, parts);
+                    chunk++;
+                    chunkVertices = 0;
+                    out = null;
+                }
+                if (out == null) out = new ShortArray();
+
+                for (int k = 0; k < primitiveSize; k++) {
+                    final int v = list[i + k];
+                    if (chunkOf[v] != chunk) {
+                        chunkOf[v] = chunk;
+                        remap[v] = chunkVertices++;
+                        vertices.addAll(mesh.vertices, v * stride, stride);
+                    }
+                    out.add((short) remap[v]);
+                }
+            }
+            if (out != null) addPart(parts, part, primitiveType, out, pieces);
+        }
+        addChunk(model, mesh, chunk, vertices, parts);
+    }
+
+    /**
+     * Adds node parts for the pieces of split mesh parts to all nodes of the
+     * model. Call after the nodes were parsed.
+     *
+     * @param model
+     *            model
+     */
+    public void updateNodes(ModelData model) {
+        if (splitParts.size == 0) return;
+        for (ModelNode node : model.nodes) {
+            updateNode(node);
+        }
+    }
+
+    private void updateNode(ModelNode node) {
+        if (node.parts != null) {
+            final Array<ModelNodePart> parts = new Array<ModelNodePart>(node.parts);
+            for (ModelNodePart nodePart : node.parts) {
+                final Array<String> pieces = splitParts.get(nodePart.meshPartId);
+                if (pieces == null) continue;
+                for (String piece : pieces) {
+                    final ModelNodePart copy = new ModelNodePart();
+                    copy.meshPartId = piece;
+                    copy.materialId = nodePart.materialId;
+                    copy.uvMapping = nodePart.uvMapping;
+                    if (nodePart.bones != null) copy.bones = new ArrayMap<String, Matrix4>(nodePart.bones);
+                    parts.add(copy);
+                }
+            }
+            node.parts = parts.toArray(ModelNodePart.class);
+        }
+        if (node.children != null) {
+            for (ModelNode child : node.children) {
+                updateNode(child);
+            }
+        }
+    }
+
+    private void addPart(Array<ModelMeshPart> parts, ModelMeshPart original, int primitiveType, ShortArray indices,
+            int piece) {
+        final ModelMeshPart part = new ModelMeshPart();
+        part.primitiveType = primitiveType;
+        part.indices = indices.toArray();
+
+        if (piece == 0) {
+            part.id = original.id;
+        } else {
+            part.id = original.id + "_" + piece;
+            Array<String> pieces = splitParts.get(original.id);
+            if (pieces == null) {
+                pieces = new Array<String>();
+                splitParts.put(original.id, pieces);
+            }
+            pieces.add(part.id);
+        }
+        parts.add(part);
+    }
+
+    private void addChunk(ModelData model, ModelMesh original, int chunk, FloatArray vertices, Array<ModelMeshPart> parts) {
+        if (parts.size == 0) return;
+
+        final ModelMesh mesh = new ModelMesh();
+        mesh.id = chunk == 0 ? original.id : original.id + "_" + chunk;
+        mesh.attributes = original.attributes;
+        mesh.vertices = vertices.toArray();
+        mesh.parts = parts.toArray(ModelMeshPart.class);
+        model.meshes.add(mesh);
+
+        vertices.clear();
+        parts.clear();
+    }
+
+    private static short[] toShorts(int[] indices, int vertexCount, String partId) {
+        final short[] result = new short[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            if (indices[i] < 0 || indices[i] >= vertexCount) {
+                throw new GdxRuntimeException("Index " + indices[i] + " out of range in mesh part '" + partId + "'");
+            }
+            result[i] = (short) indices[i];
+        }
+        return result;
+    }
+
+    private static boolean contains(int[] list, int offset, int count, int v) {
+        for (int k = 0; k < count; k++) {
+            if (list[offset + k] == v) return true;
+        }
+        return false;
+    }
+
+    private static int listType(int primitiveType) {
+        if (primitiveType == GL20.GL_TRIANGLE_STRIP) return GL20.GL_TRIANGLES;
+        if (primitiveType == GL20.GL_LINE_STRIP) return GL20.GL_LINES;
+        return primitiveType;
+    }
+
+    private static int primitiveSize(int primitiveType) {
+        if (primitiveType == GL20.GL_TRIANGLES) return 3;
+        if (primitiveType == GL20.GL_LINES) return 2;
+        return 1;
+    }
+
+    /**
+     * Converts strips to lists.
+     */
+    private static int[] toList(int[] indices, int primitiveType) {
+        if (primitiveType == GL20.GL_TRIANGLE_STRIP) {
+            final int[] list = new int[Math.max(0, indices.length - 2) * 3];
+            int n = 0;
+            for (int i = 0; i + 2 < indices.length; i++) {
+                final int a = indices[i], b = indices[i + 1], c = indices[i + 2];
+                if (a == b || b == c || a == c) continue; // degenerate
+                // every second triangle of a strip has the opposite winding
+                list[n++] = (i & 1) == 0 ? a : b;
+                list[n++] = (i & 1) == 0 ? b : a;
+                list[n++] = c;
+            }
+            return Arrays.copyOf(list, n);
+        } else if (primitiveType == GL20.GL_LINE_STRIP) {
+            final int[] list = new int[Math.max(0, indices.length - 1) * 2];
+            for (int i = 0; i + 1 < indices.length; i++) {
+                list[i * 2] = indices[i];
+                list[i * 2 + 1] = indices[i + 1];
+            }
+            return list;
+        }
+        return indices;
+    }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.commons.g3d;
+
+/**
+ * Render statistics of one scene graph.
+ *
+ * Shaders count the state changes they did and the ones they skipped,
+ * because the state of the previous renderable could be reused. The scene
+ * graph owns one instance and hands it to the shaders through its
+ * environment, so scenes rendered one after another (or on different
+ * threads) don't mix their counters. nextFrame() is called at the start of
+ * every render pass and moves the current counters to the lastFrame*
+ * fields.
+ *
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+public class RenderStats {
+
+    /** Number of material & environment binds in the current pass. */
+    public int binds = 0;
+    /** Number of binds skipped in the current pass, because the state was already bound. */
+    public int savedBinds = 0;
+
+    /** Number of binds in the last pass. */
+    public int lastFrameBinds = 0;
+    /** Number of skipped binds in the last pass. */
+    public int lastFrameSavedBinds = 0;
+
+    public void nextFrame() {
+        lastFrameBinds = binds;
+        lastFrameSavedBinds = savedBinds;
+        binds = 0;
+        savedBinds = 0;
+    }
+
+}
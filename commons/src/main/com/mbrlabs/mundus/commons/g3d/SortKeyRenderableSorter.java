@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.commons.g3d;
+
+import com.badlogic.gdx.graphics.Camera;
+import com.badlogic.gdx.graphics.GLTexture;
+import com.badlogic.gdx.graphics.g3d.Material;
+import com.badlogic.gdx.graphics.g3d.Renderable;
+import com.badlogic.gdx.graphics.g3d.Shader;
+import com.badlogic.gdx.graphics.g3d.attributes.BlendingAttribute;
+import com.badlogic.gdx.graphics.g3d.attributes.TextureAttribute;
+import com.badlogic.gdx.graphics.g3d.utils.RenderableSorter;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IdentityMap;
+import com.mbrlabs.mundus.commons.terrain.TerrainTextureAttribute;
+
+/**
+ * Sorts renderables by a 64 bit sort key to minimize state changes.
+ *
+ * Layout of the key for opaque renderables (msb first):
+ *
+ * <pre>
+ * [1 bit 0][7 bit shader][16 bit material][16 bit texture][24 bit depth]
+ * </pre>
+ *
+ * Opaque renderables are sorted by shader, then material, then texture and
+ * finally front to back to make use of early depth tests. Blended renderables
+ * come after all opaque ones and are sorted back to front, because correct
+ * blending is more important than saving state changes:
+ *
+ * <pre>
+ * [1 bit 1][24 bit inverted depth][7 bit shader][16 bit material][16 bit texture]
+ * </pre>
+ *
+ * Shaders, that know about the order, can then skip binds if consecutive
+ * renderables share state (see {@link RenderStats}).
+ *
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+public class SortKeyRenderableSorter implements RenderableSorter {
+
+    private static final long DEPTH_MASK = 0xFFFFFFL;
+    private static final int MAX_SHADER_ID = 0x7F;
+    private static final int MAX_MATERIAL_ID = 0xFFFF;
+
+    private final Vector3 tmpV = new Vector3();
+
+    // by identity, the hash code of a material changes with its attributes. Only valid during one sort() call
+    private final IdentityMap<Shader, Integer> shaderIds = new IdentityMap<Shader, Integer>();
+    private final IdentityMap<Material, Integer> materialIds = new IdentityMap<Material, Integer>();
+
+    private long[] keys = new long[64];
+    private Renderable[] items = new Renderable[64];
+    private long[] tmpKeys = new long[64];
+    private Renderable[] tmpItems = new Renderable[64];
+
+    @Override
+    public void sort(Camera camera, Array<Renderable> renderables) {
+        final int size = renderables.size;
+        if (size < 2) return;
+        ensureCapacity(size);
+
+        // ids only have to be unique within one call. Resetting between calls keeps them small and
+        // doesn't keep disposed shaders & materials alive
+        shaderIds.clear();
+        materialIds.clear();
+
+        final float far2 = camera.far * camera.far;
+        for (int i = 0; i < size; i++) {
+            final Renderable r = renderables.get(i);
+            items[i] = r;
+            keys[i] = computeKey(camera, far2, r);
+        }
+
+        mergeSort(size);
+
+        for (int i = 0; i < size; i++) {
+            renderables.set(i, items[i]);
+            items[i] = null;
+        }
+    }
+
+    /**
+     * Computes the sort key of a renderable.
+     *
+     * @param camera
+     *            camera
+     * @param far2
+     *            squared far plane distance of the camera
+     * @param renderable
+     *            renderable
+     * @return sort key
+     */
+    public long computeKey(Camera camera, float far2, Renderable renderable) {
+        final long shader = shaderId(renderable.shader);
+        final long material = materialId(renderable.material);
+        final long texture = textureId(renderable.material) & 0xFFFFL;
+
+        // squared distance to the camera, normalized to the far plane
+        tmpV.set(renderable.meshPart.center).mul(renderable.worldTransform);
+        float depth = tmpV.dst2(camera.position) / far2;
+        if (depth > 1f) depth = 1f;
+        final long quantizedDepth = (long) (depth * DEPTH_MASK) & DEPTH_MASK;
+
+        if (isBlended(renderable)) {
+            return (1L << 63) | ((DEPTH_MASK - quantizedDepth) << 39) | (shader << 32) | (material << 16) | texture;
+        }
+
+        return (shader << 56) | (material << 40) | (texture << 24) | quantizedDepth;
+    }
+
+    private boolean isBlended(Renderable renderable) {
+        if (renderable.material == null || !renderable.material.has(BlendingAttribute.Type)) return false;
+        return ((BlendingAttribute) renderable.material.get(BlendingAttribute.Type)).blended;
+    }
+
+    private int shaderId(Shader shader) {
+        if (shader == null) return 0;
+        Integer id = shaderIds.get(shader);
+        if (id == null) {
+            // more shaders than ids in one call share the last id, they are still sorted by material
+            id = Math.min(shaderIds.size + 1, MAX_SHADER_ID);
+            shaderIds.put(shader, id);
+        }
+        return id;
+    }
+
+    private int materialId(Material material) {
+        if (material == null) return 0;
+        Integer id = materialIds.get(material);
+        if (id == null) {
+            id = Math.min(materialIds.size + 1, MAX_MATERIAL_ID);
+            materialIds.put(material, id);
+        }
+        return id;
+    }
+
+    /**
+     * Orders shaders for Shader.compareTo(), consistent with the shader part
+     * of the sort key: equal only for the same shader instance, so other
+     * sorters group renderables by shader as well. Shaders of the same class
+     * are next to each other.
+     *
+     * @param a
+     *            shader
+     * @param b
+     *            other shader
+     * @return negative, zero or positive like Comparable.compareTo()
+     */
+    public static int compareShaders(Shader a, Shader b) {
+        if (a == b) return 0;
+        if (a == null) return 1;
+        if (b == null) return -1;
+
+        final int result = a.getClass().getName().compareTo(b.getClass().getName());
+        if (result != 0) return result;
+        final int hashA = System.identityHashCode(a);
+        final int hashB = System.identityHashCode(b);
+        return hashA < hashB ? -1 : (hashA == hashB ? 0 : 1);
+    }
+
+    private int textureId(Material material) {
+        if (material == null) return 0;
+
+        GLTexture texture = null;
+        final TextureAttribute diffuse = (TextureAttribute) material.get(TextureAttribute.Diffuse);
+        if (diffuse != null) {
+            texture = diffuse.textureDescription.texture;
+        } else {
+            final TerrainTextureAttribute terrain = (TerrainTextureAttribute) material
+                    .get(TerrainTextureAttribute.ATTRIBUTE_SPLAT0);
+            if (terrain != null && terrain.terrainTexture.getSplatmap() != null) {
+                texture = terrain.terrainTexture.getSplatmap().getTexture();
+            }
+        }
+
+        return texture == null ? 0 : texture.getTextureObjectHandle();
+    }
+
+    private void ensureCapacity(int size) {
+        if (keys.length >= size) return;
+        final int capacity = Math.max(size, keys.length * 2);
+        keys = new long[capacity];
+        items = new Renderable[capacity];
+        tmpKeys = new long[capacity];
+        tmpItems = new Renderable[capacity];
+    }
+
+    /**
+     * Stable bottom up merge sort of keys & items.
+     */
+    private void mergeSort(int size) {
+        long[] srcKeys = keys;
+        Renderable[] srcItems = items;
+        long[] dstKeys = tmpKeys;
+        Renderable[] dstItems = tmpItems;
+
+        for (int width = 1; width < size; width *= 2) {
+            for (int lo = 0; lo < size; lo += 2 * width) {
+                final int mid = Math.min(lo + width, size);
+                final int hi = Math.min(lo + 2 * width, size);
+                int i = lo, j = mid, k = lo;
+                while (i < mid && j < hi) {
+                    // compare as unsigned, blended renderables have the msb set
+                    if (compareUnsigned(srcKeys[j], srcKeys[i]) < 0) {
+                        dstKeys[k] = srcKeys[j];
+                        dstItems[k++] = srcItems[j++];
+                    } else {
+                        dstKeys[k] = srcKeys[i];
+                        dstItems[k++] = srcItems[i++];
+                    }
+                }
+                while (i < mid) {
+                    dstKeys[k] = srcKeys[i];
+                    dstItems[k++] = srcItems[i++];
+                }
+                while (j < hi) {
+                    dstKeys[k] = srcKeys[j];
+                    dstItems[k++] = srcItems[j++];
+                }
+            }
+
+            // swap buffers
+            long[] tk = srcKeys;
+            srcKeys = dstKeys;
+            dstKeys = tk;
+            Renderable[] ti = srcItems;
+            srcItems = dstItems;
+            dstItems = ti;
+        }
+
+        // result must end up in keys/items
+        if (srcKeys != keys) {
+            System.arraycopy(srcKeys, 0, keys, 0, size);
+            System.arraycopy(srcItems, 0, items, 0, size);
+        }
+    }
+
+    private static int compareUnsigned(long a, long b) {
+        a += Long.MIN_VALUE;
+        b += Long.MIN_VALUE;
+        return a < b ? -1 : (a == b ? 0 : 1);
+    }
+
+}
@@ -0,0 +1,525 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.commons.g3d;
+
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes;
+import com.badlogic.gdx.graphics.g3d.Material;
+import com.badlogic.gdx.graphics.g3d.Renderable;
+import com.badlogic.gdx.graphics.g3d.RenderableProvider;
+import com.badlogic.gdx.graphics.g3d.Shader;
+import com.badlogic.gdx.graphics.g3d.model.MeshPart;
+import com.badlogic.gdx.math.Matrix3;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntIntMap;
+import com.badlogic.gdx.utils.LongMap;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.Pool;
+import com.badlogic.gdx.utils.ShortArray;
+import com.mbrlabs.mundus.commons.assets.MaterialAsset;
+import com.mbrlabs.mundus.commons.scene3d.GameObject;
+import com.mbrlabs.mundus.commons.scene3d.components.Component;
+import com.mbrlabs.mundus.commons.scene3d.components.ModelComponent;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Merges the meshes of static game objects into combined meshes.
+ *
+ * The world is divided into a regular grid of cells. All static model
+ * components of one cell, that share the same material, shader and vertex
+ * layout are merged into one mesh (or a few if the merged mesh would exceed
+ * the 16 bit index limit). The vertices are pre-transformed into world space,
+ * so every group is rendered with an identity world transform and one draw
+ * call.
+ *
+ * Cells are only rebuilt, if one of their members changed (moved, added,
+ * removed, model or materials changed). Changed game objects are only queued,
+ * which is thread safe. The queue is applied by applyInvalidations() and the
+ * cells are rebuilt the next time the batches are rendered, both on the GL
+ * thread.
+ *
+ * Components with a mesh part, that can't be merged (not indexed triangles,
+ * skinned or too many vertices for 16 bit indices), are not batched and
+ * rendered on their own.
+ *
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+public class StaticBatcher implements RenderableProvider, Disposable {
+
+    public static final float DEFAULT_CELL_SIZE = 100f;
+
+    private static final int MAX_VERTICES = 65535;
+
+    private static final Vector3 tempV3 = new Vector3();
+    private static final Matrix4 tempMat = new Matrix4();
+    private static final Matrix3 tempNormalMat = new Matrix3();
+
+    private final float cellSize;
+
+    private final LongMap<Cell> cells;
+    private final ObjectMap<ModelComponent, Cell> members;
+    private final Array<Cell> dirtyCells;
+
+    // filled by any thread, applied on the GL thread
+    private final ConcurrentLinkedQueue<GameObject> invalidated = new ConcurrentLinkedQueue<GameObject>();
+    private final ConcurrentLinkedQueue<ModelComponent> removed = new ConcurrentLinkedQueue<ModelComponent>();
+
+    // temp data used while rebuilding a cell
+    private final Array<Renderable> tempRenderables = new Array<Renderable>();
+    private final Pool<Renderable> renderablePool = new Pool<Renderable>() {
+        @Override
+        protected Renderable newObject() {
+            return new Renderable();
+        }
+    };
+    private final ObjectMap<Mesh, float[]> vertexCache = new ObjectMap<Mesh, float[]>();
+    private final ObjectMap<Mesh, short[]> indexCache = new ObjectMap<Mesh, short[]>();
+    private final IntIntMap indexRemap = new IntIntMap();
+
+    public StaticBatcher() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * @param cellSize
+     *            edge length of one batching cell in world units
+     */
+    public StaticBatcher(float cellSize) {
+        this.cellSize = cellSize;
+        this.cells = new LongMap<Cell>();
+        this.members = new ObjectMap<ModelComponent, Cell>();
+        this.dirtyCells = new Array<Cell>();
+    }
+
+    /**
+     * Queues a game object to update its batch membership. Thread safe.
+     *
+     * Must be called if a game object became static or non static, moved,
+     * was added or removed, activated or deactivated, got a new model or new
+     * materials. Its children are updated as well, because their world
+     * transform changes with the parent.
+     *
+     * @param go
+     *            changed game object
+     */
+    public void invalidate(GameObject go) {
+        invalidated.add(go);
+    }
+
+    /**
+     * Queues a model component, that was removed from its game object, to be
+     * removed from its batch. Thread safe.
+     *
+     * @param component
+     *            removed component
+     */
+    public void remove(ModelComponent component) {
+        removed.add(component);
+    }
+
+    /**
+     * Applies the queued invalidations and rebuilds the changed cells. Must
+     * be called on the GL thread before the model components are rendered,
+     * because they check isBatched().
+     */
+    public void applyInvalidations() {
+        ModelComponent component;
+        while ((component = removed.poll()) != null) {
+            removeMember(component);
+        }
+
+        GameObject go;
+        while ((go = invalidated.poll()) != null) {
+            update(go, go.isInSceneGraph() && go.isActiveInHierarchy());
+        }
+
+        // rebuilding can reject members, they must be rendered by their components this frame
+        rebuildDirtyCells();
+    }
+
+    private void update(GameObject go, boolean activeInScene) {
+        final ModelComponent mc = (ModelComponent) go.findComponentByType(Component.Type.MODEL);
+
+        // remove from old cell
+        if (mc != null) {
+            removeMember(mc);
+        }
+
+        // add to new cell
+        if (mc != null && go.isStatic() && activeInScene && mc.getBaseModelInstance() != null) {
+            go.getTransform().getTranslation(tempV3);
+            final Cell cell = getCell(tempV3);
+            cell.members.add(mc);
+            members.put(mc, cell);
+            markDirty(cell);
+        }
+
+        // children move with the parent
+        if (go.getChildren() != null) {
+            for (GameObject child : go.getChildren()) {
+                update(child, activeInScene && child.isActive());
+            }
+        }
+    }
+
+    private void removeMember(ModelComponent mc) {
+        final Cell old = members.remove(mc);
+        if (old != null) {
+            old.members.removeValue(mc, true);
+            markDirty(old);
+        }
+    }
+
+    /**
+     * @param component
+     *            model component
+     * @return true if the component is rendered as part of a static batch.
+     *         Up to date after applyInvalidations()
+     */
+    public boolean isBatched(ModelComponent component) {
+        return members.containsKey(component);
+    }
+
+    /**
+     * @return number of merged meshes (= draw calls) of all cells
+     */
+    public int getBatchCount() {
+        int count = 0;
+        for (Cell cell : cells.values()) {
+            count += cell.batches.size;
+        }
+        return count;
+    }
+
+    /**
+     * @return number of model components, that are rendered as part of a batch
+     */
+    public int getMemberCount() {
+        return members.size;
+    }
+
+    @Override
+    public void getRenderables(Array<Renderable> renderables, Pool<Renderable> pool) {
+        rebuildDirtyCells();
+
+        for (Cell cell : cells.values()) {
+            for (Batch batch : cell.batches) {
+                final Renderable renderable = pool.obtain();
+                renderable.meshPart.set(batch.meshPart);
+                renderable.material = batch.material;
+                renderable.shader = batch.shader;
+                renderable.worldTransform.idt();
+                renderable.bones = null;
+                renderable.userData = null;
+                renderables.add(renderable);
+            }
+        }
+    }
+
+    private Cell getCell(Vector3 pos) {
+        final long x = (long) Math.floor(pos.x / cellSize);
+        final long y = (long) Math.floor(pos.y / cellSize);
+        final long z = (long) Math.floor(pos.z / cellSize);
+        final long key = ((x & 0x1FFFFF) << 42) | ((y & 0x1FFFFF) << 21) | (z & 0x1FFFFF);
+
+        Cell cell = cells.get(key);
+        if (cell == null) {
+            cell = new Cell(key);
+            cells.put(key, cell);
+        }
+        return cell;
+    }
+
+    private void markDirty(Cell cell) {
+        if (!cell.dirty) {
+            cell.dirty = true;
+            dirtyCells.add(cell);
+        }
+    }
+
+    private void rebuildDirtyCells() {
+        if (dirtyCells.size == 0) return;
+
+        for (Cell cell : dirtyCells) {
+            rebuild(cell);
+            cell.dirty = false;
+            if (cell.members.size == 0) {
+                cells.remove(cell.key);
+            }
+        }
+        dirtyCells.clear();
+        vertexCache.clear();
+        indexCache.clear();
+    }
+
+    private void rebuild(Cell cell) {
+        cell.disposeBatches();
+
+        // group mesh parts of all members
+        final ObjectMap<BatchKey, Array<Renderable>> groups = new ObjectMap<BatchKey, Array<Renderable>>();
+        for (int i = cell.members.size - 1; i >= 0; i--) {
+            final ModelComponent mc = cell.members.get(i);
+            mc.getBaseModelInstance().transform.set(mc.getGameObject().getTransform());
+            tempRenderables.clear();
+            mc.getBaseModelInstance().getRenderables(tempRenderables, renderablePool);
+
+            // rendered on its own, until the game object is invalidated again
+            if (!canMerge(tempRenderables)) {
+                renderablePool.freeAll(tempRenderables);
+                cell.members.removeIndex(i);
+                members.remove(mc);
+                continue;
+            }
+
+            for (Renderable renderable : tempRenderables) {
+                final BatchKey key = new BatchKey(materialKey(mc, renderable.material), mc.getShader(),
+                        renderable.meshPart.mesh.getVertexAttributes());
+                Array<Renderable> group = groups.get(key);
+                if (group == null) {
+                    group = new Array<Renderable>();
+                    groups.put(key, group);
+                }
+                group.add(renderable);
+            }
+        }
+
+        // merge every group
+        for (ObjectMap.Entry<BatchKey, Array<Renderable>> entry : groups) {
+            merge(cell, entry.key, entry.value);
+            renderablePool.freeAll(entry.value);
+        }
+    }
+
+    /**
+     * Only indexed triangles without skinning can be merged, and every part
+     * must fit into a batch on its own.
+     */
+    private boolean canMerge(Array<Renderable> renderables) {
+        for (Renderable renderable : renderables) {
+            final MeshPart meshPart = renderable.meshPart;
+            if (meshPart.primitiveType != GL20.GL_TRIANGLES || renderable.bones != null
+                    || meshPart.mesh.getNumIndices() == 0) {
+                return false;
+            }
+            // a part has at most as many vertices as indices
+            if (meshPart.size > MAX_VERTICES && countVertices(meshPart) > MAX_VERTICES) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int countVertices(MeshPart meshPart) {
+        final short[] srcIndices = indices(meshPart.mesh);
+        indexRemap.clear();
+        for (int i = meshPart.offset; i < meshPart.offset + meshPart.size; i++) {
+            indexRemap.put(srcIndices[i] & 0xFFFF, -1);
+        }
+        return indexRemap.size;
+    }
+
+    private Object materialKey(ModelComponent mc, Material material) {
+        final MaterialAsset asset = mc.getMaterials().get(material.id);
+        return asset != null ? asset : material;
+    }
+
+    private void merge(Cell cell, BatchKey key, Array<Renderable> parts) {
+        final VertexAttributes attributes = key.attributes;
+        final int stride = attributes.vertexSize / 4;
+        final VertexAttribute posAttr = attributes.findByUsage(VertexAttributes.Usage.Position);
+        final VertexAttribute norAttr = attributes.findByUsage(VertexAttributes.Usage.Normal);
+        final int posOffset = posAttr == null ? -1 : posAttr.offset / 4;
+        final int norOffset = norAttr == null ? -1 : norAttr.offset / 4;
+        final boolean packedNormals = norAttr != null && norAttr.type == GL20.GL_BYTE;
+
+        final FloatArray vertices = new FloatArray();
+        final ShortArray indices = new ShortArray();
+        final Material material = parts.first().material;
+
+        for (Renderable part : parts) {
+            final MeshPart meshPart = part.meshPart;
+            final float[] srcVertices = vertices(meshPart.mesh);
+            final short[] srcIndices = indices(meshPart.mesh);
+
+            // flush if this part does not fit anymore. canMerge() made sure, that it fits into an empty batch
+            final int partVertices = countVertices(meshPart);
+            if (vertices.size > 0 && vertices.size / stride + partVertices > MAX_VERTICES) {
+                addBatch(cell, key, material, vertices, indices);
+                vertices.clear();
+                indices.clear();
+            }
+
+            tempMat.set(part.worldTransform);
+            tempNormalMat.set(tempMat).inv().transpose();
+
+            for (int i = meshPart.offset; i < meshPart.offset + meshPart.size; i++) {
+                final int src = srcIndices[i] & 0xFFFF;
+                int dst = indexRemap.get(src, -1);
+                if (dst == -1) {
+                    dst = vertices.size / stride;
+                    indexRemap.put(src, dst);
+
+                    final int start = vertices.size;
+                    vertices.addAll(srcVertices, src * stride, stride);
+                    final float[] items = vertices.items;
+                    if (posOffset >= 0) {
+                        tempV3.set(items[start + posOffset], items[start + posOffset + 1],
+                                items[start + posOffset + 2]).mul(tempMat);
+                        items[start + posOffset] = tempV3.x;
+                        items[start + posOffset + 1] = tempV3.y;
+                        items[start + posOffset + 2] = tempV3.z;
+                    }
+                    if (packedNormals) {
+                        // quantized by the mesh optimizer
+                        MeshOptimizer.unpackNormal(items[start + norOffset], tempV3).mul(tempNormalMat).nor();
+                        items[start + norOffset] = MeshOptimizer.packNormal(tempV3.x, tempV3.y, tempV3.z);
+                    } else if (norOffset >= 0) {
+                        tempV3.set(items[start + norOffset], items[start + norOffset + 1],
+                                items[start + norOffset + 2]).mul(tempNormalMat).nor();
+                        items[start + norOffset] = tempV3.x;
+                        items[start + norOffset + 1] = tempV3.y;
+                        items[start + norOffset + 2] = tempV3.z;
+                    }
+                }
+                indices.add((short) dst);
+            }
+        }
+
+        if (indices.size > 0) {
+            addBatch(cell, key, material, vertices, indices);
+        }
+    }
+
+    private void addBatch(Cell cell, BatchKey key, Material material, FloatArray vertices, ShortArray indices) {
+        final Mesh mesh = new Mesh(true, vertices.size / (key.attributes.vertexSize / 4), indices.size,
+                key.attributes);
+        mesh.setVertices(vertices.items, 0, vertices.size);
+        mesh.setIndices(indices.items, 0, indices.size);
+
+        final Batch batch = new Batch();
+        batch.mesh = mesh;
+        batch.meshPart = new MeshPart(null, mesh, 0, indices.size, GL20.GL_TRIANGLES);
+        batch.meshPart.update();
+        batch.material = material;
+        batch.shader = key.shader;
+        cell.batches.add(batch);
+    }
+
+    private float[] vertices(Mesh mesh) {
+        float[] vertices = vertexCache.get(mesh);
+        if (vertices == null) {
+            vertices = new float[mesh.getNumVertices() * mesh.getVertexSize() / 4];
+            mesh.getVertices(vertices);
+            vertexCache.put(mesh, vertices);
+        }
+        return vertices;
+    }
+
+    private short[] indices(Mesh mesh) {
+        short[] indices = indexCache.get(mesh);
+        if (indices == null) {
+            indices = new short[mesh.getNumIndices()];
+            mesh.getIndices(indices);
+            indexCache.put(mesh, indices);
+        }
+        return indices;
+    }
+
+    @Override
+    public void dispose() {
+        for (Cell cell : cells.values()) {
+            cell.disposeBatches();
+        }
+        cells.clear();
+        members.clear();
+        dirtyCells.clear();
+        invalidated.clear();
+        removed.clear();
+    }
+
+    /**
+     * One grid cell.
+     */
+    private static class Cell {
+        final long key;
+        final Array<ModelComponent> members = new Array<ModelComponent>();
+        final Array<Batch> batches = new Array<Batch>();
+        boolean dirty = false;
+
+        Cell(long key) {
+            this.key = key;
+        }
+
+        void disposeBatches() {
+            for (Batch batch : batches) {
+                batch.mesh.dispose();
+            }
+            batches.clear();
+        }
+    }
+
+    /**
+     * One merged mesh.
+     */
+    private static class Batch {
+        Mesh mesh;
+        MeshPart meshPart;
+        Material material;
+        Shader shader;
+    }
+
+    /**
+     * Mesh parts with equal keys can be merged.
+     */
+    private static class BatchKey {
+        final Object material;
+        final Shader shader;
+        final VertexAttributes attributes;
+
+        BatchKey(Object material, Shader shader, VertexAttributes attributes) {
+            this.material = material;
+            this.shader = shader;
+            this.attributes = attributes;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            BatchKey that = (BatchKey) o;
+            return material.equals(that.material) && shader == that.shader && attributes.equals(that.attributes);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = material.hashCode();
+            result = 31 * result + (shader != null ? shader.hashCode() : 0);
+            result = 31 * result + attributes.hashCode();
+            return result;
+        }
+    }
+
+}
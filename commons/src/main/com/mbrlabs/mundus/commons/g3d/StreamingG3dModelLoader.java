@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mbrlabs.mundus.commons.g3d;
+
+import com.badlogic.gdx.assets.loaders.FileHandleResolver;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelData;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelMesh;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelMeshPart;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.JsonValue;
+import com.badlogic.gdx.utils.StreamUtils;
+import com.badlogic.gdx.utils.UBJsonReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Loads g3db models in a single pass over the file.
+ *
+ * Unlike the MG3dModelLoader it does not build a JsonValue tree of the whole
+ * model. Vertices and indices, which make up most of the file, are decoded
+ * directly into primitive arrays. Only the small materials, nodes &
+ * animations sections are read into JsonValues and parsed like in the
+ * MG3dModelLoader.
+ *
+ * Only supports the binary (UBJSON) format.
+ *
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+public class StreamingG3dModelLoader extends MG3dModelLoader {
+
+    public StreamingG3dModelLoader() {
+        this(null);
+    }
+
+    public StreamingG3dModelLoader(FileHandleResolver resolver) {
+        super(new UBJsonReader(), resolver);
+    }
+
+    @Override
+    public ModelData parseModel(FileHandle handle) {
+        final InputStream in = handle.read();
+        try {
+            return parseModel(new UBJsonPullParser(in), handle.parent().path());
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Couldn't load model: " + handle.path(), e);
+        } finally {
+            StreamUtils.closeQuietly(in);
+        }
+    }
+
+    private ModelData parseModel(UBJsonPullParser parser, String materialDir) throws IOException {
+        if (parser.nextType() != '{') throw new GdxRuntimeException("Model must be an object");
+
+        final ModelData model = new ModelData();
+        // materials, nodes & animations are small, so they are kept as json
+        final JsonValue json = new JsonValue(JsonValue.ValueType.object);
+        JsonValue last = null;
+        boolean hasVersion = false;
+        splitter.reset();
+
+        final UBJsonPullParser.Container root = parser.beginObject();
+        while (parser.nextKey(root)) {
+            final String key = root.key;
+            if (key.equals("version")) {
+                final float[] version = parser.readFloatArray(root.type);
+                if (version.length < 2) throw new GdxRuntimeException("Invalid model version");
+                model.version[0] = (short) version[0];
+                model.version[1] = (short) version[1];
+                hasVersion = true;
+            } else if (key.equals("id")) {
+                model.id = parser.readString(root.type);
+            } else if (key.equals("meshes")) {
+                parseMeshes(parser, root.type, model);
+            } else if (key.equals("materials") || key.equals("nodes") || key.equals("animations")) {
+                final JsonValue value = parser.readValue(root.type);
+                value.name = key;
+                last = UBJsonPullParser.append(json, last, value);
+            } else {
+                parser.skip(root.type);
+            }
+        }
+
+        if (!hasVersion) throw new GdxRuntimeException("Model has no version");
+        if (model.version[0] != VERSION_HI || model.version[1] != VERSION_LO)
+            throw new GdxRuntimeException("Model version not supported");
+
+        optimize(model);
+        parseMaterials(model, json, materialDir);
+        parseNodes(model, json);
+        splitter.updateNodes(model);
+        parseAnimations(model, json);
+        return model;
+    }
+
+    private void parseMeshes(UBJsonPullParser parser, byte type, ModelData model) throws IOException {
+        final UBJsonPullParser.Container meshes = parser.beginArray(type);
+        if (meshes.getSize() > 0) model.meshes.ensureCapacity((int) meshes.getSize());
+
+        while (parser.nextElement(meshes)) {
+            if (meshes.type != '{') throw new GdxRuntimeException("Mesh must be an object");
+            final ModelMesh mesh = new ModelMesh();
+            mesh.id = "";
+            final Array<ModelMeshPart> parts = new Array<ModelMeshPart>();
+            final Array<int[]> indices = new Array<int[]>();
+            boolean hasParts = false;
+
+            final UBJsonPullParser.Container fields = parser.beginObject();
+            while (parser.nextKey(fields)) {
+                final String key = fields.key;
+                if (key.equals("id")) {
+                    mesh.id = parser.readString(fields.type);
+                } else if (key.equals("attributes")) {
+                    mesh.attributes = parseAttributes(parser.readValue(fields.type));
+                } else if (key.equals("vertices")) {
+                    mesh.vertices = parser.readFloatArray(fields.type);
+                } else if (key.equals("parts")) {
+                    parseMeshParts(parser, fields.type, parts, indices);
+                    hasParts = true;
+                } else {
+                    parser.skip(fields.type);
+                }
+            }
+
+            if (mesh.attributes == null) throw new GdxRuntimeException("Mesh '" + mesh.id + "' has no attributes");
+            if (mesh.vertices == null) throw new GdxRuntimeException("Mesh '" + mesh.id + "' has no vertices");
+            if (!hasParts) throw new GdxRuntimeException("Mesh '" + mesh.id + "' has no parts");
+            mesh.parts = parts.toArray(ModelMeshPart.class);
+            splitter.addMesh(model, mesh, indices.toArray(int[].class));
+        }
+    }
+
+    private void parseMeshParts(UBJsonPullParser parser, byte type, Array<ModelMeshPart> parts, Array<int[]> indices)
+            throws IOException {
+        final UBJsonPullParser.Container array = parser.beginArray(type);
+        while (parser.nextElement(array)) {
+            if (array.type != '{') throw new GdxRuntimeException("Mesh part must be an object");
+            final ModelMeshPart part = new ModelMeshPart();
+            String primitiveType = null;
+            int[] partIndices = null;
+
+            final UBJsonPullParser.Container fields = parser.beginObject();
+            while (parser.nextKey(fields)) {
+                final String key = fields.key;
+                if (key.equals("id")) {
+                    part.id = parser.readString(fields.type);
+                } else if (key.equals("type")) {
+                    primitiveType = parser.readString(fields.type);
+                } else if (key.equals("indices")) {
+                    partIndices = parser.readIntArray(fields.type);
+                } else {
+                    parser.skip(fields.type);
+                }
+            }
+
+            if (part.id == null) {
+                throw new GdxRuntimeException("Not id given for mesh part");
+            }
+            for (ModelMeshPart other : parts) {
+                if (other.id.equals(part.id)) {
+                    throw new GdxRuntimeException("Mesh part with id '" + part.id + "' already in defined");
+                }
+            }
+            if (primitiveType == null) {
+                throw new GdxRuntimeException("No primitive type given for mesh part '" + part.id + "'");
+            }
+            part.primitiveType = parseType(primitiveType);
+            if (partIndices == null) {
+                throw new GdxRuntimeException("Mesh part '" + part.id + "' has no indices");
+            }
+            parts.add(part);
+            indices.add(partIndices);
+        }
+    }
+
+}
@@ -0,0 +1,431 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mbrlabs.mundus.commons.g3d;
+
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.JsonValue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Pull style UBJSON parser.
+ *
+ * Reads values one by one from a stream instead of building a JsonValue tree
+ * like the UBJsonReader. Numeric arrays can be decoded straight into
+ * primitive arrays. Supports the same dialects as the UBJsonReader, including
+ * the old format (default) used by fbx-conv for g3db files.
+ *
+ * Usage: read the type marker of a value with nextType(), then read the value
+ * with the matching method (readLong(), readFloat(), readString(),
+ * beginObject(), beginArray()...) or skip it with skip(). Containers are
+ * iterated with nextKey()/nextElement(), which also read the type marker of
+ * the next value into {@link Container#type}.
+ *
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+public class UBJsonPullParser {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** Old UBJSON format: 'i' is int16 & 'I' is int32. */
+    public boolean oldFormat = true;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position = 0;
+    private int limit = 0;
+
+    // scratch arrays for arrays of unknown size
+    private float[] floatScratch = new float[1024];
+    private int[] intScratch = new int[1024];
+
+    public UBJsonPullParser(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * State of an object or array, that is currently iterated.
+     */
+    public static class Container {
+        /** Type of all values or 0 if every value has its own type marker. */
+        byte valueType;
+        /** Number of values or -1 if unknown. */
+        long size = -1;
+        long count = 0;
+        byte pending;
+        boolean object;
+
+        /** Key of the current value (objects only). */
+        public String key;
+        /** Type marker of the current value. */
+        public byte type;
+
+        /**
+         * @return number of elements or -1, if the container is not sized
+         */
+        public long getSize() {
+            return size;
+        }
+    }
+
+    /**
+     * Reads the type marker of the next value.
+     */
+    public byte nextType() throws IOException {
+        return readByte();
+    }
+
+    /**
+     * Starts reading an object, after its '{' marker was read.
+     */
+    public Container beginObject() throws IOException {
+        final Container c = new Container();
+        c.object = true;
+        beginContainer(c);
+        return c;
+    }
+
+    /**
+     * Starts reading an array, after its '[', 'a' or 'A' marker was read.
+     */
+    public Container beginArray(byte marker) throws IOException {
+        final Container c = new Container();
+        if (marker == 'a' || marker == 'A') {
+            // old format typed data block
+            c.valueType = readByte();
+            c.size = marker == 'A' ? readInt() & 0xFFFFFFFFL : readByte() & 0xFF;
+            c.pending = c.valueType;
+            return c;
+        }
+        beginContainer(c);
+        return c;
+    }
+
+    private void beginContainer(Container c) throws IOException {
+        byte type = readByte();
+        if (type == '$') {
+            c.valueType = readByte();
+            type = readByte();
+        }
+        if (type == '#') {
+            c.size = readSize(readByte(), false);
+            if (c.size < 0) throw new GdxRuntimeException("Unrecognized data type");
+            if (c.size == 0) return;
+            type = c.object || c.valueType == 0 ? readByte() : c.valueType;
+        }
+        c.pending = type;
+    }
+
+    /**
+     * Moves to the next key/value pair of an object.
+     *
+     * @return false if the end of the object was reached
+     */
+    public boolean nextKey(Container c) throws IOException {
+        if (c.size >= 0 && c.count >= c.size) return false;
+        final byte keyType = c.count == 0 ? c.pending : readByte();
+        if (c.size < 0 && keyType == '}') return false;
+
+        c.key = readString(keyType, true);
+        c.type = c.valueType != 0 ? c.valueType : readByte();
+        c.count++;
+        return true;
+    }
+
+    /**
+     * Moves to the next element of an array.
+     *
+     * @return false if the end of the array was reached
+     */
+    public boolean nextElement(Container c) throws IOException {
+        if (c.size >= 0) {
+            if (c.count >= c.size) return false;
+            c.type = c.count == 0 ? c.pending : (c.valueType != 0 ? c.valueType : readByte());
+        } else {
+            c.type = c.count == 0 ? c.pending : readByte();
+            if (c.type == ']') return false;
+        }
+        c.count++;
+        return true;
+    }
+
+    /**
+     * Reads an integer value.
+     */
+    public long readLong(byte type) throws IOException {
+        switch (type) {
+        case 'B':
+        case 'U':
+            return readByte() & 0xFF;
+        case 'i':
+            return oldFormat ? readShort() : readByte();
+        case 'I':
+            return oldFormat ? readInt() : readShort();
+        case 'l':
+            return readInt();
+        case 'L':
+            return readLongValue();
+        case 'd':
+            return (long) Float.intBitsToFloat(readInt());
+        case 'D':
+            return (long) Double.longBitsToDouble(readLongValue());
+        default:
+            throw new GdxRuntimeException("Number expected, got type: " + (char) type);
+        }
+    }
+
+    /**
+     * Reads a floating point value (integers are converted).
+     */
+    public float readFloat(byte type) throws IOException {
+        if (type == 'd') return Float.intBitsToFloat(readInt());
+        if (type == 'D') return (float) Double.longBitsToDouble(readLongValue());
+        return readLong(type);
+    }
+
+    public boolean readBoolean(byte type) throws IOException {
+        if (type == 'T') return true;
+        if (type == 'F') return false;
+        throw new GdxRuntimeException("Boolean expected, got type: " + (char) type);
+    }
+
+    /**
+     * Reads a string value.
+     */
+    public String readString(byte type) throws IOException {
+        return readString(type, false);
+    }
+
+    private String readString(byte type, boolean sizeOnly) throws IOException {
+        long size = -1;
+        if (type == 'S') {
+            size = readSize(readByte(), true);
+        } else if (type == 's') {
+            size = readByte() & 0xFF;
+        } else if (type == 'C') {
+            return String.valueOf((char) (readByte() & 0xFF));
+        } else if (sizeOnly) {
+            size = readSize(type, false);
+        }
+        if (size < 0) throw new GdxRuntimeException("Unrecognized data type, string expected");
+        if (size == 0) return "";
+
+        final byte[] bytes = new byte[(int) size];
+        readFully(bytes, 0, bytes.length);
+        return new String(bytes, "UTF-8");
+    }
+
+    private long readSize(byte type, boolean useIntOnError) throws IOException {
+        if (type == 'i') return readByte() & 0xFF;
+        if (type == 'I') return readShort() & 0xFFFF;
+        if (type == 'l') return readInt() & 0xFFFFFFFFL;
+        if (type == 'L') return readLongValue();
+        if (useIntOnError) {
+            long result = (long) (type & 0xFF) << 24;
+            result |= (long) (readByte() & 0xFF) << 16;
+            result |= (long) (readByte() & 0xFF) << 8;
+            result |= (long) (readByte() & 0xFF);
+            return result;
+        }
+        return -1;
+    }
+
+    /**
+     * Reads a numeric array into a float array. Sized arrays are decoded into
+     * an exactly sized array without copying.
+     */
+    public float[] readFloatArray(byte marker) throws IOException {
+        final Container c = beginArray(marker);
+        float[] out = c.size >= 0 ? new float[(int) c.size] : floatScratch;
+        int n = 0;
+        while (nextElement(c)) {
+            if (n == out.length) {
+                out = Arrays.copyOf(out, out.length * 2);
+                floatScratch = out;
+            }
+            out[n++] = c.type == 'd' ? Float.intBitsToFloat(readInt()) : readFloat(c.type);
+        }
+        return c.size >= 0 ? out : Arrays.copyOf(out, n);
+    }
+
+    /**
+     * Reads a numeric array into an int array. Sized arrays are decoded into
+     * an exactly sized array without copying.
+     */
+    public int[] readIntArray(byte marker) throws IOException {
+        final Container c = beginArray(marker);
+        int[] out = c.size >= 0 ? new int[(int) c.size] : intScratch;
+        int n = 0;
+        while (nextElement(c)) {
+            if (n == out.length) {
+                out = Arrays.copyOf(out, out.length * 2);
+                intScratch = out;
+            }
+            out[n++] = (int) readLong(c.type);
+        }
+        return c.size >= 0 ? out : Arrays.copyOf(out, n);
+    }
+
+    /**
+     * Reads a value and all its children into a JsonValue. Only meant for
+     * small parts of a document.
+     */
+    public JsonValue readValue(byte type) throws IOException {
+        switch (type) {
+        case '{': {
+            final JsonValue object = new JsonValue(JsonValue.ValueType.object);
+            final Container c = beginObject();
+            JsonValue prev = null;
+            while (nextKey(c)) {
+                final JsonValue child = readValue(c.type);
+                child.name = c.key;
+                prev = append(object, prev, child);
+            }
+            return object;
+        }
+        case '[':
+        case 'a':
+        case 'A': {
+            final JsonValue array = new JsonValue(JsonValue.ValueType.array);
+            final Container c = beginArray(type);
+            JsonValue prev = null;
+            while (nextElement(c)) {
+                prev = append(array, prev, readValue(c.type));
+            }
+            return array;
+        }
+        case 'Z':
+            return new JsonValue(JsonValue.ValueType.nullValue);
+        case 'T':
+        case 'F':
+            return new JsonValue(readBoolean(type));
+        case 'S':
+        case 's':
+        case 'C':
+            return new JsonValue(readString(type));
+        case 'd':
+        case 'D':
+            return new JsonValue(readFloat(type));
+        default:
+            return new JsonValue(readLong(type));
+        }
+    }
+
+    static JsonValue append(JsonValue parent, JsonValue prev, JsonValue child) {
+        child.parent = parent;
+        if (prev == null) {
+            parent.child = child;
+        } else {
+            prev.next = child;
+            child.prev = prev;
+        }
+        parent.size++;
+        return child;
+    }
+
+    /**
+     * Skips a value and all its children.
+     */
+    public void skip(byte type) throws IOException {
+        switch (type) {
+        case '{': {
+            final Container c = beginObject();
+            while (nextKey(c)) {
+                skip(c.type);
+            }
+            break;
+        }
+        case '[':
+        case 'a':
+        case 'A': {
+            final Container c = beginArray(type);
+            while (nextElement(c)) {
+                skip(c.type);
+            }
+            break;
+        }
+        case 'Z':
+        case 'T':
+        case 'F':
+        case 'N':
+            break;
+        case 'S':
+        case 's':
+        case 'C':
+            readString(type);
+            break;
+        default:
+            readLong(type);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // buffered big endian primitives
+
+    private void fill(int needed) throws IOException {
+        if (limit - position >= needed) return;
+        final int remaining = limit - position;
+        System.arraycopy(buffer, position, buffer, 0, remaining);
+        position = 0;
+        limit = remaining;
+        while (limit < needed) {
+            final int read = in.read(buffer, limit, buffer.length - limit);
+            if (read < 0) throw new GdxRuntimeException("Unexpected end of UBJSON data");
+            limit += read;
+        }
+    }
+
+    private byte readByte() throws IOException {
+        fill(1);
+        return buffer[position++];
+    }
+
+    private short readShort() throws IOException {
+        fill(2);
+        final int value = (buffer[position] & 0xFF) << 8 | (buffer[position + 1] & 0xFF);
+        position += 2;
+        return (short) value;
+    }
+
+    private int readInt() throws IOException {
+        fill(4);
+        final byte[] b = buffer;
+        final int p = position;
+        position += 4;
+        return (b[p] & 0xFF) << 24 | (b[p + 1] & 0xFF) << 16 | (b[p + 2] & 0xFF) << 8 | (b[p + 3] & 0xFF);
+    }
+
+    private long readLongValue() throws IOException {
+        return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+    }
+
+    private void readFully(byte[] out, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (position == limit) fill(1);
+            final int n = Math.min(length, limit - position);
+            System.arraycopy(buffer, position, out, offset, n);
+            position += n;
+            offset += n;
+            length -= n;
+        }
+    }
+
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mbrlabs.mundus.commons.importer;
+
+/**
+ * Layout of an asset bundle, a single file containing all files of an
+ * exported project.
+ *
+ * All numbers are big endian, strings are UTF-8 with an unsigned short length
+ * prefix.
+ *
+ * <pre>
+ * header:  int MAGIC, int VERSION, int entry count, int table of contents size
+ * toc:     per entry: string key, string path, long offset, long length
+ * data:    entries, each starting at a multiple of ALIGNMENT
+ * </pre>
+ *
+ * The key of an entry is the uuid of the asset the file belongs to (asset
+ * file, meta file and derived files like binary models) or an empty string
+ * for other files (e.g. scenes). The table of contents is sorted by key,
+ * then by path. Paths are relative to the export root, e.g. "assets/a.png"
+ * or "scenes/Main Scene.mundus". Offsets are relative to the start of the
+ * bundle.
+ *
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+public class AssetBundleFormat {
+
+    public static final String EXTENSION = "bundle";
+
+    public static final int MAGIC = 0x4D424E44;
+    public static final int VERSION = 1;
+
+    public static final int HEADER_SIZE = 16;
+    public static final int ALIGNMENT = 16;
+
+    /**
+     * @return the smallest multiple of ALIGNMENT, that is >= offset
+     */
+    public static long align(long offset) {
+        return (offset + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.commons.importer;
+
+/**
+ * Layout of an exported scene in the binary format.
+ *
+ * All numbers are big endian, strings are UTF-8 with an unsigned short length
+ * prefix. Game objects are stored in a flat array in pre-order (parents
+ * before their children, children in scene graph order), so a loader can
+ * build the scene graph in a single pass.
+ *
+ * <pre>
+ * header:       int MAGIC, int VERSION, long scene id, int scene name
+ * string table: int count, strings
+ * game objects: int count, records
+ *
+ * record:       int parent index (-1 for root game objects), int id,
+ *               int name, byte flags, float[10] transform,
+ *               short tag count, int[] tags
+ *               [if FLAG_MODEL]   int model, short material count,
+ *                                 per material: int material id, int material,
+ *                                 short lod count, per lod: int model, float screen size
+ *               [if FLAG_TERRAIN] int terrain
+ * </pre>
+ *
+ * Names, tags, material ids and asset ids are indices into the string table.
+ * Asset ids of components are shared through the table, so the loader
+ * resolves each asset once. The transform is position (x, y, z), rotation
+ * (x, y, z, w) and scale (x, y, z).
+ *
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+public class BinarySceneFormat {
+
+    public static final int MAGIC = 0x4D53434E;
+    public static final int VERSION = 1;
+
+    public static final int NO_PARENT = -1;
+    public static final int TRANSFORM_FLOATS = 10;
+
+    // record flags
+    public static final byte FLAG_ACTIVE = 1;
+    public static final byte FLAG_STATIC = 1 << 1;
+    public static final byte FLAG_MODEL = 1 << 2;
+    public static final byte FLAG_TERRAIN = 1 << 3;
+
+}
@@ -31,6 +31,7 @@ public class JsonScene {
     public static final String GO_ID = "i";
     public static final String GO_NAME = "n";
     public static final String GO_ACTIVE = "a";
+    public static final String GO_STATIC = "s";
     public static final String GO_TRANSFORM = "t";
     public static final String GO_TAGS = "g";
     public static final String GO_CHILDREN = "c";
@@ -40,6 +41,11 @@ public class JsonScene {
     // ModelComponent
     public static final String MODEL_COMPONENT_MODEL_ID = "i";
     public static final String MODEL_COMPONENT_MATERIALS = "m";
+    public static final String MODEL_COMPONENT_LODS = "l";
+
+    // LOD of a ModelComponent
+    public static final String LOD_MODEL_ID = "i";
+    public static final String LOD_SCREEN_SIZE = "s";
 
     // TerrainComponent
     public static final String TERRAIN_COMPONENT_TERRAIN_ID = "i";
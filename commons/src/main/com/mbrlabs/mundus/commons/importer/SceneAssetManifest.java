@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.commons.importer;
+
+import com.badlogic.gdx.files.FileHandle;
+
+/**
+ * Json keys of the asset manifest of an exported scene.
+ *
+ * The manifest lists all assets the scene references directly or
+ * transitively (models, materials, textures, terrains, splatmaps), every
+ * asset after its dependencies. The runtime makes only these assets known,
+ * instead of scanning the whole asset folder.
+ *
+ * <pre>
+ * { "assets": [ { "i": "uuid", "m": "asset.png.meta" }, ... ] }
+ * </pre>
+ *
+ * The meta file path is relative to the asset folder.
+ *
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+public class SceneAssetManifest {
+
+    public static final String EXTENSION = "assets";
+
+    public static final String ASSETS = "assets";
+    public static final String ASSET_ID = "i";
+    public static final String ASSET_META = "m";
+
+    /**
+     * @param sceneFile
+     *            exported scene file
+     * @return manifest file next to the scene file (same name, assets
+     *         extension)
+     */
+    public static FileHandle file(FileHandle sceneFile) {
+        return sceneFile.sibling(sceneFile.nameWithoutExtension() + "." + EXTENSION);
+    }
+
+}
@@ -16,8 +16,12 @@
 
 package com.mbrlabs.mundus.commons.scene3d;
 
+import com.badlogic.gdx.math.Quaternion;
+import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.utils.Array;
+import com.mbrlabs.mundus.commons.scene3d.components.AbstractComponent;
 import com.mbrlabs.mundus.commons.scene3d.components.Component;
+import com.mbrlabs.mundus.commons.scene3d.components.ModelComponent;
 import com.mbrlabs.mundus.commons.scene3d.traversal.DepthFirstIterator;
 
 import java.util.Iterator;
@@ -31,7 +35,10 @@ public class GameObject extends SimpleNode<GameObject> implements Iterable<GameO
     public static final String DEFAULT_NAME = "GameObject";
 
     public String name;
-    public boolean active;
+    private boolean active;
+    private boolean isStatic;
+    // number of static game objects in the subtree of this game object, including itself
+    private int staticNodes;
     private Array<String> tags;
     private Array<Component> components;
 
@@ -67,6 +74,8 @@ public class GameObject extends SimpleNode<GameObject> implements Iterable<GameO
         // set name _copy
         this.name = gameObject.name + "_copy";
         this.active = gameObject.active;
+        this.isStatic = gameObject.isStatic;
+        this.staticNodes = isStatic ? 1 : 0;
 
         // copy tags
         if (tags != null) {
@@ -125,6 +134,111 @@ public class GameObject extends SimpleNode<GameObject> implements Iterable<GameO
         }
     }
 
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Activates or deactivates this game object and with it all its
+     * children.
+     *
+     * @param active
+     *            true if the game object is updated and rendered
+     */
+    public void setActive(boolean active) {
+        if (this.active == active) return;
+        this.active = active;
+        invalidateStaticBatch();
+    }
+
+    /**
+     * @return true if this game object and all its parents are active
+     */
+    public boolean isActiveInHierarchy() {
+        for (GameObject go = this; go != null; go = go.getParent()) {
+            // the scene graph root itself is never active
+            if (sceneGraph != null && go == sceneGraph.root) return true;
+            if (!go.active) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if this game object never moves at runtime.
+     *
+     * @return true if static
+     */
+    public boolean isStatic() {
+        return isStatic;
+    }
+
+    /**
+     * Marks this game object as static.
+     *
+     * Static game objects, that share materials are merged into combined
+     * meshes by the static batcher of the scene graph. They can still be
+     * moved, but every change rebuilds the batching cell they are in.
+     *
+     * @param isStatic
+     *            true if this game object never moves
+     */
+    public void setStatic(boolean isStatic) {
+        if (this.isStatic == isStatic) return;
+        this.isStatic = isStatic;
+        addStaticNodes(isStatic ? 1 : -1);
+        // also if it is not static anymore, so it is removed from its batch
+        if (sceneGraph != null) {
+            sceneGraph.getStaticBatcher().invalidate(this);
+        }
+    }
+
+    private void addStaticNodes(int count) {
+        for (GameObject go = this; go != null; go = go.parent) {
+            go.staticNodes += count;
+        }
+    }
+
+    /**
+     * Releases the assets of all components of this game object and its
+     * children, e.g. after it was removed from the scene graph, so unused
+     * assets can be evicted.
+     */
+    public void releaseAssets() {
+        for (GameObject go : this) {
+            for (Component component : go.components) {
+                if (component instanceof AbstractComponent) {
+                    ((AbstractComponent) component).releaseAssets();
+                }
+            }
+        }
+    }
+
+    /**
+     * Retains the assets released with releaseAssets() again.
+     */
+    public void retainAssets() {
+        for (GameObject go : this) {
+            for (Component component : go.components) {
+                if (component instanceof AbstractComponent) {
+                    ((AbstractComponent) component).retainAssets();
+                }
+            }
+        }
+    }
+
+    /**
+     * Informs the static batcher, that the transform, model or materials of
+     * this game object or one of it's children changed.
+     *
+     * Only queues the game object, so it can be called from the update
+     * threads of the parallel updater. Returns right away, if neither this
+     * game object nor one of its children is static.
+     */
+    public void invalidateStaticBatch() {
+        if (sceneGraph == null || staticNodes == 0) return;
+        sceneGraph.getStaticBatcher().invalidate(this);
+    }
+
     /**
      * Returns the tags
      * 
@@ -206,7 +320,12 @@ public class GameObject extends SimpleNode<GameObject> implements Iterable<GameO
      *            component to remove
      */
     public void removeComponent(Component component) {
+        ParallelUpdater.checkWrite(this);
         components.removeValue(component, true);
+        if (component instanceof ModelComponent && sceneGraph != null) {
+            sceneGraph.getStaticBatcher().remove((ModelComponent) component);
+        }
+        invalidateStaticBatch();
     }
 
     /**
@@ -217,8 +336,10 @@ public class GameObject extends SimpleNode<GameObject> implements Iterable<GameO
      * @throws InvalidComponentException
      */
     public void addComponent(Component component) throws InvalidComponentException {
+        ParallelUpdater.checkWrite(this);
         isComponentAddable(component);
         components.add(component);
+        invalidateStaticBatch();
     }
 
     /**
@@ -236,6 +357,102 @@ public class GameObject extends SimpleNode<GameObject> implements Iterable<GameO
         }
     }
 
+    @Override
+    public void addChild(GameObject child) {
+        ParallelUpdater.checkWrite(this);
+        super.addChild(child);
+        if (child.staticNodes > 0) {
+            addStaticNodes(child.staticNodes);
+            child.invalidateStaticBatch();
+        }
+    }
+
+    @Override
+    public void remove() {
+        ParallelUpdater.checkWrite(this);
+        final GameObject oldParent = parent;
+        super.remove();
+        if (oldParent != null && staticNodes > 0) {
+            oldParent.addStaticNodes(-staticNodes);
+            invalidateStaticBatch();
+        }
+    }
+
+    /**
+     * @return true if this game object is part of the scene graph, i.e. the
+     *         root of the scene graph is one of its parents
+     */
+    public boolean isInSceneGraph() {
+        if (sceneGraph == null) return false;
+        for (GameObject go = this; go != null; go = go.parent) {
+            if (go == sceneGraph.root) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void translate(Vector3 v) {
+        ParallelUpdater.checkWrite(this);
+        super.translate(v);
+        invalidateStaticBatch();
+    }
+
+    @Override
+    public void translate(float x, float y, float z) {
+        ParallelUpdater.checkWrite(this);
+        super.translate(x, y, z);
+        invalidateStaticBatch();
+    }
+
+    @Override
+    public void rotate(Quaternion q) {
+        ParallelUpdater.checkWrite(this);
+        super.rotate(q);
+        invalidateStaticBatch();
+    }
+
+    @Override
+    public void rotate(float x, float y, float z, float w) {
+        ParallelUpdater.checkWrite(this);
+        super.rotate(x, y, z, w);
+        invalidateStaticBatch();
+    }
+
+    @Override
+    public void scale(Vector3 v) {
+        ParallelUpdater.checkWrite(this);
+        super.scale(v);
+        invalidateStaticBatch();
+    }
+
+    @Override
+    public void scale(float x, float y, float z) {
+        ParallelUpdater.checkWrite(this);
+        super.scale(x, y, z);
+        invalidateStaticBatch();
+    }
+
+    @Override
+    public void setLocalPosition(float x, float y, float z) {
+        ParallelUpdater.checkWrite(this);
+        super.setLocalPosition(x, y, z);
+        invalidateStaticBatch();
+    }
+
+    @Override
+    public void setLocalRotation(float x, float y, float z, float w) {
+        ParallelUpdater.checkWrite(this);
+        super.setLocalRotation(x, y, z, w);
+        invalidateStaticBatch();
+    }
+
+    @Override
+    public void setLocalScale(float x, float y, float z) {
+        ParallelUpdater.checkWrite(this);
+        super.setLocalScale(x, y, z);
+        invalidateStaticBatch();
+    }
+
     @Override
     public Iterator<GameObject> iterator() {
         return new DepthFirstIterator(this);
@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.commons.scene3d;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.mbrlabs.mundus.commons.scene3d.components.Component;
+import com.mbrlabs.mundus.commons.scene3d.components.MainThreadComponent;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Updates the root subtrees of a scene graph in parallel.
+ *
+ * Every direct child of the scene graph root is treated as an independent
+ * subtree and updated as one task on a ForkJoinPool. Inside a subtree the
+ * order is the same as in the sequential update (parent before children,
+ * children in array order). Components implementing
+ * {@link MainThreadComponent} are not updated by the workers, but collected
+ * and updated on the calling thread after all subtrees finished. Their order
+ * is deterministic as well: subtree order first, then depth first.
+ *
+ * update() only returns after all tasks are done, so it acts as the sync
+ * point before rendering.
+ *
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+public class ParallelUpdater implements Disposable {
+
+    private final ForkJoinPool pool;
+    private final Array<SubtreeTask> tasks;
+
+    /** Root of the subtree, the current worker thread is updating. Only set in debug mode. */
+    private static final ThreadLocal<GameObject> currentSubtree = new ThreadLocal<GameObject>();
+    /** Number of debug updates currently running. Avoids the thread local lookup if no checks are needed. */
+    private static final AtomicInteger checkingUpdates = new AtomicInteger(0);
+
+    private boolean debug = false;
+
+    public ParallelUpdater() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param parallelism
+     *            number of worker threads
+     */
+    public ParallelUpdater(int parallelism) {
+        this.pool = new ForkJoinPool(Math.max(1, parallelism));
+        this.tasks = new Array<SubtreeTask>();
+    }
+
+    /**
+     * Enables checks for writes across subtrees.
+     *
+     * If enabled, every modification of a game object (transform, children,
+     * components) during a parallel update is checked against the subtree the
+     * writing worker is updating. Writes to game objects of other subtrees
+     * throw a {@link CrossSubtreeWriteException}. Costs a bit of performance,
+     * so only use it while developing.
+     *
+     * @param debug
+     *            true to enable the checks
+     */
+    public void setDebug(boolean debug) {
+        this.debug = debug;
+    }
+
+    public boolean isDebug() {
+        return debug;
+    }
+
+    /**
+     * Updates all given root game objects and their children.
+     *
+     * @param roots
+     *            root game objects (direct children of the scene graph root)
+     * @param delta
+     *            time since last update
+     */
+    public void update(Array<GameObject> roots, float delta) {
+        // one task per subtree. reuse task objects to avoid garbage every frame
+        while (tasks.size < roots.size) {
+            tasks.add(new SubtreeTask());
+        }
+        for (int i = 0; i < roots.size; i++) {
+            final SubtreeTask task = tasks.get(i);
+            task.reinitialize();
+            task.root = roots.get(i);
+            task.delta = delta;
+            task.deferred.clear();
+        }
+
+        if (debug) {
+            checkingUpdates.incrementAndGet();
+            try {
+                pool.invoke(new RootTask(roots.size));
+            } finally {
+                checkingUpdates.decrementAndGet();
+            }
+        } else {
+            pool.invoke(new RootTask(roots.size));
+        }
+
+        // sync point: all workers are done, run main thread components in deterministic order
+        for (int i = 0; i < roots.size; i++) {
+            final SubtreeTask task = tasks.get(i);
+            for (Component component : task.deferred) {
+                component.update(delta);
+            }
+            task.deferred.clear();
+            task.root = null;
+        }
+    }
+
+    /**
+     * Called by game objects before they are modified.
+     *
+     * @param go
+     *            game object, that is about to be modified
+     * @throws CrossSubtreeWriteException
+     *             if the current worker thread updates another subtree
+     */
+    static void checkWrite(GameObject go) {
+        if (checkingUpdates.get() == 0) return;
+        final GameObject subtree = currentSubtree.get();
+        if (subtree == null) return;
+
+        // the scene graph root is shared by all subtrees
+        if (go.sceneGraph != null && go == go.sceneGraph.root) {
+            throw new CrossSubtreeWriteException("Scene graph root modified while updating subtree '"
+                    + subtree.name + "' on thread " + Thread.currentThread().getName());
+        }
+
+        GameObject root = go;
+        while (root.getParent() != null && root.getParent().getParent() != null) {
+            root = root.getParent();
+        }
+
+        // detached game objects (e.g. just created by this worker) are not part of any subtree
+        if (root.getParent() == null) return;
+
+        if (root != subtree) {
+            throw new CrossSubtreeWriteException("Game object '" + go.name + "' modified while updating subtree '"
+                    + subtree.name + "' on thread " + Thread.currentThread().getName());
+        }
+    }
+
+    @Override
+    public void dispose() {
+        pool.shutdown();
+    }
+
+    /**
+     * Forks one subtree task per root game object and waits for all of them.
+     */
+    private class RootTask extends RecursiveAction {
+
+        private final int count;
+
+        RootTask(int count) {
+            this.count = count;
+        }
+
+        @Override
+        protected void compute() {
+            for (int i = 0; i < count; i++) {
+                tasks.get(i).fork();
+            }
+            for (int i = 0; i < count; i++) {
+                tasks.get(i).join();
+            }
+        }
+    }
+
+    /**
+     * Updates one subtree.
+     */
+    private class SubtreeTask extends RecursiveAction {
+
+        GameObject root;
+        float delta;
+        final Array<Component> deferred = new Array<Component>();
+
+        @Override
+        protected void compute() {
+            if (debug) currentSubtree.set(root);
+            try {
+                update(root);
+            } finally {
+                if (debug) currentSubtree.remove();
+            }
+        }
+
+        private void update(GameObject go) {
+            if (!go.isActive()) return;
+
+            final Array<Component> components = go.getComponents();
+            for (int i = 0; i < components.size; i++) {
+                final Component component = components.get(i);
+                if (component instanceof MainThreadComponent) {
+                    deferred.add(component);
+                } else {
+                    component.update(delta);
+                }
+            }
+
+            final Array<GameObject> children = go.getChildren();
+            if (children != null) {
+                for (int i = 0; i < children.size; i++) {
+                    update(children.get(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Thrown in debug mode, if a worker modifies a game object of another subtree.
+     */
+    public static class CrossSubtreeWriteException extends GdxRuntimeException {
+
+        public CrossSubtreeWriteException(String message) {
+            super(message);
+        }
+
+    }
+
+}
@@ -18,8 +18,18 @@ package com.mbrlabs.mundus.commons.scene3d;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.g3d.ModelBatch;
+import com.badlogic.gdx.graphics.g3d.ModelInstance;
+import com.badlogic.gdx.graphics.g3d.Renderable;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Pool;
 import com.mbrlabs.mundus.commons.Scene;
+import com.mbrlabs.mundus.commons.env.lights.DirectionalLightsAttribute;
+import com.mbrlabs.mundus.commons.g3d.CascadedShadowMap;
+import com.mbrlabs.mundus.commons.g3d.InstancedRenderer;
+import com.mbrlabs.mundus.commons.g3d.RenderStats;
+import com.mbrlabs.mundus.commons.g3d.StaticBatcher;
+import com.mbrlabs.mundus.commons.scene3d.components.Component;
+import com.mbrlabs.mundus.commons.scene3d.components.ModelComponent;
 
 /**
  * @author Marcus Brummer
@@ -34,10 +44,24 @@ public class SceneGraph {
 
     private GameObject selected;
 
+    private ParallelUpdater parallelUpdater;
+    private final StaticBatcher staticBatcher = new StaticBatcher();
+    private InstancedRenderer instancedRenderer;
+    private final RenderStats renderStats = new RenderStats();
+
+    private CascadedShadowMap shadowMap;
+    private final Array<Renderable> shadowCasters = new Array<Renderable>();
+    private final Pool<Renderable> shadowCasterPool = new Pool<Renderable>() {
+        @Override
+        protected Renderable newObject() {
+            return new Renderable();
+        }
+    };
+
     public SceneGraph(Scene scene) {
         root = new GameObject(this, null, -1);
         root.initChildrenArray();
-        root.active = false;
+        root.setActive(false);
         this.scene = scene;
     }
 
@@ -46,11 +70,64 @@ public class SceneGraph {
     }
 
     public void render(float delta) {
+        staticBatcher.applyInvalidations();
+        renderStats.nextFrame();
+        scene.environment.setRenderStats(renderStats);
+        scene.environment.updateLightClusters(scene.cam);
+        if (shadowMap != null) {
+            renderShadowMap();
+        }
+
         batch.begin(scene.cam);
         for (GameObject go : root.getChildren()) {
             go.render(delta);
         }
+        if (staticBatcher.getMemberCount() > 0) {
+            batch.render(staticBatcher, scene.environment);
+        }
         batch.end();
+
+        if (instancedRenderer != null) {
+            instancedRenderer.render(scene.cam, scene.environment, batch.getRenderContext());
+        }
+    }
+
+    private void renderShadowMap() {
+        final DirectionalLightsAttribute dirLights = scene.environment.get(DirectionalLightsAttribute.class,
+                DirectionalLightsAttribute.Type);
+        if (dirLights == null || dirLights.lights.size == 0) {
+            scene.environment.setShadowMap(null);
+            return;
+        }
+
+        for (GameObject go : root.getChildren()) {
+            collectShadowCasters(go);
+        }
+        shadowMap.update(scene.cam, dirLights.lights.first().direction, shadowCasters);
+        shadowMap.render(batch.getRenderContext());
+        shadowCasterPool.freeAll(shadowCasters);
+        shadowCasters.clear();
+
+        scene.environment.setShadowMap(shadowMap);
+    }
+
+    private void collectShadowCasters(GameObject go) {
+        if (!go.isActive()) return;
+
+        for (Component component : go.getComponents()) {
+            if (component instanceof ModelComponent) {
+                final ModelInstance instance = ((ModelComponent) component).getModelInstance();
+                if (instance == null) continue;
+                instance.transform.set(go.getTransform());
+                instance.getRenderables(shadowCasters, shadowCasterPool);
+            }
+        }
+
+        if (go.getChildren() != null) {
+            for (GameObject child : go.getChildren()) {
+                collectShadowCasters(child);
+            }
+        }
     }
 
     public void update() {
@@ -58,11 +135,128 @@ public class SceneGraph {
     }
 
     public void update(float delta) {
+        if (parallelUpdater != null) {
+            parallelUpdater.update(root.getChildren(), delta);
+            return;
+        }
+
         for (GameObject go : root.getChildren()) {
             go.update(delta);
         }
     }
 
+    /**
+     * Enables or disables the parallel update of root subtrees.
+     *
+     * If enabled, every direct child of the root and all its children are
+     * updated as one task on a thread pool. Components, that touch GL must
+     * implement MainThreadComponent. update() returns after all tasks finished.
+     *
+     * @see ParallelUpdater
+     * @param parallel
+     *            true to update subtrees in parallel
+     */
+    public void setParallelUpdate(boolean parallel) {
+        if (parallel && parallelUpdater == null) {
+            parallelUpdater = new ParallelUpdater();
+        } else if (!parallel && parallelUpdater != null) {
+            parallelUpdater.dispose();
+            parallelUpdater = null;
+        }
+    }
+
+    public boolean isParallelUpdate() {
+        return parallelUpdater != null;
+    }
+
+    /**
+     * Returns the parallel updater.
+     *
+     * @return parallel updater or null if parallel update is disabled
+     */
+    public ParallelUpdater getParallelUpdater() {
+        return parallelUpdater;
+    }
+
+    /**
+     * Enables or disables hardware instancing for model components.
+     *
+     * If enabled, model components with equal mesh parts and materials are
+     * rendered with one instanced draw call. Instancing needs GL30; on GLES2
+     * this call has no effect and every model component is rendered on it's
+     * own.
+     *
+     * @param instancing
+     *            true to enable instancing
+     * @return true if instancing is enabled
+     */
+    public boolean setInstancing(boolean instancing) {
+        if (instancing && instancedRenderer == null && InstancedRenderer.isSupported()) {
+            instancedRenderer = new InstancedRenderer();
+        } else if (!instancing && instancedRenderer != null) {
+            instancedRenderer.dispose();
+            instancedRenderer = null;
+        }
+
+        return instancedRenderer != null;
+    }
+
+    /**
+     * Returns the instanced renderer.
+     *
+     * @return instanced renderer or null if instancing is disabled
+     */
+    public RenderStats getRenderStats() {
+        return renderStats;
+    }
+
+    public InstancedRenderer getInstancedRenderer() {
+        return instancedRenderer;
+    }
+
+    /**
+     * Enables or disables cascaded shadow maps for the first directional light
+     * of the environment.
+     *
+     * Cascade count, resolution & shadow distance can be configured with the
+     * returned shadow map.
+     *
+     * @param shadows
+     *            true to enable shadows
+     * @return shadow map or null if shadows are disabled
+     */
+    public CascadedShadowMap setShadows(boolean shadows) {
+        if (shadows && shadowMap == null) {
+            shadowMap = new CascadedShadowMap();
+        } else if (!shadows && shadowMap != null) {
+            if (scene.environment.getShadowMap() == shadowMap) {
+                scene.environment.setShadowMap(null);
+            }
+            shadowMap.dispose();
+            shadowMap = null;
+        }
+
+        return shadowMap;
+    }
+
+    /**
+     * Returns the shadow map.
+     *
+     * @return shadow map or null if shadows are disabled
+     */
+    public CascadedShadowMap getShadowMap() {
+        return shadowMap;
+    }
+
+    /**
+     * Returns the batcher, that merges static game objects.
+     *
+     * @return static batcher of this scene graph
+     */
+    public StaticBatcher getStaticBatcher() {
+        return staticBatcher;
+    }
+
     public Array<GameObject> getGameObjects() {
         return root.getChildren();
     }
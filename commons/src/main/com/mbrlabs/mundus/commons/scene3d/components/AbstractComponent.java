@@ -16,6 +16,8 @@
 
 package com.mbrlabs.mundus.commons.scene3d.components;
 
+import com.badlogic.gdx.utils.Array;
+import com.mbrlabs.mundus.commons.assets.Asset;
 import com.mbrlabs.mundus.commons.scene3d.GameObject;
 
 /**
@@ -27,6 +29,10 @@ public abstract class AbstractComponent implements Component {
     public GameObject gameObject;
     protected Type type;
 
+    // assets used by this component, retained unless released is set
+    private final Array<Asset> referencedAssets = new Array<Asset>();
+    private boolean released = false;
+
     public AbstractComponent(GameObject go) {
         this.gameObject = go;
     }
@@ -49,6 +55,54 @@ public abstract class AbstractComponent implements Component {
     @Override
     public void remove() {
         gameObject.removeComponent(this);
+        releaseAssets();
+    }
+
+    /**
+     * Replaces the assets referenced by this component. New assets are
+     * retained before the old ones are released, so assets used before and
+     * after never become unreferenced. Nothing is retained, while the assets
+     * of the component are released.
+     *
+     * @param assets
+     *            all assets the component uses now. Duplicates are ignored
+     */
+    protected void setReferencedAssets(Array<? extends Asset> assets) {
+        final Array<Asset> old = new Array<Asset>(referencedAssets);
+        referencedAssets.clear();
+        for (Asset asset : assets) {
+            if (asset == null || referencedAssets.contains(asset, true)) continue;
+            referencedAssets.add(asset);
+            if (!released) asset.retain();
+        }
+        if (released) return;
+        for (Asset asset : old) {
+            asset.release();
+        }
+    }
+
+    /**
+     * Releases all assets referenced by this component, e.g. when it is
+     * removed from the scene. retainAssets() retains them again.
+     */
+    public void releaseAssets() {
+        if (released) return;
+        released = true;
+        for (Asset asset : referencedAssets) {
+            asset.release();
+        }
+    }
+
+    /**
+     * Retains the assets released by releaseAssets() again, e.g. when a
+     * removed game object is added back to the scene.
+     */
+    public void retainAssets() {
+        if (!released) return;
+        released = false;
+        for (Asset asset : referencedAssets) {
+            asset.retain();
+        }
     }
 
 }
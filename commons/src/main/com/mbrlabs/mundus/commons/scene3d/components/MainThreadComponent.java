@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.commons.scene3d.components;
+
+/**
+ * Marker for components, that must be updated on the main (GL) thread.
+ *
+ * If the scene graph updates in parallel, the update() method of components
+ * implementing this interface is deferred until all worker threads are done
+ * and then called on the calling thread. Use this for everything that touches
+ * GL state or other non thread-safe resources.
+ *
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+public interface MainThreadComponent extends Component {
+
+}
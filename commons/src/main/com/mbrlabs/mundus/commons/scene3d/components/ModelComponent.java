@@ -16,26 +16,79 @@
 
 package com.mbrlabs.mundus.commons.scene3d.components;
 
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Camera;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.PerspectiveCamera;
 import com.badlogic.gdx.graphics.g3d.Material;
 import com.badlogic.gdx.graphics.g3d.ModelInstance;
 import com.badlogic.gdx.graphics.g3d.Shader;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.math.collision.BoundingBox;
+import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.ObjectMap;
+import com.mbrlabs.mundus.commons.assets.Asset;
 import com.mbrlabs.mundus.commons.assets.MaterialAsset;
 import com.mbrlabs.mundus.commons.assets.ModelAsset;
+import com.mbrlabs.mundus.commons.g3d.InstancedRenderer;
 import com.mbrlabs.mundus.commons.scene3d.GameObject;
 
+import java.util.Comparator;
+
 /**
+ * Renders a model asset.
+ *
+ * Optionally holds a list of lower detail models (LODs). Once per frame the
+ * screen coverage of the cached bounding sphere is computed and the matching
+ * level is selected. To avoid popping at the thresholds a coarser level is
+ * only selected, if the coverage drops LOD_HYSTERESIS below the threshold.
+ * Components merged by the static batcher always use the base model.
+ *
+ * Components outside the camera frustum are culled in render(), before they
+ * are handed to the model batch or the instanced renderer.
+ *
+ * In headless mode the model asset is not uploaded. The component then has
+ * no model instances and takes its bounds from the model asset. The instances
+ * are created in the first render() call after the model has been uploaded.
+ *
  * @author Marcus Brummer
  * @version 17-01-2016
  */
 public class ModelComponent extends AbstractComponent {
 
+    /** Relative band below a threshold, in which the current finer level is kept. */
+    public static final float LOD_HYSTERESIS = 0.1f;
+
+    private static final Vector3 tmpV3 = new Vector3();
+    private static final Vector3 tmpScale = new Vector3();
+    private static final BoundingBox tmpBounds = new BoundingBox();
+    private static final Array<Asset> tmpAssets = new Array<Asset>();
+
+    private static final Comparator<ModelLod> LOD_COMPARATOR = new Comparator<ModelLod>() {
+        @Override
+        public int compare(ModelLod o1, ModelLod o2) {
+            return Float.compare(o2.getScreenSize(), o1.getScreenSize());
+        }
+    };
+
     protected ModelAsset modelAsset;
     protected ModelInstance modelInstance;
     protected Shader shader;
 
     protected ObjectMap<String, MaterialAsset> materials;  // g3db material id to material asset uuid
 
+    // levels of detail, ordered by descending screen size. level 0 is the base model
+    protected ModelInstance baseModelInstance;
+    protected final Array<ModelLod> lods = new Array<ModelLod>();
+    private int currentLod = 0;
+    private long lodFrame = -1;
+
+    // bounding sphere of the base model in model space
+    private final Vector3 boundsCenter = new Vector3();
+    private float boundsRadius;
+
     public ModelComponent(GameObject go, Shader shader) {
         super(go);
         type = Type.MODEL;
@@ -53,14 +106,19 @@ public class ModelComponent extends AbstractComponent {
 
     public void setModel(ModelAsset model, boolean inheritMaterials) {
         this.modelAsset = model;
-        modelInstance = new ModelInstance(model.getModel());
-        modelInstance.transform = gameObject.getTransform();
+        createModelInstance();
+
+        lods.clear();
+        updateReferences();
 
-        // apply default materials of model
+        // apply default materials & levels of detail of model
         if (inheritMaterials) {
             for (String g3dbMatID : model.getDefaultMaterials().keySet()) {
                 materials.put(g3dbMatID, model.getDefaultMaterials().get(g3dbMatID));
             }
+            for (int i = 0; i < model.getDefaultLods().size; i++) {
+                addLod(model.getDefaultLods().get(i), model.getDefaultLodScreenSizes().get(i));
+            }
         }
         applyMaterials();
     }
@@ -74,7 +132,17 @@ public class ModelComponent extends AbstractComponent {
     }
 
     public void applyMaterials() {
-        for (Material mat : modelInstance.materials) {
+        applyMaterials(baseModelInstance);
+        for (ModelLod lod : lods) {
+            applyMaterials(lod.getModelInstance());
+        }
+        gameObject.invalidateStaticBatch();
+        updateReferences();
+    }
+
+    private void applyMaterials(ModelInstance instance) {
+        if (instance == null) return;
+        for (Material mat : instance.materials) {
             MaterialAsset materialAsset = materials.get(mat.id);
             if (materialAsset == null) continue;
 
@@ -82,12 +150,248 @@ public class ModelComponent extends AbstractComponent {
         }
     }
 
+    /**
+     * Retains the model, levels of detail and materials currently used and
+     * releases the ones not used any more.
+     */
+    private void updateReferences() {
+        tmpAssets.clear();
+        tmpAssets.add(modelAsset);
+        for (ModelLod lod : lods) {
+            tmpAssets.add(lod.getModelAsset());
+        }
+        for (MaterialAsset materialAsset : materials.values()) {
+            tmpAssets.add(materialAsset);
+        }
+        setReferencedAssets(tmpAssets);
+        tmpAssets.clear();
+    }
+
+    /**
+     * Creates the base model instance. In headless mode the model is not
+     * uploaded, so there is no instance and the bounds are taken from the
+     * model asset.
+     */
+    private void createModelInstance() {
+        if (modelAsset.getModel() != null) {
+            modelInstance = new ModelInstance(modelAsset.getModel());
+            modelInstance.transform = gameObject.getTransform();
+        } else {
+            modelInstance = null;
+        }
+        baseModelInstance = modelInstance;
+        currentLod = 0;
+        updateBounds();
+    }
+
+    /**
+     * Creates the model instances, if the model has been uploaded after this
+     * component was set up headless.
+     *
+     * @return true if the component has a model instance
+     */
+    private boolean attachModel() {
+        if (baseModelInstance != null) return true;
+        if (modelAsset == null || modelAsset.getModel() == null) return false;
+
+        createModelInstance();
+        // lods create their instances lazily, the static batch picks up the new instance
+        applyMaterials();
+        return true;
+    }
+
+    /**
+     * @return model instance of the currently selected level of detail. Null
+     *         in headless mode
+     */
     public ModelInstance getModelInstance() {
         return modelInstance;
     }
 
+    /**
+     * @return model instance of the base model (level 0)
+     */
+    public ModelInstance getBaseModelInstance() {
+        return baseModelInstance;
+    }
+
+    /**
+     * Adds a level of detail.
+     *
+     * Levels are kept ordered by descending screen size, so the order of
+     * calls does not matter. Materials of the component are applied to the
+     * new level as well, since LODs are expected to use the same g3db
+     * material ids as the base model.
+     *
+     * @param model
+     *            lower detail model
+     * @param screenSize
+     *            screen coverage below which the level is used
+     * @return the new level
+     */
+    public ModelLod addLod(ModelAsset model, float screenSize) {
+        final ModelLod lod = new ModelLod(model, screenSize);
+        int index = 0;
+        while (index < lods.size && lods.get(index).getScreenSize() >= screenSize) {
+            index++;
+        }
+        lods.insert(index, lod);
+        applyMaterials(lod.getModelInstance());
+        resetLod();
+        updateReferences();
+        return lod;
+    }
+
+    /**
+     * Changes the screen size of a level and restores the order.
+     */
+    public void setLodScreenSize(ModelLod lod, float screenSize) {
+        lod.setScreenSize(screenSize);
+        lods.sort(LOD_COMPARATOR);
+        resetLod();
+    }
+
+    public void removeLod(ModelLod lod) {
+        lods.removeValue(lod, true);
+        resetLod();
+        updateReferences();
+    }
+
+    public void clearLods() {
+        lods.clear();
+        resetLod();
+        updateReferences();
+    }
+
+    /**
+     * @return levels of detail without the base model, ordered by descending
+     *         screen size
+     */
+    public Array<ModelLod> getLods() {
+        return lods;
+    }
+
+    /**
+     * @return currently selected level. 0 is the base model, i is getLods().get(i - 1)
+     */
+    public int getCurrentLod() {
+        return currentLod;
+    }
+
+    /**
+     * Selects the level of detail for the given camera. Does nothing if it
+     * was already called in the current frame.
+     *
+     * @param cam
+     *            camera
+     */
+    public void selectLod(Camera cam) {
+        if (lods.size == 0 || cam == null) return;
+        final long frame = Gdx.graphics.getFrameId();
+        if (frame == lodFrame) return;
+        lodFrame = frame;
+
+        final float coverage = screenCoverage(cam, gameObject.getTransform());
+
+        int level = currentLod;
+        // coarser: only if clearly below the threshold
+        while (level < lods.size && coverage < lods.get(level).getScreenSize() * (1f - LOD_HYSTERESIS)) {
+            level++;
+        }
+        // finer: as soon as the threshold of the finer level is reached
+        while (level > 0 && coverage >= lods.get(level - 1).getScreenSize()) {
+            level--;
+        }
+
+        setLod(level);
+    }
+
+    /**
+     * Computes the projected size of the bounding sphere relative to the
+     * viewport height.
+     */
+    private float screenCoverage(Camera cam, Matrix4 transform) {
+        final float radius = worldBoundsRadius(transform);
+
+        if (cam instanceof OrthographicCamera) {
+            final OrthographicCamera ortho = (OrthographicCamera) cam;
+            return radius / (ortho.viewportHeight * ortho.zoom * 0.5f);
+        }
+
+        tmpV3.set(boundsCenter).mul(transform);
+        final float dist = tmpV3.dst(cam.position);
+        if (dist <= radius) return Float.MAX_VALUE;
+
+        final float fov = cam instanceof PerspectiveCamera ? ((PerspectiveCamera) cam).fieldOfView : 67f;
+        return radius / (dist * (float) Math.tan(fov * 0.5f * MathUtils.degreesToRadians));
+    }
+
+    /**
+     * Tests the bounding sphere of the base model against the camera
+     * frustum.
+     *
+     * @param cam
+     *            camera
+     * @return true if the component may be visible
+     */
+    public boolean isVisible(Camera cam) {
+        if (cam == null) return true;
+        final Matrix4 transform = gameObject.getTransform();
+        final float radius = worldBoundsRadius(transform);
+        tmpV3.set(boundsCenter).mul(transform);
+        return cam.frustum.sphereInFrustum(tmpV3, radius);
+    }
+
+    // radius of the bounding sphere, scaled by the largest axis of the transform
+    private float worldBoundsRadius(Matrix4 transform) {
+        transform.getScale(tmpScale);
+        return boundsRadius * Math.max(Math.abs(tmpScale.x), Math.max(Math.abs(tmpScale.y), Math.abs(tmpScale.z)));
+    }
+
+    // back to the base model, selected again in the next render call
+    private void resetLod() {
+        lodFrame = -1;
+        setLod(0);
+    }
+
+    private void setLod(int level) {
+        currentLod = Math.min(level, lods.size);
+        final ModelInstance selected = currentLod == 0 ? baseModelInstance
+                : lods.get(currentLod - 1).getModelInstance();
+        if (selected != null && selected != modelInstance) {
+            selected.transform.set(gameObject.getTransform());
+            modelInstance = selected;
+        }
+    }
+
+    private void updateBounds() {
+        if (baseModelInstance != null) {
+            baseModelInstance.calculateBoundingBox(tmpBounds);
+        } else {
+            tmpBounds.set(modelAsset.getBounds());
+        }
+        tmpBounds.getCenter(boundsCenter);
+        boundsRadius = tmpBounds.getDimensions(tmpV3).len() * 0.5f;
+    }
+
     @Override
     public void render(float delta) {
+        if (!attachModel()) return;
+
+        // rendered as part of a merged mesh
+        if (gameObject.isStatic() && gameObject.sceneGraph.getStaticBatcher().isBatched(this)) return;
+
+        final Camera cam = gameObject.sceneGraph.scene.cam;
+        if (!isVisible(cam)) return;
+        selectLod(cam);
+
+        // rendered by the instanced renderer after the model batch finished
+        final InstancedRenderer instancedRenderer = gameObject.sceneGraph.getInstancedRenderer();
+        if (instancedRenderer != null && InstancedRenderer.canRender(this)) {
+            instancedRenderer.add(this);
+            return;
+        }
+
         modelInstance.transform.set(gameObject.getTransform());
         gameObject.sceneGraph.batch.render(modelInstance, gameObject.sceneGraph.scene.environment, shader);
     }
@@ -100,10 +404,23 @@ public class ModelComponent extends AbstractComponent {
     @Override
     public Component clone(GameObject go) {
         ModelComponent mc = new ModelComponent(go, shader);
-        mc.modelAsset = this.modelAsset;
-        mc.modelInstance = new ModelInstance(modelAsset.getModel());
-        mc.shader = this.shader;
+        mc.copyFrom(this);
         return mc;
     }
 
+    /**
+     * Copies model, materials and levels of detail of another component and
+     * retains them for this one. Works in headless mode as well, the model
+     * instances are created once the model has been uploaded.
+     */
+    protected void copyFrom(ModelComponent other) {
+        shader = other.shader;
+        setModel(other.modelAsset, false);
+        materials.putAll(other.materials);
+        for (ModelLod lod : other.lods) {
+            addLod(lod.getModelAsset(), lod.getScreenSize());
+        }
+        applyMaterials();
+    }
+
 }
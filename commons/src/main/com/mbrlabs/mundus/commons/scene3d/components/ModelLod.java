@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mbrlabs.mundus.commons.scene3d.components;
+
+import com.badlogic.gdx.graphics.g3d.ModelInstance;
+import com.mbrlabs.mundus.commons.assets.ModelAsset;
+
+/**
+ * One level of detail of a model component.
+ *
+ * The level is used as long as the screen coverage of the component is below
+ * screenSize. Screen coverage is the projected radius of the bounding sphere
+ * divided by half the viewport height, i.e. 1 if the sphere fills the screen
+ * vertically.
+ *
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+public class ModelLod {
+
+    private final ModelAsset model;
+    private ModelInstance modelInstance;
+    private float screenSize;
+
+    public ModelLod(ModelAsset model, float screenSize) {
+        this.model = model;
+        if (model.getModel() != null) {
+            this.modelInstance = new ModelInstance(model.getModel());
+        }
+        this.screenSize = screenSize;
+    }
+
+    public ModelAsset getModelAsset() {
+        return model;
+    }
+
+    /**
+     * @return model instance or null, if the model is not uploaded yet (headless mode)
+     */
+    public ModelInstance getModelInstance() {
+        if (modelInstance == null && model.getModel() != null) {
+            modelInstance = new ModelInstance(model.getModel());
+        }
+        return modelInstance;
+    }
+
+    public float getScreenSize() {
+        return screenSize;
+    }
+
+    public void setScreenSize(float screenSize) {
+        this.screenSize = screenSize;
+    }
+
+}
@@ -17,6 +17,7 @@
 package com.mbrlabs.mundus.commons.scene3d.components;
 
 import com.badlogic.gdx.graphics.g3d.Shader;
+import com.badlogic.gdx.utils.Array;
 import com.mbrlabs.mundus.commons.assets.TerrainAsset;
 import com.mbrlabs.mundus.commons.scene3d.GameObject;
 
@@ -39,6 +40,7 @@ public class TerrainComponent extends AbstractComponent {
 
     public void setTerrain(TerrainAsset terrain) {
         this.terrain = terrain;
+        setReferencedAssets(Array.with(terrain));
     }
 
     public TerrainAsset getTerrain() {
@@ -16,13 +16,18 @@
 
 package com.mbrlabs.mundus.commons.shaders;
 
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Camera;
 import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.GL30;
+import com.badlogic.gdx.graphics.GLTexture;
+import com.badlogic.gdx.graphics.g3d.Material;
 import com.badlogic.gdx.graphics.g3d.Renderable;
 import com.badlogic.gdx.graphics.g3d.Shader;
 import com.badlogic.gdx.graphics.g3d.attributes.ColorAttribute;
 import com.badlogic.gdx.graphics.g3d.attributes.FloatAttribute;
 import com.badlogic.gdx.graphics.g3d.attributes.TextureAttribute;
+import com.badlogic.gdx.graphics.g3d.model.MeshPart;
 import com.badlogic.gdx.graphics.g3d.shaders.BaseShader;
 import com.badlogic.gdx.graphics.g3d.utils.RenderContext;
 import com.badlogic.gdx.graphics.glutils.ShaderProgram;
@@ -31,8 +36,14 @@ import com.mbrlabs.mundus.commons.env.Fog;
 import com.mbrlabs.mundus.commons.env.MundusEnvironment;
 import com.mbrlabs.mundus.commons.env.lights.DirectionalLight;
 import com.mbrlabs.mundus.commons.env.lights.DirectionalLightsAttribute;
+import com.mbrlabs.mundus.commons.env.lights.LightClusters;
+import com.mbrlabs.mundus.commons.g3d.CascadedShadowMap;
+import com.mbrlabs.mundus.commons.g3d.RenderStats;
+import com.mbrlabs.mundus.commons.g3d.SortKeyRenderableSorter;
 import com.mbrlabs.mundus.commons.utils.ShaderUtils;
 
+import java.util.Arrays;
+
 /**
  * @author Marcus Brummer
  * @version 22-11-2015
@@ -66,21 +77,91 @@ public class ModelShader extends BaseShader {
     protected final int UNIFORM_FOG_GRADIENT = register(new Uniform("u_fogGradient"));
     protected final int UNIFORM_FOG_COLOR = register(new Uniform("u_fogColor"));
 
+    // ============================ SHADOWS ============================
+    protected final int UNIFORM_LIGHT_VIEW = register(new Uniform("u_lightView"));
+    protected final int UNIFORM_SHADOWS_ACTIVE = register(new Uniform("u_shadowsActive"));
+    protected final int UNIFORM_CASCADE_COUNT = register(new Uniform("u_cascadeCount"));
+    protected final int UNIFORM_CASCADE_TRANSFORMS = register(new Uniform("u_cascadeTransforms[0]"));
+    protected final int UNIFORM_CASCADE_DEPTHS = register(new Uniform("u_cascadeDepths[0]"));
+    protected final int UNIFORM_SHADOW_ATLAS_SCALE = register(new Uniform("u_shadowAtlasScale"));
+    protected final int UNIFORM_SHADOW_TEXEL_SIZE = register(new Uniform("u_shadowTexelSize"));
+    protected final int UNIFORM_SHADOW_BIAS = register(new Uniform("u_shadowBias"));
+    protected final int UNIFORM_SHADOW_MAP = register(new Uniform("u_shadowMap"));
+
+    // ============================ CLUSTERED LIGHTS ============================
+    protected final int UNIFORM_CLUSTERS_ACTIVE = register(new Uniform("u_clustersActive"));
+    protected final int UNIFORM_CLUSTER_SIZE = register(new Uniform("u_clusterSize"));
+    protected final int UNIFORM_CLUSTER_DEPTH = register(new Uniform("u_clusterDepth"));
+    protected final int UNIFORM_CLUSTER_TEXTURE = register(new Uniform("u_clusterTexture"));
+    protected final int UNIFORM_LIGHT_INDEX_TEXTURE = register(new Uniform("u_lightIndexTexture"));
+    protected final int UNIFORM_LIGHT_DATA_TEXTURE = register(new Uniform("u_lightDataTexture"));
+
+    // ============================ INSTANCING ============================
+    public static final String ATTRIBUTE_INSTANCE_TRANSFORM = "a_instanceTransform";
+
     private ShaderProgram program;
+    private final boolean instanced;
+    private int instanceTransformLocation = -1;
+
+    // environment uniforms stay in the program across frames. they are only
+    // uploaded again if the environment or its version changes
+    private MundusEnvironment lastEnvironment;
+    private int lastEnvironmentVersion;
+
+    // state of the previous renderable. renderables are sorted by state, so
+    // consecutive renderables often share it & binds can be skipped
+    private Material lastMaterial;
+
+    // light clusters, that are currently set in the program & texture units of their textures
+    private LightClusters lastClusters;
+    private int lastClusterUpdate = -2;
+    private final int[] clusterTextureUnits = new int[3];
+
+    // shadow map, that is currently set in the program & texture unit of it's texture
+    private CascadedShadowMap lastShadowMap;
+    private int lastShadowMapUpdate = -2;
+    private int shadowMapUnit = -1;
 
     public ModelShader() {
+        this(false);
+    }
+
+    /**
+     * @param instanced
+     *            if true, the world transform is read from the per instance
+     *            attribute a_instanceTransform instead of a uniform. Needs
+     *            GL30.
+     */
+    public ModelShader(boolean instanced) {
         super();
-        program = ShaderUtils.compile(VERTEX_SHADER, FRAGMENT_SHADER);
+        this.instanced = instanced;
+        final String clusteredLights = ShaderUtils.clusteredLightsDefine();
+        if (instanced) {
+            program = ShaderUtils.compile(VERTEX_SHADER, FRAGMENT_SHADER,
+                    ShaderUtils.glsl3Prefix() + "#define INSTANCED\n" + clusteredLights);
+        } else if (clusteredLights.length() > 0) {
+            program = ShaderUtils.compile(VERTEX_SHADER, FRAGMENT_SHADER,
+                    ShaderUtils.glsl3Prefix() + clusteredLights);
+        } else {
+            program = ShaderUtils.compile(VERTEX_SHADER, FRAGMENT_SHADER);
+        }
     }
 
     @Override
     public void init() {
         super.init(program, null);
+        if (instanced) {
+            instanceTransformLocation = program.getAttributeLocation(ATTRIBUTE_INSTANCE_TRANSFORM);
+        }
+    }
+
+    public boolean isInstanced() {
+        return instanced;
     }
 
     @Override
     public int compareTo(Shader other) {
-        return 0;
+        return SortKeyRenderableSorter.compareShaders(this, other);
     }
 
     @Override
@@ -99,23 +180,185 @@ public class ModelShader extends BaseShader {
 
         program.begin();
 
+        lastMaterial = null;
+        Arrays.fill(clusterTextureUnits, -1);
+        shadowMapUnit = -1;
+
         set(UNIFORM_PROJ_VIEW_MATRIX, camera.combined);
         set(UNIFORM_CAM_POS, camera.position);
     }
 
     @Override
     public void render(Renderable renderable) {
+        set(UNIFORM_TRANS_MATRIX, renderable.worldTransform);
+        bindMaterialAndEnvironment(renderable);
+
+        // bind attributes, bind mesh & render; then unbinds everything
+        renderable.meshPart.render(program);
+    }
+
+    /**
+     * Renders several instances of one renderable with one draw call.
+     *
+     * The world transforms are read from a vertex buffer, that holds one
+     * column major 4x4 float matrix per instance. The world transform of the
+     * renderable is ignored. Only works if this shader was created with
+     * instanced = true.
+     *
+     * @param renderable
+     *            mesh part, material & environment of all instances
+     * @param instanceBuffer
+     *            GL handle of the buffer with the instance transforms
+     * @param byteOffset
+     *            offset of the first instance transform in the buffer
+     * @param instanceCount
+     *            number of instances
+     */
+    public void renderInstanced(Renderable renderable, int instanceBuffer, int byteOffset, int instanceCount) {
+        final GL30 gl = Gdx.gl30;
+        bindMaterialAndEnvironment(renderable);
+
+        final MeshPart part = renderable.meshPart;
+        part.mesh.bind(program);
+
+        // a mat4 attribute occupies 4 consecutive locations, one per column
+        gl.glBindBuffer(GL20.GL_ARRAY_BUFFER, instanceBuffer);
+        for (int i = 0; i < 4; i++) {
+            final int location = instanceTransformLocation + i;
+            gl.glEnableVertexAttribArray(location);
+            gl.glVertexAttribPointer(location, 4, GL20.GL_FLOAT, false, 64, byteOffset + i * 16);
+            gl.glVertexAttribDivisor(location, 1);
+        }
+        gl.glBindBuffer(GL20.GL_ARRAY_BUFFER, 0);
+
+        if (part.mesh.getNumIndices() > 0) {
+            gl.glDrawElementsInstanced(part.primitiveType, part.size, GL20.GL_UNSIGNED_SHORT, part.offset * 2,
+                    instanceCount);
+        } else {
+            gl.glDrawArraysInstanced(part.primitiveType, part.offset, part.size, instanceCount);
+        }
+
+        for (int i = 0; i < 4; i++) {
+            final int location = instanceTransformLocation + i;
+            gl.glVertexAttribDivisor(location, 0);
+            gl.glDisableVertexAttribArray(location);
+        }
+        part.mesh.unbind(program);
+    }
+
+    private void bindMaterialAndEnvironment(Renderable renderable) {
         final MundusEnvironment env = (MundusEnvironment) renderable.environment;
+        final RenderStats stats = env.getRenderStats();
 
-        setLights(env);
-        set(UNIFORM_TRANS_MATRIX, renderable.worldTransform);
+        // lights & fog
+        if (env != lastEnvironment || env.getVersion() != lastEnvironmentVersion) {
+            setLights(env);
+            setFog(env);
+            lastEnvironment = env;
+            lastEnvironmentVersion = env.getVersion();
+            if (stats != null) stats.binds++;
+        } else if (stats != null) {
+            stats.savedBinds++;
+        }
+        bindLightClusters(env);
+        bindShadowMap(env);
 
-        // texture uniform
-        TextureAttribute diffuseTexture = ((TextureAttribute) (renderable.material.get(TextureAttribute.Diffuse)));
-        ColorAttribute diffuseColor = ((ColorAttribute) (renderable.material.get(ColorAttribute.Diffuse)));
+        // material
+        if (renderable.material != lastMaterial) {
+            setMaterial(renderable.material);
+            lastMaterial = renderable.material;
+            if (stats != null) stats.binds++;
+        } else if (stats != null) {
+            stats.savedBinds++;
+        }
 
+        // the cluster & shadow textures may have moved the diffuse texture to another unit. Bind it every time,
+        // the texture binder doesn't rebind it if it is still bound
+        final TextureAttribute diffuseTexture = (TextureAttribute) renderable.material.get(TextureAttribute.Diffuse);
         if (diffuseTexture != null) {
             set(UNIFORM_MATERIAL_DIFFUSE_TEXTURE, diffuseTexture.textureDescription.texture);
+        }
+    }
+
+    /**
+     * Sets the cascades & binds the shadow map of the environment.
+     */
+    private void bindShadowMap(MundusEnvironment env) {
+        if (!has(UNIFORM_SHADOWS_ACTIVE)) return;
+
+        final CascadedShadowMap shadowMap = env.getShadowMap();
+        final boolean active = shadowMap != null && shadowMap.isActive();
+        final int update = shadowMap == null ? -1 : shadowMap.getUpdateCount();
+        if (shadowMap != lastShadowMap || update != lastShadowMapUpdate) {
+            set(UNIFORM_SHADOWS_ACTIVE, active ? 1 : 0);
+            if (active) {
+                final int cascades = shadowMap.getCascadeCount();
+                final int columns = shadowMap.getAtlasColumns();
+                final int rows = shadowMap.getAtlasRows();
+                set(UNIFORM_LIGHT_VIEW, shadowMap.getLightView());
+                set(UNIFORM_CASCADE_COUNT, cascades);
+                program.setUniform4fv(loc(UNIFORM_CASCADE_TRANSFORMS), shadowMap.getCascadeTransforms(), 0,
+                        cascades * 4);
+                program.setUniform4fv(loc(UNIFORM_CASCADE_DEPTHS), shadowMap.getCascadeDepths(), 0, cascades * 4);
+                set(UNIFORM_SHADOW_ATLAS_SCALE, 1f / columns, 1f / rows);
+                set(UNIFORM_SHADOW_TEXEL_SIZE, 1f / (columns * shadowMap.getResolution()),
+                        1f / (rows * shadowMap.getResolution()));
+                set(UNIFORM_SHADOW_BIAS, shadowMap.getBias());
+            }
+            lastShadowMap = shadowMap;
+            lastShadowMapUpdate = update;
+        }
+        if (!active) return;
+
+        final int unit = context.textureBinder.bind(shadowMap.getTexture());
+        if (unit != shadowMapUnit) {
+            program.setUniformi(loc(UNIFORM_SHADOW_MAP), unit);
+            shadowMapUnit = unit;
+        }
+    }
+
+    /**
+     * Binds the point & spot light clusters of the environment, if the
+     * program supports clustered lighting.
+     */
+    private void bindLightClusters(MundusEnvironment env) {
+        if (!has(UNIFORM_CLUSTERS_ACTIVE)) return;
+
+        final LightClusters clusters = env.getLightClusters();
+        final boolean active = clusters != null && clusters.getLightCount() > 0;
+        final int update = clusters == null ? -1 : clusters.getUpdateCount();
+        if (clusters != lastClusters || update != lastClusterUpdate) {
+            set(UNIFORM_CLUSTERS_ACTIVE, active ? 1 : 0);
+            if (active) {
+                set(UNIFORM_CLUSTER_SIZE, clusters.getSizeX(), clusters.getSizeY(), clusters.getSizeZ());
+                set(UNIFORM_CLUSTER_DEPTH, clusters.getDepthScale(), clusters.getDepthBias());
+            }
+            lastClusters = clusters;
+            lastClusterUpdate = update;
+        }
+        if (!active) return;
+
+        // textures may have been moved to other units by the texture binder
+        bindClusterTexture(0, UNIFORM_CLUSTER_TEXTURE, clusters.getClusterTexture());
+        bindClusterTexture(1, UNIFORM_LIGHT_INDEX_TEXTURE, clusters.getLightIndexTexture());
+        bindClusterTexture(2, UNIFORM_LIGHT_DATA_TEXTURE, clusters.getLightDataTexture());
+    }
+
+    private void bindClusterTexture(int index, int uniform, GLTexture texture) {
+        final int unit = context.textureBinder.bind(texture);
+        if (unit != clusterTextureUnits[index]) {
+            program.setUniformi(loc(uniform), unit);
+            clusterTextureUnits[index] = unit;
+        }
+    }
+
+    private void setMaterial(Material material) {
+        // texture uniform
+        TextureAttribute diffuseTexture = ((TextureAttribute) (material.get(TextureAttribute.Diffuse)));
+        ColorAttribute diffuseColor = ((ColorAttribute) (material.get(ColorAttribute.Diffuse)));
+
+        if (diffuseTexture != null) {
+            // the texture itself is bound for every renderable
             set(UNIFORM_MATERIAL_DIFFUSE_USE_TEXTURE, 1);
         } else {
             set(UNIFORM_MATERIAL_DIFFUSE_COLOR, diffuseColor.color);
@@ -123,10 +366,11 @@ public class ModelShader extends BaseShader {
         }
 
         // shininess
-        float shininess = ((FloatAttribute)renderable.material.get(FloatAttribute.Shininess)).value;
+        float shininess = ((FloatAttribute) material.get(FloatAttribute.Shininess)).value;
         set(UNIFORM_MATERIAL_SHININESS, shininess);
+    }
 
-        // Fog
+    private void setFog(MundusEnvironment env) {
         final Fog fog = env.getFog();
         if (fog == null) {
             set(UNIFORM_FOG_DENSITY, 0f);
@@ -136,9 +380,6 @@ public class ModelShader extends BaseShader {
             set(UNIFORM_FOG_GRADIENT, fog.gradient);
             set(UNIFORM_FOG_COLOR, fog.color);
         }
-
-        // bind attributes, bind mesh & render; then unbinds everything
-        renderable.meshPart.render(program);
     }
 
     private void setLights(MundusEnvironment env) {
@@ -159,7 +400,7 @@ public class ModelShader extends BaseShader {
             set(UNIFORM_DIRECTIONAL_LIGHT_INTENSITY, light.intensity);
         }
 
-        // TODO point lights, spot lights
+        // point & spot lights are clustered, see bindLightClusters()
     }
 
     @Override
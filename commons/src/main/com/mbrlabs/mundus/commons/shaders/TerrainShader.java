@@ -18,6 +18,8 @@ package com.mbrlabs.mundus.commons.shaders;
 
 import com.badlogic.gdx.graphics.Camera;
 import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.GLTexture;
+import com.badlogic.gdx.graphics.g3d.Material;
 import com.badlogic.gdx.graphics.g3d.Renderable;
 import com.badlogic.gdx.graphics.g3d.Shader;
 import com.badlogic.gdx.graphics.g3d.shaders.BaseShader;
@@ -30,11 +32,17 @@ import com.mbrlabs.mundus.commons.env.Fog;
 import com.mbrlabs.mundus.commons.env.MundusEnvironment;
 import com.mbrlabs.mundus.commons.env.lights.DirectionalLight;
 import com.mbrlabs.mundus.commons.env.lights.DirectionalLightsAttribute;
+import com.mbrlabs.mundus.commons.env.lights.LightClusters;
+import com.mbrlabs.mundus.commons.g3d.CascadedShadowMap;
+import com.mbrlabs.mundus.commons.g3d.RenderStats;
+import com.mbrlabs.mundus.commons.g3d.SortKeyRenderableSorter;
 import com.mbrlabs.mundus.commons.terrain.SplatTexture;
 import com.mbrlabs.mundus.commons.terrain.TerrainTexture;
 import com.mbrlabs.mundus.commons.terrain.TerrainTextureAttribute;
 import com.mbrlabs.mundus.commons.utils.ShaderUtils;
 
+import java.util.Arrays;
+
 /**
  * @author Marcus Brummer
  * @version 22-11-2015
@@ -72,13 +80,58 @@ public class TerrainShader extends BaseShader {
     protected final int UNIFORM_FOG_GRADIENT = register(new Uniform("u_fogGradient"));
     protected final int UNIFORM_FOG_COLOR = register(new Uniform("u_fogColor"));
 
+    // ============================ SHADOWS ============================
+    protected final int UNIFORM_LIGHT_VIEW = register(new Uniform("u_lightView"));
+    protected final int UNIFORM_SHADOWS_ACTIVE = register(new Uniform("u_shadowsActive"));
+    protected final int UNIFORM_CASCADE_COUNT = register(new Uniform("u_cascadeCount"));
+    protected final int UNIFORM_CASCADE_TRANSFORMS = register(new Uniform("u_cascadeTransforms[0]"));
+    protected final int UNIFORM_CASCADE_DEPTHS = register(new Uniform("u_cascadeDepths[0]"));
+    protected final int UNIFORM_SHADOW_ATLAS_SCALE = register(new Uniform("u_shadowAtlasScale"));
+    protected final int UNIFORM_SHADOW_TEXEL_SIZE = register(new Uniform("u_shadowTexelSize"));
+    protected final int UNIFORM_SHADOW_BIAS = register(new Uniform("u_shadowBias"));
+    protected final int UNIFORM_SHADOW_MAP = register(new Uniform("u_shadowMap"));
+
+    // ============================ CLUSTERED LIGHTS ============================
+    protected final int UNIFORM_CLUSTERS_ACTIVE = register(new Uniform("u_clustersActive"));
+    protected final int UNIFORM_CLUSTER_SIZE = register(new Uniform("u_clusterSize"));
+    protected final int UNIFORM_CLUSTER_DEPTH = register(new Uniform("u_clusterDepth"));
+    protected final int UNIFORM_CLUSTER_TEXTURE = register(new Uniform("u_clusterTexture"));
+    protected final int UNIFORM_LIGHT_INDEX_TEXTURE = register(new Uniform("u_lightIndexTexture"));
+    protected final int UNIFORM_LIGHT_DATA_TEXTURE = register(new Uniform("u_lightDataTexture"));
 
     private Vector2 terrainSize = new Vector2();
 
     protected ShaderProgram program;
 
+    // environment uniforms stay in the program across frames. they are only
+    // uploaded again if the environment or its version changes
+    protected MundusEnvironment lastEnvironment;
+    protected int lastEnvironmentVersion;
+
+    // material of the previous renderable, used to count saved binds
+    protected Material lastMaterial;
+
+    // light clusters, that are currently set in the program & texture units of their textures
+    private LightClusters lastClusters;
+    private int lastClusterUpdate = -2;
+    private final int[] clusterTextureUnits = new int[3];
+
+    // shadow map, that is currently set in the program & texture unit of it's texture
+    private CascadedShadowMap lastShadowMap;
+    private int lastShadowMapUpdate = -2;
+    private int shadowMapUnit = -1;
+
     public TerrainShader() {
-        program = ShaderUtils.compile(VERTEX_SHADER, FRAGMENT_SHADER);
+        program = ShaderUtils.compile(VERTEX_SHADER, FRAGMENT_SHADER, prefix());
+    }
+
+    /**
+     * @return prefix for the shader sources. Enables clustered lighting if
+     *         supported
+     */
+    protected static String prefix() {
+        final String clusteredLights = ShaderUtils.clusteredLightsDefine();
+        return clusteredLights.length() > 0 ? ShaderUtils.glsl3Prefix() + clusteredLights : "";
     }
 
     @Override
@@ -88,7 +141,7 @@ public class TerrainShader extends BaseShader {
 
     @Override
     public int compareTo(Shader other) {
-        return 0;
+        return SortKeyRenderableSorter.compareShaders(this, other);
     }
 
     @Override
@@ -107,31 +160,130 @@ public class TerrainShader extends BaseShader {
 
         program.begin();
 
+        lastMaterial = null;
+        Arrays.fill(clusterTextureUnits, -1);
+        shadowMapUnit = -1;
+
         set(UNIFORM_PROJ_VIEW_MATRIX, camera.combined);
         set(UNIFORM_CAM_POS, camera.position);
     }
 
     @Override
     public void render(Renderable renderable) {
+        set(UNIFORM_TRANS_MATRIX, renderable.worldTransform);
+        bindMaterialAndEnvironment(renderable);
+
+        // bind attributes, bind mesh & render; then unbinds everything
+        renderable.meshPart.render(program);
+    }
+
+    /**
+     * Sets lights, fog & splat textures of the renderable. Lights & fog are
+     * skipped, if they were already set for the previous renderable.
+     *
+     * @param renderable
+     *            renderable to bind
+     */
+    protected void bindMaterialAndEnvironment(Renderable renderable) {
         final MundusEnvironment env = (MundusEnvironment) renderable.environment;
+        final RenderStats stats = env.getRenderStats();
+
+        // lights & fog
+        if (env != lastEnvironment || env.getVersion() != lastEnvironmentVersion) {
+            setLights(env);
+            setFog(env);
+            lastEnvironment = env;
+            lastEnvironmentVersion = env.getVersion();
+            if (stats != null) stats.binds++;
+        } else if (stats != null) {
+            stats.savedBinds++;
+        }
+        bindLightClusters(env);
+        bindShadowMap(env);
 
-        setLights(env);
+        // splat textures. Always bound, the cluster & shadow textures may have moved them to other units.
+        // The texture binder doesn't rebind textures, that are still bound
         setTerrainSplatTextures(renderable);
-        set(UNIFORM_TRANS_MATRIX, renderable.worldTransform);
+        if (stats != null) {
+            if (renderable.material != lastMaterial) {
+                stats.binds++;
+            } else {
+                stats.savedBinds++;
+            }
+        }
+        lastMaterial = renderable.material;
+    }
 
-        // Fog
-        final Fog fog = env.getFog();
-        if (fog == null) {
-            set(UNIFORM_FOG_DENSITY, 0f);
-            set(UNIFORM_FOG_GRADIENT, 0f);
-        } else {
-            set(UNIFORM_FOG_DENSITY, fog.density);
-            set(UNIFORM_FOG_GRADIENT, fog.gradient);
-            set(UNIFORM_FOG_COLOR, fog.color);
+    /**
+     * Sets the cascades & binds the shadow map of the environment.
+     */
+    protected void bindShadowMap(MundusEnvironment env) {
+        if (!has(UNIFORM_SHADOWS_ACTIVE)) return;
+
+        final CascadedShadowMap shadowMap = env.getShadowMap();
+        final boolean active = shadowMap != null && shadowMap.isActive();
+        final int update = shadowMap == null ? -1 : shadowMap.getUpdateCount();
+        if (shadowMap != lastShadowMap || update != lastShadowMapUpdate) {
+            set(UNIFORM_SHADOWS_ACTIVE, active ? 1 : 0);
+            if (active) {
+                final int cascades = shadowMap.getCascadeCount();
+                final int columns = shadowMap.getAtlasColumns();
+                final int rows = shadowMap.getAtlasRows();
+                set(UNIFORM_LIGHT_VIEW, shadowMap.getLightView());
+                set(UNIFORM_CASCADE_COUNT, cascades);
+                program.setUniform4fv(loc(UNIFORM_CASCADE_TRANSFORMS), shadowMap.getCascadeTransforms(), 0,
+                        cascades * 4);
+                program.setUniform4fv(loc(UNIFORM_CASCADE_DEPTHS), shadowMap.getCascadeDepths(), 0, cascades * 4);
+                set(UNIFORM_SHADOW_ATLAS_SCALE, 1f / columns, 1f / rows);
+                set(UNIFORM_SHADOW_TEXEL_SIZE, 1f / (columns * shadowMap.getResolution()),
+                        1f / (rows * shadowMap.getResolution()));
+                set(UNIFORM_SHADOW_BIAS, shadowMap.getBias());
+            }
+            lastShadowMap = shadowMap;
+            lastShadowMapUpdate = update;
         }
+        if (!active) return;
 
-        // bind attributes, bind mesh & render; then unbinds everything
-        renderable.meshPart.render(program);
+        final int unit = context.textureBinder.bind(shadowMap.getTexture());
+        if (unit != shadowMapUnit) {
+            program.setUniformi(loc(UNIFORM_SHADOW_MAP), unit);
+            shadowMapUnit = unit;
+        }
+    }
+
+    /**
+     * Binds the point & spot light clusters of the environment, if the
+     * program supports clustered lighting.
+     */
+    protected void bindLightClusters(MundusEnvironment env) {
+        if (!has(UNIFORM_CLUSTERS_ACTIVE)) return;
+
+        final LightClusters clusters = env.getLightClusters();
+        final boolean active = clusters != null && clusters.getLightCount() > 0;
+        final int update = clusters == null ? -1 : clusters.getUpdateCount();
+        if (clusters != lastClusters || update != lastClusterUpdate) {
+            set(UNIFORM_CLUSTERS_ACTIVE, active ? 1 : 0);
+            if (active) {
+                set(UNIFORM_CLUSTER_SIZE, clusters.getSizeX(), clusters.getSizeY(), clusters.getSizeZ());
+                set(UNIFORM_CLUSTER_DEPTH, clusters.getDepthScale(), clusters.getDepthBias());
+            }
+            lastClusters = clusters;
+            lastClusterUpdate = update;
+        }
+        if (!active) return;
+
+        // textures may have been moved to other units by the texture binder
+        bindClusterTexture(0, UNIFORM_CLUSTER_TEXTURE, clusters.getClusterTexture());
+        bindClusterTexture(1, UNIFORM_LIGHT_INDEX_TEXTURE, clusters.getLightIndexTexture());
+        bindClusterTexture(2, UNIFORM_LIGHT_DATA_TEXTURE, clusters.getLightDataTexture());
+    }
+
+    private void bindClusterTexture(int index, int uniform, GLTexture texture) {
+        final int unit = context.textureBinder.bind(texture);
+        if (unit != clusterTextureUnits[index]) {
+            program.setUniformi(loc(uniform), unit);
+            clusterTextureUnits[index] = unit;
+        }
     }
 
     protected void setLights(MundusEnvironment env) {
@@ -152,7 +304,19 @@ public class TerrainShader extends BaseShader {
             set(UNIFORM_DIRECTIONAL_LIGHT_INTENSITY, light.intensity);
         }
 
-        // TODO point lights, spot lights
+        // point & spot lights are clustered, see bindLightClusters()
+    }
+
+    protected void setFog(MundusEnvironment env) {
+        final Fog fog = env.getFog();
+        if (fog == null) {
+            set(UNIFORM_FOG_DENSITY, 0f);
+            set(UNIFORM_FOG_GRADIENT, 0f);
+        } else {
+            set(UNIFORM_FOG_DENSITY, fog.density);
+            set(UNIFORM_FOG_GRADIENT, fog.gradient);
+            set(UNIFORM_FOG_COLOR, fog.color);
+        }
     }
 
     protected void setTerrainSplatTextures(Renderable renderable) {
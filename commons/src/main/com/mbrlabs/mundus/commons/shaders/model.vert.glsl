@@ -14,11 +14,21 @@
  * limitations under the License.
  */
 
+#ifdef GLSL3
+#define attribute in
+#define varying out
+#endif
+
 attribute vec3 a_position;
 attribute vec3 a_normal;
 attribute vec2 a_texCoord0;
 
+// world transform. per instance if instanced, per renderable otherwise
+#ifdef INSTANCED
+attribute mat4 a_instanceTransform;
+#else
 uniform mat4 u_transMatrix;
+#endif
 uniform mat4 u_projViewMatrix;
 uniform vec3 u_camPos;
 
@@ -37,6 +47,10 @@ uniform DirectionalLight    u_directionalLight;
 
 uniform float u_shininess;
 
+// shadows
+uniform mat4 u_lightView;
+varying vec3 v_shadowPos;
+
 // Fog
 uniform float  u_fogDensity;
 uniform float  u_fogGradient;
@@ -45,15 +59,34 @@ varying vec2    v_texCoord0;
 varying float   v_fog;
 varying vec4    v_lighting;
 
+#ifdef CLUSTERED_LIGHTS
+varying vec3    v_normal;
+varying vec3    v_worldPos;
+varying vec4    v_clipPos;
+#endif
+
 void main(void) {
-    vec4 worldPos = u_transMatrix * vec4(a_position, 1.0);
+#ifdef INSTANCED
+    mat4 transMatrix = a_instanceTransform;
+#else
+    mat4 transMatrix = u_transMatrix;
+#endif
+
+    vec4 worldPos = transMatrix * vec4(a_position, 1.0);
     v_texCoord0 = a_texCoord0;
     gl_Position = u_projViewMatrix * worldPos;
 
     // =================================================================
     //                          Lighting
     // =================================================================
-    vec3 normal = normalize((u_transMatrix * vec4(a_normal, 0.0)).xyz);
+    vec3 normal = normalize((transMatrix * vec4(a_normal, 0.0)).xyz);
+
+#ifdef CLUSTERED_LIGHTS
+    // point & spot lights are computed per fragment
+    v_normal = normal;
+    v_worldPos = worldPos.xyz;
+    v_clipPos = gl_Position;
+#endif
 
     // diffuse light
     v_lighting = u_directionalLight.color
@@ -65,8 +98,8 @@ void main(void) {
     float specularity = max(dot(reflectedLightDirection, vertexToCam), 0.0) * u_shininess;
     v_lighting += specularity * u_directionalLight.color * u_directionalLight.intensity;
 
-    // ambient light
-    v_lighting += u_ambientLight.color * u_ambientLight.intensity;
+    // ambient light is added in the fragment shader, after shadows were applied
+    v_shadowPos = (u_lightView * worldPos).xyz;
 
     // =================================================================
     //                          /Lighting
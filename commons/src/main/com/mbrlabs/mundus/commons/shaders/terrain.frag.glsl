@@ -18,6 +18,14 @@
 precision mediump float;
 #endif
 
+#ifdef GLSL3
+#define varying in
+#define texture2D texture
+out vec4 out_FragColor;
+#else
+#define out_FragColor gl_FragColor
+#endif
+
 #define PI 3.1415926535897932384626433832795
 
 const vec4 COLOR_TURQUOISE = vec4(0,0.714,0.586, 1.0);
@@ -68,18 +76,136 @@ struct AmbientLight {
 uniform AmbientLight u_ambientLight;
 uniform DirectionalLight u_directionalLight;
 
+// shadows of the directional light. see CascadedShadowMap
+#define MAX_CASCADES 4
+#if defined(GL_ES) && defined(GL_FRAGMENT_PRECISION_HIGH)
+#define SHADOW_PRECISION highp
+#else
+#define SHADOW_PRECISION
+#endif
+
+uniform int         u_shadowsActive;
+uniform int         u_cascadeCount;
+uniform sampler2D   u_shadowMap;
+uniform vec4        u_cascadeTransforms[MAX_CASCADES];
+uniform vec4        u_cascadeDepths[MAX_CASCADES];
+uniform vec2        u_shadowAtlasScale;
+uniform vec2        u_shadowTexelSize;
+uniform float       u_shadowBias;
+
+varying SHADOW_PRECISION vec3 v_shadowPos;
+
+SHADOW_PRECISION float unpackDepth(SHADOW_PRECISION vec4 color) {
+    const SHADOW_PRECISION vec4 bitShift = vec4(1.0 / (256.0 * 256.0 * 256.0), 1.0 / (256.0 * 256.0), 1.0 / 256.0, 1.0);
+    return dot(color, bitShift);
+}
+
+float shadowTap(vec2 uv, SHADOW_PRECISION float depth) {
+    return step(depth, unpackDepth(texture2D(u_shadowMap, uv)));
+}
+
+float shadowFactor() {
+    if(u_shadowsActive == 0) {
+        return 1.0;
+    }
+
+    // first cascade, that contains the fragment
+    for(int i = 0; i < MAX_CASCADES; i++) {
+        if(i >= u_cascadeCount) {
+            break;
+        }
+        vec4 transform = u_cascadeTransforms[i];
+        SHADOW_PRECISION vec2 uv = v_shadowPos.xy * transform.x + transform.yz;
+        if(uv.x > 0.0 && uv.x < 1.0 && uv.y > 0.0 && uv.y < 1.0) {
+            vec4 depthTile = u_cascadeDepths[i];
+            SHADOW_PRECISION float depth = v_shadowPos.z * depthTile.x + depthTile.y - u_shadowBias;
+            SHADOW_PRECISION vec2 atlasUv = (uv + depthTile.zw) * u_shadowAtlasScale;
+
+            // 2x2 pcf
+            float shadow = shadowTap(atlasUv + vec2(-0.5, -0.5) * u_shadowTexelSize, depth);
+            shadow += shadowTap(atlasUv + vec2(0.5, -0.5) * u_shadowTexelSize, depth);
+            shadow += shadowTap(atlasUv + vec2(-0.5, 0.5) * u_shadowTexelSize, depth);
+            shadow += shadowTap(atlasUv + vec2(0.5, 0.5) * u_shadowTexelSize, depth);
+            return shadow * 0.25;
+        }
+    }
+
+    return 1.0;
+}
+
+#ifdef CLUSTERED_LIGHTS
+// point & spot lights, binned into clusters of the view frustum. see LightClusters
+uniform int                 u_clustersActive;
+uniform vec3                u_clusterSize;
+uniform vec2                u_clusterDepth;
+uniform highp sampler2D     u_clusterTexture;
+uniform highp sampler2D     u_lightIndexTexture;
+uniform highp sampler2D     u_lightDataTexture;
+
+varying highp vec3 v_worldPos;
+varying highp vec4 v_clipPos;
+
+vec4 clusteredLighting(vec3 normal) {
+    vec4 lighting = vec4(0.0);
+    if(u_clustersActive == 0) {
+        return lighting;
+    }
+
+    // cluster of this fragment: xy from screen position, z from exponential depth slices
+    ivec3 size = ivec3(u_clusterSize);
+    vec2 ndc = v_clipPos.xy / v_clipPos.w;
+    ivec3 cluster;
+    cluster.xy = ivec2((ndc * 0.5 + 0.5) * u_clusterSize.xy);
+    cluster.z = int(log(v_clipPos.w) * u_clusterDepth.x - u_clusterDepth.y);
+    cluster = clamp(cluster, ivec3(0), size - 1);
+
+    vec2 offsetCount = texelFetch(u_clusterTexture, ivec2(cluster.x + cluster.y * size.x, cluster.z), 0).xy;
+    int offset = int(offsetCount.x);
+    int count = int(offsetCount.y);
+    int indexWidth = textureSize(u_lightIndexTexture, 0).x;
+
+    for(int i = 0; i < count; i++) {
+        int index = offset + i;
+        int light = int(texelFetch(u_lightIndexTexture, ivec2(index % indexWidth, index / indexWidth), 0).r);
+        vec4 posRange = texelFetch(u_lightDataTexture, ivec2(light, 0), 0);
+        vec4 colorInner = texelFetch(u_lightDataTexture, ivec2(light, 1), 0);
+        vec4 dirOuter = texelFetch(u_lightDataTexture, ivec2(light, 2), 0);
+
+        vec3 toLight = posRange.xyz - v_worldPos;
+        float dist = length(toLight);
+        if(dist >= posRange.w) {
+            continue;
+        }
+        toLight /= dist;
+
+        // falls off to zero at the range of the light
+        float attenuation = 1.0 - dist / posRange.w;
+        attenuation *= attenuation;
+
+        // spot light cone. point lights have a cos(outer angle) < -1
+        if(dirOuter.w > -1.5) {
+            attenuation *= smoothstep(dirOuter.w, colorInner.w, dot(-toLight, dirOuter.xyz));
+        }
+
+        lighting += vec4(colorInner.rgb, 0.0) * (max(dot(normal, toLight), 0.0) * attenuation);
+    }
+
+    return lighting;
+}
+#endif
+
 void main(void) {
 
     // blend textures
     if(u_texture_has_diffuse == 1) {
-        gl_FragColor = texture2D(u_texture_base, v_texCoord0);
+        out_FragColor = texture2D(u_texture_base, v_texCoord0);
     }
     if(u_texture_has_splatmap == 1) {
         vec4 splat = texture2D(u_texture_splat, splatPosition);
-        gl_FragColor = mix(gl_FragColor, texture2D(u_texture_r, v_texCoord0), splat.r);
-        gl_FragColor = mix(gl_FragColor, texture2D(u_texture_g, v_texCoord0), splat.g);
-        gl_FragColor = mix(gl_FragColor, texture2D(u_texture_b, v_texCoord0), splat.b);
-        gl_FragColor = mix(gl_FragColor, texture2D(u_texture_a, v_texCoord0), splat.a);
+        out_FragColor = mix(out_FragColor, texture2D(u_texture_r, v_texCoord0), splat.r);
+        out_FragColor = mix(out_FragColor, texture2D(u_texture_g, v_texCoord0), splat.g);
+        out_FragColor = mix(out_FragColor, texture2D(u_texture_b, v_texCoord0), splat.b);
+        out_FragColor = mix(out_FragColor, texture2D(u_texture_a, v_texCoord0), splat.a);
     }
 
     // =================================================================
@@ -87,17 +213,22 @@ void main(void) {
     // =================================================================
     vec4 diffuse_light = u_directionalLight.color
         * (dot(-u_directionalLight.direction, v_normal) * u_directionalLight.intensity);
+    diffuse_light *= shadowFactor();
 
     // ambient light
     diffuse_light += u_ambientLight.color * u_ambientLight.intensity;
 
-    gl_FragColor *= diffuse_light;
+    #ifdef CLUSTERED_LIGHTS
+    diffuse_light += clusteredLighting(normalize(v_normal));
+    #endif
+
+    out_FragColor *= diffuse_light;
     // =================================================================
     //                          /Lighting
     // =================================================================
 
     // fog
-    gl_FragColor = mix(gl_FragColor, u_fogColor, v_fog);
+    out_FragColor = mix(out_FragColor, u_fogColor, v_fog);
 
     #ifdef PICKER
     if(u_pickerActive == 1) {
@@ -105,7 +236,7 @@ void main(void) {
         if(dist <= u_pickerRadius) {
             float gradient = (u_pickerRadius - dist + 0.01) / u_pickerRadius;
             gradient = 1.0 - clamp(cos(gradient * PI), 0.0, 1.0);
-            gl_FragColor += COLOR_BRUSH * gradient;
+            out_FragColor += COLOR_BRUSH * gradient;
         }
     }
     #endif
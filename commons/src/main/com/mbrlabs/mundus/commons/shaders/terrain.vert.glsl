@@ -14,6 +14,11 @@
  * limitations under the License.
  */
 
+#ifdef GLSL3
+#define attribute in
+#define varying out
+#endif
+
 attribute vec3 a_position;
 attribute vec3 a_normal;
 attribute vec2 a_texCoord0;
@@ -28,6 +33,10 @@ uniform float u_fogGradient;
 
 uniform vec2 u_terrainSize;
 
+// shadows
+uniform mat4 u_lightView;
+varying vec3 v_shadowPos;
+
 varying vec2 v_texCoord0;
 varying vec2 splatPosition;
 varying float v_fog;
@@ -38,6 +47,11 @@ varying vec3 v_normal;
 varying vec3 v_pos;
 #endif
 
+#ifdef CLUSTERED_LIGHTS
+varying vec3 v_worldPos;
+varying vec4 v_clipPos;
+#endif
+
 void main(void) {
     // position
     vec4 worldPos = u_transMatrix * vec4(a_position, 1.0);
@@ -46,6 +60,8 @@ void main(void) {
     // normal for lighting
     v_normal = normalize((u_transMatrix * vec4(a_normal, 0.0)).xyz);
 
+    v_shadowPos = (u_lightView * worldPos).xyz;
+
     // texture stuff
     v_texCoord0 = a_texCoord0;
     splatPosition = vec2(a_position.x / u_terrainSize.x, a_position.z / u_terrainSize);
@@ -63,4 +79,9 @@ void main(void) {
     v_pos = worldPos.xyz;
     #endif
 
+    #ifdef CLUSTERED_LIGHTS
+    v_worldPos = worldPos.xyz;
+    v_clipPos = gl_Position;
+    #endif
+
 }
@@ -103,7 +103,8 @@ public class Terrain implements RenderableProvider, Disposable {
 
     public void setTransform(Matrix4 transform) {
         this.transform = transform;
-        modelInstance.transform = this.transform;
+        // not initialized in headless mode
+        if (modelInstance != null) modelInstance.transform = this.transform;
     }
 
     public void init() {
@@ -351,7 +352,8 @@ public class Terrain implements RenderableProvider, Disposable {
 
     @Override
     public void dispose() {
-
+        // the model owns the mesh
+        if (model != null) model.dispose();
     }
 
 }
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mbrlabs.mundus.commons.utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * File handle, whose content is already in memory (e.g. a file of a memory
+ * mapped bundle). Loaders use map() instead of reading the file.
+ *
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+public interface MappedFile {
+
+    /**
+     * @return read-only buffer with the content of the file
+     */
+    ByteBuffer map();
+
+}
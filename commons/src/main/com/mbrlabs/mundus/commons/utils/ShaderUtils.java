@@ -20,6 +20,7 @@ import com.badlogic.gdx.Application;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.glutils.ShaderProgram;
 import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.mbrlabs.mundus.commons.env.lights.LightClusters;
 
 /**
  * @author Marcus Brummer
@@ -38,6 +39,25 @@ public class ShaderUtils {
      * @return compiled shader program
      */
     public static ShaderProgram compile(String vertexShader, String fragmentShader) {
+        return compile(vertexShader, fragmentShader, "");
+    }
+
+    /**
+     * Compiles and links shader.
+     *
+     * The prefix is put in front of both shader sources. It can be used to
+     * set defines or a #version directive.
+     *
+     * @param vertexShader
+     *            path to vertex shader
+     * @param fragmentShader
+     *            path to fragment shader
+     * @param prefix
+     *            code, that is prepended to both shaders
+     *
+     * @return compiled shader program
+     */
+    public static ShaderProgram compile(String vertexShader, String fragmentShader, String prefix) {
         String vert;
         String frag;
 
@@ -49,7 +69,7 @@ public class ShaderUtils {
             frag = Gdx.files.classpath(fragmentShader).readString();
         }
 
-        ShaderProgram program = new ShaderProgram(vert, frag);
+        ShaderProgram program = new ShaderProgram(prefix + vert, prefix + frag);
         if (!program.isCompiled()) {
             throw new GdxRuntimeException(program.getLog());
         }
@@ -57,4 +77,34 @@ public class ShaderUtils {
         return program;
     }
 
+    /**
+     * Returns a prefix, that turns the GLSL 1.00 style shaders of Mundus into
+     * GLSL 3 shaders.
+     *
+     * Only use this if a GL30 context is available.
+     *
+     * @return prefix for compile()
+     */
+    public static String glsl3Prefix() {
+        final String version;
+        if (Gdx.app.getType() == Application.ApplicationType.Desktop) {
+            version = "#version 330 core\n";
+        } else {
+            version = "#version 300 es\n";
+        }
+
+        return version + "#define GLSL3\n";
+    }
+
+    /**
+     * Returns the define, that enables clustered point & spot lights in the
+     * model and terrain shaders, or an empty string if the current GL context
+     * does not support them. Needs glsl3Prefix() in front of it.
+     *
+     * @return define for compile()
+     */
+    public static String clusteredLightsDefine() {
+        return LightClusters.isSupported() ? "#define CLUSTERED_LIGHTS\n" : "";
+    }
+
 }
@@ -18,6 +18,7 @@ package com.mbrlabs.mundus.commons.utils;
 
 import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.TextureData;
 
 /**
  * @author Marcus Brummer
@@ -36,6 +37,21 @@ public class TextureUtils {
         return texture;
     }
 
+    /**
+     * Same as loadMipmapTexture(FileHandle, boolean), but with already
+     * prepared texture data.
+     */
+    public static Texture loadMipmapTexture(TextureData textureData, boolean tilable) {
+        Texture texture = new Texture(textureData);
+        texture.setFilter(Texture.TextureFilter.MipMapLinearLinear, Texture.TextureFilter.MipMapLinearLinear);
+
+        if (tilable) {
+            texture.setWrap(Texture.TextureWrap.Repeat, Texture.TextureWrap.Repeat);
+        }
+
+        return texture;
+    }
+
     // public static Texture load(FileHandle fileHandle) {
     // Texture texture = new Texture(fileHandle, false);
     // return texture;
@@ -0,0 +1,286 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mbrlabs.mundus.commons.test;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.mbrlabs.mundus.commons.assets.Asset;
+import com.mbrlabs.mundus.commons.assets.AssetManager;
+import com.mbrlabs.mundus.commons.assets.TerrainAsset;
+import com.mbrlabs.mundus.commons.assets.TextureAsset;
+import com.mbrlabs.mundus.commons.assets.meta.Meta;
+import com.mbrlabs.mundus.commons.assets.meta.MetaTerrain;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+public class AssetManagerTest {
+
+    @Test
+    public void evictsUnreferencedAssetsOverBudget() {
+        AssetManager manager = new AssetManager(new FileHandle("assets"));
+        DummyAsset a = new DummyAsset("a", 100);
+        DummyAsset b = new DummyAsset("b", 100);
+        DummyAsset c = new DummyAsset("c", 100);
+        a.retain();
+        b.retain();
+        c.retain();
+        manager.addAsset(a);
+        manager.addAsset(b);
+        manager.addAsset(c);
+        Assert.assertEquals(300, manager.getLoadedBytes());
+
+        // referenced assets are never evicted
+        manager.setMemoryBudget(150);
+        Assert.assertEquals(300, manager.getLoadedBytes());
+
+        manager.setMemoryBudget(Long.MAX_VALUE);
+        c.release();
+        a.release();
+        Assert.assertEquals(300, manager.getLoadedBytes());
+
+        // least recently released first
+        manager.setMemoryBudget(250);
+        Assert.assertFalse(manager.isLoaded("c"));
+        Assert.assertTrue(c.disposed);
+        Assert.assertTrue(manager.isLoaded("a"));
+        Assert.assertEquals(200, manager.getLoadedBytes());
+
+        // evicted as soon as it is released
+        manager.setMemoryBudget(50);
+        Assert.assertFalse(manager.isLoaded("a"));
+        Assert.assertTrue(manager.isLoaded("b"));
+        b.release();
+        Assert.assertFalse(manager.isLoaded("b"));
+        Assert.assertEquals(0, manager.getLoadedBytes());
+    }
+
+    @Test
+    public void unlimitedBudgetKeepsAssets() {
+        AssetManager manager = new AssetManager(new FileHandle("assets"));
+        DummyAsset a = new DummyAsset("a", 100);
+        manager.addAsset(a);
+        a.retain();
+        a.release();
+        Assert.assertTrue(manager.isLoaded("a"));
+        Assert.assertFalse(a.disposed);
+    }
+
+    @Test
+    public void headlessSkipsUploadsUntilGraphicsAreAttached() {
+        AssetManager manager = new AssetManager(new FileHandle("assets"));
+        manager.setHeadless(true);
+        DummyAsset a = new DummyAsset("a", 100);
+        manager.loadAssetData(a);
+        manager.uploadLoaded(a);
+        Assert.assertTrue(manager.isLoaded("a"));
+        Assert.assertTrue(a.headless);
+        Assert.assertEquals(0, a.uploads);
+
+        manager.attachGraphics();
+        Assert.assertFalse(manager.isHeadless());
+        Assert.assertFalse(a.headless);
+        Assert.assertEquals(1, a.uploads);
+    }
+
+    @Test
+    public void headlessUnloadAndDisposeWithoutApplication() {
+        // e.g. a server, no libgdx application is running
+        Assert.assertNull(Gdx.app);
+        AssetManager manager = new AssetManager(new FileHandle("assets"));
+        manager.setHeadless(true);
+        DummyAsset a = new DummyAsset("a", 100);
+        DummyAsset b = new DummyAsset("b", 100);
+        manager.loadAssetData(a);
+        manager.uploadLoaded(a);
+        manager.loadAssetData(b);
+        manager.uploadLoaded(b);
+
+        // unload a scene, that referenced a, like runtime's Mundus.unload(). b is still used by another one
+        a.retain();
+        b.retain();
+        a.release();
+        Assert.assertEquals(1, manager.evictUnreferenced());
+        Assert.assertTrue(a.disposed);
+        Assert.assertFalse(b.disposed);
+
+        manager.dispose();
+        Assert.assertTrue(b.disposed);
+        Assert.assertEquals(0, manager.getLoadedBytes());
+    }
+
+    @Test
+    public void overlappingLoadsShareAnAsset() throws Exception {
+        final AssetManager manager = new AssetManager(new FileHandle("assets"));
+        final DummyAsset a = new DummyAsset("a", 100);
+        final DummyAsset b = new DummyAsset("b", 100);
+        manager.addAsset(a);
+        manager.addAsset(b);
+        // known, but not loaded anymore
+        manager.collectUnloaded(new Array<String>(), new Array<Asset>());
+        manager.evictUnreferenced();
+
+        // both loads collect the same instance, the data is read once
+        final Array<Asset> first = manager.collectUnloaded(Array.with("a"), new Array<Asset>());
+        final Array<Asset> second = manager.collectUnloaded(Array.with("a", "b"), new Array<Asset>());
+        Assert.assertSame(first.first(), second.first());
+        final Thread worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                manager.loadAssetData(a);
+            }
+        });
+        worker.start();
+        manager.loadAssetData(a);
+        worker.join();
+        Assert.assertEquals(1, a.loads);
+
+        // the first load is canceled, the second one still needs the data
+        manager.discardLoaded(a);
+        Assert.assertFalse(a.disposed);
+        manager.loadAssetData(b);
+        manager.uploadLoaded(a);
+        manager.uploadLoaded(b);
+        Assert.assertTrue(manager.isLoaded("a"));
+        Assert.assertEquals(1, a.uploads);
+
+        // loaded again after eviction, the data of a canceled load is disposed
+        manager.evictUnreferenced();
+        final Array<Asset> third = manager.collectUnloaded(Array.with("a"), new Array<Asset>());
+        manager.loadAssetData(third.first());
+        Assert.assertEquals(2, a.loads);
+        manager.discardLoaded(third.first());
+        Assert.assertTrue(a.disposed);
+        Assert.assertFalse(manager.isLoaded("a"));
+    }
+
+    @Test
+    public void evictsTerrainAssets() throws IOException {
+        final File file = File.createTempFile("mundus-test", ".terra");
+        try {
+            final DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+            try {
+                for (int i = 0; i < 4; i++) {
+                    out.writeFloat(i);
+                }
+            } finally {
+                out.close();
+            }
+
+            final Meta meta = new Meta(null);
+            meta.setUuid("terrain");
+            meta.setTerrain(new MetaTerrain());
+            meta.getTerrain().setSize(10);
+            final TerrainAsset terrain = new TerrainAsset(meta, new FileHandle(file));
+            final Meta textureMeta = new Meta(null);
+            textureMeta.setUuid("texture");
+            final TextureAsset texture = new TextureAsset(textureMeta, new FileHandle("texture"));
+
+            final AssetManager manager = new AssetManager(new FileHandle("assets"));
+            manager.setHeadless(true);
+            manager.loadAssetData(terrain);
+            manager.uploadLoaded(terrain);
+            terrain.setSplatBase(texture);
+            Assert.assertNotNull(terrain.getTerrain());
+            Assert.assertEquals(1, texture.getRefCount());
+
+            terrain.retain();
+            manager.setMemoryBudget(0);
+            Assert.assertTrue(manager.isLoaded("terrain"));
+            terrain.release();
+
+            // splat textures are released, but stay in the meta file
+            Assert.assertFalse(manager.isLoaded("terrain"));
+            Assert.assertNull(terrain.getTerrain());
+            Assert.assertEquals(0, texture.getRefCount());
+            Assert.assertEquals("texture", meta.getTerrain().getSplatBase());
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static class DummyAsset extends Asset {
+
+        private final long bytes;
+        boolean disposed = false;
+        boolean headless = false;
+        int loads = 0;
+        int uploads = 0;
+
+        DummyAsset(String id, long bytes) {
+            super(new Meta(null), new FileHandle(id));
+            getMeta().setUuid(id);
+            this.bytes = bytes;
+        }
+
+        @Override
+        public long getCpuBytes() {
+            return disposed ? 0 : bytes;
+        }
+
+        @Override
+        public void loadData() {
+            disposed = false;
+            loads++;
+        }
+
+        @Override
+        public void loadHeadless() {
+            headless = true;
+        }
+
+        @Override
+        public void loadGraphicsData() {
+            headless = false;
+        }
+
+        @Override
+        public void upload() {
+            uploads++;
+        }
+
+        @Override
+        public void getDependencyIDs(Array<String> out) {
+        }
+
+        @Override
+        public void resolveDependencies(Map<String, Asset> assets) {
+        }
+
+        @Override
+        public void applyDependencies() {
+        }
+
+        @Override
+        public void dispose() {
+            disposed = true;
+        }
+    }
+
+}
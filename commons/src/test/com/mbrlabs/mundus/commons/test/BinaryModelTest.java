@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.commons.test;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelData;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelMaterial;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelMesh;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelMeshPart;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelNode;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelNodePart;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.math.collision.BoundingBox;
+import com.mbrlabs.mundus.commons.g3d.BinaryModelLoader;
+import com.mbrlabs.mundus.commons.g3d.BinaryModelWriter;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+public class BinaryModelTest {
+
+    @Test
+    public void writtenModelLoadsUnchanged() throws IOException {
+        final ModelData model = model();
+        final File file = File.createTempFile("mundus-test", "." + BinaryModelLoader.EXTENSION);
+        try {
+            new BinaryModelWriter().write(model, new FileHandle(file));
+            final BinaryModelLoader.BinaryModelData data = new BinaryModelLoader().loadData(new FileHandle(file));
+            final ModelData loaded = data.getModelData();
+
+            Assert.assertEquals(model.id, loaded.id);
+
+            // meshes
+            Assert.assertEquals(1, loaded.meshes.size);
+            final ModelMesh mesh = model.meshes.first();
+            final ModelMesh loadedMesh = loaded.meshes.first();
+            Assert.assertEquals(mesh.id, loadedMesh.id);
+            Assert.assertEquals(mesh.attributes.length, loadedMesh.attributes.length);
+            for (int i = 0; i < mesh.attributes.length; i++) {
+                Assert.assertTrue(mesh.attributes[i].equals(loadedMesh.attributes[i]));
+            }
+
+            final FloatBuffer vertices = data.getVertices(0);
+            Assert.assertEquals(mesh.vertices.length, vertices.remaining());
+            for (int i = 0; i < mesh.vertices.length; i++) {
+                Assert.assertEquals(mesh.vertices[i], vertices.get(i), 0);
+            }
+
+            Assert.assertEquals(mesh.parts.length, loadedMesh.parts.length);
+            for (int p = 0; p < mesh.parts.length; p++) {
+                Assert.assertEquals(mesh.parts[p].id, loadedMesh.parts[p].id);
+                Assert.assertEquals(mesh.parts[p].primitiveType, loadedMesh.parts[p].primitiveType);
+                final ShortBuffer indices = data.getIndices(0, p);
+                Assert.assertEquals(mesh.parts[p].indices.length, indices.remaining());
+                for (int i = 0; i < mesh.parts[p].indices.length; i++) {
+                    Assert.assertEquals(mesh.parts[p].indices[i], indices.get(i));
+                }
+            }
+
+            // materials
+            Assert.assertEquals(1, loaded.materials.size);
+            final ModelMaterial material = loaded.materials.first();
+            Assert.assertEquals("material", material.id);
+            Assert.assertEquals(Color.RED, material.diffuse);
+            Assert.assertNull(material.ambient);
+            Assert.assertEquals(0.5f, material.opacity, 0);
+
+            // nodes
+            Assert.assertEquals(1, loaded.nodes.size);
+            final ModelNode node = loaded.nodes.first();
+            Assert.assertEquals("node", node.id);
+            Assert.assertEquals(new Vector3(1, 2, 3), node.translation);
+            Assert.assertNull(node.rotation);
+            Assert.assertEquals(2, node.parts.length);
+            Assert.assertEquals("lines", node.parts[1].meshPartId);
+            Assert.assertEquals("material", node.parts[1].materialId);
+            Assert.assertEquals(1, node.children.length);
+            Assert.assertEquals("child", node.children[0].id);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void boundsAreReadFromTheHeader() throws IOException {
+        final File file = File.createTempFile("mundus-test", "." + BinaryModelLoader.EXTENSION);
+        try {
+            new BinaryModelWriter().write(model(), new FileHandle(file));
+
+            // positions of the first & last vertex
+            final BoundingBox bounds = new BoundingBox();
+            Assert.assertTrue(new BinaryModelLoader().loadBounds(new FileHandle(file), bounds));
+            Assert.assertEquals(new Vector3(-3, -2.5f, -2), bounds.min);
+            Assert.assertEquals(new Vector3(6, 6.5f, 7), bounds.max);
+
+            final BinaryModelLoader.BinaryModelData data = new BinaryModelLoader().loadData(new FileHandle(file));
+            final BoundingBox loaded = data.getBounds(new BoundingBox());
+            Assert.assertEquals(bounds.min, loaded.min);
+            Assert.assertEquals(bounds.max, loaded.max);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void changedSourceOutdatesTheBinaryModel() throws IOException {
+        final File source = File.createTempFile("mundus-test", ".g3db");
+        final File file = File.createTempFile("mundus-test", "." + BinaryModelLoader.EXTENSION);
+        try {
+            final FileHandle sourceHandle = new FileHandle(source);
+            final FileHandle fileHandle = new FileHandle(file);
+            sourceHandle.writeString("model v1", false);
+            new BinaryModelWriter().write(model(), fileHandle, sourceHandle);
+
+            final BinaryModelLoader loader = new BinaryModelLoader();
+            Assert.assertTrue(loader.isUpToDate(fileHandle, sourceHandle, true));
+
+            // same length, different content: only the checksum notices
+            sourceHandle.writeString("model v2", false);
+            Assert.assertTrue(loader.isUpToDate(fileHandle, sourceHandle, false));
+            Assert.assertFalse(loader.isUpToDate(fileHandle, sourceHandle, true));
+
+            sourceHandle.writeString("model v3, bigger", false);
+            Assert.assertFalse(loader.isUpToDate(fileHandle, sourceHandle, false));
+        } finally {
+            source.delete();
+            file.delete();
+        }
+    }
+
+    private static ModelData model() {
+        final ModelMesh mesh = new ModelMesh();
+        mesh.id = "mesh";
+        mesh.attributes = new VertexAttribute[] { VertexAttribute.Position(), VertexAttribute.Normal() };
+        mesh.vertices = new float[4 * 6];
+        for (int i = 0; i < mesh.vertices.length; i++) {
+            mesh.vertices[i] = i * 0.5f - 3f;
+        }
+
+        final ModelMeshPart triangles = new ModelMeshPart();
+        triangles.id = "triangles";
+        triangles.primitiveType = GL20.GL_TRIANGLES;
+        triangles.indices = new short[] { 0, 1, 2, 2, 1, 3 };
+        final ModelMeshPart lines = new ModelMeshPart();
+        lines.id = "lines";
+        lines.primitiveType = GL20.GL_LINES;
+        lines.indices = new short[] { 0, 3, 1, 2, 3 };
+        mesh.parts = new ModelMeshPart[] { triangles, lines };
+
+        final ModelMaterial material = new ModelMaterial();
+        material.id = "material";
+        material.diffuse = new Color(Color.RED);
+        material.opacity = 0.5f;
+
+        final ModelNode child = new ModelNode();
+        child.id = "child";
+        final ModelNode node = new ModelNode();
+        node.id = "node";
+        node.meshId = "mesh";
+        node.translation = new Vector3(1, 2, 3);
+        node.parts = new ModelNodePart[] { nodePart("triangles"), nodePart("lines") };
+        node.children = new ModelNode[] { child };
+
+        final ModelData model = new ModelData();
+        model.id = "model";
+        model.meshes.add(mesh);
+        model.materials.add(material);
+        model.nodes.add(node);
+        return model;
+    }
+
+    private static ModelNodePart nodePart(String meshPartId) {
+        final ModelNodePart part = new ModelNodePart();
+        part.meshPartId = meshPartId;
+        part.materialId = "material";
+        return part;
+    }
+
+}
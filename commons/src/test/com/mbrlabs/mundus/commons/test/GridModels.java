@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.commons.test;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelMesh;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelMeshPart;
+import com.badlogic.gdx.utils.UBJsonWriter;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Generated grid meshes in the xz plane, used by the tests and the loader
+ * benchmarks.
+ *
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+public class GridModels {
+
+    /**
+     * @return mesh with positions only and one empty triangle part
+     */
+    public static ModelMesh mesh(int width, int depth) {
+        final ModelMesh mesh = new ModelMesh();
+        mesh.id = "mesh";
+        mesh.attributes = new VertexAttribute[] { VertexAttribute.Position() };
+        mesh.vertices = new float[width * depth * 3];
+        for (int z = 0; z < depth; z++) {
+            for (int x = 0; x < width; x++) {
+                final int i = (z * width + x) * 3;
+                mesh.vertices[i] = x;
+                mesh.vertices[i + 2] = z;
+            }
+        }
+
+        final ModelMeshPart part = new ModelMeshPart();
+        part.id = "part";
+        part.primitiveType = GL20.GL_TRIANGLES;
+        mesh.parts = new ModelMeshPart[] { part };
+        return mesh;
+    }
+
+    /**
+     * @return triangle list of a size x size grid, two triangles per cell
+     */
+    public static int[] indices(int size) {
+        final int[] indices = new int[(size - 1) * (size - 1) * 6];
+        int n = 0;
+        for (int z = 0; z < size - 1; z++) {
+            for (int x = 0; x < size - 1; x++) {
+                final int i = z * size + x;
+                indices[n++] = i;
+                indices[n++] = i + size;
+                indices[n++] = i + 1;
+                indices[n++] = i + 1;
+                indices[n++] = i + size;
+                indices[n++] = i + size + 1;
+            }
+        }
+        return indices;
+    }
+
+    /**
+     * Writes a size x size grid as g3db. Integers are written as int32,
+     * which reads the same in the old and new UBJSON format.
+     *
+     * @param normalsAndUvs
+     *            true to write normals & uvs in addition to the positions
+     */
+    public static void writeG3db(File file, int size, boolean normalsAndUvs) throws IOException {
+        final UBJsonWriter out = new UBJsonWriter(new FileHandle(file).write(false));
+        try {
+            out.object();
+            out.array("version").value(0).value(1).pop();
+            out.set("id", "grid");
+
+            out.array("meshes").object();
+            out.array("attributes").value("POSITION");
+            if (normalsAndUvs) out.value("NORMAL").value("TEXCOORD0");
+            out.pop();
+            out.array("vertices");
+            for (int z = 0; z < size; z++) {
+                for (int x = 0; x < size; x++) {
+                    out.value((float) x).value(0f).value((float) z);
+                    if (normalsAndUvs) {
+                        out.value(0f).value(1f).value(0f);
+                        out.value(x / (float) size).value(z / (float) size);
+                    }
+                }
+            }
+            out.pop();
+            out.array("parts").object();
+            out.set("id", "part");
+            out.set("type", "TRIANGLES");
+            out.array("indices");
+            for (int i : indices(size)) {
+                out.value(i);
+            }
+            out.pop();
+            out.pop().pop(); // part, parts
+            out.pop().pop(); // mesh, meshes
+
+            out.array("materials").object().set("id", "material").pop().pop();
+
+            out.array("nodes").object();
+            out.set("id", "node");
+            out.array("parts").object().set("meshpartid", "part").set("materialid", "material").pop().pop();
+            out.pop().pop(); // node, nodes
+
+            out.pop();
+        } finally {
+            out.close();
+        }
+    }
+
+}
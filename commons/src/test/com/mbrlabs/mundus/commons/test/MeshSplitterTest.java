@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mbrlabs.mundus.commons.test;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelData;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelMesh;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelMeshPart;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelNode;
+import com.badlogic.gdx.graphics.g3d.model.data.ModelNodePart;
+import com.badlogic.gdx.utils.UBJsonReader;
+import com.mbrlabs.mundus.commons.g3d.MG3dModelLoader;
+import com.mbrlabs.mundus.commons.g3d.MeshSplitter;
+import com.mbrlabs.mundus.commons.g3d.StreamingG3dModelLoader;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+public class MeshSplitterTest {
+
+    /** 300 x 300 grid: 90000 vertices, more than 16 bit indices can address. */
+    private static final int LARGE_GRID = 300;
+
+    @Test
+    public void smallMeshIsNotSplit() {
+        final ModelData model = new ModelData();
+        final MeshSplitter splitter = new MeshSplitter();
+        splitter.addMesh(model, GridModels.mesh(10, 10), new int[][] { GridModels.indices(10) });
+
+        Assert.assertEquals(1, model.meshes.size);
+        Assert.assertFalse(splitter.hasSplitParts());
+        Assert.assertEquals(9 * 9 * 6, model.meshes.first().parts[0].indices.length);
+    }
+
+    @Test
+    public void largeMeshIsSplit() {
+        final ModelData model = new ModelData();
+        final MeshSplitter splitter = new MeshSplitter();
+        final ModelMesh mesh = GridModels.mesh(LARGE_GRID, LARGE_GRID);
+        final float[] vertices = mesh.vertices;
+        final int[] indices = GridModels.indices(LARGE_GRID);
+        splitter.addMesh(model, mesh, new int[][] { indices });
+
+        Assert.assertTrue(model.meshes.size > 1);
+        Assert.assertTrue(splitter.hasSplitParts());
+        assertSameTriangles(vertices, indices, model);
+    }
+
+    @Test
+    public void triangleStripIsSplit() {
+        final ModelData model = new ModelData();
+        final ModelMesh mesh = GridModels.mesh(20, 20);
+        final float[] vertices = mesh.vertices;
+        mesh.parts[0].primitiveType = GL20.GL_TRIANGLE_STRIP;
+
+        // strip along the first two rows of the grid
+        final int[] strip = new int[40];
+        for (int x = 0; x < 20; x++) {
+            strip[x * 2] = x;
+            strip[x * 2 + 1] = x + 20;
+        }
+        new MeshSplitter(10).addMesh(model, mesh, new int[][] { strip });
+
+        // 38 triangles, converted to a list
+        int triangles = 0;
+        for (ModelMesh m : model.meshes) {
+            Assert.assertTrue(m.vertices.length / 3 <= 10);
+            for (ModelMeshPart part : m.parts) {
+                Assert.assertEquals(GL20.GL_TRIANGLES, part.primitiveType);
+                triangles += part.indices.length / 3;
+            }
+        }
+        Assert.assertEquals(38, triangles);
+
+        // winding of every second triangle is flipped: (20, 1, 21) -> (1, 20, 21)
+        final short[] first = model.meshes.first().parts[0].indices;
+        final float[] v = model.meshes.first().vertices;
+        Assert.assertEquals(vertices[1 * 3], v[(first[3] & 0xFFFF) * 3], 0);
+        Assert.assertEquals(vertices[20 * 3 + 2], v[(first[4] & 0xFFFF) * 3 + 2], 0);
+        Assert.assertEquals(vertices[21 * 3], v[(first[5] & 0xFFFF) * 3], 0);
+    }
+
+    @Test
+    public void largeTriangleStripIsSplitIntoTriangleLists() {
+        // strip along both rows of a 2 row grid, more vertices than 16 bit indices can address
+        final int width = MeshSplitter.MAX_VERTICES / 2 + 100;
+        final ModelData model = new ModelData();
+        final ModelMesh mesh = GridModels.mesh(width, 2);
+        final float[] vertices = mesh.vertices;
+        mesh.parts[0].primitiveType = GL20.GL_TRIANGLE_STRIP;
+        final int[] strip = new int[width * 2];
+        for (int x = 0; x < width; x++) {
+            strip[x * 2] = x;
+            strip[x * 2 + 1] = x + width;
+        }
+        Assert.assertTrue(strip.length > 0xFFFF);
+
+        final MeshSplitter splitter = new MeshSplitter();
+        splitter.addMesh(model, mesh, new int[][] { strip });
+        Assert.assertTrue(model.meshes.size > 1);
+        Assert.assertTrue(splitter.hasSplitParts());
+        for (ModelMesh m : model.meshes) {
+            for (ModelMeshPart part : m.parts) {
+                Assert.assertEquals(GL20.GL_TRIANGLES, part.primitiveType);
+            }
+        }
+
+        // same triangles as the strip, every second one with flipped winding
+        final int[] triangles = new int[(strip.length - 2) * 3];
+        for (int i = 0; i < strip.length - 2; i++) {
+            final boolean odd = (i & 1) == 1;
+            triangles[i * 3] = strip[odd ? i + 1 : i];
+            triangles[i * 3 + 1] = strip[odd ? i : i + 1];
+            triangles[i * 3 + 2] = strip[i + 2];
+        }
+        assertSameTriangles(vertices, triangles, model);
+    }
+
+    @Test
+    public void nodesReferenceAllPieces() {
+        final ModelData model = new ModelData();
+        final MeshSplitter splitter = new MeshSplitter();
+        splitter.addMesh(model, GridModels.mesh(LARGE_GRID, LARGE_GRID), new int[][] { GridModels.indices(LARGE_GRID) });
+
+        final ModelNodePart nodePart = new ModelNodePart();
+        nodePart.meshPartId = "part";
+        nodePart.materialId = "material";
+        final ModelNode node = new ModelNode();
+        node.id = "node";
+        node.parts = new ModelNodePart[] { nodePart };
+        model.nodes.add(node);
+
+        splitter.updateNodes(model);
+
+        Assert.assertEquals(model.meshes.size, node.parts.length);
+        for (int i = 0; i < node.parts.length; i++) {
+            Assert.assertEquals("material", node.parts[i].materialId);
+            Assert.assertEquals(model.meshes.get(i).parts[0].id, node.parts[i].meshPartId);
+        }
+    }
+
+    @Test
+    public void loadersSplitLargeModels() throws IOException {
+        final File file = File.createTempFile("mundus-test", ".g3db");
+        try {
+            GridModels.writeG3db(file, LARGE_GRID, false);
+            final float[] vertices = GridModels.mesh(LARGE_GRID, LARGE_GRID).vertices;
+            final int[] indices = GridModels.indices(LARGE_GRID);
+
+            final ModelData dom = new MG3dModelLoader(new UBJsonReader()).loadModelData(new FileHandle(file), null);
+            final ModelData streamed = new StreamingG3dModelLoader().loadModelData(new FileHandle(file), null);
+
+            assertSameTriangles(vertices, indices, dom);
+            assertSameTriangles(vertices, indices, streamed);
+            Assert.assertEquals(dom.meshes.size, streamed.meshes.size);
+            Assert.assertEquals(dom.meshes.size, dom.nodes.first().parts.length);
+            Assert.assertEquals(streamed.meshes.size, streamed.nodes.first().parts.length);
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Checks, that the split model has the same triangles (positions) in the
+     * same order as the original mesh and no mesh has too many vertices.
+     */
+    private static void assertSameTriangles(float[] vertices, int[] indices, ModelData model) {
+        int i = 0;
+        for (ModelMesh mesh : model.meshes) {
+            Assert.assertTrue(mesh.vertices.length / 3 <= MeshSplitter.MAX_VERTICES);
+            for (ModelMeshPart part : mesh.parts) {
+                for (short index : part.indices) {
+                    final int v = index & 0xFFFF;
+                    for (int k = 0; k < 3; k++) {
+                        Assert.assertEquals(vertices[indices[i] * 3 + k], mesh.vertices[v * 3 + k], 0);
+                    }
+                    i++;
+                }
+            }
+        }
+        Assert.assertEquals(indices.length, i);
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mbrlabs.mundus.commons.test;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.mbrlabs.mundus.commons.assets.meta.Meta;
+import com.mbrlabs.mundus.commons.assets.meta.MetaIndex;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+public class MetaIndexTest {
+
+    private FileHandle root;
+    private FileHandle indexFile;
+    private ExecutorService pool;
+
+    @Before
+    public void setUp() throws Exception {
+        File tmp = File.createTempFile("metaindex", "");
+        tmp.delete();
+        root = new FileHandle(tmp);
+        root.mkdirs();
+        indexFile = new FileHandle(File.createTempFile("metaindex", ".cache"));
+        pool = Executors.newFixedThreadPool(2);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdown();
+        root.deleteDirectory();
+        indexFile.delete();
+    }
+
+    @Test
+    public void parsesOnlyChangedMetaFiles() throws Exception {
+        writeMeta("a.png.meta", "a");
+        writeMeta("textures/b.png.meta", "b");
+        writeMeta("textures/nested/c.png.meta", "c");
+
+        MetaIndex index = new MetaIndex(root, indexFile);
+        Array<Meta> metas = index.scan(pool);
+        Assert.assertEquals(3, metas.size);
+        Assert.assertEquals(3, index.getParsedCount());
+        Assert.assertTrue(index.isDirty());
+        Assert.assertTrue(index.save());
+        // nothing is written into the asset folder
+        Assert.assertEquals(2, root.list().length);
+
+        // fresh index, read from disk
+        index = new MetaIndex(root, indexFile);
+        metas = index.scan(pool);
+        Assert.assertEquals(3, metas.size);
+        Assert.assertEquals(0, index.getParsedCount());
+        Assert.assertEquals(3, index.getCachedCount());
+        Assert.assertFalse(index.isDirty());
+        Assert.assertEquals("c", metas.get(2).getUuid());
+        Assert.assertEquals(root.child("textures/nested/c.png.meta").path(), metas.get(2).getFile().path());
+
+        // modified file
+        writeMeta("textures/b.png.meta", "b-changed");
+        metas = index.scan(pool);
+        Assert.assertEquals(1, index.getParsedCount());
+        Assert.assertEquals("b-changed", metas.get(1).getUuid());
+
+        // removed file
+        root.child("a.png.meta").delete();
+        metas = index.scan(pool);
+        Assert.assertEquals(2, metas.size);
+    }
+
+    @Test
+    public void unwritableIndexIsIgnored() throws Exception {
+        writeMeta("a.png.meta", "a");
+
+        // a folder can't be written as file
+        final MetaIndex index = new MetaIndex(root, root.child("textures"));
+        root.child("textures").mkdirs();
+        Assert.assertEquals(1, index.scan(pool).size);
+        Assert.assertFalse(index.save());
+        Assert.assertEquals(1, index.scan(pool).size);
+    }
+
+    private void writeMeta(String path, String uuid) {
+        final FileHandle file = root.child(path);
+        file.writeString("{\"v\":1,\"mod\":0,\"id\":\"" + uuid + "\",\"t\":\"TEXTURE\"}", false);
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.commons.test;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.mbrlabs.mundus.commons.assets.MaterialAsset;
+import com.mbrlabs.mundus.commons.assets.ModelAsset;
+import com.mbrlabs.mundus.commons.assets.meta.Meta;
+import com.mbrlabs.mundus.commons.scene3d.GameObject;
+import com.mbrlabs.mundus.commons.scene3d.InvalidComponentException;
+import com.mbrlabs.mundus.commons.scene3d.components.ModelComponent;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+public class ModelComponentTest {
+
+    @Test
+    public void cloneCopiesAndRetainsAssetsHeadless() {
+        ModelAsset model = new ModelAsset(meta("model"), new FileHandle("model"));
+        ModelAsset lod = new ModelAsset(meta("lod"), new FileHandle("lod"));
+        MaterialAsset material = new MaterialAsset(meta("material"), new FileHandle("material"));
+
+        ModelComponent mc = new ModelComponent(new GameObject(null, "a", 0), null);
+        mc.setModel(model, false);
+        mc.getMaterials().put("mat", material);
+        mc.addLod(lod, 0.5f);
+        mc.applyMaterials();
+
+        ModelComponent clone = (ModelComponent) mc.clone(new GameObject(null, "b", 1));
+        Assert.assertNull(clone.getModelInstance());
+        Assert.assertSame(model, clone.getModelAsset());
+        Assert.assertSame(material, clone.getMaterials().get("mat"));
+        Assert.assertEquals(1, clone.getLods().size);
+        Assert.assertSame(lod, clone.getLods().first().getModelAsset());
+        Assert.assertEquals(0.5f, clone.getLods().first().getScreenSize(), 0);
+
+        Assert.assertEquals(2, model.getRefCount());
+        Assert.assertEquals(2, lod.getRefCount());
+        Assert.assertEquals(2, material.getRefCount());
+
+        clone.remove();
+        Assert.assertEquals(1, model.getRefCount());
+        Assert.assertEquals(1, lod.getRefCount());
+        Assert.assertEquals(1, material.getRefCount());
+    }
+
+    @Test
+    public void removedGameObjectsReleaseAssetsUntilRestored() throws InvalidComponentException {
+        ModelAsset model = new ModelAsset(meta("model"), new FileHandle("model"));
+        GameObject parent = new GameObject(null, "parent", 0);
+        GameObject child = new GameObject(null, "child", 1);
+        parent.addChild(child);
+        ModelComponent mc = new ModelComponent(child, null);
+        mc.setModel(model, false);
+        child.addComponent(mc);
+        Assert.assertEquals(1, model.getRefCount());
+
+        parent.releaseAssets();
+        Assert.assertEquals(0, model.getRefCount());
+        // released twice, e.g. delete redone
+        parent.releaseAssets();
+        Assert.assertEquals(0, model.getRefCount());
+
+        parent.retainAssets();
+        Assert.assertEquals(1, model.getRefCount());
+        parent.retainAssets();
+        Assert.assertEquals(1, model.getRefCount());
+    }
+
+    private static Meta meta(String id) {
+        Meta meta = new Meta(null);
+        meta.setUuid(id);
+        return meta;
+    }
+
+}
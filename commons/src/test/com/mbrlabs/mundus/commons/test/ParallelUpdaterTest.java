@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.commons.test;
+
+import com.badlogic.gdx.utils.Array;
+import com.mbrlabs.mundus.commons.scene3d.GameObject;
+import com.mbrlabs.mundus.commons.scene3d.ParallelUpdater;
+import com.mbrlabs.mundus.commons.scene3d.SceneGraph;
+import com.mbrlabs.mundus.commons.scene3d.components.AbstractComponent;
+import com.mbrlabs.mundus.commons.scene3d.components.Component;
+import com.mbrlabs.mundus.commons.scene3d.components.MainThreadComponent;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+public class ParallelUpdaterTest {
+
+    @Test
+    public void updatesAllSubtreesAndDefersMainThreadComponents() throws Exception {
+        SceneGraph graph = new SceneGraph(null);
+        AtomicInteger updates = new AtomicInteger();
+        Array<String> mainThreadOrder = new Array<String>();
+
+        for (int i = 0; i < 4; i++) {
+            GameObject root = new GameObject(graph, "r" + i, i * 2);
+            GameObject child = new GameObject(graph, "r" + i + "c", i * 2 + 1);
+            root.addChild(child);
+            graph.addGameObject(root);
+
+            root.addComponent(new CountingComponent(root, updates));
+            child.addComponent(new CountingComponent(child, updates));
+            child.addComponent(new RecordingComponent(child, mainThreadOrder));
+            root.addComponent(new RecordingComponent(root, mainThreadOrder));
+        }
+
+        ParallelUpdater updater = new ParallelUpdater(4);
+        try {
+            updater.update(graph.getGameObjects(), 0.016f);
+        } finally {
+            updater.dispose();
+        }
+
+        Assert.assertEquals(8, updates.get());
+        // subtree order, then depth first, all on the calling thread
+        Assert.assertEquals(Array.with("r0", "r0c", "r1", "r1c", "r2", "r2c", "r3", "r3c"), mainThreadOrder);
+    }
+
+    @Test(expected = ParallelUpdater.CrossSubtreeWriteException.class)
+    public void debugModeDetectsWritesToOtherSubtrees() throws Exception {
+        SceneGraph graph = new SceneGraph(null);
+        GameObject a = new GameObject(graph, "a", 0);
+        GameObject b = new GameObject(graph, "b", 1);
+        graph.addGameObject(a);
+        graph.addGameObject(b);
+        a.addComponent(new WritingComponent(a, b));
+
+        ParallelUpdater updater = new ParallelUpdater(2);
+        updater.setDebug(true);
+        try {
+            updater.update(graph.getGameObjects(), 0.016f);
+        } finally {
+            updater.dispose();
+        }
+    }
+
+    private static abstract class TestComponent extends AbstractComponent {
+
+        TestComponent(GameObject go, Type type) {
+            super(go);
+            this.type = type;
+        }
+
+        @Override
+        public void render(float delta) {
+        }
+
+        @Override
+        public Component clone(GameObject go) {
+            return null;
+        }
+    }
+
+    private static class CountingComponent extends TestComponent {
+
+        private final AtomicInteger updates;
+
+        CountingComponent(GameObject go, AtomicInteger updates) {
+            super(go, Type.MODEL);
+            this.updates = updates;
+        }
+
+        @Override
+        public void update(float delta) {
+            updates.incrementAndGet();
+        }
+    }
+
+    private static class RecordingComponent extends TestComponent implements MainThreadComponent {
+
+        private final Array<String> order;
+
+        RecordingComponent(GameObject go, Array<String> order) {
+            super(go, Type.LIGHT);
+            this.order = order;
+        }
+
+        @Override
+        public void update(float delta) {
+            order.add(gameObject.name);
+        }
+    }
+
+    private static class WritingComponent extends TestComponent {
+
+        private final GameObject other;
+
+        WritingComponent(GameObject go, GameObject other) {
+            super(go, Type.MODEL);
+            this.other = other;
+        }
+
+        @Override
+        public void update(float delta) {
+            other.translate(1, 0, 0);
+        }
+    }
+
+}
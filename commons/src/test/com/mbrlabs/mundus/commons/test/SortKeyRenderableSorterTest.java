@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.commons.test;
+
+import com.badlogic.gdx.graphics.Camera;
+import com.badlogic.gdx.graphics.g3d.Material;
+import com.badlogic.gdx.graphics.g3d.Renderable;
+import com.badlogic.gdx.utils.Array;
+import com.mbrlabs.mundus.commons.g3d.SortKeyRenderableSorter;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+public class SortKeyRenderableSorterTest {
+
+    @Test
+    public void groupsMaterialsByIdentity() {
+        // equal attributes, so equal hash codes, but different materials
+        Material a = new Material("m");
+        Material b = new Material("m");
+        Assert.assertEquals(a, b);
+
+        Array<Renderable> renderables = new Array<Renderable>();
+        for (int i = 0; i < 6; i++) {
+            Renderable r = new Renderable();
+            r.material = i % 2 == 0 ? a : b;
+            renderables.add(r);
+        }
+
+        // matrices aren't needed for sorting, updating them would need the natives
+        Camera cam = new Camera() {
+            @Override
+            public void update() {
+            }
+
+            @Override
+            public void update(boolean updateFrustum) {
+            }
+        };
+        SortKeyRenderableSorter sorter = new SortKeyRenderableSorter();
+        sorter.sort(cam, renderables);
+
+        // two runs: all of the first material, then all of the second
+        int changes = 0;
+        for (int i = 1; i < renderables.size; i++) {
+            if (renderables.get(i).material != renderables.get(i - 1).material) changes++;
+        }
+        Assert.assertEquals(1, changes);
+
+        // ids are assigned per call, sorting again gives the same result
+        sorter.sort(cam, renderables);
+        Assert.assertSame(renderables.get(0).material, renderables.get(2).material);
+    }
+
+}
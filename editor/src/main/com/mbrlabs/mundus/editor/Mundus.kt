@@ -25,6 +25,7 @@ import com.badlogic.gdx.graphics.glutils.ShapeRenderer
 import com.badlogic.gdx.scenes.scene2d.ui.Skin
 import com.kotcrab.vis.ui.VisUI
 import com.mbrlabs.mundus.commons.assets.meta.MetaLoader
+import com.mbrlabs.mundus.commons.g3d.SortKeyRenderableSorter
 import com.mbrlabs.mundus.editor.assets.MetaSaver
 import com.mbrlabs.mundus.editor.assets.ModelImporter
 import com.mbrlabs.mundus.editor.core.kryo.KryoManager
@@ -85,7 +86,7 @@ object Mundus {
 
         // DI
         shapeRenderer = ShapeRenderer()
-        modelBatch = ModelBatch()
+        modelBatch = ModelBatch(SortKeyRenderableSorter())
         input = InputManager()
         goPicker = GameObjectPicker()
         handlePicker = ToolHandlePicker()
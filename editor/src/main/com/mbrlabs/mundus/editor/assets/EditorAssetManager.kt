@@ -23,7 +23,13 @@ import com.badlogic.gdx.graphics.PixmapIO
 import com.badlogic.gdx.utils.ObjectSet
 import com.mbrlabs.mundus.commons.assets.*
 import com.mbrlabs.mundus.commons.assets.meta.Meta
+import com.mbrlabs.mundus.commons.assets.meta.MetaIndex
 import com.mbrlabs.mundus.commons.assets.meta.MetaTerrain
+import com.mbrlabs.mundus.commons.g3d.BinaryModelLoader
+import com.mbrlabs.mundus.commons.g3d.BinaryModelWriter
+import com.mbrlabs.mundus.commons.g3d.MeshOptimizer
+import com.mbrlabs.mundus.commons.g3d.StreamingG3dModelLoader
+import com.mbrlabs.mundus.editor.core.registry.Registry
 import com.mbrlabs.mundus.editor.utils.Log
 import org.apache.commons.io.FileUtils
 import org.apache.commons.io.FilenameUtils
@@ -49,6 +55,10 @@ class EditorAssetManager(assetsRoot: FileHandle) : AssetManager(assetsRoot) {
         if (rootFolder != null && (!rootFolder.exists() || !rootFolder.isDirectory)) {
             Log.fatal(TAG, "Root asset folder is not a directory")
         }
+        // keep the meta index out of the project, which is likely under version control
+        if (rootFolder != null) {
+            setMetaIndexFile(MetaIndex.indexFile(FileHandle(Registry.META_INDEX_DIR), rootFolder))
+        }
     }
 
     fun addDirtyAsset(asset: Asset) {
@@ -122,7 +132,20 @@ class EditorAssetManager(assetsRoot: FileHandle) : AssetManager(assetsRoot) {
      */
     @Throws(IOException::class, AssetAlreadyExistsException::class)
     fun createModelAsset(model: ModelImporter.ImportedModel): ModelAsset {
-        val modelFilename = model.g3dbFile!!.name()
+        return createModelAsset(model.g3dbFile!!)
+    }
+
+    /**
+     * Creates a new model asset from a g3db file.
+     *
+     * @param g3dbFile g3db file, that is copied into the project
+     * @return model asset
+     *
+     * @throws IOException
+     */
+    @Throws(IOException::class, AssetAlreadyExistsException::class)
+    fun createModelAsset(g3dbFile: FileHandle): ModelAsset {
+        val modelFilename = g3dbFile.name()
         val metaFilename = modelFilename + ".meta"
 
         // create meta file
@@ -131,7 +154,8 @@ class EditorAssetManager(assetsRoot: FileHandle) : AssetManager(assetsRoot) {
 
         // copy model file
         val assetFile = FileHandle(FilenameUtils.concat(rootFolder.path(), modelFilename))
-        model.g3dbFile!!.copyTo(assetFile)
+        g3dbFile.copyTo(assetFile)
+        optimizeModel(assetFile)
 
         // load & return asset
         val asset = ModelAsset(meta, assetFile)
@@ -141,6 +165,32 @@ class EditorAssetManager(assetsRoot: FileHandle) : AssetManager(assetsRoot) {
         return asset
     }
 
+    /**
+     * Writes the optimized binary version of a model next to its g3db file, if it does not exist yet or
+     * was written from another version of the g3db file.
+     *
+     * The mesh optimizer runs only here, at import or export time. The editor and the runtime load the
+     * binary model as it is.
+     *
+     * @param g3dbFile g3db file of the model
+     * @return binary model file
+     *
+     * @throws IOException
+     */
+    @Throws(IOException::class)
+    fun optimizeModel(g3dbFile: FileHandle): FileHandle {
+        val binaryFile = BinaryModelLoader.binaryFile(g3dbFile)
+        // binary models of older versions don't know their g3db file and are written again
+        if (!binaryFile.exists() || !BinaryModelLoader().isUpToDate(binaryFile, g3dbFile, true)) {
+            val loader = StreamingG3dModelLoader()
+            loader.optimizer = MeshOptimizer()
+            val modelData = loader.loadModelData(g3dbFile, null)
+            Log.debug(TAG, "Optimized {}: {}", g3dbFile.name(), loader.lastReport)
+            BinaryModelWriter().write(modelData, binaryFile, g3dbFile)
+        }
+        return binaryFile
+    }
+
     /**
      * Creates a new terrainAsset asset.
      *
@@ -0,0 +1,400 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mbrlabs.mundus.editor.assets;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.FilenameUtils;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.JsonValue;
+import com.badlogic.gdx.utils.UBJsonReader;
+import com.badlogic.gdx.utils.UBJsonWriter;
+import com.mbrlabs.mundus.editor.utils.Callback;
+import com.mbrlabs.mundus.editor.utils.Log;
+
+/**
+ * Generates reduced levels of detail for g3db models.
+ *
+ * For every target ratio a copy of the g3db file is written next to the
+ * original (model.g3db -> model_lod1.g3db, model_lod2.g3db, ...), in which the
+ * triangles of all meshes are reduced with the {@link MeshSimplifier}.
+ * Materials, nodes and animations are copied as they are, so the LOD models
+ * use the same g3db material ids as the original. Unused vertices are removed.
+ *
+ * All (mesh, ratio) pairs are simplified in parallel. Use the asynchronous
+ * variant of generate() on the GL thread.
+ *
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+public class LodGenerator {
+
+    private static final String TAG = LodGenerator.class.getSimpleName();
+
+    public static final int MAX_LODS = 4;
+
+    private static final String MESHES = "meshes";
+    private static final String ATTRIBUTES = "attributes";
+    private static final String VERTICES = "vertices";
+    private static final String PARTS = "parts";
+    private static final String PART_TYPE = "type";
+    private static final String PART_INDICES = "indices";
+    private static final String TRIANGLES = "TRIANGLES";
+
+    /**
+     * Default screen size of a generated level (1-based). Halves with every
+     * level.
+     */
+    public static float defaultScreenSize(int level) {
+        return 0.4f / (1 << (level - 1));
+    }
+
+    /**
+     * @param ratios
+     *            target triangle ratios
+     * @return true if there are at most MAX_LODS ratios, each between 0 and 1
+     *         and strictly descending
+     */
+    public static boolean isValidRatios(float[] ratios) {
+        if (ratios.length > MAX_LODS) return false;
+        float last = 1f;
+        for (float ratio : ratios) {
+            if (ratio <= 0f || ratio >= last) return false;
+            last = ratio;
+        }
+        return true;
+    }
+
+    /**
+     * Generates the levels of detail on a background thread. The callback is
+     * called on the GL thread.
+     *
+     * @param g3dbFile
+     *            source model
+     * @param ratios
+     *            target triangle ratios, see isValidRatios()
+     * @param callback
+     *            receives the written files, in the order of the ratios
+     */
+    public void generate(final FileHandle g3dbFile, final float[] ratios, final Callback<List<FileHandle>> callback) {
+        new Thread() {
+            @Override
+            public void run() {
+                List<FileHandle> files = null;
+                String error = null;
+                try {
+                    files = generate(g3dbFile, ratios);
+                } catch (IOException e) {
+                    Log.exception(TAG, e);
+                    error = "LOD generation failed: " + e.getMessage();
+                }
+
+                final List<FileHandle> result = files;
+                final String msg = error;
+                Gdx.app.postRunnable(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (result != null) {
+                            callback.done(result);
+                        } else {
+                            callback.error(msg);
+                        }
+                    }
+                });
+            }
+        }.start();
+    }
+
+    /**
+     * Writes one simplified copy of the model for each ratio. Blocks until all
+     * levels are written.
+     *
+     * @param g3dbFile
+     *            source model
+     * @param ratios
+     *            target triangle ratios, e.g. [0.5, 0.25], see isValidRatios()
+     * @return written files, in the order of the ratios
+     * @throws IOException
+     *             if the model can't be read or the files can't be written
+     */
+    public List<FileHandle> generate(FileHandle g3dbFile, float[] ratios) throws IOException {
+        if (!isValidRatios(ratios)) {
+            throw new IllegalArgumentException("At most " + MAX_LODS
+                    + " strictly descending ratios between 0 and 1 are supported");
+        }
+
+        final JsonValue root;
+        try {
+            root = new UBJsonReader().parse(g3dbFile);
+        } catch (GdxRuntimeException e) {
+            throw new IOException("Can't parse " + g3dbFile.path(), e);
+        }
+
+        final JsonValue meshes = root.get(MESHES);
+        final int meshCount = meshes == null ? 0 : meshes.size;
+
+        // simplify all (ratio, mesh) pairs in parallel
+        final long start = System.currentTimeMillis();
+        final ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        final List<List<Future<SimplifiedMesh>>> results = new ArrayList<>();
+        try {
+            for (float ratio : ratios) {
+                final List<Future<SimplifiedMesh>> level = new ArrayList<>();
+                for (int i = 0; i < meshCount; i++) {
+                    final JsonValue mesh = meshes.get(i);
+                    level.add(executor.submit(new Callable<SimplifiedMesh>() {
+                        @Override
+                        public SimplifiedMesh call() throws Exception {
+                            return simplify(mesh, ratio);
+                        }
+                    }));
+                }
+                results.add(level);
+            }
+
+            final List<FileHandle> files = new ArrayList<>();
+            for (int i = 0; i < ratios.length; i++) {
+                final List<SimplifiedMesh> simplified = new ArrayList<>();
+                for (Future<SimplifiedMesh> future : results.get(i)) {
+                    simplified.add(future.get());
+                }
+
+                final FileHandle lodFile = g3dbFile.sibling(
+                        FilenameUtils.getBaseName(g3dbFile.name()) + "_lod" + (i + 1) + ".g3db");
+                write(root, simplified, lodFile);
+                files.add(lodFile);
+            }
+
+            Log.debug(TAG, "Generated {} LODs of {} in {} ms", ratios.length, g3dbFile.name(),
+                    System.currentTimeMillis() - start);
+            return files;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("LOD generation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("LOD generation failed for " + g3dbFile.name(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private SimplifiedMesh simplify(JsonValue mesh, float ratio) {
+        int stride = 0;
+        int posOffset = -1;
+        for (JsonValue attr = mesh.get(ATTRIBUTES).child; attr != null; attr = attr.next) {
+            final String name = attr.asString();
+            if (name.equals("POSITION")) posOffset = stride;
+            stride += attributeSize(name);
+        }
+        if (posOffset < 0) {
+            throw new GdxRuntimeException("Mesh without positions");
+        }
+
+        final float[] vertices = mesh.get(VERTICES).asFloatArray();
+        final JsonValue parts = mesh.get(PARTS);
+
+        // only triangle parts are simplified, vertices of other parts stay as they are
+        final int[][] triangles = new int[parts.size][];
+        final int[][] original = new int[parts.size][];
+        final List<Integer> locked = new ArrayList<>();
+        for (int i = 0; i < parts.size; i++) {
+            final JsonValue part = parts.get(i);
+            original[i] = part.get(PART_INDICES).asIntArray();
+            if (TRIANGLES.equals(part.getString(PART_TYPE))) {
+                triangles[i] = original[i];
+            } else {
+                for (int index : original[i]) {
+                    locked.add(index);
+                }
+            }
+        }
+        final int[] lockedVertices = new int[locked.size()];
+        for (int i = 0; i < lockedVertices.length; i++) {
+            lockedVertices[i] = locked.get(i);
+        }
+
+        final int[][] simplified = new MeshSimplifier().simplify(vertices, stride, posOffset, triangles,
+                lockedVertices, ratio);
+        for (int i = 0; i < simplified.length; i++) {
+            if (simplified[i] == null) simplified[i] = original[i];
+        }
+
+        return compact(vertices, stride, simplified);
+    }
+
+    /**
+     * Removes vertices, that are no longer referenced.
+     */
+    private static SimplifiedMesh compact(float[] vertices, int stride, int[][] parts) {
+        final int vertexCount = vertices.length / stride;
+        final int[] remap = new int[vertexCount];
+        for (int[] part : parts) {
+            for (int index : part) {
+                remap[index] = 1;
+            }
+        }
+
+        int used = 0;
+        for (int v = 0; v < vertexCount; v++) {
+            remap[v] = remap[v] == 1 ? used++ : -1;
+        }
+
+        final SimplifiedMesh result = new SimplifiedMesh();
+        result.vertices = new float[used * stride];
+        for (int v = 0; v < vertexCount; v++) {
+            if (remap[v] >= 0) {
+                System.arraycopy(vertices, v * stride, result.vertices, remap[v] * stride, stride);
+            }
+        }
+        result.parts = new int[parts.length][];
+        for (int p = 0; p < parts.length; p++) {
+            result.parts[p] = new int[parts[p].length];
+            for (int i = 0; i < parts[p].length; i++) {
+                result.parts[p][i] = remap[parts[p][i]];
+            }
+        }
+
+        return result;
+    }
+
+    private static int attributeSize(String attribute) {
+        if (attribute.equals("POSITION") || attribute.equals("NORMAL") || attribute.equals("TANGENT")
+                || attribute.equals("BINORMAL")) {
+            return 3;
+        } else if (attribute.equals("COLOR")) {
+            return 4;
+        } else if (attribute.equals("COLORPACKED")) {
+            return 1;
+        } else if (attribute.startsWith("TEXCOORD") || attribute.startsWith("BLENDWEIGHT")) {
+            return 2;
+        }
+        throw new GdxRuntimeException("Unknown vertex attribute: " + attribute);
+    }
+
+    private void write(JsonValue root, List<SimplifiedMesh> meshes, FileHandle file) throws IOException {
+        final UBJsonWriter writer = new UBJsonWriter(file.write(false));
+        try {
+            writer.object();
+            for (JsonValue child = root.child; child != null; child = child.next) {
+                if (MESHES.equals(child.name)) {
+                    writeMeshes(writer, child, meshes);
+                } else {
+                    writeValue(writer, child);
+                }
+            }
+            writer.pop();
+        } finally {
+            writer.close();
+        }
+    }
+
+    private void writeMeshes(UBJsonWriter writer, JsonValue jsonMeshes, List<SimplifiedMesh> meshes)
+            throws IOException {
+        writer.array(MESHES);
+        int m = 0;
+        for (JsonValue mesh = jsonMeshes.child; mesh != null; mesh = mesh.next, m++) {
+            final SimplifiedMesh simplified = meshes.get(m);
+            writer.object();
+            for (JsonValue child = mesh.child; child != null; child = child.next) {
+                if (VERTICES.equals(child.name)) {
+                    writer.array(VERTICES);
+                    for (float f : simplified.vertices) {
+                        writer.value(f);
+                    }
+                    writer.pop();
+                } else if (PARTS.equals(child.name)) {
+                    writer.array(PARTS);
+                    int p = 0;
+                    for (JsonValue part = child.child; part != null; part = part.next, p++) {
+                        writer.object();
+                        for (JsonValue partChild = part.child; partChild != null; partChild = partChild.next) {
+                            if (PART_INDICES.equals(partChild.name)) {
+                                writer.array(PART_INDICES);
+                                for (int index : simplified.parts[p]) {
+                                    // int32, meshes too big for short indices are split by the loader
+                                    writer.value(index);
+                                }
+                                writer.pop();
+                            } else {
+                                writeValue(writer, partChild);
+                            }
+                        }
+                        writer.pop();
+                    }
+                    writer.pop();
+                } else {
+                    writeValue(writer, child);
+                }
+            }
+            writer.pop();
+        }
+        writer.pop();
+    }
+
+    private void writeValue(UBJsonWriter writer, JsonValue value) throws IOException {
+        if (value.name != null) writer.name(value.name);
+
+        if (value.isObject()) {
+            writer.object();
+            for (JsonValue child = value.child; child != null; child = child.next) {
+                writeValue(writer, child);
+            }
+            writer.pop();
+        } else if (value.isArray()) {
+            writer.array();
+            for (JsonValue child = value.child; child != null; child = child.next) {
+                writeValue(writer, child);
+            }
+            writer.pop();
+        } else if (value.isString()) {
+            writer.value(value.asString());
+        } else if (value.isDouble()) {
+            // g3db stores floats
+            writer.value(value.asFloat());
+        } else if (value.isLong()) {
+            // the g3db reader uses the old UBJSON format, where the sizes of 'i' and 'I' differ
+            // from the UBJsonWriter. int32 and int64 are the same in both formats
+            final long l = value.asLong();
+            if (l >= Integer.MIN_VALUE && l <= Integer.MAX_VALUE) {
+                writer.value((int) l);
+            } else {
+                writer.value(l);
+            }
+        } else if (value.isBoolean()) {
+            writer.value(value.asBoolean());
+        } else {
+            writer.value();
+        }
+    }
+
+    private static class SimplifiedMesh {
+        float[] vertices;
+        int[][] parts;
+    }
+
+}
@@ -0,0 +1,464 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mbrlabs.mundus.editor.assets;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * Reduces the triangle count of indexed triangle meshes with quadric error
+ * metrics (Garland & Heckbert).
+ *
+ * Uses half edge collapses: a vertex is merged into one of its neighbours and
+ * no new vertices are created. That way all vertex attributes (normals, uvs,
+ * colors, bone weights) stay untouched. To preserve uv seams and hard normals,
+ * vertices that share their position with other vertices (i.e. lie on an
+ * attribute seam) are never removed and collapses that would pull a triangle
+ * across a seam are rejected. Open borders are kept in place by additional
+ * constraint planes. Collapses that flip or strongly tilt a triangle are
+ * rejected as well.
+ *
+ * All parts of a mesh share one vertex buffer and are simplified together, so
+ * no cracks appear between parts. A part never loses its last triangle.
+ *
+ * Instances are not thread safe, but independent meshes can be simplified in
+ * parallel with one instance each.
+ *
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+public class MeshSimplifier {
+
+    /** Weight of the constraint planes along open borders. */
+    private static final double BORDER_WEIGHT = 1000;
+    /** Minimum cosine between a triangle normal before and after a collapse. */
+    private static final double MIN_NORMAL_DOT = 0.2;
+
+    private float[] vertices;
+    private int stride;
+    private int posOffset;
+    private int vertexCount;
+
+    private int[] posId; // vertex -> representative vertex with the same position
+    private int[] posCount; // representative -> number of vertices with this position
+    private boolean[] locked;
+    private boolean[] removed;
+    private double[] quadrics; // 10 doubles per representative vertex
+
+    private int[] tris;
+    private int[] triPart;
+    private boolean[] triRemoved;
+    private int[] partAlive;
+    private IntArray[] vertexTris;
+
+    /**
+     * Simplifies the triangle parts of a mesh.
+     *
+     * @param vertices
+     *            interleaved vertex data
+     * @param stride
+     *            number of floats per vertex
+     * @param posOffset
+     *            offset of the position (3 floats) inside a vertex
+     * @param parts
+     *            triangle indices per part. null entries (e.g. non triangle
+     *            parts) are not simplified
+     * @param lockedVertices
+     *            vertices that must not be removed, e.g. vertices used by non
+     *            triangle parts. May be null
+     * @param ratio
+     *            target fraction of triangles, e.g. 0.5
+     * @return simplified indices per part. null for null input parts
+     */
+    public int[][] simplify(float[] vertices, int stride, int posOffset, int[][] parts, int[] lockedVertices,
+            float ratio) {
+        this.vertices = vertices;
+        this.stride = stride;
+        this.posOffset = posOffset;
+        this.vertexCount = vertices.length / stride;
+
+        weldPositions();
+
+        locked = new boolean[vertexCount];
+        removed = new boolean[vertexCount];
+        if (lockedVertices != null) {
+            for (int v : lockedVertices) {
+                locked[v] = true;
+            }
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            if (posCount[posId[v]] > 1) locked[v] = true;
+        }
+
+        buildTriangles(parts);
+        computeQuadrics();
+
+        final int target = Math.max(1, (int) (tris.length / 3 * ratio));
+        collapse(target);
+
+        // collect remaining triangles per part, in original order
+        final int[][] result = new int[parts.length][];
+        final IntArray[] out = new IntArray[parts.length];
+        for (int t = 0; t < triPart.length; t++) {
+            if (triRemoved[t]) continue;
+            final int part = triPart[t];
+            if (out[part] == null) out[part] = new IntArray(parts[part].length);
+            out[part].add(tris[t * 3], tris[t * 3 + 1], tris[t * 3 + 2]);
+        }
+        for (int i = 0; i < parts.length; i++) {
+            if (parts[i] == null) continue;
+            result[i] = out[i] == null ? new int[0] : out[i].toArray();
+        }
+
+        return result;
+    }
+
+    /**
+     * Maps every vertex to the first vertex with exactly the same position.
+     */
+    private void weldPositions() {
+        posId = new int[vertexCount];
+        posCount = new int[vertexCount];
+
+        int size = Integer.highestOneBit(Math.max(vertexCount, 1) * 2 - 1) << 1;
+        final int[] table = new int[size];
+        Arrays.fill(table, -1);
+        final int mask = size - 1;
+
+        for (int v = 0; v < vertexCount; v++) {
+            final int base = v * stride + posOffset;
+            int hash = Float.floatToIntBits(vertices[base]) * 73856093
+                    ^ Float.floatToIntBits(vertices[base + 1]) * 19349663
+                    ^ Float.floatToIntBits(vertices[base + 2]) * 83492791;
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (true) {
+                final int other = table[slot];
+                if (other == -1) {
+                    table[slot] = v;
+                    posId[v] = v;
+                    break;
+                }
+                if (samePosition(v, other)) {
+                    posId[v] = other;
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+            posCount[posId[v]]++;
+        }
+    }
+
+    private boolean samePosition(int a, int b) {
+        final int ia = a * stride + posOffset;
+        final int ib = b * stride + posOffset;
+        return vertices[ia] == vertices[ib] && vertices[ia + 1] == vertices[ib + 1]
+                && vertices[ia + 2] == vertices[ib + 2];
+    }
+
+    private void buildTriangles(int[][] parts) {
+        int count = 0;
+        for (int[] part : parts) {
+            if (part != null) count += part.length / 3;
+        }
+
+        tris = new int[count * 3];
+        triPart = new int[count];
+        triRemoved = new boolean[count];
+        partAlive = new int[parts.length];
+        vertexTris = new IntArray[vertexCount];
+
+        int t = 0;
+        for (int p = 0; p < parts.length; p++) {
+            if (parts[p] == null) continue;
+            for (int i = 0; i + 2 < parts[p].length; i += 3) {
+                tris[t * 3] = parts[p][i];
+                tris[t * 3 + 1] = parts[p][i + 1];
+                tris[t * 3 + 2] = parts[p][i + 2];
+                triPart[t] = p;
+                partAlive[p]++;
+                for (int k = 0; k < 3; k++) {
+                    final int v = parts[p][i + k];
+                    if (vertexTris[v] == null) vertexTris[v] = new IntArray(6);
+                    vertexTris[v].add(t);
+                }
+                t++;
+            }
+        }
+    }
+
+    private void computeQuadrics() {
+        quadrics = new double[vertexCount * 10];
+        final double[] n = new double[4];
+
+        // face planes, area weighted
+        for (int t = 0; t < triPart.length; t++) {
+            final int a = tris[t * 3], b = tris[t * 3 + 1], c = tris[t * 3 + 2];
+            final double area = plane(a, b, c, n);
+            if (area <= 0) continue;
+            addPlane(posId[a], n, area);
+            addPlane(posId[b], n, area);
+            addPlane(posId[c], n, area);
+        }
+
+        // open borders: edges (in position space) used by only one triangle
+        final HashMap<Long, Integer> edges = new HashMap<>();
+        for (int t = 0; t < triPart.length; t++) {
+            for (int k = 0; k < 3; k++) {
+                final long key = edgeKey(posId[tris[t * 3 + k]], posId[tris[t * 3 + (k + 1) % 3]]);
+                final Integer c = edges.get(key);
+                edges.put(key, c == null ? 1 : c + 1);
+            }
+        }
+        final double[] e = new double[3];
+        for (int t = 0; t < triPart.length; t++) {
+            final int a = tris[t * 3], b = tris[t * 3 + 1], c = tris[t * 3 + 2];
+            if (plane(a, b, c, n) <= 0) continue;
+            for (int k = 0; k < 3; k++) {
+                final int p0 = posId[tris[t * 3 + k]];
+                final int p1 = posId[tris[t * 3 + (k + 1) % 3]];
+                if (edges.get(edgeKey(p0, p1)) != 1) continue;
+
+                // plane through the edge, perpendicular to the face
+                final int i0 = p0 * stride + posOffset, i1 = p1 * stride + posOffset;
+                e[0] = vertices[i1] - vertices[i0];
+                e[1] = vertices[i1 + 1] - vertices[i0 + 1];
+                e[2] = vertices[i1 + 2] - vertices[i0 + 2];
+                final double len2 = e[0] * e[0] + e[1] * e[1] + e[2] * e[2];
+                final double[] bn = new double[4];
+                bn[0] = e[1] * n[2] - e[2] * n[1];
+                bn[1] = e[2] * n[0] - e[0] * n[2];
+                bn[2] = e[0] * n[1] - e[1] * n[0];
+                final double len = Math.sqrt(bn[0] * bn[0] + bn[1] * bn[1] + bn[2] * bn[2]);
+                if (len == 0) continue;
+                bn[0] /= len;
+                bn[1] /= len;
+                bn[2] /= len;
+                bn[3] = -(bn[0] * vertices[i0] + bn[1] * vertices[i0 + 1] + bn[2] * vertices[i0 + 2]);
+                addPlane(p0, bn, BORDER_WEIGHT * len2);
+                addPlane(p1, bn, BORDER_WEIGHT * len2);
+            }
+        }
+    }
+
+    private static long edgeKey(int a, int b) {
+        return a < b ? ((long) a << 32) | b : ((long) b << 32) | a;
+    }
+
+    /**
+     * Computes the normalized plane of a triangle.
+     *
+     * @return area of the triangle
+     */
+    private double plane(int a, int b, int c, double[] out) {
+        final int ia = a * stride + posOffset, ib = b * stride + posOffset, ic = c * stride + posOffset;
+        return plane(vertices[ia], vertices[ia + 1], vertices[ia + 2], vertices[ib], vertices[ib + 1],
+                vertices[ib + 2], vertices[ic], vertices[ic + 1], vertices[ic + 2], out);
+    }
+
+    private static double plane(double ax, double ay, double az, double bx, double by, double bz, double cx,
+            double cy, double cz, double[] out) {
+        final double ux = bx - ax, uy = by - ay, uz = bz - az;
+        final double vx = cx - ax, vy = cy - ay, vz = cz - az;
+        double nx = uy * vz - uz * vy;
+        double ny = uz * vx - ux * vz;
+        double nz = ux * vy - uy * vx;
+        final double len = Math.sqrt(nx * nx + ny * ny + nz * nz);
+        if (len == 0) return 0;
+        nx /= len;
+        ny /= len;
+        nz /= len;
+        out[0] = nx;
+        out[1] = ny;
+        out[2] = nz;
+        out[3] = -(nx * ax + ny * ay + nz * az);
+        return len * 0.5;
+    }
+
+    private void addPlane(int rep, double[] p, double w) {
+        final int q = rep * 10;
+        quadrics[q] += w * p[0] * p[0];
+        quadrics[q + 1] += w * p[0] * p[1];
+        quadrics[q + 2] += w * p[0] * p[2];
+        quadrics[q + 3] += w * p[0] * p[3];
+        quadrics[q + 4] += w * p[1] * p[1];
+        quadrics[q + 5] += w * p[1] * p[2];
+        quadrics[q + 6] += w * p[1] * p[3];
+        quadrics[q + 7] += w * p[2] * p[2];
+        quadrics[q + 8] += w * p[2] * p[3];
+        quadrics[q + 9] += w * p[3] * p[3];
+    }
+
+    /**
+     * Error of moving vertex a onto vertex b.
+     */
+    private double cost(int a, int b) {
+        final int qa = posId[a] * 10, qb = posId[b] * 10;
+        final int i = b * stride + posOffset;
+        final double x = vertices[i], y = vertices[i + 1], z = vertices[i + 2];
+        final double[] q = quadrics;
+        final double q0 = q[qa] + q[qb], q1 = q[qa + 1] + q[qb + 1], q2 = q[qa + 2] + q[qb + 2];
+        final double q3 = q[qa + 3] + q[qb + 3], q4 = q[qa + 4] + q[qb + 4], q5 = q[qa + 5] + q[qb + 5];
+        final double q6 = q[qa + 6] + q[qb + 6], q7 = q[qa + 7] + q[qb + 7], q8 = q[qa + 8] + q[qb + 8];
+        final double q9 = q[qa + 9] + q[qb + 9];
+        return q0 * x * x + 2 * q1 * x * y + 2 * q2 * x * z + 2 * q3 * x + q4 * y * y + 2 * q5 * y * z
+                + 2 * q6 * y + q7 * z * z + 2 * q8 * z + q9;
+    }
+
+    private void collapse(int targetTriangles) {
+        final PriorityQueue<Collapse> queue = new PriorityQueue<Collapse>();
+        for (int t = 0; t < triPart.length; t++) {
+            pushEdges(queue, t);
+        }
+
+        int alive = triPart.length;
+        final double[] n0 = new double[4];
+        final double[] n1 = new double[4];
+
+        while (alive > targetTriangles && !queue.isEmpty()) {
+            final Collapse c = queue.poll();
+            final int a = c.from, b = c.to;
+            if (removed[a] || removed[b] || !adjacent(a, b)) continue;
+
+            // neighbourhood changed since the collapse was queued
+            final double cost = cost(a, b);
+            if (cost > c.cost + 1e-12) {
+                c.cost = cost;
+                queue.add(c);
+                continue;
+            }
+
+            if (!canCollapse(a, b, n0, n1)) continue;
+
+            // commit
+            final IntArray trisOfA = vertexTris[a];
+            for (int i = 0; i < trisOfA.size; i++) {
+                final int t = trisOfA.get(i);
+                if (triRemoved[t]) continue;
+                if (tris[t * 3] == b || tris[t * 3 + 1] == b || tris[t * 3 + 2] == b) {
+                    triRemoved[t] = true;
+                    partAlive[triPart[t]]--;
+                    alive--;
+                } else {
+                    for (int k = 0; k < 3; k++) {
+                        if (tris[t * 3 + k] == a) tris[t * 3 + k] = b;
+                    }
+                    vertexTris[b].add(t);
+                }
+            }
+            removed[a] = true;
+            vertexTris[a] = null;
+
+            final int qa = posId[a] * 10, qb = posId[b] * 10;
+            for (int i = 0; i < 10; i++) {
+                quadrics[qb + i] += quadrics[qa + i];
+            }
+
+            // new candidates around b
+            final IntArray trisOfB = vertexTris[b];
+            int w = 0;
+            for (int i = 0; i < trisOfB.size; i++) {
+                final int t = trisOfB.get(i);
+                if (triRemoved[t]) continue;
+                trisOfB.set(w++, t);
+                pushEdges(queue, t);
+            }
+            trisOfB.size = w;
+        }
+    }
+
+    private boolean adjacent(int a, int b) {
+        final IntArray trisOfA = vertexTris[a];
+        if (trisOfA == null) return false;
+        for (int i = 0; i < trisOfA.size; i++) {
+            final int t = trisOfA.get(i);
+            if (!triRemoved[t] && (tris[t * 3] == b || tris[t * 3 + 1] == b || tris[t * 3 + 2] == b)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean canCollapse(int a, int b, double[] n0, double[] n1) {
+        final int pb = posId[b];
+        final int ib = b * stride + posOffset;
+        final IntArray trisOfA = vertexTris[a];
+
+        for (int i = 0; i < trisOfA.size; i++) {
+            final int t = trisOfA.get(i);
+            if (triRemoved[t]) continue;
+
+            final int v0 = tris[t * 3], v1 = tris[t * 3 + 1], v2 = tris[t * 3 + 2];
+            if (v0 == b || v1 == b || v2 == b) {
+                // parts must keep at least one triangle
+                if (partAlive[triPart[t]] <= 1) return false;
+                continue;
+            }
+
+            // triangle touches another vertex at b's position: collapsing would cross a seam
+            if (posId[v0] == pb || posId[v1] == pb || posId[v2] == pb) return false;
+
+            // orientation before and after the collapse
+            if (plane(v0, v1, v2, n0) <= 0) continue;
+            final int[] v = { v0, v1, v2 };
+            final double[] p = new double[9];
+            for (int k = 0; k < 3; k++) {
+                final int idx = v[k] == a ? ib : v[k] * stride + posOffset;
+                p[k * 3] = vertices[idx];
+                p[k * 3 + 1] = vertices[idx + 1];
+                p[k * 3 + 2] = vertices[idx + 2];
+            }
+            if (plane(p[0], p[1], p[2], p[3], p[4], p[5], p[6], p[7], p[8], n1) <= 0) return false;
+            if (n0[0] * n1[0] + n0[1] * n1[1] + n0[2] * n1[2] < MIN_NORMAL_DOT) return false;
+        }
+
+        return true;
+    }
+
+    private void pushEdges(PriorityQueue<Collapse> queue, int t) {
+        for (int k = 0; k < 3; k++) {
+            final int a = tris[t * 3 + k];
+            final int b = tris[t * 3 + (k + 1) % 3];
+            if (!locked[a]) queue.add(new Collapse(a, b, cost(a, b)));
+            if (!locked[b]) queue.add(new Collapse(b, a, cost(b, a)));
+        }
+    }
+
+    /**
+     * Half edge collapse of from onto to.
+     */
+    private static class Collapse implements Comparable<Collapse> {
+        final int from;
+        final int to;
+        double cost;
+
+        Collapse(int from, int to, double cost) {
+            this.from = from;
+            this.to = to;
+            this.cost = cost;
+        }
+
+        @Override
+        public int compareTo(Collapse o) {
+            return Double.compare(cost, o.cost);
+        }
+    }
+
+}
@@ -65,6 +65,18 @@ class MetaSaver {
             json.writeObjectEnd()
         }
 
+        // default levels of detail
+        if(model.lods.size > 0) {
+            json.writeArrayStart(MetaModel.JSON_LODS)
+            for (i in 0..model.lods.size - 1) {
+                json.writeObjectStart()
+                json.writeValue(MetaModel.JSON_LOD_MODEL, model.lods[i])
+                json.writeValue(MetaModel.JSON_LOD_SCREEN_SIZE, model.lodScreenSizes[i])
+                json.writeObjectEnd()
+            }
+            json.writeArrayEnd()
+        }
+
         json.writeObjectEnd()
     }
 
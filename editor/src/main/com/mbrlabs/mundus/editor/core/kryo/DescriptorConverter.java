@@ -34,6 +34,7 @@ import com.mbrlabs.mundus.commons.env.lights.BaseLight;
 import com.mbrlabs.mundus.commons.scene3d.GameObject;
 import com.mbrlabs.mundus.commons.scene3d.SceneGraph;
 import com.mbrlabs.mundus.commons.scene3d.components.Component;
+import com.mbrlabs.mundus.commons.scene3d.components.ModelLod;
 import com.mbrlabs.mundus.editor.core.EditorScene;
 import com.mbrlabs.mundus.editor.core.kryo.descriptors.*;
 import com.mbrlabs.mundus.editor.core.project.ProjectContext;
@@ -136,7 +137,7 @@ public class DescriptorConverter {
     public static GameObject convert(GameObjectDescriptor descriptor, SceneGraph sceneGraph,
             Map<String, Asset> assets) {
         final GameObject go = new GameObject(sceneGraph, descriptor.getName(), descriptor.getId());
-        go.active = descriptor.isActive();
+        go.setActive(descriptor.isActive());
 
         // transformation
         final float[] transform = descriptor.getTransform();
@@ -160,6 +161,9 @@ public class DescriptorConverter {
             }
         }
 
+        // after components & children, so the static batcher sees the complete game object
+        go.setStatic(descriptor.isStatic());
+
         return go;
     }
 
@@ -168,7 +172,8 @@ public class DescriptorConverter {
         GameObjectDescriptor descriptor = new GameObjectDescriptor();
         descriptor.setName(go.name);
         descriptor.setId(go.id);
-        descriptor.setActive(go.active);
+        descriptor.setActive(go.isActive());
+        descriptor.setStatic(go.isStatic());
 
         // translation
         go.getLocalPosition(tempVec);
@@ -233,6 +238,16 @@ public class DescriptorConverter {
             component.getMaterials().put(g3dbMatID, matAsset);
         }
 
+        // levels of detail
+        for (LodDescriptor lodDescriptor : descriptor.getLods()) {
+            ModelAsset lodModel = (ModelAsset) assets.get(lodDescriptor.getModelID());
+            if (lodModel == null) {
+                Log.error(TAG, "LOD model not found: {}", lodDescriptor.getModelID());
+                continue;
+            }
+            component.addLod(lodModel, lodDescriptor.getScreenSize());
+        }
+
         return component;
     }
 
@@ -245,6 +260,14 @@ public class DescriptorConverter {
             descriptor.getMaterials().put(g3dbMatID, modelComponent.getMaterials().get(g3dbMatID).getID());
         }
 
+        // levels of detail
+        for (ModelLod lod : modelComponent.getLods()) {
+            LodDescriptor lodDescriptor = new LodDescriptor();
+            lodDescriptor.setModelID(lod.getModelAsset().getID());
+            lodDescriptor.setScreenSize(lod.getScreenSize());
+            descriptor.getLods().add(lodDescriptor);
+        }
+
         return descriptor;
     }
 
@@ -427,6 +450,8 @@ public class DescriptorConverter {
         // export settings
         descriptor.setExportAllAssets(settings.getExport().allAssets);
         descriptor.setExportCompressScenes(settings.getExport().compressScenes);
+        descriptor.setExportBundle(settings.getExport().bundle);
+        descriptor.setExportBinaryScenes(settings.getExport().binaryScenes);
         if(settings.getExport().outputFolder != null) {
             descriptor.setExportOutputFolder(settings.getExport().outputFolder.path());
         }
@@ -442,6 +467,8 @@ public class DescriptorConverter {
         // export settings
         settings.getExport().allAssets = descriptor.isExportAllAssets();
         settings.getExport().compressScenes = descriptor.isExportCompressScenes();
+        settings.getExport().bundle = descriptor.isExportBundle();
+        settings.getExport().binaryScenes = descriptor.isExportBinaryScenes();
         if(descriptor.getExportOutputFolder() != null && descriptor.getExportOutputFolder().length() > 0) {
             settings.getExport().outputFolder = new FileHandle(descriptor.getExportOutputFolder());
         }
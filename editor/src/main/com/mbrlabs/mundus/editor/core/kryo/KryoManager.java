@@ -45,6 +45,9 @@ import com.mbrlabs.mundus.editor.core.registry.Registry;
  * not load or initialize any data (like for example it does not load meshes or
  * textures). This has to be done separately (ProjectManager).
  *
+ * Kryo is not thread safe, so all methods are synchronized. The UI thread
+ * may save or load while an export reads scenes on other threads.
+ *
  * @author Marcus Brummer
  * @version 12-12-2015
  */
@@ -80,6 +83,7 @@ public class KryoManager {
         // components
         kryo.register(ModelComponentDescriptor.class, 12);
         kryo.register(TerrainComponentDescriptor.class, 13);
+        kryo.register(LodDescriptor.class, 14);
     }
 
     /**
@@ -89,7 +93,7 @@ public class KryoManager {
      *
      * @return mundus registry
      */
-    public Registry loadRegistry() {
+    public synchronized Registry loadRegistry() {
         try {
             Input input = new Input(new FileInputStream(Registry.HOME_DATA_FILE));
             RegistryDescriptor registryDescriptor = kryo.readObjectOrNull(input, RegistryDescriptor.class);
@@ -110,7 +114,7 @@ public class KryoManager {
      * @param registry
      *            mundus registry
      */
-    public void saveRegistry(Registry registry) {
+    public synchronized void saveRegistry(Registry registry) {
         try {
             Output output = new Output(new FileOutputStream(Registry.HOME_DATA_FILE));
             RegistryDescriptor descriptor = DescriptorConverter.convert(registry);
@@ -130,7 +134,7 @@ public class KryoManager {
      * @param context
      *            project context to save
      */
-    public void saveProjectContext(ProjectContext context) {
+    public synchronized void saveProjectContext(ProjectContext context) {
         try {
             Output output = new Output(new FileOutputStream(context.path + "/" +
                     context.name + "." + ProjectManager.PROJECT_EXTENSION));
@@ -156,7 +160,7 @@ public class KryoManager {
      * @return loaded project context without scenes
      * @throws FileNotFoundException
      */
-    public ProjectContext loadProjectContext(ProjectRef ref) throws FileNotFoundException {
+    public synchronized ProjectContext loadProjectContext(ProjectRef ref) throws FileNotFoundException {
         // find .pro file
         FileHandle projectFile = null;
         for (FileHandle f : Gdx.files.absolute(ref.getPath()).list()) {
@@ -185,7 +189,7 @@ public class KryoManager {
      * @param scene
      *            scene to save
      */
-    public void saveScene(ProjectContext context, Scene scene) {
+    public synchronized void saveScene(ProjectContext context, Scene scene) {
         try {
             String sceneDir = FilenameUtils.concat(context.path + "/" + ProjectManager.PROJECT_SCENES_DIR,
                     scene.getName() + "." + ProjectManager.PROJECT_SCENE_EXTENSION);
@@ -202,6 +206,19 @@ public class KryoManager {
         }
     }
 
+    /**
+     * Serializes a scene descriptor into the same bytes saveScene() writes.
+     *
+     * @param descriptor
+     *            scene descriptor
+     * @return serialized scene
+     */
+    public synchronized byte[] serializeScene(SceneDescriptor descriptor) {
+        Output output = new Output(4096, -1);
+        kryo.writeObject(output, descriptor);
+        return output.toBytes();
+    }
+
     /**
      * Loads a scene.
      *
@@ -215,7 +232,7 @@ public class KryoManager {
      * @return loaded scene
      * @throws FileNotFoundException
      */
-    public SceneDescriptor loadScene(ProjectContext context, String sceneName) throws FileNotFoundException {
+    public synchronized SceneDescriptor loadScene(ProjectContext context, String sceneName) throws FileNotFoundException {
         String sceneDir = FilenameUtils.concat(context.path + "/" + ProjectManager.PROJECT_SCENES_DIR,
                 sceneName + "." + ProjectManager.PROJECT_SCENE_EXTENSION);
 
@@ -47,6 +47,9 @@ public class GameObjectDescriptor {
     @Tag(7)
     private TerrainComponentDescriptor terrainComponent;
 
+    @Tag(8)
+    private boolean isStatic;
+
     public GameObjectDescriptor() {
         childs = new ArrayList<>();
         tags = new ArrayList<>();
@@ -76,6 +79,14 @@ public class GameObjectDescriptor {
         this.active = active;
     }
 
+    public boolean isStatic() {
+        return isStatic;
+    }
+
+    public void setStatic(boolean isStatic) {
+        this.isStatic = isStatic;
+    }
+
     public float[] getTransform() {
         return transform;
     }
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mbrlabs.mundus.editor.core.kryo.descriptors;
+
+import com.esotericsoftware.kryo.serializers.TaggedFieldSerializer.Tag;
+
+/**
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+public class LodDescriptor {
+
+    @Tag(0)
+    private String modelID;
+    @Tag(1)
+    private float screenSize;
+
+    public String getModelID() {
+        return modelID;
+    }
+
+    public void setModelID(String modelID) {
+        this.modelID = modelID;
+    }
+
+    public float getScreenSize() {
+        return screenSize;
+    }
+
+    public void setScreenSize(float screenSize) {
+        this.screenSize = screenSize;
+    }
+
+}
@@ -16,6 +16,7 @@
 
 package com.mbrlabs.mundus.editor.core.kryo.descriptors;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 
 import com.esotericsoftware.kryo.serializers.TaggedFieldSerializer.Tag;
@@ -30,9 +31,18 @@ public class ModelComponentDescriptor {
     private String modelID;
     @Tag(1)
     private HashMap<String, String> materials; // g3db material id to material asset uuid
+    @Tag(2)
+    private ArrayList<LodDescriptor> lods;
 
     public ModelComponentDescriptor() {
         this.materials = new HashMap<>();
+        this.lods = new ArrayList<>();
+    }
+
+    public ArrayList<LodDescriptor> getLods() {
+        // null for projects saved before lods existed
+        if (lods == null) lods = new ArrayList<>();
+        return lods;
     }
 
     public HashMap<String, String> getMaterials() {
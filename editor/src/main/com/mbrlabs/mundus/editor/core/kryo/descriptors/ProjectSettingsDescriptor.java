@@ -33,6 +33,10 @@ public class ProjectSettingsDescriptor {
     private String exportOutputFolder;
     @Tag(3)
     private String jsonType;
+    @Tag(4)
+    private boolean exportBundle;
+    @Tag(5)
+    private boolean exportBinaryScenes = true;
 
     public String getJsonType() {
         return jsonType;
@@ -58,6 +62,22 @@ public class ProjectSettingsDescriptor {
         this.exportAllAssets = exportAllAssets;
     }
 
+    public boolean isExportBundle() {
+        return exportBundle;
+    }
+
+    public void setExportBundle(boolean exportBundle) {
+        this.exportBundle = exportBundle;
+    }
+
+    public boolean isExportBinaryScenes() {
+        return exportBinaryScenes;
+    }
+
+    public void setExportBinaryScenes(boolean exportBinaryScenes) {
+        this.exportBinaryScenes = exportBinaryScenes;
+    }
+
     public String getExportOutputFolder() {
         return exportOutputFolder;
     }
@@ -40,6 +40,7 @@ public class Registry {
     public static final String HOME_DIR = FilenameUtils.concat(FileUtils.getUserDirectoryPath(), ".mundus/");
     public static final String LOGS_DIR = FilenameUtils.concat(HOME_DIR, "logs/");
     public static final String TEMP_DIR = FilenameUtils.concat(HOME_DIR, "temp/");
+    public static final String META_INDEX_DIR = FilenameUtils.concat(HOME_DIR, "metaindex/");
     public static final String HOME_DATA_FILE = FilenameUtils.concat(HOME_DIR, "mundus.registry");
 
     private List<ProjectRef> projects;
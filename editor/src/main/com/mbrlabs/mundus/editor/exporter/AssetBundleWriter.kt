@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mbrlabs.mundus.editor.exporter
+
+import com.badlogic.gdx.files.FileHandle
+import com.mbrlabs.mundus.commons.importer.AssetBundleFormat
+import java.io.FileInputStream
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+
+/**
+ * Packs files into an asset bundle (see [AssetBundleFormat]).
+ *
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+class AssetBundleWriter {
+
+    private class Entry(val key: String, val path: String, val file: FileHandle) {
+        val keyBytes: ByteArray = key.toByteArray(Charsets.UTF_8)
+        val pathBytes: ByteArray = path.toByteArray(Charsets.UTF_8)
+        var offset = 0L
+        var length = 0L
+    }
+
+    private val entries = ArrayList<Entry>()
+
+    /**
+     * @param key uuid of the asset the file belongs to or an empty string
+     * @param path path inside the bundle, relative to the export root
+     * @param file file to pack
+     */
+    fun add(key: String, path: String, file: FileHandle) {
+        entries.add(Entry(key, path, file))
+    }
+
+    /**
+     * @return sum of the sizes of all added files
+     */
+    fun size(): Long {
+        return entries.fold(0L) { sum, entry -> sum + entry.file.length() }
+    }
+
+    /**
+     * Writes the bundle.
+     *
+     * @param target bundle file
+     * @param progress optional progress, the bytes of every packed file are added
+     */
+    fun write(target: FileHandle, progress: ExportProgress? = null) {
+        entries.sortWith(compareBy<Entry>({ it.key }, { it.path }))
+
+        // layout: header, table of contents, aligned entries
+        var tocSize = 0L
+        for (entry in entries) {
+            tocSize += 2 + entry.keyBytes.size + 2 + entry.pathBytes.size + 8 + 8
+        }
+        var offset = AssetBundleFormat.align(AssetBundleFormat.HEADER_SIZE + tocSize)
+        for (entry in entries) {
+            entry.offset = offset
+            entry.length = entry.file.length()
+            offset = AssetBundleFormat.align(offset + entry.length)
+        }
+        if (offset > Integer.MAX_VALUE) {
+            throw IllegalStateException("Asset bundle would be larger than 2 GB")
+        }
+
+        val header = ByteBuffer.allocate((AssetBundleFormat.HEADER_SIZE + tocSize).toInt())
+        header.putInt(AssetBundleFormat.MAGIC)
+        header.putInt(AssetBundleFormat.VERSION)
+        header.putInt(entries.size)
+        header.putInt(tocSize.toInt())
+        for (entry in entries) {
+            header.putShort(entry.keyBytes.size.toShort())
+            header.put(entry.keyBytes)
+            header.putShort(entry.pathBytes.size.toShort())
+            header.put(entry.pathBytes)
+            header.putLong(entry.offset)
+            header.putLong(entry.length)
+        }
+        header.flip()
+
+        RandomAccessFile(target.file(), "rw").use { raf ->
+            // full size first, transferFrom() does not write beyond the end of the file.
+            // the gaps between entries are zero filled by the file system
+            raf.setLength(0)
+            raf.setLength(offset)
+            val output = raf.channel
+            while (header.hasRemaining()) output.write(header)
+
+            for (entry in entries) {
+                FileInputStream(entry.file.file()).channel.use { input ->
+                    var position = 0L
+                    while (position < entry.length) {
+                        val copied = output.transferFrom(input, entry.offset + position, entry.length - position)
+                        if (copied <= 0) break
+                        position += copied
+                    }
+                }
+                progress?.add(entry.length)
+            }
+        }
+    }
+
+}
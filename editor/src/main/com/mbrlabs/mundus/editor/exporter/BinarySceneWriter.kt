@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.editor.exporter
+
+import com.badlogic.gdx.files.FileHandle
+import com.mbrlabs.mundus.commons.importer.BinarySceneFormat
+import com.mbrlabs.mundus.editor.core.kryo.descriptors.GameObjectDescriptor
+import com.mbrlabs.mundus.editor.core.kryo.descriptors.ModelComponentDescriptor
+import com.mbrlabs.mundus.editor.core.kryo.descriptors.SceneDescriptor
+import java.io.BufferedOutputStream
+import java.io.ByteArrayOutputStream
+import java.io.DataOutputStream
+
+/**
+ * Writes scenes in the binary scene format (see [BinarySceneFormat]).
+ *
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+class BinarySceneWriter {
+
+    private val strings = ArrayList<String>()
+    private val stringIndex = HashMap<String, Int>()
+    private var count = 0
+
+    fun write(scene: SceneDescriptor, file: FileHandle) {
+        strings.clear()
+        stringIndex.clear()
+        count = 0
+
+        // records first, they fill the string table
+        val records = ByteArrayOutputStream()
+        val recordsOut = DataOutputStream(records)
+        for (go in scene.gameObjects) {
+            writeGameObject(go, BinarySceneFormat.NO_PARENT, recordsOut)
+        }
+        val name = string(scene.name ?: "")
+
+        DataOutputStream(BufferedOutputStream(file.write(false))).use { out ->
+            out.writeInt(BinarySceneFormat.MAGIC)
+            out.writeInt(BinarySceneFormat.VERSION)
+            out.writeLong(scene.id)
+            out.writeInt(name)
+
+            out.writeInt(strings.size)
+            for (string in strings) {
+                val bytes = string.toByteArray(Charsets.UTF_8)
+                out.writeShort(bytes.size)
+                out.write(bytes)
+            }
+
+            out.writeInt(count)
+            records.writeTo(out)
+        }
+    }
+
+    private fun writeGameObject(go: GameObjectDescriptor, parent: Int, out: DataOutputStream) {
+        val index = count++
+        out.writeInt(parent)
+        out.writeInt(go.id)
+        out.writeInt(string(go.name ?: ""))
+
+        var flags = 0
+        if (go.isActive) flags = flags or BinarySceneFormat.FLAG_ACTIVE.toInt()
+        if (go.isStatic) flags = flags or BinarySceneFormat.FLAG_STATIC.toInt()
+        if (go.modelComponent != null) flags = flags or BinarySceneFormat.FLAG_MODEL.toInt()
+        if (go.terrainComponent != null) flags = flags or BinarySceneFormat.FLAG_TERRAIN.toInt()
+        out.writeByte(flags)
+
+        for (i in 0 until BinarySceneFormat.TRANSFORM_FLOATS) {
+            out.writeFloat(go.transform[i])
+        }
+
+        val tags = go.tags ?: emptyList<String>()
+        out.writeShort(tags.size)
+        for (tag in tags) out.writeInt(string(tag))
+
+        if (go.modelComponent != null) writeModelComponent(go.modelComponent, out)
+        if (go.terrainComponent != null) out.writeInt(string(go.terrainComponent.terrainID))
+
+        // pre-order: children directly follow their parent
+        for (child in go.childs ?: emptyList<GameObjectDescriptor>()) {
+            writeGameObject(child, index, out)
+        }
+    }
+
+    private fun writeModelComponent(comp: ModelComponentDescriptor, out: DataOutputStream) {
+        out.writeInt(string(comp.modelID))
+
+        out.writeShort(comp.materials.size)
+        for ((key, value) in comp.materials) {
+            out.writeInt(string(key))
+            out.writeInt(string(value))
+        }
+
+        out.writeShort(comp.lods.size)
+        for (lod in comp.lods) {
+            out.writeInt(string(lod.modelID))
+            out.writeFloat(lod.screenSize)
+        }
+    }
+
+    /**
+     * @return index of the string in the string table or -1 for null
+     */
+    private fun string(value: String?): Int {
+        if (value == null) return -1
+        return stringIndex.getOrPut(value) {
+            strings.add(value)
+            strings.size - 1
+        }
+    }
+
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mbrlabs.mundus.editor.exporter
+
+import com.badlogic.gdx.files.FileHandle
+import com.badlogic.gdx.utils.JsonReader
+import com.badlogic.gdx.utils.JsonValue
+import com.badlogic.gdx.utils.JsonWriter
+import java.security.MessageDigest
+
+/**
+ * Content hashes and output files of the last export.
+ *
+ * Stored in the export folder. Every exported item (asset, scene) is identified by a key and stores
+ * the hash of its sources and the output files it produced. An item only has to be exported again, if
+ * the hash changed or an output file is missing or has another size than when it was written. Items, that are not part of the project any more, are
+ * removed from the output folder by removeStale(). Thread safe, so items can be exported in parallel.
+ *
+ * Besides the hash, a cheap stamp (size & modification time of the source files) is stored. If the
+ * stamp did not change, the sources are not hashed at all. Items can also store the ids of the assets
+ * they reference, so they don't have to be parsed again while their stamp is the same.
+ *
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+class ExportManifest(val outputFolder: FileHandle) {
+
+    companion object {
+        const val FILE_NAME = ".export-manifest"
+        private const val VERSION = 2
+
+        /** SHA-1 of the content of all files. */
+        fun hash(vararg files: FileHandle): String {
+            val digest = MessageDigest.getInstance("SHA-1")
+            val buffer = ByteArray(65536)
+            for (file in files) {
+                file.read().use { input ->
+                    var read = input.read(buffer)
+                    while (read != -1) {
+                        digest.update(buffer, 0, read)
+                        read = input.read(buffer)
+                    }
+                }
+            }
+            return toHex(digest.digest())
+        }
+
+        /** SHA-1 of the bytes. */
+        fun hash(bytes: ByteArray): String {
+            return toHex(MessageDigest.getInstance("SHA-1").digest(bytes))
+        }
+
+        /** Size & modification time of all files. */
+        fun stamp(vararg files: FileHandle): String {
+            return files.joinToString("|") { "${it.length()}:${it.lastModified()}" }
+        }
+
+        private fun toHex(bytes: ByteArray): String {
+            val sb = StringBuilder(bytes.size * 2)
+            for (b in bytes) {
+                sb.append(String.format("%02x", b))
+            }
+            return sb.toString()
+        }
+    }
+
+    class Entry(val stamp: String?, val hash: String, val outputs: List<String>, val sizes: List<Long>,
+                val refs: List<String>? = null)
+
+    private val file = outputFolder.child(FILE_NAME)
+    private val entries = HashMap<String, Entry>()
+    private val visited = HashSet<String>()
+
+    /**
+     * Loads the manifest of the last export. Starts empty, if there is none or it can't be read.
+     */
+    @Synchronized
+    fun load() {
+        entries.clear()
+        visited.clear()
+        if (!file.exists()) return
+
+        try {
+            val root = JsonReader().parse(file)
+            if (root.getInt("version", 0) != VERSION) return
+            for (item in root.get("entries")) {
+                val outputs = item.get("out").map { it.asString() }
+                val sizes = item.get("sizes").map { it.asLong() }
+                val refs = item.get("refs")?.map { it.asString() }
+                entries.put(item.name, Entry(item.getString("stamp", null), item.getString("hash"), outputs, sizes,
+                        refs))
+            }
+        } catch (e: Exception) {
+            // corrupt manifest, export everything again
+            entries.clear()
+        }
+    }
+
+    @Synchronized
+    fun save() {
+        val root = JsonValue(JsonValue.ValueType.`object`)
+        root.addChild("version", JsonValue(VERSION.toLong()))
+        val items = JsonValue(JsonValue.ValueType.`object`)
+        for ((key, entry) in entries) {
+            val item = JsonValue(JsonValue.ValueType.`object`)
+            if (entry.stamp != null) item.addChild("stamp", JsonValue(entry.stamp))
+            item.addChild("hash", JsonValue(entry.hash))
+            val outputs = JsonValue(JsonValue.ValueType.array)
+            for (output in entry.outputs) outputs.addChild(JsonValue(output))
+            item.addChild("out", outputs)
+            val sizes = JsonValue(JsonValue.ValueType.array)
+            for (size in entry.sizes) sizes.addChild(JsonValue(size))
+            item.addChild("sizes", sizes)
+            if (entry.refs != null) {
+                val refs = JsonValue(JsonValue.ValueType.array)
+                for (ref in entry.refs) refs.addChild(JsonValue(ref))
+                item.addChild("refs", refs)
+            }
+            items.addChild(key, item)
+        }
+        root.addChild("entries", items)
+        file.writeString(root.toJson(JsonWriter.OutputType.json), false)
+    }
+
+    /**
+     * @return entry of the last export, if all its output files still exist with the size they were written
+     *         with. Null, if an output file was deleted, truncated or replaced since
+     */
+    @Synchronized
+    fun get(key: String): Entry? {
+        val entry = entries[key] ?: return null
+        if (entry.sizes.size != entry.outputs.size) return null
+        for ((i, output) in entry.outputs.withIndex()) {
+            val file = outputFolder.child(output)
+            if (!file.exists() || file.length() != entry.sizes[i]) return null
+        }
+        return entry
+    }
+
+    /**
+     * Records an exported (or unchanged) item, together with the current sizes of its output files. Output
+     * files of the previous export, that are not produced any more, are deleted.
+     */
+    @Synchronized
+    fun put(key: String, stamp: String?, hash: String, outputs: List<String>, refs: List<String>? = null) {
+        val sizes = outputs.map { outputFolder.child(it).length() }
+        val old = entries.put(key, Entry(stamp, hash, outputs, sizes, refs))
+        if (old != null) {
+            old.outputs.filter { it !in outputs }.forEach { outputFolder.child(it).delete() }
+        }
+        visited.add(key)
+    }
+
+    /**
+     * Keeps an unchanged item without modifying it.
+     */
+    @Synchronized
+    fun keep(key: String) {
+        visited.add(key)
+    }
+
+    /**
+     * Deletes the output files of all items, that were not put() or kept since load().
+     *
+     * @return number of removed items
+     */
+    @Synchronized
+    fun removeStale(): Int {
+        val stale = entries.keys.filter { it !in visited }
+        for (key in stale) {
+            entries.remove(key)?.outputs?.forEach { outputFolder.child(it).delete() }
+        }
+        return stale.size
+    }
+
+    /**
+     * @return path of the file relative to the output folder, with forward slashes
+     */
+    fun relativePath(file: FileHandle): String {
+        return file.file().absoluteFile.relativeTo(outputFolder.file().absoluteFile).path.replace('\\', '/')
+    }
+
+}
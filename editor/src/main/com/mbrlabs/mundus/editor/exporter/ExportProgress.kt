@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mbrlabs.mundus.editor.exporter
+
+import com.mbrlabs.mundus.editor.utils.formatBytes
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Byte based progress of an export.
+ *
+ * Workers add the bytes they processed, the export task reads the progress, throughput and remaining
+ * time from it. Thread safe.
+ *
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+class ExportProgress(val totalBytes: Long) {
+
+    private val doneBytes = AtomicLong(0)
+    private val start = System.nanoTime()
+
+    val done: Long
+        get() = doneBytes.get()
+
+    fun add(bytes: Long) {
+        doneBytes.addAndGet(bytes)
+    }
+
+    fun percent(): Int {
+        if (totalBytes <= 0) return 100
+        return Math.min(100L, done * 100 / totalBytes).toInt()
+    }
+
+    /**
+     * @return processed bytes per second since the export started
+     */
+    fun throughput(): Long {
+        val seconds = (System.nanoTime() - start) / 1000000000.0
+        return if (seconds > 0) (done / seconds).toLong() else 0
+    }
+
+    /**
+     * @return estimated remaining seconds or -1, if nothing was processed yet
+     */
+    fun eta(): Long {
+        val throughput = throughput()
+        if (throughput <= 0) return -1
+        return Math.max(0L, totalBytes - done) / throughput
+    }
+
+    override fun toString(): String {
+        val eta = eta()
+        return "${formatBytes(done)} / ${formatBytes(totalBytes)}, ${formatBytes(throughput())}/s, " +
+                "ETA ${if (eta < 0) "-" else "${eta}s"}"
+    }
+
+}
@@ -17,12 +17,18 @@
 package com.mbrlabs.mundus.editor.exporter
 
 import com.badlogic.gdx.files.FileHandle
+import com.badlogic.gdx.utils.Array
 import com.badlogic.gdx.utils.Json
 import com.badlogic.gdx.utils.JsonWriter
 import com.kotcrab.vis.ui.util.async.AsyncTask
 import com.kotcrab.vis.ui.util.async.AsyncTaskListener
 import com.mbrlabs.mundus.commons.assets.Asset
+import com.mbrlabs.mundus.commons.assets.AssetDependencyGraph
+import com.mbrlabs.mundus.commons.assets.ModelAsset
+import com.mbrlabs.mundus.commons.g3d.BinaryModelLoader
+import com.mbrlabs.mundus.commons.importer.AssetBundleFormat
 import com.mbrlabs.mundus.commons.importer.JsonScene
+import com.mbrlabs.mundus.commons.importer.SceneAssetManifest
 import com.mbrlabs.mundus.editor.core.kryo.DescriptorConverter
 import com.mbrlabs.mundus.editor.core.kryo.KryoManager
 import com.mbrlabs.mundus.editor.core.kryo.descriptors.GameObjectDescriptor
@@ -31,8 +37,18 @@ import com.mbrlabs.mundus.editor.core.kryo.descriptors.SceneDescriptor
 import com.mbrlabs.mundus.editor.core.kryo.descriptors.TerrainComponentDescriptor
 import com.mbrlabs.mundus.editor.core.project.ProjectContext
 import com.mbrlabs.mundus.editor.core.project.ProjectManager
+import com.mbrlabs.mundus.editor.utils.Log
 import org.apache.commons.io.FilenameUtils
 import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import java.io.StringWriter
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
 
 /**
  * @author Marcus Brummer
@@ -40,8 +56,23 @@ import java.io.File
  */
 class Exporter(val kryo: KryoManager, val project: ProjectContext) {
 
+    companion object {
+        private val TAG = Exporter::class.java.simpleName
+        private const val BUNDLE_KEY = "bundle"
+
+        /** Number of files copied or converted concurrently. */
+        private val EXPORT_THREADS = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()))
+        private const val PROGRESS_INTERVAL_MILLIS = 100L
+        /** Maximum bytes per transferTo() call, so progress is reported while copying large files. */
+        private const val COPY_CHUNK_SIZE = 8L * 1024 * 1024
+    }
+
     /**
+     * Exports the project into the output folder.
      *
+     * The export is incremental: assets and scenes, whose content hash did not change since the last
+     * export into the same folder (see [ExportManifest]), are not copied or converted again. Output
+     * files of deleted assets and scenes are removed.
      */
     fun exportAsync(outputFolder: FileHandle, listener: AsyncTaskListener) {
 
@@ -49,59 +80,263 @@ class Exporter(val kryo: KryoManager, val project: ProjectContext) {
         // because it would iterate over the scene graph arrays while rendering (on the main thread)
         // and while converting (on the other thread)
         val currentSceneDescriptor = DescriptorConverter.convert(project.currScene)
+        val currentSceneBytes = kryo.serializeScene(currentSceneDescriptor)
         val jsonType = project.settings.export.jsonType
+        val bundle = project.settings.export.bundle
+        val binaryScenes = project.settings.export.binaryScenes
+        val currentSceneName = project.currScene.name
+        val scenes = project.scenes.toList()
+
+        // snapshot of the assets and their dependencies, the main thread keeps modifying the asset manager
+        val assets = project.assetManager.assets.toList()
+        val dependencyGraph = AssetDependencyGraph(HashMap(project.assetManager.assetMap))
+        for(asset in assets) dependencyGraph.getDependencies(asset.id)
 
         val task = object: AsyncTask("export_${project.name}") {
             override fun doInBackground() {
-                val assetManager = project.assetManager
-                val step = 100f / (assetManager.assets.size + project.scenes.size)
-                var progress = 0f
-
                 // create folder structure
                 createFolders(outputFolder)
 
-                // copy assets
                 val assetFolder = FileHandle(FilenameUtils.concat(outputFolder.path(), "assets/"))
                 val scenesFolder = FileHandle(FilenameUtils.concat(outputFolder.path(), "scenes/"))
 
-                // sleep a bit to open the progress dialog
-                Thread.sleep(250)
-
-                for(asset in assetManager.assets) {
-                    exportAsset(asset, assetFolder)
-                    progress += step
-                    setProgressPercent(progress.toInt())
-                    setMessage(asset.id)
-                    Thread.sleep(50)
+                // progress in bytes of the sources. unchanged items count as done as soon as they are checked
+                var totalBytes = 0L
+                for(asset in assets) {
+                    totalBytes += asset.file.length() + asset.meta.file.length()
                 }
+                val sceneBytes = HashMap<String, ByteArray>()
+                for(sceneName in scenes) {
+                    val current = currentSceneName == sceneName
+                    val bytes = if(current) currentSceneBytes else sceneFile(sceneName).readBytes()
+                    sceneBytes.put(sceneName, bytes)
+                    totalBytes += bytes.size
+                }
+                val progress = ExportProgress(totalBytes)
+                val exported = AtomicInteger(0)
+                val unchanged = AtomicInteger(0)
+
+                val manifest = ExportManifest(outputFolder)
+                manifest.load()
+                val pool = Executors.newFixedThreadPool(EXPORT_THREADS)
+                try {
+                    val jobs = ArrayList<Future<*>>()
+
+                    // copy new & changed assets
+                    for(asset in assets) {
+                        jobs.add(pool.submit(Runnable {
+                            val changed = exportAssetIfChanged(asset, assetFolder, manifest, progress)
+                            (if(changed) exported else unchanged).incrementAndGet()
+                        }))
+                    }
 
-                // load, convert & copy scenes
-                for(sceneName in project.scenes) {
-                    val file = FileHandle(FilenameUtils.concat(scenesFolder.path(),
-                            sceneName + "." + ProjectManager.PROJECT_SCENE_EXTENSION))
-
-                    // load from disk or convert current scene
-                    var scene: SceneDescriptor?
-                    if(project.currScene.name == sceneName) {
-                        scene = currentSceneDescriptor
-                    } else {
-                        scene = kryo.loadScene(project, sceneName)
+                    // convert & write new & changed scenes
+                    for(sceneName in scenes) {
+                        val bytes = sceneBytes[sceneName]!!
+                        val current = currentSceneName == sceneName
+                        jobs.add(pool.submit(Runnable {
+                            val file = FileHandle(FilenameUtils.concat(scenesFolder.path(),
+                                    sceneName + "." + ProjectManager.PROJECT_SCENE_EXTENSION))
+                            val assetManifestFile = SceneAssetManifest.file(file)
+                            val key = "scene:" + sceneName
+                            val entry = manifest.get(key)
+
+                            // the assets a scene references directly only change with the scene. they are
+                            // kept in the manifest, so unchanged scenes are not loaded from disk
+                            val sceneHash = ExportManifest.hash(bytes)
+                            var scene = if(current) currentSceneDescriptor else null
+                            val refs = if(entry != null && entry.refs != null && entry.stamp == sceneHash) entry.refs else {
+                                if(scene == null) scene = kryo.loadScene(project, sceneName)
+                                val ids = Array<String>()
+                                for(go in scene.gameObjects) collectAssetIds(go, ids)
+                                ids.toList()
+                            }
+                            // always needed, the assets a scene references transitively can change without the scene
+                            val assetManifest = sceneAssetManifest(refs, dependencyGraph)
+
+                            // the serialized descriptor, the output format & the asset manifest identify the scene
+                            val format = if(binaryScenes) "binary" else jsonType.toString()
+                            val hash = sceneHash + ":" + format + ":" +
+                                    ExportManifest.hash(assetManifest.toByteArray(Charsets.UTF_8))
+                            if(entry == null || entry.hash != hash) {
+                                if(scene == null) scene = kryo.loadScene(project, sceneName)
+                                if(binaryScenes) {
+                                    BinarySceneWriter().write(scene, file)
+                                } else {
+                                    exportScene(scene, file, jsonType)
+                                }
+                                assetManifestFile.writeString(assetManifest, false, "UTF-8")
+                                manifest.put(key, sceneHash, hash,
+                                        listOf(manifest.relativePath(file), manifest.relativePath(assetManifestFile)),
+                                        refs)
+                                exported.incrementAndGet()
+                            } else {
+                                manifest.keep(key)
+                                unchanged.incrementAndGet()
+                            }
+                            progress.add(bytes.size.toLong())
+                        }))
                     }
 
-                    // convert & export
-                    exportScene(scene, file, jsonType)
-                    progress += step
-                    setProgressPercent(progress.toInt())
-                    setMessage(scene.name)
-                    Thread.sleep(50)
+                    await(pool, jobs, progress, "")
+
+                    // pack the bundle, unless none of the packed files changed since it was written
+                    if(bundle) {
+                        val bundleFile = outputFolder.child(project.name + "." + AssetBundleFormat.EXTENSION)
+                        val (writer, hash) = bundleWriter(assets, scenes, assetFolder, scenesFolder, manifest)
+                        val entry = manifest.get(BUNDLE_KEY)
+                        if(entry == null || entry.hash != hash) {
+                            // without a hash until written, so a failed write is repeated by the next export
+                            val outputs = listOf(manifest.relativePath(bundleFile))
+                            manifest.put(BUNDLE_KEY, null, "", outputs)
+                            val bundleProgress = ExportProgress(writer.size())
+                            val bundlePool = Executors.newSingleThreadExecutor()
+                            try {
+                                val job = bundlePool.submit(Runnable { writer.write(bundleFile, bundleProgress) })
+                                await(bundlePool, listOf(job), bundleProgress, "Writing bundle: ")
+                            } finally {
+                                bundlePool.shutdownNow()
+                            }
+                            manifest.put(BUNDLE_KEY, null, hash, outputs)
+                            exported.incrementAndGet()
+                        } else {
+                            manifest.keep(BUNDLE_KEY)
+                            unchanged.incrementAndGet()
+                        }
+                    }
+
+                    val removed = manifest.removeStale()
+                    Log.info(TAG, "Exported {} items, {} unchanged, {} removed. {}", exported.get(), unchanged.get(),
+                            removed, progress)
+                } finally {
+                    pool.shutdownNow()
+                    manifest.save()
                 }
             }
+
+            /**
+             * Reports progress until all jobs are done. Fails as soon as one job failed.
+             */
+            private fun await(pool: ExecutorService, jobs: List<Future<*>>, progress: ExportProgress,
+                              message: String) {
+                pool.shutdown()
+                do {
+                    for(job in jobs) {
+                        if(job.isDone) getResult(job)
+                    }
+                    setProgressPercent(progress.percent())
+                    setMessage(message + progress)
+                } while(!pool.awaitTermination(PROGRESS_INTERVAL_MILLIS, TimeUnit.MILLISECONDS))
+                for(job in jobs) getResult(job)
+                setProgressPercent(100)
+            }
         }
 
         task.addListener(listener)
         task.execute()
     }
 
+    /**
+     * Waits for a job and rethrows the exception, that made it fail.
+     */
+    private fun getResult(job: Future<*>) {
+        try {
+            job.get()
+        } catch (e: ExecutionException) {
+            throw e.cause ?: e
+        }
+    }
+
+    /**
+     * Collects the exported assets & scenes for one bundle file, that can be used by the runtime instead
+     * of the assets & scenes folders.
+     *
+     * @return the writer and a hash over the packed paths and the manifest hashes of their items. The
+     * bundle has to be written again only if this hash changed
+     */
+    private fun bundleWriter(assets: List<Asset>, scenes: List<String>, assetFolder: FileHandle,
+                             scenesFolder: FileHandle, manifest: ExportManifest): Pair<AssetBundleWriter, String> {
+        val writer = AssetBundleWriter()
+        val contents = ArrayList<String>()
+        for(asset in assets) {
+            val hash = manifest.get("asset:" + asset.id)?.hash
+            for(file in assetOutputs(asset, assetFolder)) {
+                val path = "assets/" + file.name()
+                writer.add(asset.id, path, file)
+                contents.add(path + "=" + hash)
+            }
+        }
+        for(sceneName in scenes) {
+            val hash = manifest.get("scene:" + sceneName)?.hash
+            val file = scenesFolder.child(sceneName + "." + ProjectManager.PROJECT_SCENE_EXTENSION)
+            val assetManifestFile = SceneAssetManifest.file(file)
+            for(packed in arrayOf(file, assetManifestFile)) {
+                val path = "scenes/" + packed.name()
+                writer.add("", path, packed)
+                contents.add(path + "=" + hash)
+            }
+        }
+        contents.sort()
+        return Pair(writer, ExportManifest.hash(contents.joinToString("\n").toByteArray(Charsets.UTF_8)))
+    }
+
+    private fun sceneFile(sceneName: String): FileHandle {
+        return FileHandle(FilenameUtils.concat(project.path + "/" + ProjectManager.PROJECT_SCENES_DIR,
+                sceneName + "." + ProjectManager.PROJECT_SCENE_EXTENSION))
+    }
+
+    /**
+     * Exports an asset, if its asset, meta or binary model file changed since the last export or one of its
+     * output files is missing or has been modified.
+     *
+     * @return true if the asset was exported, false if it is unchanged
+     */
+    private fun exportAssetIfChanged(asset: Asset, folder: FileHandle, manifest: ExportManifest,
+                                     progress: ExportProgress): Boolean {
+        val key = "asset:" + asset.id
+        val sources = assetSources(asset)
+        val outputs = assetOutputs(asset, folder).map { manifest.relativePath(it) }
+        val stamp = ExportManifest.stamp(*sources)
+        val sourceBytes = sources.fold(0L) { sum, file -> sum + file.length() }
+
+        val entry = manifest.get(key)
+        if(entry != null && entry.stamp == stamp) {
+            manifest.keep(key)
+            progress.add(sourceBytes)
+            return false
+        }
+
+        val hash = ExportManifest.hash(*sources)
+        if(entry != null && entry.hash == hash) {
+            // touched, but same content
+            manifest.put(key, stamp, hash, outputs)
+            progress.add(sourceBytes)
+            return false
+        }
+
+        exportAsset(asset, folder, progress)
+        // the export can write the binary model, record the sources as they are now
+        val exportedSources = assetSources(asset)
+        manifest.put(key, ExportManifest.stamp(*exportedSources), ExportManifest.hash(*exportedSources), outputs)
+        return true
+    }
+
+    private fun assetSources(asset: Asset): kotlin.Array<FileHandle> {
+        if(asset is ModelAsset) {
+            val binaryFile = BinaryModelLoader.binaryFile(asset.file)
+            if(binaryFile.exists()) return arrayOf(asset.file, asset.meta.file, binaryFile)
+        }
+        return arrayOf(asset.file, asset.meta.file)
+    }
+
+    private fun assetOutputs(asset: Asset, folder: FileHandle): List<FileHandle> {
+        val outputs = arrayListOf(folder.child(asset.file.name()), folder.child(asset.meta.file.name()))
+        if(asset is ModelAsset) {
+            outputs.add(BinaryModelLoader.binaryFile(folder.child(asset.file.name())))
+        }
+        return outputs
+    }
+
     private fun createFolders(exportRootFolder: FileHandle) {
         // ROOT/assets
         val assets = File(FilenameUtils.concat(exportRootFolder.path(), "assets/"))
@@ -112,9 +347,85 @@ class Exporter(val kryo: KryoManager, val project: ProjectContext) {
         scenes.mkdirs()
     }
 
-    private fun exportAsset(asset: Asset, folder: FileHandle) {
-        asset.file.copyTo(folder)
-        asset.meta.file.copyTo(folder)
+    private fun exportAsset(asset: Asset, folder: FileHandle, progress: ExportProgress) {
+        copyFile(asset.file, folder.child(asset.file.name()), progress)
+        copyFile(asset.meta.file, folder.child(asset.meta.file.name()), progress)
+
+        // optimized binary version of the model, loaded without parsing by the runtime
+        if(asset is ModelAsset) {
+            val binaryFile = project.assetManager.optimizeModel(asset.file)
+            copyFile(binaryFile, folder.child(binaryFile.name()), progress)
+        }
+    }
+
+    /**
+     * Copies a file with FileChannel.transferTo(), which lets the OS copy without going through user
+     * space where supported.
+     */
+    private fun copyFile(source: FileHandle, target: FileHandle, progress: ExportProgress) {
+        FileInputStream(source.file()).channel.use { input ->
+            FileOutputStream(target.file()).channel.use { output ->
+                val size = input.size()
+                var position = 0L
+                while(position < size) {
+                    val copied = input.transferTo(position, Math.min(COPY_CHUNK_SIZE, size - position), output)
+                    if(copied <= 0) break
+                    position += copied
+                    progress.add(copied)
+                }
+            }
+        }
+    }
+
+    /**
+     * Lists all assets, a scene references directly or transitively, every asset after its dependencies
+     * (see [SceneAssetManifest]). The runtime indexes only these assets when loading the scene.
+     *
+     * @param ids ids of the assets the scene references directly
+     * @param dependencyGraph graph of all exported assets. Shared by the export threads
+     */
+    private fun sceneAssetManifest(ids: List<String>, dependencyGraph: AssetDependencyGraph): String {
+        val sorted = synchronized(dependencyGraph) {
+            dependencyGraph.sort(ids, Array<String>())
+        }
+
+        val writer = StringWriter()
+        val json = Json()
+        json.setOutputType(JsonWriter.OutputType.json)
+        json.setWriter(writer)
+        json.writeObjectStart()
+        json.writeArrayStart(SceneAssetManifest.ASSETS)
+        for(id in sorted) {
+            val asset = dependencyGraph.getAsset(id) ?: continue
+            json.writeObjectStart()
+            json.writeValue(SceneAssetManifest.ASSET_ID, id)
+            json.writeValue(SceneAssetManifest.ASSET_META, asset.meta.file.name())
+            json.writeObjectEnd()
+        }
+        json.writeArrayEnd()
+        json.writeObjectEnd()
+        json.writer.flush()
+
+        return writer.toString()
+    }
+
+    private fun collectAssetIds(go: GameObjectDescriptor, out: Array<String>) {
+        val model = go.modelComponent
+        if(model != null) {
+            if(model.modelID != null) out.add(model.modelID)
+            for(materialID in model.materials.values) {
+                if(materialID != null) out.add(materialID)
+            }
+            for(lod in model.lods) {
+                if(lod.modelID != null) out.add(lod.modelID)
+            }
+        }
+        val terrain = go.terrainComponent
+        if(terrain != null && terrain.terrainID != null) out.add(terrain.terrainID)
+
+        for(child in go.childs) {
+            collectAssetIds(child, out)
+        }
     }
 
     private fun exportScene(scene: SceneDescriptor, file: FileHandle, jsonType: JsonWriter.OutputType) {
@@ -139,7 +450,7 @@ class Exporter(val kryo: KryoManager, val project: ProjectContext) {
 
         json.writeObjectEnd()
 
-        json.writer.flush()
+        json.writer.close()
     }
 
     private fun convertGameObject(go: GameObjectDescriptor, json: Json) {
@@ -148,6 +459,7 @@ class Exporter(val kryo: KryoManager, val project: ProjectContext) {
         json.writeValue(JsonScene.GO_ID, go.id)
         json.writeValue(JsonScene.GO_NAME, go.name)
         json.writeValue(JsonScene.GO_ACTIVE, go.isActive)
+        json.writeValue(JsonScene.GO_STATIC, go.isStatic)
         json.writeValue(JsonScene.GO_TAGS, go.tags)
         json.writeValue(JsonScene.GO_TRANSFORM, go.transform)
 
@@ -156,9 +468,11 @@ class Exporter(val kryo: KryoManager, val project: ProjectContext) {
         if(go.terrainComponent != null) convertTerrainComponent(go.terrainComponent, json)
 
         // children
-        for(child in go.childs) {
+        if(go.childs.isNotEmpty()) {
             json.writeArrayStart(JsonScene.GO_CHILDREN)
-            convertGameObject(child, json)
+            for(child in go.childs) {
+                convertGameObject(child, json)
+            }
             json.writeArrayEnd()
         }
 
@@ -176,6 +490,18 @@ class Exporter(val kryo: KryoManager, val project: ProjectContext) {
         }
         json.writeObjectEnd()
 
+        // levels of detail
+        if(comp.lods.isNotEmpty()) {
+            json.writeArrayStart(JsonScene.MODEL_COMPONENT_LODS)
+            for(lod in comp.lods) {
+                json.writeObjectStart()
+                json.writeValue(JsonScene.LOD_MODEL_ID, lod.modelID)
+                json.writeValue(JsonScene.LOD_SCREEN_SIZE, lod.screenSize)
+                json.writeObjectEnd()
+            }
+            json.writeArrayEnd()
+        }
+
         json.writeObjectEnd()
     }
 
@@ -186,4 +512,4 @@ class Exporter(val kryo: KryoManager, val project: ProjectContext) {
     }
 
 
-}
\ No newline at end of file
+}
@@ -48,6 +48,8 @@ class DeleteCommand(private var go: GameObject?, private var node: Tree.Node?) :
         Log.trace(TAG, "Remove game object [{}]", go)
         // remove go from sceneGraph
         go!!.remove()
+        // the removed game objects don't use their assets anymore, until the delete is undone
+        go!!.releaseAssets()
         // remove from outline tree
         tree!!.remove(node!!)
         Mundus.postEvent(SceneGraphChangedEvent())
@@ -57,6 +59,7 @@ class DeleteCommand(private var go: GameObject?, private var node: Tree.Node?) :
         Log.trace(TAG, "Undo remove of game object [{}]", go)
         // add to sceneGraph
         parentGO!!.addChild(go)
+        go!!.retainAssets()
         // add to outline
         if (parentNode == null)
             tree!!.add(node)
@@ -16,11 +16,12 @@
 
 package com.mbrlabs.mundus.editor.scene3d.components;
 
-import com.badlogic.gdx.graphics.g3d.ModelInstance;
 import com.badlogic.gdx.graphics.g3d.Shader;
+import com.mbrlabs.mundus.commons.assets.ModelAsset;
 import com.mbrlabs.mundus.commons.scene3d.GameObject;
 import com.mbrlabs.mundus.commons.scene3d.components.Component;
 import com.mbrlabs.mundus.commons.scene3d.components.ModelComponent;
+import com.mbrlabs.mundus.commons.scene3d.components.ModelLod;
 import com.mbrlabs.mundus.editor.shader.Shaders;
 import com.mbrlabs.mundus.editor.tools.picker.PickerColorEncoder;
 import com.mbrlabs.mundus.editor.tools.picker.PickerIDAttribute;
@@ -38,7 +39,17 @@ public class PickableModelComponent extends ModelComponent implements PickableCo
     @Override
     public void encodeRaypickColorId() {
         PickerIDAttribute goIDa = PickerColorEncoder.encodeRaypickColorId(gameObject);
-        this.modelInstance.materials.first().set(goIDa);
+        this.baseModelInstance.materials.first().set(goIDa);
+        for (ModelLod lod : lods) {
+            lod.getModelInstance().materials.first().set(goIDa);
+        }
+    }
+
+    @Override
+    public ModelLod addLod(ModelAsset model, float screenSize) {
+        final ModelLod lod = super.addLod(model, screenSize);
+        lod.getModelInstance().materials.first().set(PickerColorEncoder.encodeRaypickColorId(gameObject));
+        return lod;
     }
 
     @Override
@@ -49,9 +60,7 @@ public class PickableModelComponent extends ModelComponent implements PickableCo
     @Override
     public Component clone(GameObject go) {
         PickableModelComponent mc = new PickableModelComponent(go, shader);
-        mc.modelAsset = this.modelAsset;
-        mc.modelInstance = new ModelInstance(modelAsset.getModel());
-        mc.shader = this.shader;
+        mc.copyFrom(this);
         mc.encodeRaypickColorId();
         return mc;
     }
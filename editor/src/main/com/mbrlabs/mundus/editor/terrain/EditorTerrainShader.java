@@ -16,14 +16,10 @@
 
 package com.mbrlabs.mundus.editor.terrain;
 
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.g3d.Renderable;
-import com.badlogic.gdx.graphics.glutils.ShaderProgram;
 import com.badlogic.gdx.math.Vector3;
-import com.badlogic.gdx.utils.GdxRuntimeException;
-import com.mbrlabs.mundus.commons.env.Fog;
-import com.mbrlabs.mundus.commons.env.MundusEnvironment;
 import com.mbrlabs.mundus.commons.shaders.TerrainShader;
+import com.mbrlabs.mundus.commons.utils.ShaderUtils;
 
 public class EditorTerrainShader extends TerrainShader {
 
@@ -37,33 +33,15 @@ public class EditorTerrainShader extends TerrainShader {
     private float pickerRadius = 0;
 
     public EditorTerrainShader() {
-        String vertexShader = "\n#define PICKER\n" + Gdx.files.classpath(VERTEX_SHADER).readString();
-        String fragmentShader = "\n#define PICKER\n" + Gdx.files.classpath(FRAGMENT_SHADER).readString();
-
-        program = new ShaderProgram(vertexShader, fragmentShader);
-        if (!program.isCompiled()) {
-            throw new GdxRuntimeException(program.getLog());
-        }
+        // replace the program of the terrain shader with one, that supports picking
+        program.dispose();
+        program = ShaderUtils.compile(VERTEX_SHADER, FRAGMENT_SHADER, prefix() + "#define PICKER\n");
     }
 
     @Override
     public void render(Renderable renderable) {
-        final MundusEnvironment env = (MundusEnvironment) renderable.environment;
-
-        setLights(env);
-        setTerrainSplatTextures(renderable);
         set(UNIFORM_TRANS_MATRIX, renderable.worldTransform);
-
-        // Fog
-        final Fog fog = env.getFog();
-        if (fog == null) {
-            set(UNIFORM_FOG_DENSITY, 0f);
-            set(UNIFORM_FOG_GRADIENT, 0f);
-        } else {
-            set(UNIFORM_FOG_DENSITY, fog.density);
-            set(UNIFORM_FOG_GRADIENT, fog.gradient);
-            set(UNIFORM_FOG_COLOR, fog.color);
-        }
+        bindMaterialAndEnvironment(renderable);
 
         // mouse picking
         if(pickerActive) {
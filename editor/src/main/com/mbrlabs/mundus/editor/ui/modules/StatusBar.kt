@@ -41,6 +41,7 @@ class StatusBar : VisTable() {
     private val right = VisTable()
 
     private val fpsLabel = VisLabel()
+    private val bindsLabel = VisLabel()
     private val camPos = VisLabel()
 
     private val speed01 = VisTextButton(".1")
@@ -71,6 +72,8 @@ class StatusBar : VisTable() {
         // right
         right.add(camPos).right()
         right.addSeparator(true).padLeft(5f).padRight(5f)
+        right.add(bindsLabel).right()
+        right.addSeparator(true).padLeft(5f).padRight(5f)
         right.add(fpsLabel).right()
 
         setupListeners()
@@ -98,6 +101,8 @@ class StatusBar : VisTable() {
 
     override fun act(delta: Float) {
         setFps(Gdx.graphics.framesPerSecond)
+        val stats = projectManager.current().currScene.sceneGraph.renderStats
+        setBinds(stats.lastFrameBinds, stats.lastFrameSavedBinds)
         setCamPos(projectManager.current().currScene.cam.position)
         super.act(delta)
     }
@@ -106,6 +111,10 @@ class StatusBar : VisTable() {
         this.fpsLabel.setText("fps: " + fps)
     }
 
+    private fun setBinds(binds: Int, saved: Int) {
+        this.bindsLabel.setText("binds: $binds (saved: $saved)")
+    }
+
     private fun setCamPos(pos: Vector3) {
         camPos.setText("camPos: " + formatFloat(pos.x, 2) + ", " + formatFloat(pos.y, 2) + ", "
                 + formatFloat(pos.z, 2))
@@ -70,6 +70,7 @@ class AmbientLightDialog : BaseDialog("Ambient Light"), ProjectChangedEvent.Proj
                 val d = convert(intensity.text)
                 if (d != null) {
                     projectContext.currScene.environment.ambientLight.intensity = d
+                    projectContext.currScene.environment.markDirty()
                 }
             }
         })
@@ -78,6 +79,7 @@ class AmbientLightDialog : BaseDialog("Ambient Light"), ProjectChangedEvent.Proj
         colorPickerField.colorAdapter = object: ColorPickerAdapter() {
             override fun finished(newColor: Color) {
                 projectContext.currScene.environment.ambientLight.color.set(color)
+                projectContext.currScene.environment.markDirty()
             }
         }
 
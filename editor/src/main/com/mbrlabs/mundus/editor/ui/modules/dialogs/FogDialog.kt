@@ -97,6 +97,7 @@ class FogDialog : BaseDialog("Fog"), ProjectChangedEvent.ProjectChangedListener,
                 val g = convert(gradient.text)
                 if (g != null) {
                     projectContext.currScene.environment.fog.gradient = g
+                    projectContext.currScene.environment.markDirty()
                 }
             }
         })
@@ -108,6 +109,7 @@ class FogDialog : BaseDialog("Fog"), ProjectChangedEvent.ProjectChangedListener,
                 val value = convert(density.text)
                 if (value != null) {
                     projectContext.currScene.environment.fog.density = value
+                    projectContext.currScene.environment.markDirty()
                 }
             }
         })
@@ -117,6 +119,7 @@ class FogDialog : BaseDialog("Fog"), ProjectChangedEvent.ProjectChangedListener,
             override fun finished(newColor: Color) {
                 val projectContext = projectManager.current()
                 projectContext.currScene.environment.fog.color.set(newColor)
+                projectContext.currScene.environment.markDirty()
             }
         }
 
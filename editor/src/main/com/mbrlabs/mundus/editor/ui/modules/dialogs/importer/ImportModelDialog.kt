@@ -35,14 +35,17 @@ import com.badlogic.gdx.utils.Disposable
 import com.badlogic.gdx.utils.GdxRuntimeException
 import com.badlogic.gdx.utils.UBJsonReader
 import com.kotcrab.vis.ui.util.dialog.Dialogs
+import com.kotcrab.vis.ui.widget.VisCheckBox
 import com.kotcrab.vis.ui.widget.VisLabel
 import com.kotcrab.vis.ui.widget.VisTable
 import com.kotcrab.vis.ui.widget.VisTextButton
+import com.kotcrab.vis.ui.widget.VisTextField
 import com.mbrlabs.mundus.commons.assets.ModelAsset
 import com.mbrlabs.mundus.commons.assets.meta.MetaModel
 import com.mbrlabs.mundus.commons.g3d.MG3dModelLoader
 import com.mbrlabs.mundus.editor.Mundus
 import com.mbrlabs.mundus.editor.assets.AssetAlreadyExistsException
+import com.mbrlabs.mundus.editor.assets.LodGenerator
 import com.mbrlabs.mundus.editor.assets.MetaSaver
 import com.mbrlabs.mundus.editor.assets.ModelImporter
 import com.mbrlabs.mundus.editor.core.project.ProjectManager
@@ -51,6 +54,7 @@ import com.mbrlabs.mundus.editor.ui.UI
 import com.mbrlabs.mundus.editor.ui.modules.dialogs.BaseDialog
 import com.mbrlabs.mundus.editor.ui.widgets.FileChooserField
 import com.mbrlabs.mundus.editor.ui.widgets.RenderWidget
+import com.mbrlabs.mundus.editor.utils.Callback
 import com.mbrlabs.mundus.editor.utils.Log
 import com.mbrlabs.mundus.editor.utils.isCollada
 import com.mbrlabs.mundus.editor.utils.isFBX
@@ -94,6 +98,8 @@ class ImportModelDialog : BaseDialog("Import Mesh"), Disposable {
         private var renderWidget: RenderWidget? = null
         private val importBtn = VisTextButton("IMPORT")
         private val modelInput = FileChooserField(300)
+        private val generateLods = VisCheckBox("Generate LODs")
+        private val lodRatios = VisTextField("0.5, 0.25, 0.125")
 
         // preview model + instance
         private var previewModel: Model? = null
@@ -145,6 +151,9 @@ class ImportModelDialog : BaseDialog("Import Mesh"), Disposable {
             inputTable.left().top()
             inputTable.add(VisLabel("Model File")).left().padBottom(5f).row()
             inputTable.add(modelInput).fillX().expandX().padBottom(10f).row()
+            inputTable.add(generateLods).left().padBottom(5f).row()
+            inputTable.add(VisLabel("LOD triangle ratios (max. ${LodGenerator.MAX_LODS})")).left().padBottom(5f).row()
+            inputTable.add(lodRatios).fillX().expandX().padBottom(10f).row()
             inputTable.add(importBtn).fillX().expand().bottom()
 
             modelInput.setEditable(false)
@@ -162,21 +171,36 @@ class ImportModelDialog : BaseDialog("Import Mesh"), Disposable {
             // import btn
             importBtn.addListener(object : ClickListener() {
                 override fun clicked(event: InputEvent?, x: Float, y: Float) {
+                    // levels of detail are still being generated
+                    if (importBtn.isDisabled) return
+
                     if (previewModel != null && previewInstance != null) {
-                        try {
-                            val modelAsset = importModel()
-                            Mundus.postEvent(AssetImportEvent(modelAsset))
-                            UI.toaster.success("Mesh imported")
-                        } catch (e: IOException) {
-                            e.printStackTrace()
-                            UI.toaster.error("Error while creating a ModelAsset")
-                        } catch (ee: AssetAlreadyExistsException) {
-                            Log.exception(TAG, ee)
-                            UI.toaster.error("Error: There already exists a model with the same name")
+                        val ratios = parseLodRatios()
+                        if (ratios == null) {
+                            UI.toaster.error("LOD ratios must be strictly descending, between 0 and 1 and "
+                                    + "separated by commas")
+                            return
+                        }
+                        if (ratios.isEmpty()) {
+                            finishImport(emptyList())
+                            return
                         }
 
-                        dispose()
-                        close()
+                        // simplification takes a while for large models, keep the ui responsive
+                        importBtn.isDisabled = true
+                        UI.toaster.info("Generating levels of detail...")
+                        LodGenerator().generate(importedModel!!.g3dbFile!!, ratios,
+                                object : Callback<List<FileHandle>> {
+                                    override fun done(result: List<FileHandle>) {
+                                        importBtn.isDisabled = false
+                                        finishImport(result)
+                                    }
+
+                                    override fun error(msg: String) {
+                                        importBtn.isDisabled = false
+                                        UI.toaster.error(msg)
+                                    }
+                                })
                     } else {
                         UI.toaster.error("There is nothing to import")
                     }
@@ -184,8 +208,40 @@ class ImportModelDialog : BaseDialog("Import Mesh"), Disposable {
             })
         }
 
+        private fun finishImport(lodFiles: List<FileHandle>) {
+            try {
+                val modelAsset = importModel(lodFiles)
+                Mundus.postEvent(AssetImportEvent(modelAsset))
+                UI.toaster.success("Mesh imported")
+            } catch (e: IOException) {
+                e.printStackTrace()
+                UI.toaster.error("Error while creating a ModelAsset")
+            } catch (ee: AssetAlreadyExistsException) {
+                Log.exception(TAG, ee)
+                UI.toaster.error("Error: There already exists a model with the same name")
+            }
+
+            dispose()
+            close()
+        }
+
+        /**
+         * @return lod ratios or null, if the input is invalid. Empty if no lods should be generated
+         */
+        private fun parseLodRatios(): FloatArray? {
+            if (!generateLods.isChecked) return FloatArray(0)
+
+            val parts = lodRatios.text.split(",").map(String::trim).filter(String::isNotEmpty)
+
+            val ratios = FloatArray(parts.size)
+            for ((i, part) in parts.withIndex()) {
+                ratios[i] = part.toFloatOrNull() ?: return null
+            }
+            return if (LodGenerator.isValidRatios(ratios)) ratios else null
+        }
+
         @Throws(IOException::class, AssetAlreadyExistsException::class)
-        private fun importModel(): ModelAsset {
+        private fun importModel(lodFiles: List<FileHandle>): ModelAsset {
 
             // create model asset
             val assetManager = projectManager.current().assetManager
@@ -199,8 +255,26 @@ class ImportModelDialog : BaseDialog("Import Mesh"), Disposable {
                 modelAsset.defaultMaterials.put(mat.id, materialAsset)
             }
 
-            // save meta file
+            // levels of detail. they share the materials of the base model, the model asset picks them up
+            // from the meta file when they are used the first time
             val saver = MetaSaver()
+            for ((i, lodFile) in lodFiles.withIndex()) {
+                val lodAsset = assetManager.createModelAsset(lodFile)
+                lodAsset.meta.model = MetaModel()
+                for (mat in modelAsset.meta.model.defaultMaterials) {
+                    lodAsset.meta.model.defaultMaterials.put(mat.key, mat.value)
+                    lodAsset.defaultMaterials.put(mat.key, modelAsset.defaultMaterials[mat.key])
+                }
+                saver.save(lodAsset.meta)
+                lodAsset.applyDependencies()
+
+                val screenSize = LodGenerator.defaultScreenSize(i + 1)
+                modelAsset.meta.model.lods.add(lodAsset.id)
+                modelAsset.meta.model.lodScreenSizes.add(screenSize)
+                Mundus.postEvent(AssetImportEvent(lodAsset))
+            }
+
+            // save meta file
             saver.save(modelAsset.meta)
 
             modelAsset.applyDependencies()
@@ -40,6 +40,8 @@ class ExportSettingsTable : BaseSettingsTable(), ProjectChangedEvent.ProjectChan
     private val jsonType = VisSelectBox<JsonWriter.OutputType>()
     private val allAssets = VisCheckBox("Export unused assets [will be ignored for now]")
     private val compression = VisCheckBox("Compress scenes [will be ignored for now]")
+    private val bundle = VisCheckBox("Pack assets & scenes into one bundle file")
+    private val binaryScenes = VisCheckBox("Export scenes in the binary format (json type is ignored)")
 
     private val projectManager: ProjectManager = Mundus.inject()
     private val kryoManager: KryoManager = Mundus.inject()
@@ -65,6 +67,8 @@ class ExportSettingsTable : BaseSettingsTable(), ProjectChangedEvent.ProjectChan
         add(VisLabel("Flags")).growX().row()
         add(allAssets).left().row()
         add(compression).left().row()
+        add(bundle).left().row()
+        add(binaryScenes).left().row()
 
         fileChooserField.setFileMode(FileChooser.SelectionMode.DIRECTORIES)
     }
@@ -80,6 +84,8 @@ class ExportSettingsTable : BaseSettingsTable(), ProjectChangedEvent.ProjectChan
         }
         allAssets.isChecked = exportSettings?.allAssets!!
         compression.isChecked = exportSettings.compressScenes
+        bundle.isChecked = exportSettings.bundle
+        binaryScenes.isChecked = exportSettings.binaryScenes
         jsonType.selected = exportSettings.jsonType
     }
 
@@ -87,6 +93,8 @@ class ExportSettingsTable : BaseSettingsTable(), ProjectChangedEvent.ProjectChan
         val exportSettings = projectManager.current().settings?.export ?: return
         exportSettings.allAssets = allAssets.isChecked
         exportSettings.compressScenes = compression.isChecked
+        exportSettings.bundle = bundle.isChecked
+        exportSettings.binaryScenes = binaryScenes.isChecked
         exportSettings.jsonType = jsonType.selected
         exportSettings.outputFolder = FileHandle(fileChooserField.path)
 
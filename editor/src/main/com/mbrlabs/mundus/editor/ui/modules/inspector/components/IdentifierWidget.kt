@@ -33,6 +33,7 @@ import com.mbrlabs.mundus.editor.core.project.ProjectManager
 class IdentifierWidget : VisTable() {
 
     private val active = VisCheckBox("", true)
+    private val static = VisCheckBox("Static", false)
     private val name = VisTextField("Name")
     private val tag = VisTextField("Untagged")
 
@@ -48,6 +49,7 @@ class IdentifierWidget : VisTable() {
         add<VisTextField>(name).padBottom(4f).left().top().expandX().fillX().row()
         add(VisLabel("Tag: ")).left().top()
         add<VisTextField>(tag).top().left().expandX().fillX().row()
+        add<VisCheckBox>(static).padTop(4f).left().top().colspan(2).row()
     }
 
     private fun setupListeners() {
@@ -56,7 +58,14 @@ class IdentifierWidget : VisTable() {
         active.addListener(object : ChangeListener() {
             override fun changed(event: ChangeListener.ChangeEvent, actor: Actor) {
                 if (projectContext.currScene.currentSelection == null) return
-                projectContext.currScene.currentSelection.active = active.isChecked
+                projectContext.currScene.currentSelection.isActive = active.isChecked
+            }
+        })
+
+        static.addListener(object : ChangeListener() {
+            override fun changed(event: ChangeListener.ChangeEvent, actor: Actor) {
+                if (projectContext.currScene.currentSelection == null) return
+                projectContext.currScene.currentSelection.isStatic = static.isChecked
             }
         })
 
@@ -70,7 +79,8 @@ class IdentifierWidget : VisTable() {
     }
 
     fun setValues(go: GameObject) {
-        active.isChecked = go.active
+        active.isChecked = go.isActive
+        static.isChecked = go.isStatic
         name.text = go.name
     }
 
@@ -16,12 +16,23 @@
 
 package com.mbrlabs.mundus.editor.ui.modules.inspector.components
 
+import com.badlogic.gdx.scenes.scene2d.Actor
+import com.badlogic.gdx.scenes.scene2d.InputEvent
+import com.badlogic.gdx.scenes.scene2d.utils.ChangeListener
+import com.badlogic.gdx.scenes.scene2d.utils.ClickListener
 import com.kotcrab.vis.ui.widget.VisLabel
 import com.kotcrab.vis.ui.widget.VisTable
+import com.kotcrab.vis.ui.widget.VisTextButton
+import com.mbrlabs.mundus.commons.assets.Asset
 import com.mbrlabs.mundus.commons.assets.MaterialAsset
+import com.mbrlabs.mundus.commons.assets.ModelAsset
 import com.mbrlabs.mundus.commons.scene3d.GameObject
 import com.mbrlabs.mundus.commons.scene3d.components.Component
 import com.mbrlabs.mundus.commons.scene3d.components.ModelComponent
+import com.mbrlabs.mundus.editor.assets.AssetModelFilter
+import com.mbrlabs.mundus.editor.ui.UI
+import com.mbrlabs.mundus.editor.ui.modules.dialogs.assets.AssetPickerDialog
+import com.mbrlabs.mundus.editor.ui.widgets.FloatFieldWithLabel
 import com.mbrlabs.mundus.editor.ui.widgets.MaterialWidget
 
 /**
@@ -31,6 +42,8 @@ import com.mbrlabs.mundus.editor.ui.widgets.MaterialWidget
 class ModelComponentWidget(modelComponent: ModelComponent) : ComponentWidget<ModelComponent>("Model Component", modelComponent) {
 
     private val materialContainer = VisTable()
+    private val lodContainer = VisTable()
+    private val addLodBtn = VisTextButton("Add LOD")
 
     init {
         this.component = modelComponent
@@ -56,6 +69,63 @@ class ModelComponentWidget(modelComponent: ModelComponent) : ComponentWidget<Mod
 
         collapsibleContent.add(materialContainer).grow().row()
         buildMaterials()
+
+        // levels of detail
+        collapsibleContent.add(VisLabel("Levels of detail")).expandX().fillX().left().padBottom(3f).padTop(3f).row()
+        collapsibleContent.addSeparator().row()
+
+        val lodLabel = VisLabel()
+        lodLabel.setWrap(true)
+        lodLabel.setText("A level is used, if the screen coverage of the model is below its screen size "
+                + "(1 = fills the screen vertically). LOD models should use the same materials as the base model.")
+        collapsibleContent.add(lodLabel).grow().padBottom(10f).row()
+
+        collapsibleContent.add(lodContainer).grow().row()
+        collapsibleContent.add(addLodBtn).left().padBottom(10f).row()
+        buildLods()
+
+        addLodBtn.addListener(object : ClickListener() {
+            override fun clicked(event: InputEvent?, x: Float, y: Float) {
+                UI.assetSelectionDialog.show(false, AssetModelFilter(), object : AssetPickerDialog.AssetPickerListener {
+                    override fun onSelected(asset: Asset?) {
+                        // half the screen size of the coarsest level so far
+                        val lods = component.lods
+                        val screenSize = if (lods.size == 0) 0.5f else lods.peek().screenSize * 0.5f
+                        component.addLod(asset as ModelAsset, screenSize)
+                        buildLods()
+                    }
+                })
+            }
+        })
+    }
+
+    private fun buildLods() {
+        lodContainer.clear()
+        for (lod in component.lods) {
+            val sizeField = FloatFieldWithLabel("Screen size", -1, false)
+            sizeField.setText(lod.screenSize.toString())
+            sizeField.addListener(object : ChangeListener() {
+                override fun changed(event: ChangeListener.ChangeEvent, actor: Actor) {
+                    // screen sizes must stay strictly descending, so sizes of other levels are rejected
+                    val size = sizeField.float
+                    val valid = size > 0f && component.lods.none { it !== lod && it.screenSize == size }
+                    sizeField.setInputValid(valid)
+                    if (valid) component.setLodScreenSize(lod, size)
+                }
+            })
+
+            val removeBtn = VisTextButton("Remove")
+            removeBtn.addListener(object : ClickListener() {
+                override fun clicked(event: InputEvent?, x: Float, y: Float) {
+                    component.removeLod(lod)
+                    buildLods()
+                }
+            })
+
+            lodContainer.add(VisLabel(lod.modelAsset.name)).left().expandX().fillX()
+            lodContainer.add(sizeField).width(120f).padLeft(5f)
+            lodContainer.add(removeBtn).padLeft(5f).row()
+        }
     }
 
     private fun buildMaterials() {
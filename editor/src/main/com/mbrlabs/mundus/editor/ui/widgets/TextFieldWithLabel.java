@@ -69,6 +69,13 @@ public class TextFieldWithLabel extends VisTable {
         textField.setText(text);
     }
 
+    /**
+     * Marks the input as invalid, e.g. if it is out of range.
+     */
+    public void setInputValid(boolean valid) {
+        textField.setInputValid(valid);
+    }
+
     public void setLabelText(String text) {
         label.setText(toString());
     }
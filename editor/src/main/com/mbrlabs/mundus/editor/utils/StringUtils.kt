@@ -26,3 +26,10 @@ fun formatFloat(f: Float, digits: Int): String {
 }
 
 
+
+fun formatBytes(bytes: Long): String {
+    if (bytes < 1024) return "$bytes B"
+    if (bytes < 1024 * 1024) return formatFloat(bytes / 1024f, 1) + " KB"
+    if (bytes < 1024 * 1024 * 1024) return formatFloat(bytes / (1024f * 1024f), 1) + " MB"
+    return formatFloat(bytes / (1024f * 1024f * 1024f), 2) + " GB"
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mbrlabs.mundus.runtime;
+
+import com.badlogic.gdx.Files;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.ObjectIntMap;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.StreamUtils;
+import com.mbrlabs.mundus.commons.importer.AssetBundleFormat;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read-only view of an asset bundle written by the exporter (see
+ * {@link AssetBundleFormat}).
+ *
+ * The bundle is memory mapped, if it is a file in the file system. Otherwise
+ * (e.g. internal files on Android) it is read into memory once. Files of the
+ * bundle are accessed with {@link BundleFileHandle}s, so the runtime can use
+ * it like the exported folder:
+ *
+ * <pre>
+ * Mundus mundus = new Mundus(AssetBundle.open(Gdx.files.internal("game.bundle")).getRoot());
+ * </pre>
+ *
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+public class AssetBundle {
+
+    private final FileHandle file;
+    private final ByteBuffer buffer;
+
+    // table of contents, sorted by key, then path
+    private final String[] keys;
+    private final String[] paths;
+    private final int[] offsets;
+    private final int[] lengths;
+
+    // path to entry index
+    private final ObjectIntMap<String> pathIndex;
+    // folder path to names of its files and sub folders
+    private final ObjectMap<String, Array<String>> folders;
+
+    private AssetBundle(FileHandle file, ByteBuffer buffer) {
+        this.file = file;
+        this.buffer = buffer;
+
+        if (buffer.getInt(0) != AssetBundleFormat.MAGIC) {
+            throw new GdxRuntimeException("Not an asset bundle: " + file.path());
+        }
+        final int version = buffer.getInt(4);
+        if (version != AssetBundleFormat.VERSION) {
+            throw new GdxRuntimeException("Unsupported asset bundle version " + version + ": " + file.path());
+        }
+
+        final int count = buffer.getInt(8);
+        keys = new String[count];
+        paths = new String[count];
+        offsets = new int[count];
+        lengths = new int[count];
+        pathIndex = new ObjectIntMap<String>(count);
+        folders = new ObjectMap<String, Array<String>>();
+        folders.put("", new Array<String>());
+
+        final ByteBuffer toc = buffer.duplicate();
+        toc.position(AssetBundleFormat.HEADER_SIZE);
+        for (int i = 0; i < count; i++) {
+            keys[i] = readString(toc);
+            paths[i] = readString(toc);
+            final long offset = toc.getLong();
+            final long length = toc.getLong();
+            if (offset + length > buffer.capacity()) {
+                throw new GdxRuntimeException("Corrupt asset bundle entry " + paths[i] + ": " + file.path());
+            }
+            offsets[i] = (int) offset;
+            lengths[i] = (int) length;
+            pathIndex.put(paths[i], i);
+            addToFolder(paths[i]);
+        }
+    }
+
+    /**
+     * Opens an asset bundle.
+     *
+     * @param file
+     *            bundle file
+     * @return asset bundle
+     */
+    public static AssetBundle open(FileHandle file) {
+        if (file.type() != Files.FileType.Classpath && file.file().isFile()) {
+            return new AssetBundle(file, map(file));
+        }
+        return new AssetBundle(file, ByteBuffer.wrap(file.readBytes()));
+    }
+
+    private static ByteBuffer map(FileHandle file) {
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file.file(), "r");
+            final FileChannel channel = raf.getChannel();
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new GdxRuntimeException("Asset bundle larger than 2 GB: " + file.path());
+            }
+            // the mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Can't map asset bundle: " + file.path(), e);
+        } finally {
+            StreamUtils.closeQuietly(raf);
+        }
+    }
+
+    /**
+     * @return handle of the bundle root. Same as the root of the exported
+     *         folder
+     */
+    public FileHandle getRoot() {
+        return new BundleFileHandle(this, "");
+    }
+
+    public FileHandle getFile() {
+        return file;
+    }
+
+    /**
+     * @return number of files in the bundle
+     */
+    public int size() {
+        return paths.length;
+    }
+
+    /**
+     * Finds all files of an asset (asset file, meta file & derived files)
+     * with a binary search in the table of contents.
+     *
+     * @param uuid
+     *            asset id
+     * @param out
+     *            paths of the files are added to this array
+     * @return out
+     */
+    public Array<String> findAssetFiles(String uuid, Array<String> out) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(uuid) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        for (int i = low; i < keys.length && keys[i].equals(uuid); i++) {
+            out.add(paths[i]);
+        }
+        return out;
+    }
+
+    /**
+     * @return true if there is a file with that path
+     */
+    public boolean isFile(String path) {
+        return pathIndex.containsKey(path);
+    }
+
+    /**
+     * @return true if there is a file in that folder or its sub folders
+     */
+    public boolean isFolder(String path) {
+        return folders.containsKey(path);
+    }
+
+    /**
+     * @return names of the files and sub folders of a folder. Empty, if it
+     *         is no folder
+     */
+    Array<String> list(String path) {
+        final Array<String> names = folders.get(path);
+        return names != null ? names : new Array<String>(0);
+    }
+
+    /**
+     * @return length of a file in bytes or 0, if there is no such file
+     */
+    public long length(String path) {
+        final int index = pathIndex.get(path, -1);
+        return index < 0 ? 0 : lengths[index];
+    }
+
+    /**
+     * Returns the content of a file without copying it.
+     *
+     * @param path
+     *            path of the file
+     * @return read-only buffer, that covers the file content
+     * @throws GdxRuntimeException
+     *             if there is no such file
+     */
+    public ByteBuffer slice(String path) {
+        final int index = pathIndex.get(path, -1);
+        if (index < 0) {
+            throw new GdxRuntimeException("File not found in asset bundle " + file.path() + ": " + path);
+        }
+        final ByteBuffer slice = buffer.asReadOnlyBuffer();
+        slice.position(offsets[index]);
+        slice.limit(offsets[index] + lengths[index]);
+        return slice.slice();
+    }
+
+    /**
+     * Adds the name of a file to its folder. Missing parent folders are
+     * created and added to their parents as well.
+     */
+    private void addToFolder(String path) {
+        String child = path;
+        while (true) {
+            final int slash = child.lastIndexOf('/');
+            final String parent = slash < 0 ? "" : child.substring(0, slash);
+            final String name = slash < 0 ? child : child.substring(slash + 1);
+
+            Array<String> names = folders.get(parent);
+            if (names != null) {
+                names.add(name);
+                return;
+            }
+            names = new Array<String>();
+            names.add(name);
+            folders.put(parent, names);
+            child = parent;
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        final int length = buffer.getShort() & 0xFFFF;
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        try {
+            return new String(bytes, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new GdxRuntimeException(e);
+        }
+    }
+
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mbrlabs.mundus.runtime;
+
+import com.badlogic.gdx.Files;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.mbrlabs.mundus.commons.utils.MappedFile;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FilenameFilter;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * File handle of a file or folder in an {@link AssetBundle}.
+ *
+ * Reading serves the content directly from the (memory mapped) bundle, so no
+ * file is opened. Listing, child(), parent() and sibling() stay inside the
+ * bundle. Bundle files are read-only, writing throws like for internal files.
+ *
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+public class BundleFileHandle extends FileHandle implements MappedFile {
+
+    private final AssetBundle bundle;
+    // path inside the bundle, "" is the root
+    private final String bundlePath;
+
+    BundleFileHandle(AssetBundle bundle, String bundlePath) {
+        super(new File(bundlePath), Files.FileType.Internal);
+        this.bundle = bundle;
+        this.bundlePath = bundlePath;
+    }
+
+    public AssetBundle getBundle() {
+        return bundle;
+    }
+
+    /**
+     * @return a path, that does not exist in the file system, so the file
+     *         system is never used instead of the bundle
+     */
+    @Override
+    public File file() {
+        return new File(bundle.getFile().path() + "!/" + bundlePath);
+    }
+
+    @Override
+    public InputStream read() {
+        return new ByteBufferInputStream(bundle.slice(bundlePath));
+    }
+
+    @Override
+    public byte[] readBytes() {
+        final ByteBuffer content = bundle.slice(bundlePath);
+        final byte[] bytes = new byte[content.remaining()];
+        content.get(bytes);
+        return bytes;
+    }
+
+    @Override
+    public ByteBuffer map() {
+        return bundle.slice(bundlePath);
+    }
+
+    @Override
+    public boolean exists() {
+        return bundle.isFile(bundlePath) || bundle.isFolder(bundlePath);
+    }
+
+    @Override
+    public boolean isDirectory() {
+        return bundle.isFolder(bundlePath);
+    }
+
+    @Override
+    public long length() {
+        return bundle.length(bundlePath);
+    }
+
+    @Override
+    public long lastModified() {
+        return 0;
+    }
+
+    @Override
+    public FileHandle child(String name) {
+        if (bundlePath.length() == 0) return new BundleFileHandle(bundle, name);
+        return new BundleFileHandle(bundle, bundlePath + "/" + name);
+    }
+
+    @Override
+    public FileHandle sibling(String name) {
+        if (bundlePath.length() == 0) throw new GdxRuntimeException("Cannot get the sibling of the root.");
+        return parent().child(name);
+    }
+
+    @Override
+    public FileHandle parent() {
+        final int slash = bundlePath.lastIndexOf('/');
+        return new BundleFileHandle(bundle, slash < 0 ? "" : bundlePath.substring(0, slash));
+    }
+
+    @Override
+    public FileHandle[] list() {
+        final Array<String> names = bundle.list(bundlePath);
+        final FileHandle[] handles = new FileHandle[names.size];
+        for (int i = 0; i < names.size; i++) {
+            handles[i] = child(names.get(i));
+        }
+        return handles;
+    }
+
+    @Override
+    public FileHandle[] list(FileFilter filter) {
+        final Array<FileHandle> handles = new Array<FileHandle>(FileHandle.class);
+        for (FileHandle child : list()) {
+            if (filter.accept(new File(child.path()))) handles.add(child);
+        }
+        return handles.toArray();
+    }
+
+    @Override
+    public FileHandle[] list(FilenameFilter filter) {
+        final Array<FileHandle> handles = new Array<FileHandle>(FileHandle.class);
+        final File dir = new File(bundlePath);
+        for (FileHandle child : list()) {
+            if (filter.accept(dir, child.name())) handles.add(child);
+        }
+        return handles.toArray();
+    }
+
+    @Override
+    public FileHandle[] list(String suffix) {
+        final Array<FileHandle> handles = new Array<FileHandle>(FileHandle.class);
+        for (FileHandle child : list()) {
+            if (child.name().endsWith(suffix)) handles.add(child);
+        }
+        return handles.toArray();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof BundleFileHandle)) return false;
+        final BundleFileHandle other = (BundleFileHandle) obj;
+        return bundle == other.bundle && bundlePath.equals(other.bundlePath);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * System.identityHashCode(bundle) + bundlePath.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return bundlePath;
+    }
+
+    /**
+     * Input stream over a byte buffer.
+     */
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) return 0;
+            if (!buffer.hasRemaining()) return -1;
+            final int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            final int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+}
@@ -18,12 +18,32 @@ package com.mbrlabs.mundus.runtime;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.g3d.ModelBatch;
+import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Disposable;
 import com.mbrlabs.mundus.commons.Scene;
 import com.mbrlabs.mundus.commons.assets.Asset;
 import com.mbrlabs.mundus.commons.assets.AssetManager;
+import com.mbrlabs.mundus.commons.g3d.SortKeyRenderableSorter;
+import com.mbrlabs.mundus.commons.scene3d.GameObject;
+import com.mbrlabs.mundus.commons.scene3d.components.Component;
+import com.mbrlabs.mundus.commons.scene3d.components.ModelComponent;
+import com.mbrlabs.mundus.commons.scene3d.components.TerrainComponent;
 
 /**
+ * Entry point of the runtime.
+ *
+ * Several scenes can be resident at the same time. They share the asset
+ * manager, so assets used by more than one scene are loaded only once. A
+ * typical streaming setup plays the active scene, while the next one is
+ * preloaded with loadSceneAsync(). After activate() switched to the new
+ * scene, unload() disposes the old one and evicts the assets, that no
+ * resident scene references anymore.
+ *
+ * A headless instance loads scenes as pure data (transforms, tags, terrain
+ * heights, model bounds) without a GL context, e.g. to host many scenes on a
+ * server. attachGraphics() uploads everything, once a renderer is present.
+ *
  * @author Marcus Brummer
  * @version 27-10-2016
  */
@@ -36,19 +56,47 @@ public class Mundus implements Disposable {
     private final FileHandle root;
 
     private Shaders shaders;
+    // shared by all resident scenes, that don't have their own
+    private ModelBatch batch;
+
+    private final Array<Scene> scenes = new Array<Scene>();
+    private Scene activeScene;
+
+    // true if this instance was headless and got a renderer attached
+    private boolean graphicsAttached = false;
+    private final Array<Component> tmpComponents = new Array<Component>();
 
     public Mundus(final FileHandle mundusRoot) {
+        this(mundusRoot, false);
+    }
+
+    /**
+     * @param mundusRoot
+     *            root folder of the exported project
+     * @param headless
+     *            true to load scenes without GL resources
+     */
+    public Mundus(final FileHandle mundusRoot, boolean headless) {
         this.root = mundusRoot;
         this.assetManager = new AssetManager(root.child("assets"));
+        this.assetManager.setHeadless(headless);
         this.sceneLoader = new SceneLoader(this, root.child("scenes"));
     }
 
     public void init() {
+        // assets are indexed & loaded on demand, when a scene references them. Only the
+        // assets listed in the scene's asset manifest are indexed, the asset folder is
+        // scanned only for scenes without one
+        if (isHeadless()) return;
+        createRenderer();
+    }
+
+    private void createRenderer() {
+        batch = new ModelBatch(new SortKeyRenderableSorter());
         try {
-            assetManager.loadAssets(null);
             shaders = new Shaders();
         } catch (Exception e) {
-            Gdx.app.log(TAG, e.getMessage());
+            if (Gdx.app != null) Gdx.app.log(TAG, e.getMessage());
         }
     }
 
@@ -56,17 +104,204 @@ public class Mundus implements Disposable {
         return assetManager;
     }
 
+    /**
+     * @return shaders or null in headless mode
+     */
     public Shaders getShaders() {
         return shaders;
     }
 
+    /**
+     * Returns the model batch, that renders resident scenes without an own
+     * batch. It sorts renderables with a SortKeyRenderableSorter.
+     *
+     * @return model batch or null in headless mode
+     */
+    public ModelBatch getBatch() {
+        return batch;
+    }
+
+    public boolean isHeadless() {
+        return assetManager.isHeadless();
+    }
+
+    /**
+     * Attaches a renderer to a headless instance: creates the shaders,
+     * uploads the loaded assets and sets the shaders of the components of all
+     * resident scenes. Model instances are created in the first render call
+     * of their components. Does nothing, if not headless. Must be called on
+     * the GL thread.
+     */
+    public void attachGraphics() {
+        if (!isHeadless()) return;
+        assetManager.attachGraphics();
+        graphicsAttached = true;
+        createRenderer();
+        for (Scene scene : scenes) {
+            attachGraphics(scene);
+        }
+    }
+
+    /**
+     * Sets the shaders of components, that were created headless, the batch
+     * and the camera viewport.
+     */
+    private void attachGraphics(Scene scene) {
+        if (scene.sceneGraph.batch == null) scene.sceneGraph.batch = batch;
+        if (shaders == null) return;
+        scene.cam.viewportWidth = Gdx.graphics.getWidth();
+        scene.cam.viewportHeight = Gdx.graphics.getHeight();
+        scene.cam.update();
+
+        for (GameObject go : scene.sceneGraph.getGameObjects()) {
+            go.findComponentsByType(tmpComponents, Component.Type.MODEL, true);
+            go.findComponentsByType(tmpComponents, Component.Type.TERRAIN, true);
+        }
+        for (Component component : tmpComponents) {
+            if (component instanceof ModelComponent) {
+                final ModelComponent mc = (ModelComponent) component;
+                if (mc.getShader() == null) mc.setShader(shaders.getModelShader());
+            } else if (component instanceof TerrainComponent) {
+                final TerrainComponent tc = (TerrainComponent) component;
+                if (tc.getShader() == null) tc.setShader(shaders.getTerrainShader());
+            }
+        }
+        tmpComponents.clear();
+    }
+
+    /**
+     * Loads a scene blocking and makes it resident. The first resident scene
+     * is activated.
+     *
+     * @param name
+     *            file name of the scene
+     * @return loaded scene
+     */
     public Scene loadScene(final String name) {
-        return sceneLoader.load(name);
+        final Scene scene = sceneLoader.load(name);
+        addScene(scene);
+        return scene;
     }
 
+    /**
+     * Loads a scene without blocking the GL thread. Parsing and reading of
+     * assets happens on a worker thread, uploads and component creation in
+     * update(), which must be called every frame.
+     *
+     * The loaded scene becomes resident before the listener is informed,
+     * but is not activated, unless it is the only resident scene.
+     *
+     * @param name
+     *            file name of the scene
+     * @param listener
+     *            informs about progress, errors and the loaded scene
+     * @return task, that can be used to cancel loading
+     */
+    public SceneLoadTask loadSceneAsync(final String name, final SceneLoader.SceneLoadingListener listener) {
+        return sceneLoader.loadAsync(name, new SceneLoader.SceneLoadingListener() {
+            @Override
+            public void onProgress(float progress) {
+                listener.onProgress(progress);
+            }
+
+            @Override
+            public void onFinish(Scene scene) {
+                addScene(scene);
+                listener.onFinish(scene);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                listener.onError(e);
+            }
+        });
+    }
+
+    private void addScene(Scene scene) {
+        // scenes, that were loading while graphics got attached, may have components without shaders
+        if (graphicsAttached) {
+            attachGraphics(scene);
+        } else if (scene.sceneGraph.batch == null) {
+            scene.sceneGraph.batch = batch;
+        }
+        scenes.add(scene);
+        if (activeScene == null) activeScene = scene;
+    }
+
+    /**
+     * Makes a resident scene the active one.
+     *
+     * @param scene
+     *            resident scene
+     */
+    public void activate(Scene scene) {
+        if (!scenes.contains(scene, true)) {
+            throw new IllegalArgumentException("Scene is not resident: " + scene.getName());
+        }
+        activeScene = scene;
+    }
+
+    /**
+     * @return the active scene or null if no scene is resident
+     */
+    public Scene getActiveScene() {
+        return activeScene;
+    }
+
+    /**
+     * @return all resident scenes
+     */
+    public Array<Scene> getScenes() {
+        return scenes;
+    }
+
+    /**
+     * Disposes a resident scene and evicts all assets, that are not
+     * referenced by another resident scene anymore. If the scene was the
+     * active one, no scene is active afterwards.
+     *
+     * @param scene
+     *            resident scene
+     */
+    public void unload(Scene scene) {
+        if (!scenes.removeValue(scene, true)) return;
+        if (activeScene == scene) activeScene = null;
+
+        scene.dispose();
+        final int evicted = assetManager.evictUnreferenced();
+        if (Gdx.app != null) Gdx.app.log(TAG, "Unloaded scene " + scene.getName() + ", evicted " + evicted + " assets");
+    }
+
+    /**
+     * Continues async scene loading. Must be called on the GL thread, e.g. at
+     * the start of render().
+     *
+     * @param millis
+     *            time budget for GL work per call
+     * @return true if no scene is loading anymore
+     */
+    public boolean update(int millis) {
+        return sceneLoader.update(millis);
+    }
+
+    /**
+     * Cancels async loading and disposes all resident scenes & assets.
+     * Resident scenes must not be disposed by the caller, use unload()
+     * instead.
+     */
     @Override
     public void dispose() {
+        sceneLoader.dispose();
+        for (Scene scene : scenes) {
+            scene.dispose();
+        }
+        scenes.clear();
+        activeScene = null;
         assetManager.dispose();
+        if (batch != null) {
+            batch.dispose();
+            batch = null;
+        }
     }
 
 }
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.runtime;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.ObjectIntMap;
+import com.mbrlabs.mundus.commons.Scene;
+import com.mbrlabs.mundus.commons.assets.Asset;
+import com.mbrlabs.mundus.commons.importer.BinarySceneFormat;
+import com.mbrlabs.mundus.commons.scene3d.GameObject;
+
+/**
+ * A parsed scene, whose components are not created yet.
+ *
+ * The game objects are already part of the scene graph. Their components are
+ * kept as int records, laid out like the records of the binary scene format
+ * (see {@link BinarySceneFormat}): flags, model component, terrain component.
+ * Lod screen sizes are stored as float bits. Parsing doesn't need the GL
+ * thread, so it can run on a worker.
+ *
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+class SceneData {
+
+    final Scene scene;
+    final Array<String> strings;
+    final Array<GameObject> gameObjects;
+    final IntArray recordOffsets;
+    final IntArray records;
+
+    // resolved assets by string index, filled on the GL thread
+    Asset[] assets;
+
+    // asset manifest of the scene. null if the scene has none
+    Array<String> manifestIds;
+    Array<String> manifestMetas;
+
+    // only used while parsing json
+    private ObjectIntMap<String> stringIndex;
+
+    SceneData(Scene scene, Array<String> strings, int gameObjectCount) {
+        this.scene = scene;
+        this.strings = strings;
+        this.gameObjects = new Array<GameObject>(gameObjectCount);
+        this.recordOffsets = new IntArray(gameObjectCount);
+        this.records = new IntArray(gameObjectCount * 2);
+    }
+
+    /**
+     * Adds a game object to its parent and starts its record.
+     *
+     * @param go
+     *            game object
+     * @param parent
+     *            index of the parent or BinarySceneFormat.NO_PARENT
+     * @param flags
+     *            record flags
+     * @return index of the game object
+     */
+    int add(GameObject go, int parent, int flags) {
+        if (parent == BinarySceneFormat.NO_PARENT) {
+            scene.sceneGraph.addGameObject(go);
+        } else {
+            gameObjects.get(parent).addChild(go);
+        }
+        gameObjects.add(go);
+        recordOffsets.add(records.size);
+        records.add(flags);
+        return gameObjects.size - 1;
+    }
+
+    /**
+     * @return index of the string in the string table or -1 for null
+     */
+    int string(String value) {
+        if (value == null) return -1;
+        if (stringIndex == null) {
+            stringIndex = new ObjectIntMap<String>();
+            for (int i = 0; i < strings.size; i++) {
+                stringIndex.put(strings.get(i), i);
+            }
+        }
+        int index = stringIndex.get(value, -1);
+        if (index < 0) {
+            index = strings.size;
+            strings.add(value);
+            stringIndex.put(value, index);
+        }
+        return index;
+    }
+
+    int size() {
+        return gameObjects.size;
+    }
+
+    int flags(int index) {
+        return records.get(recordOffsets.get(index));
+    }
+
+    /**
+     * Collects the ids of all assets, components of this scene reference.
+     *
+     * @param out
+     *            receives the asset ids, every id once
+     * @return out
+     */
+    Array<String> getAssetIds(Array<String> out) {
+        final boolean[] added = new boolean[strings.size];
+        final int[] r = records.items;
+        for (int i = 0; i < gameObjects.size; i++) {
+            int o = recordOffsets.get(i);
+            final int flags = r[o++];
+            if ((flags & BinarySceneFormat.FLAG_MODEL) != 0) {
+                addAssetId(r[o++], added, out);
+                final int materials = r[o++];
+                for (int m = 0; m < materials; m++) {
+                    o++; // material id of the model
+                    addAssetId(r[o++], added, out);
+                }
+                final int lods = r[o++];
+                for (int l = 0; l < lods; l++) {
+                    addAssetId(r[o++], added, out);
+                    o++; // screen size
+                }
+            }
+            if ((flags & BinarySceneFormat.FLAG_TERRAIN) != 0) {
+                addAssetId(r[o], added, out);
+            }
+        }
+        return out;
+    }
+
+    private void addAssetId(int index, boolean[] added, Array<String> out) {
+        if (index >= 0 && !added[index]) {
+            added[index] = true;
+            out.add(strings.get(index));
+        }
+    }
+
+}
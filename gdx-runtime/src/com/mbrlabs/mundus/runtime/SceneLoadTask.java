@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 2016. See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mbrlabs.mundus.runtime;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.mbrlabs.mundus.commons.Scene;
+import com.mbrlabs.mundus.commons.assets.Asset;
+import com.mbrlabs.mundus.commons.assets.AssetManager;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * An async scene loading process, started by SceneLoader.loadAsync().
+ *
+ * Steps:
+ * <ol>
+ * <li>worker: parse the scene file, create the scene & game objects</li>
+ * <li>GL thread: index the assets of the scene's manifest & collect the
+ * referenced assets, that are not loaded yet</li>
+ * <li>worker: read & decode these assets (AssetManager.loadAssetData())</li>
+ * <li>GL thread: upload the assets & resolve their dependencies</li>
+ * <li>GL thread: create the components</li>
+ * </ol>
+ *
+ * The GL steps run in SceneLoader.update() under its time budget, so they are
+ * spread over several frames.
+ *
+ * The assets of the scene are retained while loading, so unloading another
+ * scene in the meantime doesn't evict them. Assets, that overlapping loads
+ * or acquire() need as well, are read only once (see
+ * AssetManager.collectUnloaded()).
+ *
+ * @author Marcus Brummer
+ * @version 19-10-2026
+ */
+public class SceneLoadTask {
+
+    private static final String TAG = SceneLoadTask.class.getSimpleName();
+
+    // share of the steps on the total progress
+    private static final float PARSE_PROGRESS = 0.1f;
+    private static final float ASSET_PROGRESS = 0.6f;
+    private static final float BUILD_PROGRESS = 0.3f;
+
+    // game objects built between two time checks
+    private static final int BUILD_BATCH_SIZE = 64;
+
+    private enum State {
+        PARSING, UPLOADING, BUILDING, DONE
+    }
+
+    private final SceneLoader loader;
+    private final AssetManager assetManager;
+    private final FileHandle file;
+    private final SceneLoader.SceneLoadingListener listener;
+
+    // written by the worker
+    private volatile SceneData data;
+    private volatile Exception error;
+    private volatile boolean cancelled = false;
+
+    private State state = State.PARSING;
+    private float progress = 0;
+
+    private Array<Asset> pendingAssets;
+    private Future<?> loadAssetsFuture;
+    private final ConcurrentLinkedQueue<Asset> loadedAssets = new ConcurrentLinkedQueue<Asset>();
+    private int uploaded = 0;
+    // assets of the scene, retained until the components reference them
+    private final Array<Asset> pinned = new Array<Asset>();
+    private int built = 0;
+
+    final Runnable parseJob = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                data = loader.parse(file, SceneLoadTask.this);
+            } catch (Exception e) {
+                error = e;
+            }
+        }
+    };
+
+    private final Runnable loadAssetsJob = new Runnable() {
+        @Override
+        public void run() {
+            for (Asset asset : pendingAssets) {
+                if (cancelled) return;
+                try {
+                    // disposes what has been decoded before a failure
+                    assetManager.loadAssetData(asset);
+                } catch (Exception e) {
+                    error = e;
+                    return;
+                }
+                loadedAssets.add(asset);
+            }
+        }
+    };
+
+    SceneLoadTask(SceneLoader loader, AssetManager assetManager, FileHandle file,
+            SceneLoader.SceneLoadingListener listener) {
+        this.loader = loader;
+        this.assetManager = assetManager;
+        this.file = file;
+        this.listener = listener;
+    }
+
+    /**
+     * Cancels loading. The partly loaded scene and the assets, that are
+     * decoded but not uploaded, are disposed with the next update, the
+     * listener is not informed anymore. Assets, that are already uploaded,
+     * stay loaded, until they are evicted by the asset manager.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isDone() {
+        return state == State.DONE;
+    }
+
+    /**
+     * @return loading progress between 0 and 1
+     */
+    public float getProgress() {
+        return progress;
+    }
+
+    /**
+     * Does the GL steps. Called by SceneLoader.update() on the GL thread.
+     *
+     * @param end
+     *            System.nanoTime() at which to stop
+     * @return true if the process is over (finished, failed or canceled)
+     */
+    boolean update(long end) {
+        if (state == State.DONE) return true;
+        if (cancelled) {
+            stop();
+            return true;
+        }
+        if (error != null) {
+            fail(error);
+            return true;
+        }
+
+        try {
+            switch (state) {
+            case PARSING:
+                if (data == null) return false;
+                loader.indexAssets(data);
+                final Array<String> ids = data.getAssetIds(new Array<String>());
+                for (String id : ids) {
+                    final Asset asset = assetManager.findAssetByID(id);
+                    if (asset != null) pin(asset);
+                }
+                pendingAssets = assetManager.collectUnloaded(ids, new Array<Asset>());
+                for (Asset asset : pendingAssets) {
+                    pin(asset);
+                }
+                if (pendingAssets.size > 0) {
+                    loadAssetsFuture = loader.execute(loadAssetsJob);
+                }
+                state = State.UPLOADING;
+                setProgress(PARSE_PROGRESS);
+                // fall through
+            case UPLOADING:
+                while (uploaded < pendingAssets.size) {
+                    final Asset asset = loadedAssets.poll();
+                    if (asset == null) return false;
+                    assetManager.uploadLoaded(asset);
+                    uploaded++;
+                    setProgress(PARSE_PROGRESS + ASSET_PROGRESS * uploaded / pendingAssets.size);
+                    if (System.nanoTime() >= end) return false;
+                }
+                assetManager.resolveLoaded(pendingAssets);
+                state = State.BUILDING;
+                // fall through
+            case BUILDING:
+                final int count = data.size();
+                while (built < count) {
+                    final int batchEnd = Math.min(count, built + BUILD_BATCH_SIZE);
+                    while (built < batchEnd) {
+                        loader.build(data, built++);
+                    }
+                    setProgress(PARSE_PROGRESS + ASSET_PROGRESS + BUILD_PROGRESS * built / count);
+                    if (built < count && System.nanoTime() >= end) return false;
+                }
+                loader.applyStatic(data);
+                unpinAll();
+                state = State.DONE;
+                setProgress(1);
+                listener.onFinish(data.scene);
+                return true;
+            default:
+                return true;
+            }
+        } catch (Exception e) {
+            fail(e);
+            return true;
+        }
+    }
+
+    private void setProgress(float progress) {
+        if (progress == this.progress) return;
+        this.progress = progress;
+        listener.onProgress(progress);
+    }
+
+    private void fail(Exception e) {
+        stop();
+        if (Gdx.app != null) Gdx.app.error(TAG, "Can't load scene " + file.path(), e);
+        listener.onError(e);
+    }
+
+    private void stop() {
+        cancelled = true;
+        state = State.DONE;
+        stopLoadingAssets();
+        if (data != null) {
+            // releases the assets of the components, that are built already
+            data.scene.dispose();
+        }
+        unpinAll();
+    }
+
+    /**
+     * Stops the worker job and discards the assets, that haven't been
+     * uploaded yet. Their data is disposed, unless another load shares them.
+     */
+    private void stopLoadingAssets() {
+        if (loadAssetsFuture != null) {
+            // not started yet or finished: nothing to wait for. Otherwise the job stops after the current asset
+            if (!loadAssetsFuture.cancel(false)) {
+                try {
+                    loadAssetsFuture.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    // failures are reported through error
+                }
+            }
+            loadAssetsFuture = null;
+        }
+
+        loadedAssets.clear();
+        if (pendingAssets != null) {
+            for (int i = uploaded; i < pendingAssets.size; i++) {
+                assetManager.discardLoaded(pendingAssets.get(i));
+            }
+            uploaded = pendingAssets.size;
+        }
+    }
+
+    /**
+     * Retains an asset, so it is not evicted (e.g. because another scene got
+     * unloaded) before the components of this scene reference it. Assets,
+     * that are not loaded yet, are retained as well: another load might
+     * upload them first.
+     */
+    private void pin(Asset asset) {
+        asset.retain();
+        pinned.add(asset);
+    }
+
+    private void unpinAll() {
+        for (Asset asset : pinned) {
+            asset.release();
+        }
+        pinned.clear();
+    }
+
+}
@@ -16,72 +16,376 @@
 
 package com.mbrlabs.mundus.runtime;
 
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.g3d.Shader;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
 import com.badlogic.gdx.utils.JsonReader;
 import com.badlogic.gdx.utils.JsonValue;
 import com.mbrlabs.mundus.commons.Scene;
+import com.mbrlabs.mundus.commons.assets.Asset;
 import com.mbrlabs.mundus.commons.assets.AssetManager;
+import com.mbrlabs.mundus.commons.assets.AssetNotFoundException;
 import com.mbrlabs.mundus.commons.assets.MaterialAsset;
 import com.mbrlabs.mundus.commons.assets.ModelAsset;
 import com.mbrlabs.mundus.commons.assets.TerrainAsset;
+import com.mbrlabs.mundus.commons.assets.meta.MetaFileParseException;
+import com.mbrlabs.mundus.commons.importer.BinarySceneFormat;
 import com.mbrlabs.mundus.commons.importer.JsonScene;
+import com.mbrlabs.mundus.commons.importer.SceneAssetManifest;
 import com.mbrlabs.mundus.commons.scene3d.GameObject;
 import com.mbrlabs.mundus.commons.scene3d.InvalidComponentException;
-import com.mbrlabs.mundus.commons.scene3d.SceneGraph;
 import com.mbrlabs.mundus.commons.scene3d.components.ModelComponent;
 import com.mbrlabs.mundus.commons.scene3d.components.TerrainComponent;
+import com.mbrlabs.mundus.commons.utils.MappedFile;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 /**
+ * Loads exported scenes.
+ *
+ * Loading has two steps: parsing creates the scene and its game objects (see
+ * {@link SceneData}), building creates the components and loads the
+ * referenced assets. Scenes in the binary format (see
+ * {@link BinarySceneFormat}) are parsed in a single pass over the file.
+ * Scenes exported as json are still supported.
+ *
+ * load() does both steps on the calling thread. loadAsync() parses the scene
+ * and reads the assets on a worker thread. Uploads and component creation
+ * happen in update() on the GL thread.
+ *
  * @author Marcus Brummer
  * @version 27-10-2016
  */
-public class SceneLoader {
+public class SceneLoader implements Disposable {
+
+    private static final String TAG = SceneLoader.class.getSimpleName();
 
     private Mundus mundus;
     private AssetManager assetManager;
 
     private FileHandle root;
 
+    private ExecutorService worker;
+    private final Array<SceneLoadTask> tasks = new Array<SceneLoadTask>();
+
     public SceneLoader(Mundus mundus, FileHandle scenesRoot) {
         this.mundus = mundus;
         this.assetManager = mundus.getAssetManager();
         this.root = scenesRoot;
     }
 
+    /**
+     * Loads a scene blocking. Must be called on the GL thread.
+     *
+     * @param name
+     *            file name of the scene
+     * @return loaded scene
+     */
     public Scene load(String name) {
+        final SceneData data = parse(root.child(name), null);
+        indexAssets(data);
+        for (int i = 0; i < data.size(); i++) {
+            build(data, i);
+        }
+        applyStatic(data);
+        return data.scene;
+    }
+
+    /**
+     * Starts loading a scene in the background. Call update() every frame on
+     * the GL thread until the listener is informed.
+     *
+     * @param name
+     *            file name of the scene
+     * @param listener
+     *            informs about progress, errors and the loaded scene. Called
+     *            on the GL thread
+     * @return task, that can be used to cancel loading
+     */
+    public SceneLoadTask loadAsync(String name, SceneLoadingListener listener) {
+        final SceneLoadTask task = new SceneLoadTask(this, assetManager, root.child(name), listener);
+        tasks.add(task);
+        execute(task.parseJob);
+        return task;
+    }
+
+    /**
+     * Continues async loading processes. Must be called on the GL thread.
+     *
+     * @param millis
+     *            time budget for uploads & component creation. At least one
+     *            step is done per call
+     * @return true if no scene is loading anymore
+     */
+    public boolean update(int millis) {
+        final long end = System.nanoTime() + millis * 1000000L;
+        for (int i = 0; i < tasks.size;) {
+            if (tasks.get(i).update(end)) {
+                tasks.removeIndex(i);
+            } else {
+                i++;
+            }
+        }
+        return tasks.size == 0;
+    }
+
+    Future<?> execute(Runnable job) {
+        if (worker == null) {
+            worker = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    final Thread thread = new Thread(runnable, TAG);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return worker.submit(job);
+    }
+
+    /**
+     * Reads a scene file and its asset manifest and creates the scene and its
+     * game objects. Can be called on any thread.
+     *
+     * @param file
+     *            scene file
+     * @param task
+     *            async task, checked for cancellation. May be null
+     * @return parsed scene or null if the task was canceled
+     */
+    SceneData parse(FileHandle file, SceneLoadTask task) {
+        final ByteBuffer data = read(file);
+        final SceneData sceneData;
+        if (data.remaining() >= 4 && data.getInt(0) == BinarySceneFormat.MAGIC) {
+            sceneData = parseBinary(file, data, task);
+        } else {
+            sceneData = parseJson(file, task);
+        }
+        if (sceneData != null) {
+            readManifest(file, sceneData);
+        }
+        return sceneData;
+    }
+
+    private SceneData parseJson(FileHandle file, SceneLoadTask task) {
         final JsonReader reader = new JsonReader();
-        final JsonValue json = reader.parse(root.child(name));
+        final JsonValue json = reader.parse(file);
 
         Scene scene = new Scene();
         scene.setId(json.getInt(JsonScene.ID));
         scene.setName(json.getString(JsonScene.NAME));
 
         // game objects
+        final SceneData sceneData = new SceneData(scene, new Array<String>(), 16);
         for(JsonValue go : json.get(JsonScene.GAME_OBJECTS)) {
-            scene.sceneGraph.addGameObject(convertGameObject(scene.sceneGraph, go));
+            if (task != null && task.isCancelled()) return null;
+            parseGameObject(sceneData, go, BinarySceneFormat.NO_PARENT);
+        }
+
+        return sceneData;
+    }
+
+    private SceneData parseBinary(FileHandle file, ByteBuffer data, SceneLoadTask task) {
+        data.position(4);
+        final int version = data.getInt();
+        if (version != BinarySceneFormat.VERSION) {
+            throw new GdxRuntimeException("Unsupported scene version " + version + ": " + file.path());
+        }
+
+        final Scene scene = new Scene();
+        scene.setId(data.getLong());
+        final int sceneName = data.getInt();
+
+        final Array<String> strings = readStrings(data);
+        scene.setName(strings.get(sceneName));
+
+        // records are in pre-order, so the parent of a game object always exists already
+        final int count = data.getInt();
+        final SceneData sceneData = new SceneData(scene, strings, count);
+        final IntArray records = sceneData.records;
+        for (int i = 0; i < count; i++) {
+            if (task != null && task.isCancelled()) return null;
+
+            final int parent = data.getInt();
+            final int id = data.getInt();
+            final int name = data.getInt();
+            final byte flags = data.get();
+
+            final GameObject go = new GameObject(scene.sceneGraph, name < 0 ? "" : strings.get(name), id);
+            go.setActive((flags & BinarySceneFormat.FLAG_ACTIVE) != 0);
+            go.setLocalPosition(data.getFloat(), data.getFloat(), data.getFloat());
+            go.setLocalRotation(data.getFloat(), data.getFloat(), data.getFloat(), data.getFloat());
+            go.setLocalScale(data.getFloat(), data.getFloat(), data.getFloat());
+
+            final int tags = data.getShort() & 0xFFFF;
+            for (int t = 0; t < tags; t++) {
+                go.addTag(strings.get(data.getInt()));
+            }
+
+            sceneData.add(go, parent, flags);
+            if ((flags & BinarySceneFormat.FLAG_MODEL) != 0) {
+                records.add(data.getInt());
+                final int materials = data.getShort() & 0xFFFF;
+                records.add(materials);
+                for (int m = 0; m < materials; m++) {
+                    records.add(data.getInt());
+                    records.add(data.getInt());
+                }
+                final int lods = data.getShort() & 0xFFFF;
+                records.add(lods);
+                for (int l = 0; l < lods; l++) {
+                    records.add(data.getInt());
+                    records.add(Float.floatToRawIntBits(data.getFloat()));
+                }
+            }
+            if ((flags & BinarySceneFormat.FLAG_TERRAIN) != 0) {
+                records.add(data.getInt());
+            }
         }
 
-        return scene;
+        return sceneData;
     }
 
-    private GameObject convertGameObject(SceneGraph sceneGraph, JsonValue jsonGo) {
-        final GameObject go = new GameObject(sceneGraph, jsonGo.getString(JsonScene.GO_NAME, ""),
+    private void parseGameObject(SceneData data, JsonValue jsonGo, int parent) {
+        final GameObject go = new GameObject(data.scene.sceneGraph, jsonGo.getString(JsonScene.GO_NAME, ""),
                 jsonGo.getInt(JsonScene.GO_ID));
-        go.active = jsonGo.getBoolean(JsonScene.GO_ACTIVE, true);
-        // TODO tags
+        go.setActive(jsonGo.getBoolean(JsonScene.GO_ACTIVE, true));
+
+        JsonValue tags = jsonGo.get(JsonScene.GO_TAGS);
+        if(tags != null) {
+            for(JsonValue tag : tags) {
+                go.addTag(tag.asString());
+            }
+        }
+
+        // transformation
+        final float[] transform = jsonGo.get(JsonScene.GO_TRANSFORM).asFloatArray();
+        go.setLocalPosition(transform[0], transform[1], transform[2]);
+        go.setLocalRotation(transform[3], transform[4], transform[5], transform[6]);
+        go.setLocalScale(transform[7], transform[8], transform[9]);
 
-        // model component
         JsonValue modelComp = jsonGo.get(JsonScene.GO_MODEL_COMPONENT);
+        JsonValue terrainComp = jsonGo.get(JsonScene.GO_TERRAIN_COMPONENT);
+        int flags = 0;
+        if(go.isActive()) flags |= BinarySceneFormat.FLAG_ACTIVE;
+        if(jsonGo.getBoolean(JsonScene.GO_STATIC, false)) flags |= BinarySceneFormat.FLAG_STATIC;
+        if(modelComp != null) flags |= BinarySceneFormat.FLAG_MODEL;
+        if(terrainComp != null) flags |= BinarySceneFormat.FLAG_TERRAIN;
+        final int index = data.add(go, parent, flags);
+
+        // model component
         if(modelComp != null) {
-            ModelComponent mc = new ModelComponent(go, mundus.getShaders().getModelShader());
-            mc.setModel((ModelAsset) assetManager.findAssetByID(modelComp.getString(JsonScene.MODEL_COMPONENT_MODEL_ID)), false);
+            data.records.add(data.string(modelComp.getString(JsonScene.MODEL_COMPONENT_MODEL_ID)));
 
             JsonValue mats = modelComp.get(JsonScene.MODEL_COMPONENT_MATERIALS);
+            data.records.add(mats.size);
             for(JsonValue mat : mats.iterator()) {
-                mc.getMaterials().put(mat.name, (MaterialAsset) assetManager.findAssetByID(mats.getString(mat.name)));
+                data.records.add(data.string(mat.name));
+                data.records.add(data.string(mats.getString(mat.name)));
+            }
+
+            JsonValue lods = modelComp.get(JsonScene.MODEL_COMPONENT_LODS);
+            data.records.add(lods == null ? 0 : lods.size);
+            if(lods != null) {
+                for(JsonValue lod : lods) {
+                    data.records.add(data.string(lod.getString(JsonScene.LOD_MODEL_ID)));
+                    data.records.add(Float.floatToRawIntBits(lod.getFloat(JsonScene.LOD_SCREEN_SIZE)));
+                }
+            }
+        }
+
+        // terrain component
+        if(terrainComp != null) {
+            data.records.add(data.string(terrainComp.getString(JsonScene.TERRAIN_COMPONENT_TERRAIN_ID)));
+        }
+
+        // children
+        JsonValue children = jsonGo.get(JsonScene.GO_CHILDREN);
+        if(children != null) {
+            for(JsonValue c : children) {
+                parseGameObject(data, c, index);
+            }
+        }
+    }
+
+    /**
+     * Reads the asset manifest of a scene, if the exporter wrote one.
+     */
+    private void readManifest(FileHandle sceneFile, SceneData data) {
+        final FileHandle file = SceneAssetManifest.file(sceneFile);
+        if (!file.exists()) return;
+
+        final JsonValue assets = new JsonReader().parse(file).get(SceneAssetManifest.ASSETS);
+        data.manifestIds = new Array<String>(assets.size);
+        data.manifestMetas = new Array<String>(assets.size);
+        for (JsonValue asset : assets) {
+            data.manifestIds.add(asset.getString(SceneAssetManifest.ASSET_ID));
+            data.manifestMetas.add(asset.getString(SceneAssetManifest.ASSET_META));
+        }
+    }
+
+    /**
+     * Makes the assets of the scene's manifest known to the asset manager,
+     * so it doesn't have to scan the whole asset folder. Scenes without a
+     * manifest fall back to the scan. Must be called on the GL thread.
+     */
+    void indexAssets(SceneData data) {
+        if (data.manifestIds == null) return;
+        try {
+            assetManager.indexAssets(data.manifestIds, data.manifestMetas);
+        } catch (AssetNotFoundException e) {
+            if (Gdx.app != null) Gdx.app.error(TAG, "Asset of manifest not found", e);
+        } catch (MetaFileParseException e) {
+            if (Gdx.app != null) Gdx.app.error(TAG, "Can't parse meta file of manifest asset", e);
+        }
+    }
+
+    /**
+     * Creates the components of a game object. Loads the referenced assets,
+     * if they are not loaded yet. Must be called on the GL thread.
+     *
+     * @param data
+     *            parsed scene
+     * @param index
+     *            index of the game object
+     */
+    void build(SceneData data, int index) {
+        final GameObject go = data.gameObjects.get(index);
+        final int[] r = data.records.items;
+        int o = data.recordOffsets.get(index);
+        final int flags = r[o++];
+
+        if ((flags & BinarySceneFormat.FLAG_MODEL) != 0) {
+            final ModelComponent mc = new ModelComponent(go, modelShader());
+            mc.setModel((ModelAsset) asset(data, r[o++]), false);
+
+            final int materials = r[o++];
+            for (int m = 0; m < materials; m++) {
+                final String materialId = data.strings.get(r[o++]);
+                mc.getMaterials().put(materialId, (MaterialAsset) asset(data, r[o++]));
             }
             mc.applyMaterials();
 
+            final int lods = r[o++];
+            for (int l = 0; l < lods; l++) {
+                final ModelAsset lod = (ModelAsset) asset(data, r[o++]);
+                final float screenSize = Float.intBitsToFloat(r[o++]);
+                if (lod == null) {
+                    if (Gdx.app != null) Gdx.app.error(TAG, "Skipping missing level of detail of " + go.name);
+                    continue;
+                }
+                mc.addLod(lod, screenSize);
+            }
+
             try {
                 go.addComponent(mc);
             } catch (InvalidComponentException e) {
@@ -89,35 +393,135 @@ public class SceneLoader {
             }
         }
 
-        // TODO terrain component
-        JsonValue terrainComp = jsonGo.get(JsonScene.GO_TERRAIN_COMPONENT);
-        if(terrainComp != null) {
-            TerrainComponent tc = new TerrainComponent(go, mundus.getShaders().getTerrainShader());
-            tc.setTerrain((TerrainAsset)
-                    assetManager.findAssetByID(terrainComp.getString(JsonScene.TERRAIN_COMPONENT_TERRAIN_ID)));
+        if ((flags & BinarySceneFormat.FLAG_TERRAIN) != 0) {
+            final TerrainComponent tc = new TerrainComponent(go, terrainShader());
+            tc.setTerrain((TerrainAsset) asset(data, r[o]));
             try {
                 go.addComponent(tc);
             } catch (InvalidComponentException e) {
                 e.printStackTrace();
             }
         }
+    }
 
-        // transformation
-        final float[] transform = jsonGo.get(JsonScene.GO_TRANSFORM).asFloatArray();
-        go.setLocalPosition(transform[0], transform[1], transform[2]);
-        go.setLocalRotation(transform[3], transform[4], transform[5], transform[6]);
-        go.setLocalScale(transform[7], transform[8], transform[9]);
+    // no shaders in headless mode, they are set by Mundus.attachGraphics()
+    private Shader modelShader() {
+        return mundus.getShaders() != null ? mundus.getShaders().getModelShader() : null;
+    }
 
-        // children
-        JsonValue children = jsonGo.get(JsonScene.GO_CHILDREN);
-        if(children != null) {
-            for(JsonValue c : children) {
-                go.addChild(convertGameObject(sceneGraph, c));
+    private Shader terrainShader() {
+        return mundus.getShaders() != null ? mundus.getShaders().getTerrainShader() : null;
+    }
+
+    /**
+     * Marks static game objects as static. After all components are created,
+     * so the static batcher sees the complete game objects.
+     */
+    void applyStatic(SceneData data) {
+        // children before their parents
+        for (int i = data.size() - 1; i >= 0; i--) {
+            if ((data.flags(i) & BinarySceneFormat.FLAG_STATIC) != 0) {
+                data.gameObjects.get(i).setStatic(true);
             }
         }
+    }
+
+    private Array<String> readStrings(ByteBuffer data) {
+        final int count = data.getInt();
+        final Array<String> out = new Array<String>(count);
+        byte[] bytes = new byte[64];
+        try {
+            for (int i = 0; i < count; i++) {
+                final int length = data.getShort() & 0xFFFF;
+                if (length > bytes.length) bytes = new byte[length];
+                data.get(bytes, 0, length);
+                out.add(new String(bytes, 0, length, "UTF-8"));
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new GdxRuntimeException(e);
+        }
+        return out;
+    }
+
+    private ByteBuffer read(FileHandle file) {
+        if (file instanceof MappedFile) {
+            return ((MappedFile) file).map();
+        }
+        return ByteBuffer.wrap(file.readBytes());
+    }
+
+    /**
+     * Returns the asset of a string table entry. Looks it up only once per scene.
+     */
+    private Asset asset(SceneData data, int index) {
+        if (index < 0) return null;
+        if (data.assets == null) {
+            data.assets = new Asset[data.strings.size];
+        }
+        if (data.assets[index] == null) {
+            data.assets[index] = asset(data.strings.get(index));
+        }
+        return data.assets[index];
+    }
+
+    /**
+     * Loads an asset & its dependencies, if not loaded yet.
+     */
+    private Asset asset(String id) {
+        if (id == null) return null;
+        try {
+            return assetManager.acquire(id);
+        } catch (AssetNotFoundException e) {
+            if (Gdx.app != null) Gdx.app.error(TAG, "Asset not found: " + id, e);
+        } catch (MetaFileParseException e) {
+            if (Gdx.app != null) Gdx.app.error(TAG, "Can't parse meta file of asset " + id, e);
+        }
+        return null;
+    }
 
-        return go;
+    /**
+     * Cancels all async loading processes.
+     */
+    @Override
+    public void dispose() {
+        for (SceneLoadTask task : tasks) {
+            task.cancel();
+            task.update(0);
+        }
+        tasks.clear();
+        if (worker != null) {
+            worker.shutdownNow();
+            worker = null;
+        }
     }
 
+    /**
+     * Used to inform users about the progress of an async loading process.
+     * All methods are called on the GL thread.
+     */
+    public interface SceneLoadingListener {
+        /**
+         * @param progress
+         *            loading progress between 0 and 1
+         */
+        void onProgress(float progress);
+
+        /**
+         * Called if the scene is completely loaded.
+         *
+         * @param scene
+         *            loaded scene
+         */
+        void onFinish(Scene scene);
+
+        /**
+         * Called if loading failed. The partly loaded scene is already
+         * disposed.
+         *
+         * @param e
+         *            cause
+         */
+        void onError(Exception e);
+    }
 
 }